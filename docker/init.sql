@@ -4,4 +4,5 @@
 GRANT ALL PRIVILEGES ON fxdeals.* TO 'fxdeals_user'@'%';
 FLUSH PRIVILEGES;
 
--- The fx_deals table will be created automatically by Hibernate
+-- The fx_deals table is created by SchemaMigrator (FXDEALS_SCHEMA_MODE=validate)
+-- or by Hibernate at boot (FXDEALS_SCHEMA_MODE=update)
@@ -0,0 +1,12 @@
+#!/bin/bash
+# Container entrypoint. In validate mode the schema is brought up to the bundled
+# migrations before WildFly starts, so Hibernate only has to check it at deployment.
+set -e
+
+if [ "${FXDEALS_SCHEMA_MODE}" = "validate" ] && [ "${FXDEALS_SCHEMA_MIGRATE:-true}" != "false" ]; then
+    java -cp /opt/jboss/fxdeals-tools/fxdeals-loader.jar com.bloomberg.fxdeals.startup.SchemaMigrator \
+        "${DB_USER}" "${DB_PASSWORD}" \
+        "jdbc:mysql://${DB_HOST}:${DB_PORT}/${DB_NAME}?useSSL=false&allowPublicKeyRetrieval=true" migrate
+fi
+
+exec /opt/jboss/wildfly/bin/standalone.sh "$@"
@@ -0,0 +1,81 @@
+package com.bloomberg.fxdeals.dto;
+
+import com.bloomberg.fxdeals.jmh.Deals;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON-B binding of request and response lists, as done for the batch create body and
+ * the list endpoints. Uses Yasson, the JSON-B provider WildFly ships.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealJsonBenchmarks {
+
+    private static final Type REQUEST_LIST = new ArrayList<FxDealRequest>() { }.getClass().getGenericSuperclass();
+    private static final Type RESPONSE_LIST = new ArrayList<FxDealResponse>() { }.getClass().getGenericSuperclass();
+
+    @Param({"1", "100"})
+    public int deals;
+
+    private Jsonb jsonb;
+    private List<FxDealRequest> requests;
+    private List<FxDealResponse> responses;
+    private String requestsJson;
+    private String responsesJson;
+
+    @Setup
+    public void setUp() {
+        jsonb = JsonbBuilder.create();
+        requests = Deals.requests(deals);
+        responses = Deals.responses(deals);
+        requestsJson = jsonb.toJson(requests, REQUEST_LIST);
+        responsesJson = jsonb.toJson(responses, RESPONSE_LIST);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        jsonb.close();
+    }
+
+    @Benchmark
+    public String serializeRequests() {
+        return jsonb.toJson(requests, REQUEST_LIST);
+    }
+
+    @Benchmark
+    public List<FxDealRequest> deserializeRequests() {
+        return jsonb.fromJson(requestsJson, REQUEST_LIST);
+    }
+
+    @Benchmark
+    public String serializeResponses() {
+        return jsonb.toJson(responses, RESPONSE_LIST);
+    }
+
+    @Benchmark
+    public List<FxDealResponse> deserializeResponses() {
+        return jsonb.fromJson(responsesJson, RESPONSE_LIST);
+    }
+}
@@ -0,0 +1,58 @@
+package com.bloomberg.fxdeals.jmh;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.entity.FxDeal;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic deal fixtures shared by the benchmarks, so that runs on different
+ * releases measure the same inputs.
+ */
+public final class Deals {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP", "CHF", "AUD", "CAD", "NZD"};
+    private static final LocalDateTime BASE_TIMESTAMP = LocalDateTime.of(2024, 1, 15, 9, 30);
+
+    private Deals() {
+    }
+
+    public static FxDealRequest request(int i) {
+        return new FxDealRequest(uniqueId(i), CURRENCIES[i % CURRENCIES.length],
+                                 CURRENCIES[(i + 1) % CURRENCIES.length], BASE_TIMESTAMP.plusSeconds(i),
+                                 BigDecimal.valueOf(100_000 + i * 37L, 2));
+    }
+
+    public static List<FxDealRequest> requests(int count) {
+        List<FxDealRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(request(i));
+        }
+        return requests;
+    }
+
+    public static FxDeal entity(int i) {
+        FxDealRequest request = request(i);
+        return new FxDeal(request.getDealUniqueId(), request.getFromCurrencyIso(), request.getToCurrencyIso(),
+                          request.getDealTimestamp(), request.getDealAmount());
+    }
+
+    public static List<FxDealResponse> responses(int count) {
+        List<FxDealResponse> responses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            FxDealRequest request = request(i);
+            responses.add(new FxDealResponse((long) i + 1, request.getDealUniqueId(), request.getFromCurrencyIso(),
+                                             request.getToCurrencyIso(), request.getDealTimestamp(),
+                                             request.getDealAmount(), request.getDealTimestamp().plusSeconds(1)));
+        }
+        return responses;
+    }
+
+    public static String uniqueId(int i) {
+        return "DEAL-" + i;
+    }
+}
@@ -0,0 +1,144 @@
+package com.bloomberg.fxdeals.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.bloomberg.fxdeals.metrics.Metrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The INFO lines a successful create writes (controller, service and repository), from
+ * four threads, against a file appender with the pattern of logback.xml:
+ *
+ * <ul>
+ *   <li>off: application loggers at OFF, the cost of the calls alone</li>
+ *   <li>sync: the file appender on the calling thread, as logback.xml</li>
+ *   <li>async: through RingBufferAppender</li>
+ *   <li>async-sampled: through RingBufferAppender with LogSampler at 1 in 100, as logback-async.xml</li>
+ * </ul>
+ *
+ * The async modes never block the caller; events the writer cannot keep up with are
+ * dropped, and the teardown prints how many, since that is part of the result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmarks {
+
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss.SSS} [%thread] %-5level %logger{36} - %msg%n";
+    private static final String CONTROLLER = "com.bloomberg.fxdeals.controller.FxDealController";
+    private static final String SERVICE = "com.bloomberg.fxdeals.service.FxDealService";
+    private static final String REPOSITORY = "com.bloomberg.fxdeals.repository.FxDealRepository";
+
+    @Param({"off", "sync", "async", "async-sampled"})
+    public String mode;
+
+    private final AtomicLong nextId = new AtomicLong();
+    private LoggerContext context;
+    private File file;
+    private Logger controller;
+    private Logger service;
+    private Logger repository;
+    private long writtenBefore;
+    private long droppedBefore;
+    private long sampledOutBefore;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        file = File.createTempFile("fxdeals-jmh", ".log");
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        FileAppender<ILoggingEvent> fileAppender = new FileAppender<>();
+        fileAppender.setContext(context);
+        fileAppender.setName("FILE");
+        fileAppender.setFile(file.getPath());
+        fileAppender.setEncoder(encoder);
+        fileAppender.start();
+
+        Appender<ILoggingEvent> appender = fileAppender;
+        if (mode.startsWith("async")) {
+            RingBufferAppender ring = new RingBufferAppender();
+            ring.setContext(context);
+            ring.setName("ASYNC");
+            ring.addAppender(fileAppender);
+            ring.start();
+            appender = ring;
+        }
+        if (mode.equals("async-sampled")) {
+            LogSampler sampler = new LogSampler();
+            sampler.setContext(context);
+            sampler.addSample(CONTROLLER + "=100");
+            sampler.addSample(SERVICE + "=100");
+            sampler.addSample(REPOSITORY + "=100");
+            sampler.start();
+            context.addTurboFilter(sampler);
+        }
+
+        Logger application = context.getLogger("com.bloomberg.fxdeals");
+        application.setLevel(mode.equals("off") ? Level.OFF : Level.INFO);
+        application.setAdditive(false);
+        application.addAppender(appender);
+        controller = context.getLogger(CONTROLLER);
+        service = context.getLogger(SERVICE);
+        repository = context.getLogger(REPOSITORY);
+
+        writtenBefore = Metrics.LOG_EVENTS_WRITTEN.get();
+        droppedBefore = Metrics.LOG_EVENTS_DROPPED.get();
+        sampledOutBefore = Metrics.LOG_EVENTS_SAMPLED_OUT.get();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+        if (mode.startsWith("async")) {
+            System.out.printf("%n%s: written %d, dropped %d, sampled out %d, file %d bytes%n", mode,
+                              Metrics.LOG_EVENTS_WRITTEN.get() - writtenBefore,
+                              Metrics.LOG_EVENTS_DROPPED.get() - droppedBefore,
+                              Metrics.LOG_EVENTS_SAMPLED_OUT.get() - sampledOutBefore,
+                              file.length());
+        }
+        file.delete();
+    }
+
+    @Benchmark
+    public long createDealLogging() {
+        long id = nextId.incrementAndGet();
+        String dealUniqueId = "DEAL-" + id;
+        controller.info("Received request to create FX deal");
+        service.info("Processing FX deal creation request for unique ID: {}", dealUniqueId);
+        repository.info("Successfully saved FX deal with ID: {} and unique ID: {}", id, dealUniqueId);
+        service.info("Successfully created FX deal with ID: {} and unique ID: {}", id, dealUniqueId);
+        return id;
+    }
+}
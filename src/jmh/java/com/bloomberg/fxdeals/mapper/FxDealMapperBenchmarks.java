@@ -0,0 +1,54 @@
+package com.bloomberg.fxdeals.mapper;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.jmh.Deals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FxDealMapper conversions on the create path (request to entity) and on every read
+ * (entity to response).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FxDealMapperBenchmarks {
+
+    private final FxDealMapper mapper = new FxDealMapper();
+    private FxDealRequest request;
+    private FxDeal deal;
+
+    @Setup
+    public void setUp() {
+        request = Deals.request(42);
+        deal = Deals.entity(42);
+        deal.setId(42L);
+        deal.setCreatedAt(LocalDateTime.of(2024, 1, 15, 9, 31));
+    }
+
+    @Benchmark
+    public FxDeal toEntity() {
+        return mapper.toEntity(request);
+    }
+
+    @Benchmark
+    public FxDealResponse toResponse() {
+        return mapper.toResponse(deal);
+    }
+}
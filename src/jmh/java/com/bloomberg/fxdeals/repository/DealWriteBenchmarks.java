@@ -0,0 +1,114 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.jmh.Deals;
+import jakarta.persistence.EntityManager;
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-deal insert cost of FxDealRepository.save and saveAll on the JPA path and with
+ * the {@link JdbcDealWriter} enabled, against an in-memory H2 database in MySQL mode.
+ * Scores are deals per millisecond for both methods.
+ *
+ * The JPA path runs in one resource-local transaction per call. The JDBC writer gets
+ * its connections from an H2 connection pool in auto-commit mode, so a batch commits once
+ * per INSERT statement (three times for {@value #BATCH} deals) instead of once; in the
+ * container both join the same JTA transaction. A networked MySQL adds a round trip per
+ * statement, which the multi-row inserts save more of than this measures.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealWriteBenchmarks {
+
+    static final int BATCH = 100;
+
+    @Param({"jpa", "jdbc"})
+    public String path;
+
+    private SessionFactory database;
+    private EntityManager entityManager;
+    private FxDealRepository repository;
+    private JdbcConnectionPool pool;
+    private int nextId;
+
+    @Setup
+    public void setUp() {
+        String url = "jdbc:h2:mem:fxdeals-jmh-write;MODE=MySQL;DB_CLOSE_DELAY=-1";
+        database = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url", url)
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("hibernate.jdbc.batch_size", "20")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        entityManager = database.createEntityManager();
+        repository = Repositories.onEntityManager(entityManager);
+        if (path.equals("jdbc")) {
+            pool = JdbcConnectionPool.create(url, "sa", "");
+            repository.jdbcWriter.start(pool, 64);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        if (pool != null) {
+            pool.dispose();
+        }
+        database.close();
+    }
+
+    /**
+     * One deal per transaction, as FxDealService.createDeal does.
+     */
+    @Benchmark
+    public FxDeal save() {
+        entityManager.getTransaction().begin();
+        FxDeal deal = repository.save(Deals.entity(nextId++));
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        return deal;
+    }
+
+    /**
+     * {@value #BATCH} deals per transaction, as one chunk of a batch create.
+     */
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public List<FxDeal> saveAll() {
+        List<FxDeal> deals = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            deals.add(Deals.entity(nextId++));
+        }
+        entityManager.getTransaction().begin();
+        List<FxDeal> saved = repository.saveAll(deals);
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        return saved;
+    }
+}
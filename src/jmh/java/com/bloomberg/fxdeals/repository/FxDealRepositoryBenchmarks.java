@@ -0,0 +1,115 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.jmh.Deals;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FxDealRepository against an in-memory H2 database in MySQL mode, preloaded with
+ * {@value #PRELOADED} deals. Measures the JPA and JDBC work of each call; a networked
+ * MySQL adds a round trip per statement on top. The interceptors that CDI adds in the
+ * container are not applied here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FxDealRepositoryBenchmarks {
+
+    static final int PRELOADED = 10_000;
+
+    private SessionFactory database;
+    private EntityManager entityManager;
+    private FxDealRepository repository;
+    private int lookup;
+    private int nextId = PRELOADED;
+
+    @Setup
+    public void setUp() {
+        database = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:fxdeals-jmh;MODE=MySQL")
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        database.inTransaction(session -> {
+            for (int i = 0; i < PRELOADED; i++) {
+                session.persist(Deals.entity(i));
+            }
+        });
+
+        entityManager = database.createEntityManager();
+        repository = new FxDealRepository();
+        repository.entityManager = entityManager;
+        repository.replicaEntityManager = entityManager;
+        repository.replicaRouter = new ReplicaRouter();
+        repository.shards = new ShardedDealStore();
+        repository.archive = new DealArchive();
+        repository.jdbcWriter = new JdbcDealWriter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManager.close();
+        database.close();
+    }
+
+    @Benchmark
+    public boolean existsByDealUniqueId() {
+        return repository.existsByDealUniqueId(nextLookup());
+    }
+
+    @Benchmark
+    public Optional<FxDeal> findByDealUniqueId() {
+        Optional<FxDeal> deal = repository.findByDealUniqueId(nextLookup());
+        entityManager.clear();
+        return deal;
+    }
+
+    @Benchmark
+    public List<FxDeal> findPage() {
+        List<FxDeal> page = repository.findAll(0, 50);
+        entityManager.clear();
+        return page;
+    }
+
+    /**
+     * One deal per transaction, as FxDealService.createDeal does.
+     */
+    @Benchmark
+    public FxDeal save() {
+        entityManager.getTransaction().begin();
+        FxDeal deal = repository.save(Deals.entity(nextId++));
+        entityManager.getTransaction().commit();
+        entityManager.clear();
+        return deal;
+    }
+
+    private String nextLookup() {
+        lookup = (lookup + 7919) % PRELOADED;
+        return Deals.uniqueId(lookup);
+    }
+}
@@ -0,0 +1,62 @@
+package com.bloomberg.fxdeals.service;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.jmh.Deals;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The checks FxDealService.validateRequest runs on every create: Bean Validation of the
+ * request plus the same-currency rule, for a valid request and for one that fails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DealRequestRulesBenchmarks {
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private FxDealRequest valid;
+    private FxDealRequest invalid;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        valid = Deals.request(42);
+        invalid = Deals.request(43);
+        invalid.setFromCurrencyIso("usd");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public String validRequest() {
+        return DealRequestRules.check(validator, valid);
+    }
+
+    @Benchmark
+    public String invalidRequest() {
+        return DealRequestRules.check(validator, invalid);
+    }
+}
@@ -0,0 +1,221 @@
+package com.bloomberg.fxdeals.admission;
+
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether a request may proceed: per-client token buckets with separate read
+ * and write budgets, followed by a global adaptive concurrency limit.
+ *
+ * Settings are re-read whenever {@link FxDealsConfig} is reloaded; existing buckets are
+ * discarded at that point so new rates apply immediately.
+ *
+ * A background sweep removes buckets that have refilled completely, which happens once a
+ * client has been idle for its burst window. A full bucket carries no state, so only
+ * clients active within their burst window are kept. While fxdeals.ratelimit.max-clients
+ * buckets are live, further clients share one overflow bucket with the same budget,
+ * which keeps memory bounded and admit free of scans.
+ */
+@ApplicationScoped
+public class AdmissionControl {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.admission.enabled";
+    public static final String SWEEP_INTERVAL_PROPERTY = "fxdeals.ratelimit.sweep-interval-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionControl.class);
+
+    /** Outcome of an admission decision. */
+    public enum Decision {
+        ADMITTED,
+        RATE_LIMITED,
+        OVERLOADED
+    }
+
+    @Inject
+    FxDealsConfig config;
+
+    private volatile Settings settings;
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder overloaded = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private ScheduledExecutorService sweeper;
+
+    @PostConstruct
+    void init() {
+        long interval = config.getLong(SWEEP_INTERVAL_PROPERTY, 1000);
+        sweeper = Executors.newSingleThreadScheduledExecutor(Threads.daemonThreadFactory("fxdeals-admission-sweep"));
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                sweep(System.nanoTime());
+            } catch (RuntimeException e) {
+                logger.warn("Rate limit bucket sweep failed", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Admits or rejects a request. An admitted request holds a concurrency slot that must
+     * be returned with {@link #release(long)}.
+     *
+     * @param retryAfterNanos receives the suggested wait when the request is rejected
+     */
+    public Decision admit(String clientKey, boolean write, long nowNanos, long[] retryAfterNanos) {
+        Settings current = currentSettings();
+        if (!current.enabled) {
+            return Decision.ADMITTED;
+        }
+
+        ConcurrentHashMap<String, TokenBucket> buckets = write ? current.writeBuckets : current.readBuckets;
+        TokenBucket bucket = buckets.get(clientKey);
+        if (bucket == null) {
+            if (buckets.size() >= current.maxClients) {
+                overflowed.increment();
+                bucket = write ? current.writeOverflow : current.readOverflow;
+            } else {
+                bucket = buckets.computeIfAbsent(clientKey, key -> current.newBucket(write, nowNanos));
+            }
+        }
+
+        long waitNanos = bucket.tryAcquire(nowNanos);
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            retryAfterNanos[0] = waitNanos;
+            return Decision.RATE_LIMITED;
+        }
+
+        if (!current.limiter.tryAcquire()) {
+            overloaded.increment();
+            retryAfterNanos[0] = 1_000_000_000L;
+            return Decision.OVERLOADED;
+        }
+        return Decision.ADMITTED;
+    }
+
+    public void release(long latencyNanos) {
+        Settings current = settings;
+        if (current != null && current.enabled) {
+            current.limiter.release(latencyNanos);
+        }
+    }
+
+    public long getRateLimitedCount() {
+        return rateLimited.sum();
+    }
+
+    public long getOverloadedCount() {
+        return overloaded.sum();
+    }
+
+    /**
+     * Requests that were charged to the shared overflow bucket because max-clients
+     * buckets were live.
+     */
+    public long getOverflowCount() {
+        return overflowed.sum();
+    }
+
+    /**
+     * Number of per-client buckets currently held, reads and writes together.
+     */
+    public int getTrackedClients() {
+        Settings current = currentSettings();
+        return current.readBuckets.size() + current.writeBuckets.size();
+    }
+
+    /**
+     * Removes the buckets that have refilled completely. Runs on the sweeper thread.
+     */
+    void sweep(long nowNanos) {
+        Settings current = settings;
+        if (current != null) {
+            current.readBuckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+            current.writeBuckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+        }
+    }
+
+    public int getConcurrencyLimit() {
+        return currentSettings().limiter.getLimit();
+    }
+
+    public int getInFlight() {
+        return currentSettings().limiter.getInFlight();
+    }
+
+    private Settings currentSettings() {
+        Settings current = settings;
+        long version = config.getVersion();
+        if (current == null || current.version != version) {
+            synchronized (this) {
+                current = settings;
+                if (current == null || current.version != version) {
+                    current = new Settings(config, version);
+                    settings = current;
+                    logger.info("Admission control settings applied (enabled: {}, read {}/s, write {}/s, concurrency {}-{})",
+                                current.enabled, current.readPerSecond, current.writePerSecond,
+                                current.limiter.getLimit(), current.maxLimit);
+                }
+            }
+        }
+        return current;
+    }
+
+    private static final class Settings {
+        final long version;
+        final boolean enabled;
+        final double readPerSecond;
+        final int readBurst;
+        final double writePerSecond;
+        final int writeBurst;
+        final int maxClients;
+        final int maxLimit;
+        final AdaptiveConcurrencyLimiter limiter;
+        final ConcurrentHashMap<String, TokenBucket> readBuckets = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, TokenBucket> writeBuckets = new ConcurrentHashMap<>();
+        final TokenBucket readOverflow;
+        final TokenBucket writeOverflow;
+
+        Settings(FxDealsConfig config, long version) {
+            this.version = version;
+            this.enabled = config.getBoolean(ENABLED_PROPERTY, true);
+            this.readPerSecond = config.getDouble("fxdeals.ratelimit.read.per-second", 200);
+            this.readBurst = config.getInt("fxdeals.ratelimit.read.burst", 400);
+            this.writePerSecond = config.getDouble("fxdeals.ratelimit.write.per-second", 100);
+            this.writeBurst = config.getInt("fxdeals.ratelimit.write.burst", 200);
+            this.maxClients = config.getInt("fxdeals.ratelimit.max-clients", 10000);
+            this.maxLimit = config.getInt("fxdeals.concurrency.max-limit",
+                                          config.getInt("fxdeals.datasource.pool-size", 25));
+            this.limiter = new AdaptiveConcurrencyLimiter(
+                Math.min(config.getInt("fxdeals.concurrency.min-limit", 4), maxLimit),
+                maxLimit,
+                config.getLong("fxdeals.concurrency.target-latency-ms", 50),
+                config.getDouble("fxdeals.concurrency.backoff-ratio", 0.9));
+            this.readOverflow = newBucket(false, System.nanoTime());
+            this.writeOverflow = newBucket(true, System.nanoTime());
+        }
+
+        TokenBucket newBucket(boolean write, long nowNanos) {
+            return write
+                ? new TokenBucket(writePerSecond, writeBurst, nowNanos)
+                : new TokenBucket(readPerSecond, readBurst, nowNanos);
+        }
+    }
+}
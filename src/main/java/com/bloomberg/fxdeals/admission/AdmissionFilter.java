@@ -0,0 +1,123 @@
+package com.bloomberg.fxdeals.admission;
+
+import com.bloomberg.fxdeals.context.DeadlineFilter;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.dto.ErrorResponse;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.ext.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests that exceed their client's budget (429) or the global concurrency
+ * limit (503) before the resource method runs, so no transaction or connection is used.
+ *
+ * Clients are identified by the key {@link DeadlineFilter} binds to the request context.
+ * This filter runs after authentication and authorization, so that a principal set by a
+ * JAX-RS authentication filter replaces the address-based key, and requests rejected
+ * there never take a slot.
+ * Health, metrics and admin endpoints are never limited, nor are the live stream and change feed,
+ * which hold connections open by design; change-feed queries are bounded by the
+ * DealExecutor instead.
+ */
+@Provider
+@Priority(Priorities.AUTHORIZATION + 1)
+public class AdmissionFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+    private static final String START_PROPERTY = AdmissionFilter.class.getName() + ".start";
+
+    @Inject
+    AdmissionControl admissionControl;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (isExempt(requestContext.getUriInfo().getPath())) {
+            return;
+        }
+
+        String clientKey = clientKey(requestContext);
+        boolean write = !HttpMethod.GET.equals(requestContext.getMethod())
+            && !HttpMethod.HEAD.equals(requestContext.getMethod());
+        long now = System.nanoTime();
+        long[] retryAfter = new long[1];
+
+        AdmissionControl.Decision decision = admissionControl.admit(clientKey, write, now, retryAfter);
+        switch (decision) {
+            case ADMITTED:
+                requestContext.setProperty(START_PROPERTY, now);
+                break;
+            case RATE_LIMITED:
+                logger.warn("Rate limit exceeded for client {}", clientKey);
+                requestContext.abortWith(reject(Response.Status.TOO_MANY_REQUESTS, "Too Many Requests",
+                    "Request rate limit exceeded. Please retry later.", retryAfter[0]));
+                break;
+            case OVERLOADED:
+                logger.warn("Concurrency limit reached, rejecting request from client {}", clientKey);
+                requestContext.abortWith(reject(Response.Status.SERVICE_UNAVAILABLE, "Service Unavailable",
+                    "The service is overloaded. Please retry later.", retryAfter[0]));
+                break;
+            default:
+                throw new IllegalStateException("Unknown admission decision: " + decision);
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object start = requestContext.getProperty(START_PROPERTY);
+        if (start != null) {
+            requestContext.removeProperty(START_PROPERTY);
+            admissionControl.release(System.nanoTime() - (Long) start);
+        }
+    }
+
+    static boolean isExempt(String path) {
+        String normalized = path.startsWith("/") ? path.substring(1) : path;
+        return normalized.endsWith("/health")
+            || normalized.endsWith("/health/ready")
+            || normalized.endsWith("/stream")
+            || normalized.endsWith("/changes")
+            || normalized.equals("metrics")
+            || normalized.startsWith("api/admin");
+    }
+
+    /**
+     * The principal's key when authentication has set one, rebinding the request context
+     * to it; otherwise the key DeadlineFilter bound.
+     */
+    private static String clientKey(ContainerRequestContext requestContext) {
+        SecurityContext security = requestContext.getSecurityContext();
+        String principalKey = DeadlineFilter.principalKey(security != null ? security.getUserPrincipal() : null);
+        RequestContext current = RequestContext.current();
+        if (principalKey != null) {
+            if (current != null && !principalKey.equals(current.getClientKey())) {
+                RequestContext.bind(current.withClientKey(principalKey));
+            }
+            return principalKey;
+        }
+        String clientKey = current != null ? current.getClientKey() : null;
+        return clientKey != null ? clientKey : "anonymous";
+    }
+
+    private static Response reject(Response.Status status, String error, String message, long retryAfterNanos) {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(retryAfterNanos + 999_999_999L));
+        return Response.status(status)
+            .type(MediaType.APPLICATION_JSON)
+            .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+            .entity(new ErrorResponse(status.getStatusCode(), error, message))
+            .build();
+    }
+}
@@ -0,0 +1,61 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.shard.JumpHash;
+
+/**
+ * Fixed-size Bloom filter over deal unique IDs, so most lookups of IDs that were never
+ * archived skip a segment without reading it.
+ *
+ * Probe positions come from one 64-bit hash split into two halves (Kirsch-Mitzenmacher
+ * double hashing). Ten bits per key and seven probes give about a 1% false positive rate.
+ */
+final class BloomFilter {
+
+    static final int BITS_PER_KEY = 10;
+    static final int HASHES = 7;
+
+    private final long[] words;
+    private final int hashes;
+
+    BloomFilter(int expectedKeys) {
+        this(new long[Math.max(1, (expectedKeys * BITS_PER_KEY + 63) / 64)], HASHES);
+    }
+
+    BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+    }
+
+    void add(String key) {
+        long hash = JumpHash.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = (long) words.length * 64;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bits;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(String key) {
+        long hash = JumpHash.hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long bits = (long) words.length * 64;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bits;
+            if ((words[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    int hashes() {
+        return hashes;
+    }
+}
@@ -0,0 +1,277 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Cold tier for deals moved out of the database by {@link DealArchiver}.
+ *
+ * Deals live in immutable, compressed {@link DealSegment} files in fxdeals.archive.dir,
+ * one per archival batch. All segment footers are loaded at startup, so a lookup costs
+ * an in-memory check per segment plus one or two block reads from the segment that
+ * holds the deal. Segments are searched newest first.
+ */
+@ApplicationScoped
+public class DealArchive {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.archive.enabled";
+    public static final String DIR_PROPERTY = "fxdeals.archive.dir";
+
+    private static final Logger logger = LoggerFactory.getLogger(DealArchive.class);
+    private static final String SEGMENT_PREFIX = "deals-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    @Inject
+    FxDealsConfig config;
+
+    private final CopyOnWriteArrayList<DealSegment> segments = new CopyOnWriteArrayList<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder lookupNanos = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+
+    private boolean enabled;
+    private boolean lookupOnly;
+    private Path directory;
+    private long nextSegment;
+
+    @PostConstruct
+    void init() {
+        if (!config.getBoolean(ENABLED_PROPERTY, false)) {
+            return;
+        }
+        String dir = config.getString(DIR_PROPERTY, "");
+        if (dir.isBlank()) {
+            dir = Paths.get(System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")),
+                            "fxdeals-archive").toString();
+        }
+        try {
+            open(Paths.get(dir));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open deal archive in " + dir, e);
+        }
+    }
+
+    /**
+     * An archive for lookups only, on the segments a server has written to directory, for
+     * tools that run beside it. The directory is neither created nor cleaned up, since a
+     * temporary file in it may be a segment the server is still writing, and
+     * {@link #append} is refused.
+     */
+    public static DealArchive forLookups(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            throw new IOException("Deal archive directory not found: " + directory);
+        }
+        DealArchive archive = new DealArchive();
+        archive.lookupOnly = true;
+        archive.open(directory);
+        return archive;
+    }
+
+    /**
+     * Opens every segment in the directory, creating the directory if needed. Leftover
+     * temporary files from an interrupted write are deleted.
+     */
+    synchronized void open(Path directory) throws IOException {
+        if (!lookupOnly) {
+            Files.createDirectories(directory);
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                String name = entry.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX + ".tmp")) {
+                    if (!lookupOnly) {
+                        Files.delete(entry);
+                    }
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    files.add(entry);
+                }
+            }
+        }
+        files.sort(null);
+        for (Path file : files) {
+            segments.add(0, DealSegment.open(file));
+            nextSegment = Math.max(nextSegment, sequenceOf(file) + 1);
+        }
+        this.directory = directory;
+        this.enabled = true;
+        logger.info("Deal archive opened in {} with {} segments and {} deals",
+                    directory, segments.size(), getArchivedDealCount());
+    }
+
+    @PreDestroy
+    synchronized void close() {
+        for (DealSegment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close archive segment {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+        segments.clear();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Writes the deals to a new segment, skipping any that an earlier, interrupted run
+     * already archived.
+     *
+     * @return number of deals written
+     */
+    public synchronized int append(List<FxDeal> deals) {
+        if (lookupOnly) {
+            throw new IllegalStateException("Deal archive in " + directory + " is open for lookups only");
+        }
+        List<FxDeal> fresh = new ArrayList<>(deals.size());
+        for (FxDeal deal : deals) {
+            if (!contains(deal.getId())) {
+                fresh.add(deal);
+            }
+        }
+        if (fresh.isEmpty()) {
+            return 0;
+        }
+        Path file = directory.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, nextSegment, SEGMENT_SUFFIX));
+        try {
+            segments.add(0, DealSegment.write(file, fresh));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write archive segment " + file, e);
+        }
+        nextSegment++;
+        return fresh.size();
+    }
+
+    public Optional<FxDeal> findById(long id) {
+        long start = System.nanoTime();
+        try {
+            for (DealSegment segment : segments) {
+                Optional<FxDeal> deal = segment.findById(id);
+                if (deal.isPresent()) {
+                    hits.increment();
+                    return deal;
+                }
+            }
+            return Optional.empty();
+        } finally {
+            recordLookup(start);
+        }
+    }
+
+    public Optional<FxDeal> findByDealUniqueId(String dealUniqueId) {
+        long start = System.nanoTime();
+        try {
+            for (DealSegment segment : segments) {
+                Optional<FxDeal> deal = segment.findByDealUniqueId(dealUniqueId);
+                if (deal.isPresent()) {
+                    hits.increment();
+                    return deal;
+                }
+            }
+            return Optional.empty();
+        } finally {
+            recordLookup(start);
+        }
+    }
+
+    public boolean existsByDealUniqueId(String dealUniqueId) {
+        for (DealSegment segment : segments) {
+            if (segment.containsDealUniqueId(dealUniqueId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Set<String> findExistingDealUniqueIds(Collection<String> dealUniqueIds) {
+        Set<String> existing = new HashSet<>();
+        for (String dealUniqueId : dealUniqueIds) {
+            if (existsByDealUniqueId(dealUniqueId)) {
+                existing.add(dealUniqueId);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Passes every archived deal with afterId &lt; id &lt;= upToId to action, oldest segment
+     * first and in id order within a segment.
+     */
+    public void scan(long afterId, long upToId, Consumer<FxDeal> action) {
+        List<DealSegment> snapshot = new ArrayList<>(segments);
+        for (int i = snapshot.size() - 1; i >= 0; i--) {
+            snapshot.get(i).scan(afterId, upToId, action);
+        }
+    }
+
+    private boolean contains(long id) {
+        for (DealSegment segment : segments) {
+            if (segment.containsId(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordLookup(long startNanos) {
+        lookups.increment();
+        lookupNanos.add(System.nanoTime() - startNanos);
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getArchivedDealCount() {
+        return segments.stream().mapToLong(DealSegment::getDealCount).sum();
+    }
+
+    public long getArchiveBytes() {
+        return segments.stream().mapToLong(DealSegment::getSizeBytes).sum();
+    }
+
+    public long getLookupCount() {
+        return lookups.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Mean time of a findById or findByDealUniqueId lookup, in microseconds.
+     */
+    public double getMeanLookupMicros() {
+        long count = lookups.sum();
+        return count == 0 ? 0 : lookupNanos.sum() / 1000.0 / count;
+    }
+}
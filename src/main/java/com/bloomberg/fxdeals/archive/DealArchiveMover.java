@@ -0,0 +1,42 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.repository.FxDealRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Moves one batch of old deals from the database into {@link DealArchive}.
+ *
+ * The segment is on disk before the rows are deleted, and the delete commits or rolls
+ * back as a whole, so a deal is never missing from both tiers. If the transaction rolls
+ * back after the segment was written, the next batch finds those deals already archived
+ * and only deletes them.
+ */
+@ApplicationScoped
+public class DealArchiveMover {
+
+    @Inject
+    FxDealRepository repository;
+
+    @Inject
+    DealArchive archive;
+
+    /**
+     * @return number of deals removed from the database
+     */
+    @Transactional
+    public int moveBatch(LocalDateTime cutoff, int limit) {
+        List<FxDeal> deals = repository.findOlderThan(cutoff, limit);
+        if (deals.isEmpty()) {
+            return 0;
+        }
+        archive.append(deals);
+        return repository.deleteByIds(deals.stream().map(FxDeal::getId).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,110 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.cache.LatestDealsCache;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the hot fx_deals table bounded by periodically moving deals whose deal timestamp
+ * is older than fxdeals.archive.max-age-days into the {@link DealArchive}.
+ *
+ * Each run moves batches of fxdeals.archive.batch-size deals, one transaction and one
+ * segment per batch, until no old deals are left.
+ */
+@ApplicationScoped
+public class DealArchiver {
+
+    public static final String MAX_AGE_DAYS_PROPERTY = "fxdeals.archive.max-age-days";
+    public static final String BATCH_SIZE_PROPERTY = "fxdeals.archive.batch-size";
+    public static final String INTERVAL_PROPERTY = "fxdeals.archive.interval-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(DealArchiver.class);
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    DealArchive archive;
+
+    @Inject
+    DealArchiveMover mover;
+
+    @Inject
+    LatestDealsCache latestDeals;
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder moved = new LongAdder();
+    private volatile LocalDateTime lastRun;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!archive.isEnabled() || scheduler == null) {
+            return;
+        }
+        long interval = config.getLong(INTERVAL_PROPERTY, 3600000L);
+        scheduler.scheduleWithFixedDelay(this::runSafely, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("Deal archival every {} ms for deals older than {} days",
+                    interval, config.getInt(MAX_AGE_DAYS_PROPERTY, 90));
+    }
+
+    /**
+     * Archives every deal older than the configured age. Returns immediately with 0 if
+     * a run is already in progress.
+     *
+     * @return number of deals moved
+     */
+    public long run() {
+        if (!archive.isEnabled() || !running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(config.getInt(MAX_AGE_DAYS_PROPERTY, 90));
+            int batchSize = config.getInt(BATCH_SIZE_PROPERTY, 10000);
+            long total = 0;
+            int batch;
+            do {
+                batch = mover.moveBatch(cutoff, batchSize);
+                total += batch;
+            } while (batch == batchSize);
+            if (total > 0) {
+                latestDeals.invalidate();
+                logger.info("Archived {} deals with a deal timestamp before {}", total, cutoff);
+            }
+            moved.add(total);
+            lastRun = LocalDateTime.now();
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            logger.error("Deal archival failed: {}", e.getMessage(), e);
+        }
+    }
+
+    public long getMovedCount() {
+        return moved.sum();
+    }
+
+    public LocalDateTime getLastRun() {
+        return lastRun;
+    }
+}
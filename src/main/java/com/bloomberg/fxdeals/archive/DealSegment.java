@@ -0,0 +1,456 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Immutable file of archived deals.
+ *
+ * Layout:
+ * <pre>
+ *   data blocks   deals sorted by id, DEALS_PER_BLOCK per block, each block deflated
+ *   key blocks    (dealUniqueId, id) pairs sorted by unique ID, KEYS_PER_BLOCK per block, deflated
+ *   footer        sparse index of both block kinds (first key, offset, sizes), id range,
+ *                 deal count and a Bloom filter over unique IDs
+ *   trailer       footer offset (long), MAGIC (int)
+ * </pre>
+ * Opening a segment reads only the footer. A lookup binary-searches the in-memory sparse
+ * index and inflates a single block; a lookup by unique ID is first checked against the
+ * Bloom filter and then reads one key block and one data block.
+ *
+ * Segments are written to a temporary file, forced to disk and atomically renamed, so a
+ * segment file is either complete or absent.
+ */
+final class DealSegment implements AutoCloseable {
+
+    static final int MAGIC = 0x46584147;
+    static final int DEALS_PER_BLOCK = 64;
+    static final int KEYS_PER_BLOCK = 256;
+
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long[] dataFirstIds;
+    private final BlockRef[] dataBlocks;
+    private final String[] keyFirstIds;
+    private final BlockRef[] keyBlocks;
+    private final long minId;
+    private final long maxId;
+    private final int dealCount;
+    private final BloomFilter bloom;
+
+    private DealSegment(Path path, FileChannel channel, long[] dataFirstIds, BlockRef[] dataBlocks,
+                        String[] keyFirstIds, BlockRef[] keyBlocks, long minId, long maxId, int dealCount,
+                        BloomFilter bloom) {
+        this.path = path;
+        this.channel = channel;
+        this.dataFirstIds = dataFirstIds;
+        this.dataBlocks = dataBlocks;
+        this.keyFirstIds = keyFirstIds;
+        this.keyBlocks = keyBlocks;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.dealCount = dealCount;
+        this.bloom = bloom;
+    }
+
+    /**
+     * Writes the deals to a new segment file at path and opens it.
+     */
+    static DealSegment write(Path path, List<FxDeal> deals) throws IOException {
+        if (deals.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one deal");
+        }
+        List<FxDeal> byId = new ArrayList<>(deals);
+        byId.sort(Comparator.comparing(FxDeal::getId));
+        List<FxDeal> byKey = new ArrayList<>(deals);
+        byKey.sort(Comparator.comparing(FxDeal::getDealUniqueId));
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+            DataOutputStream footer = new DataOutputStream(footerBytes);
+
+            int dataBlockCount = (byId.size() + DEALS_PER_BLOCK - 1) / DEALS_PER_BLOCK;
+            footer.writeInt(dataBlockCount);
+            for (int start = 0; start < byId.size(); start += DEALS_PER_BLOCK) {
+                List<FxDeal> block = byId.subList(start, Math.min(start + DEALS_PER_BLOCK, byId.size()));
+                ByteArrayOutputStream raw = new ByteArrayOutputStream();
+                DataOutputStream data = new DataOutputStream(raw);
+                data.writeInt(block.size());
+                for (FxDeal deal : block) {
+                    writeDeal(data, deal);
+                }
+                footer.writeLong(block.get(0).getId());
+                writeBlock(out, raw.toByteArray(), footer);
+            }
+
+            BloomFilter bloom = new BloomFilter(byKey.size());
+            int keyBlockCount = (byKey.size() + KEYS_PER_BLOCK - 1) / KEYS_PER_BLOCK;
+            footer.writeInt(keyBlockCount);
+            for (int start = 0; start < byKey.size(); start += KEYS_PER_BLOCK) {
+                List<FxDeal> block = byKey.subList(start, Math.min(start + KEYS_PER_BLOCK, byKey.size()));
+                ByteArrayOutputStream raw = new ByteArrayOutputStream();
+                DataOutputStream keys = new DataOutputStream(raw);
+                keys.writeInt(block.size());
+                for (FxDeal deal : block) {
+                    keys.writeUTF(deal.getDealUniqueId());
+                    keys.writeLong(deal.getId());
+                    bloom.add(deal.getDealUniqueId());
+                }
+                footer.writeUTF(block.get(0).getDealUniqueId());
+                writeBlock(out, raw.toByteArray(), footer);
+            }
+
+            footer.writeLong(byId.get(0).getId());
+            footer.writeLong(byId.get(byId.size() - 1).getId());
+            footer.writeInt(byId.size());
+            footer.writeInt(bloom.hashes());
+            footer.writeInt(bloom.words().length);
+            for (long word : bloom.words()) {
+                footer.writeLong(word);
+            }
+
+            long footerOffset = out.position();
+            writeFully(out, ByteBuffer.wrap(footerBytes.toByteArray()));
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES).putLong(footerOffset).putInt(MAGIC);
+            trailer.flip();
+            writeFully(out, trailer);
+            out.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+        return open(path);
+    }
+
+    static DealSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < TRAILER_BYTES) {
+                throw new IOException("Segment " + path + " is truncated");
+            }
+            ByteBuffer trailer = readFully(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+            long footerOffset = trailer.getLong();
+            if (trailer.getInt() != MAGIC || footerOffset < 0 || footerOffset > size - TRAILER_BYTES) {
+                throw new IOException("Segment " + path + " is not an archive segment");
+            }
+            ByteBuffer footerBuffer = readFully(channel, footerOffset, (int) (size - TRAILER_BYTES - footerOffset));
+            DataInputStream footer = new DataInputStream(
+                new ByteArrayInputStream(footerBuffer.array(), 0, footerBuffer.limit()));
+
+            int dataBlockCount = footer.readInt();
+            long[] dataFirstIds = new long[dataBlockCount];
+            BlockRef[] dataBlocks = new BlockRef[dataBlockCount];
+            for (int i = 0; i < dataBlockCount; i++) {
+                dataFirstIds[i] = footer.readLong();
+                dataBlocks[i] = BlockRef.read(footer);
+            }
+            int keyBlockCount = footer.readInt();
+            String[] keyFirstIds = new String[keyBlockCount];
+            BlockRef[] keyBlocks = new BlockRef[keyBlockCount];
+            for (int i = 0; i < keyBlockCount; i++) {
+                keyFirstIds[i] = footer.readUTF();
+                keyBlocks[i] = BlockRef.read(footer);
+            }
+            long minId = footer.readLong();
+            long maxId = footer.readLong();
+            int dealCount = footer.readInt();
+            int hashes = footer.readInt();
+            long[] words = new long[footer.readInt()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = footer.readLong();
+            }
+            return new DealSegment(path, channel, dataFirstIds, dataBlocks, keyFirstIds, keyBlocks,
+                                   minId, maxId, dealCount, new BloomFilter(words, hashes));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Optional<FxDeal> findById(long id) {
+        if (id < minId || id > maxId) {
+            return Optional.empty();
+        }
+        int block = floorIndex(dataFirstIds, id);
+        if (block < 0) {
+            return Optional.empty();
+        }
+        try {
+            DataInputStream data = inflate(dataBlocks[block]);
+            int count = data.readInt();
+            for (int i = 0; i < count; i++) {
+                FxDeal deal = readDeal(data);
+                if (deal.getId() == id) {
+                    return Optional.of(deal);
+                }
+                if (deal.getId() > id) {
+                    break;
+                }
+            }
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + path, e);
+        }
+    }
+
+    Optional<FxDeal> findByDealUniqueId(String dealUniqueId) {
+        OptionalLong id = findId(dealUniqueId);
+        return id.isPresent() ? findById(id.getAsLong()) : Optional.empty();
+    }
+
+    boolean containsDealUniqueId(String dealUniqueId) {
+        return findId(dealUniqueId).isPresent();
+    }
+
+    boolean containsId(long id) {
+        return findById(id).isPresent();
+    }
+
+    private OptionalLong findId(String dealUniqueId) {
+        if (!bloom.mightContain(dealUniqueId)) {
+            return OptionalLong.empty();
+        }
+        int block = floorIndex(keyFirstIds, dealUniqueId);
+        if (block < 0) {
+            return OptionalLong.empty();
+        }
+        try {
+            DataInputStream keys = inflate(keyBlocks[block]);
+            int count = keys.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = keys.readUTF();
+                long id = keys.readLong();
+                int comparison = key.compareTo(dealUniqueId);
+                if (comparison == 0) {
+                    return OptionalLong.of(id);
+                }
+                if (comparison > 0) {
+                    break;
+                }
+            }
+            return OptionalLong.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + path, e);
+        }
+    }
+
+    /**
+     * Passes every deal with afterId &lt; id &lt;= upToId to action, in id order.
+     */
+    void scan(long afterId, long upToId, Consumer<FxDeal> action) {
+        if (upToId <= afterId || upToId < minId || afterId >= maxId) {
+            return;
+        }
+        try {
+            for (int block = Math.max(floorIndex(dataFirstIds, afterId + 1), 0); block < dataBlocks.length
+                    && dataFirstIds[block] <= upToId; block++) {
+                DataInputStream data = inflate(dataBlocks[block]);
+                int count = data.readInt();
+                for (int i = 0; i < count; i++) {
+                    FxDeal deal = readDeal(data);
+                    if (deal.getId() > upToId) {
+                        return;
+                    }
+                    if (deal.getId() > afterId) {
+                        action.accept(deal);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read archive segment " + path, e);
+        }
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    long getMinId() {
+        return minId;
+    }
+
+    long getMaxId() {
+        return maxId;
+    }
+
+    int getDealCount() {
+        return dealCount;
+    }
+
+    long getSizeBytes() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private DataInputStream inflate(BlockRef block) throws IOException {
+        ByteBuffer compressed = readFully(channel, block.offset, block.compressedLength);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed.array(), 0, compressed.limit());
+            byte[] raw = new byte[block.rawLength];
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, raw.length - read);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != raw.length) {
+                throw new IOException("Block at " + block.offset + " in " + path + " is corrupt");
+            }
+            return new DataInputStream(new ByteArrayInputStream(raw));
+        } catch (DataFormatException e) {
+            throw new IOException("Block at " + block.offset + " in " + path + " is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeBlock(FileChannel out, byte[] raw, DataOutputStream footer) throws IOException {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] compressed;
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(raw.length / 2 + 64);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                buffer.write(chunk, 0, deflater.deflate(chunk));
+            }
+            compressed = buffer.toByteArray();
+        } finally {
+            deflater.end();
+        }
+        footer.writeLong(out.position());
+        footer.writeInt(compressed.length);
+        footer.writeInt(raw.length);
+        writeFully(out, ByteBuffer.wrap(compressed));
+    }
+
+    private static void writeDeal(DataOutputStream out, FxDeal deal) throws IOException {
+        out.writeLong(deal.getId());
+        out.writeUTF(deal.getDealUniqueId());
+        out.writeUTF(deal.getFromCurrencyIso());
+        out.writeUTF(deal.getToCurrencyIso());
+        writeTimestamp(out, deal.getDealTimestamp());
+        byte[] unscaled = deal.getDealAmount().unscaledValue().toByteArray();
+        out.writeByte(unscaled.length);
+        out.write(unscaled);
+        out.writeByte(deal.getDealAmount().scale());
+        writeTimestamp(out, deal.getCreatedAt());
+        writeTimestamp(out, deal.getUpdatedAt());
+    }
+
+    private static FxDeal readDeal(DataInputStream in) throws IOException {
+        long id = in.readLong();
+        String dealUniqueId = in.readUTF();
+        String from = in.readUTF();
+        String to = in.readUTF();
+        LocalDateTime dealTimestamp = readTimestamp(in);
+        byte[] unscaled = new byte[in.readUnsignedByte()];
+        in.readFully(unscaled);
+        BigDecimal amount = new BigDecimal(new BigInteger(unscaled), in.readByte());
+        FxDeal deal = new FxDeal(dealUniqueId, from, to, dealTimestamp, amount);
+        deal.setId(id);
+        deal.setCreatedAt(readTimestamp(in));
+        deal.setUpdatedAt(readTimestamp(in));
+        return deal;
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeBoolean(timestamp != null);
+        if (timestamp != null) {
+            out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(timestamp.getNano());
+        }
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static int floorIndex(long[] firstKeys, long key) {
+        int index = Arrays.binarySearch(firstKeys, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static int floorIndex(String[] firstKeys, String key) {
+        int index = Arrays.binarySearch(firstKeys, key);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of segment");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class BlockRef {
+        final long offset;
+        final int compressedLength;
+        final int rawLength;
+
+        BlockRef(long offset, int compressedLength, int rawLength) {
+            this.offset = offset;
+            this.compressedLength = compressedLength;
+            this.rawLength = rawLength;
+        }
+
+        static BlockRef read(DataInputStream in) throws IOException {
+            return new BlockRef(in.readLong(), in.readInt(), in.readInt());
+        }
+    }
+}
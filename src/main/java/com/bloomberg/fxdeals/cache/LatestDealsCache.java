@@ -0,0 +1,256 @@
+package com.bloomberg.fxdeals.cache;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import com.bloomberg.fxdeals.jfr.CacheLoadEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory copy of the newest deals and the total count, used to answer first-page
+ * listings without touching the database.
+ *
+ * The deals are kept in a sorted array (newest {@code dealTimestamp} first, ties by id)
+ * that is replaced by compare-and-set on every change, so readers never lock and never
+ * see a partially applied insert. Committed creates are merged in by timestamp, so a
+ * back-dated deal lands in its sorted position or, if it is older than everything in a
+ * full window, only increments the count.
+ *
+ * The window is loaded from the database at startup, when it is older than the
+ * configured maximum age, and after {@link #invalidate()}.
+ */
+@ApplicationScoped
+public class LatestDealsCache {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.cache.latest.enabled";
+    public static final String SIZE_PROPERTY = "fxdeals.cache.latest.size";
+    public static final String MAX_AGE_PROPERTY = "fxdeals.cache.latest.max-age-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(LatestDealsCache.class);
+    private static final long REBUILD_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    static final Comparator<FxDealResponse> NEWEST_FIRST = Comparator
+        .comparing(FxDealResponse::getDealTimestamp, Comparator.reverseOrder())
+        .thenComparing(FxDealResponse::getId, Comparator.reverseOrder());
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    LatestDealsLoader loader;
+
+    private final AtomicReference<Window> window = new AtomicReference<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final ConcurrentLinkedQueue<FxDealResponse> pendingDuringRebuild = new ConcurrentLinkedQueue<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private volatile long nextRebuildAttemptNanos;
+
+    private boolean enabled;
+    private int size;
+    private long maxAgeNanos;
+
+    @PostConstruct
+    void init() {
+        enabled = config.getBoolean(ENABLED_PROPERTY, true);
+        size = config.getInt(SIZE_PROPERTY, 100);
+        maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong(MAX_AGE_PROPERTY, 60000));
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Returns the requested page if it can be answered from memory.
+     */
+    public Optional<List<FxDealResponse>> firstPage(int offset, int limit) {
+        if (!enabled || offset != 0 || limit > size) {
+            return Optional.empty();
+        }
+        Window current = currentWindow();
+        if (current == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        List<FxDealResponse> deals = Arrays.asList(current.deals);
+        return Optional.of(Collections.unmodifiableList(deals.subList(0, Math.min(limit, deals.size()))));
+    }
+
+    /**
+     * Returns the total number of deals if it is known exactly.
+     */
+    public OptionalLong totalCount() {
+        if (!enabled) {
+            return OptionalLong.empty();
+        }
+        Window current = currentWindow();
+        if (current == null || !current.countExact) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(current.totalCount);
+    }
+
+    /**
+     * Discards the window. The next read reloads it from the database.
+     */
+    public void invalidate() {
+        if (window.getAndSet(null) != null) {
+            logger.info("Latest deals cache invalidated");
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    void onDealCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) DealCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        FxDealResponse deal = event.getDeal();
+        while (true) {
+            Window current = window.get();
+            if (current == null) {
+                pendingDuringRebuild.add(deal);
+                if (window.get() != null) {
+                    // the rebuild finished between our read and the add
+                    drainPending();
+                }
+                return;
+            }
+            if (window.compareAndSet(current, current.with(deal, size))) {
+                return;
+            }
+        }
+    }
+
+    private Window currentWindow() {
+        Window current = window.get();
+        if (current != null && System.nanoTime() - current.loadedAtNanos < maxAgeNanos) {
+            return current;
+        }
+        if (System.nanoTime() - nextRebuildAttemptNanos >= 0) {
+            rebuild();
+        }
+        current = window.get();
+        return current != null && System.nanoTime() - current.loadedAtNanos < maxAgeNanos ? current : null;
+    }
+
+    private void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        CacheLoadEvent event = new CacheLoadEvent();
+        event.begin();
+        try {
+            // route creates into the pending queue while the database is read
+            window.set(null);
+            Window loaded = loader.load(size);
+            window.set(loaded);
+            drainPending();
+            event.setDeals(loaded.deals.length);
+            event.setSucceeded(true);
+            logger.info("Latest deals cache loaded with {} deals (total {})", loaded.deals.length, loaded.totalCount);
+        } catch (RuntimeException e) {
+            nextRebuildAttemptNanos = System.nanoTime() + REBUILD_RETRY_NANOS;
+            logger.warn("Could not load latest deals cache: {}", e.getMessage());
+        } finally {
+            rebuilding.set(false);
+            event.commit();
+        }
+    }
+
+    private void drainPending() {
+        FxDealResponse deal;
+        while ((deal = pendingDuringRebuild.poll()) != null) {
+            while (true) {
+                Window current = window.get();
+                if (current == null) {
+                    pendingDuringRebuild.add(deal);
+                    return;
+                }
+                if (window.compareAndSet(current, current.with(deal, size))) {
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Immutable state of the cache.
+     */
+    static final class Window {
+        final FxDealResponse[] deals;
+        final long totalCount;
+        final boolean countExact;
+        final long maxLoadedId;
+        final long loadedAtNanos;
+
+        Window(FxDealResponse[] deals, long totalCount, boolean countExact, long maxLoadedId, long loadedAtNanos) {
+            this.deals = deals;
+            this.totalCount = totalCount;
+            this.countExact = countExact;
+            this.maxLoadedId = maxLoadedId;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+
+        /**
+         * Returns the window with a committed deal merged in.
+         *
+         * Deals with an id above the highest id seen at load time cannot have been part of
+         * the loaded snapshot. For lower ids the deal was already loaded if it is in the
+         * window; if it would sort into the window but is missing, it committed after the
+         * load. Otherwise it is impossible to tell whether the loaded count includes it, so
+         * the count is marked as inexact until the next load.
+         */
+        Window with(FxDealResponse deal, int capacity) {
+            int position = Arrays.binarySearch(deals, deal, NEWEST_FIRST);
+            if (position >= 0) {
+                return this;
+            }
+            int insertAt = -position - 1;
+            boolean fitsWindow = insertAt < capacity;
+
+            if (deal.getId() <= maxLoadedId && !fitsWindow) {
+                return new Window(deals, totalCount, false, maxLoadedId, loadedAtNanos);
+            }
+            if (!fitsWindow) {
+                return new Window(deals, totalCount + 1, countExact, maxLoadedId, loadedAtNanos);
+            }
+
+            int length = Math.min(deals.length + 1, capacity);
+            FxDealResponse[] updated = new FxDealResponse[length];
+            System.arraycopy(deals, 0, updated, 0, insertAt);
+            updated[insertAt] = deal;
+            System.arraycopy(deals, insertAt, updated, insertAt + 1, length - insertAt - 1);
+            return new Window(updated, totalCount + 1, countExact, maxLoadedId, loadedAtNanos);
+        }
+    }
+}
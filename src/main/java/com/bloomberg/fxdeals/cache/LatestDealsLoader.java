@@ -0,0 +1,51 @@
+package com.bloomberg.fxdeals.cache;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import com.bloomberg.fxdeals.repository.FxDealRepository;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+
+/**
+ * Loads the state of {@link LatestDealsCache} from the database.
+ *
+ * The three reads run in one transaction so that, under MySQL's default repeatable-read
+ * isolation, the highest id, the count and the newest deals come from the same snapshot.
+ * They always go to the primary: the cache is usually rebuilt from inside a
+ * {@code @ReadOnly} read that may have been routed to the replica, and a window loaded
+ * from a lagging replica would stay behind the primary until the next rebuild.
+ */
+@ApplicationScoped
+public class LatestDealsLoader {
+
+    @Inject
+    FxDealRepository repository;
+
+    @Inject
+    FxDealMapper mapper;
+
+    @Inject
+    ReplicaRouter replicaRouter;
+
+    @Transactional
+    public LatestDealsCache.Window load(int size) {
+        return replicaRouter.primary(() -> loadFromPrimary(size));
+    }
+
+    private LatestDealsCache.Window loadFromPrimary(int size) {
+        long maxId = repository.maxId();
+        long totalCount = repository.count();
+        List<FxDeal> deals = repository.findAll(0, size);
+
+        FxDealResponse[] latest = new FxDealResponse[deals.size()];
+        for (int i = 0; i < latest.length; i++) {
+            latest[i] = mapper.toResponse(deals.get(i));
+        }
+        return new LatestDealsCache.Window(latest, totalCount, true, maxId, System.nanoTime());
+    }
+}
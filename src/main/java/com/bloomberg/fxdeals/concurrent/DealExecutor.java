@@ -0,0 +1,165 @@
+package com.bloomberg.fxdeals.concurrent;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.metrics.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ContextService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs blocking service calls off the HTTP worker threads.
+ *
+ * Tasks run on virtual threads when the runtime supports them (Java 21+) and on a
+ * fixed platform pool otherwise. The number of tasks allowed to touch the database at
+ * the same time is capped at the datasource pool size, so excess work waits cheaply
+ * here instead of queueing on the connection pool.
+ */
+@ApplicationScoped
+public class DealExecutor {
+
+    public static final String EXECUTOR_PROPERTY = "fxdeals.async.executor";
+    public static final String POOL_SIZE_PROPERTY = "fxdeals.datasource.pool-size";
+
+    private static final Logger logger = LoggerFactory.getLogger(DealExecutor.class);
+
+    @Inject
+    FxDealsConfig config;
+
+    @Resource
+    ContextService contextService;
+
+    private ExecutorService executor;
+    private Semaphore dbPermits;
+    private int maxConcurrentCalls;
+
+    @PostConstruct
+    void init() {
+        int poolSize = config.getInt(POOL_SIZE_PROPERTY, 25);
+        String mode = config.getString(EXECUTOR_PROPERTY, "virtual");
+
+        ExecutorService selected = null;
+        if ("virtual".equalsIgnoreCase(mode)) {
+            selected = Threads.newVirtualThreadExecutor();
+            if (selected == null) {
+                logger.warn("Virtual threads are not available on Java {}, falling back to platform threads",
+                            Runtime.version().feature());
+            }
+        }
+        if (selected == null) {
+            selected = Executors.newFixedThreadPool(poolSize, Threads.daemonThreadFactory("fxdeals-worker"));
+        }
+
+        start(selected, poolSize);
+    }
+
+    void start(ExecutorService executor, int maxConcurrentCalls) {
+        this.executor = executor;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.dbPermits = new Semaphore(maxConcurrentCalls, true);
+        logger.info("Deal executor started with {} concurrent database calls", maxConcurrentCalls);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Submits a task that needs a database connection. The returned stage completes with
+     * the task's result or with the exception it threw. The caller's {@link RequestContext}
+     * is carried over to the task.
+     */
+    public <T> CompletionStage<T> submit(Callable<T> task) {
+        Callable<T> propagated = RequestContext.propagate(task);
+        Callable<T> contextual = contextService != null ? contextService.contextualCallable(propagated) : propagated;
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> run(contextual, result));
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * An executor for follow-up work that needs no database connection, such as resuming
+     * a suspended response when a wait ends. Its tasks run on this executor's threads with
+     * the container context and the given request context bound. Without it they would
+     * run on the thread that ended the wait, in that thread's context.
+     */
+    public Executor continuationsIn(RequestContext context) {
+        return task -> {
+            Runnable bound = () -> {
+                RequestContext previous = RequestContext.current();
+                RequestContext.bind(context);
+                try {
+                    task.run();
+                } finally {
+                    RequestContext.bind(previous);
+                }
+            };
+            executor.execute(contextService != null ? contextService.contextualRunnable(bound) : bound);
+        };
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getActiveCalls() {
+        return maxConcurrentCalls - dbPermits.availablePermits();
+    }
+
+    public int getQueuedCalls() {
+        return dbPermits.getQueueLength();
+    }
+
+    private <T> void run(Callable<T> task, CompletableFuture<T> result) {
+        long waitStart = System.nanoTime();
+        try {
+            dbPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.completeExceptionally(e);
+            return;
+        }
+        Metrics.DB_PERMIT_WAIT.recordSince(waitStart);
+        T value;
+        try {
+            value = task.call();
+        } catch (Throwable t) {
+            dbPermits.release();
+            result.completeExceptionally(t);
+            return;
+        }
+        // released first, so that whoever the result wakes sees the permit back
+        dbPermits.release();
+        result.complete(value);
+    }
+}
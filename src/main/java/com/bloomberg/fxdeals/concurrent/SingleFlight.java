@@ -0,0 +1,87 @@
+package com.bloomberg.fxdeals.concurrent;
+
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.exception.DeadlineExceededException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical loads.
+ *
+ * The first caller for a key runs the loader; callers arriving while it is in flight
+ * wait for the same result instead of running their own. The entry is removed as soon
+ * as the load finishes, successfully or not, so nothing is cached and failures are not
+ * remembered.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, load);
+        if (existing != null) {
+            coalesced.increment();
+            return await(key, existing, loader);
+        }
+
+        try {
+            V value = loader.get();
+            load.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, load);
+        }
+    }
+
+    /**
+     * Number of calls that were served by another caller's load.
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private V await(K key, CompletableFuture<V> load, Supplier<V> loader) {
+        try {
+            long remainingMillis = RequestContext.remainingMillis();
+            return remainingMillis < 0 ? load.get() : load.get(remainingMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException("coalesced load");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for coalesced load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DeadlineExceededException && !isCallerExpired()) {
+                // the leader ran out of its own budget; this caller still has time to load
+                return execute(key, loader);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static boolean isCallerExpired() {
+        RequestContext context = RequestContext.current();
+        return context != null && context.isExpired();
+    }
+}
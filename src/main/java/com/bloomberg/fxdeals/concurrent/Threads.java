@@ -0,0 +1,59 @@
+package com.bloomberg.fxdeals.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread and executor factories shared by the application's background components.
+ */
+public final class Threads {
+
+    private Threads() {
+    }
+
+    /**
+     * Returns a virtual-thread-per-task executor, or null when the runtime is older than
+     * Java 21.
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Daemon platform threads named {@code <prefix>-<n>}.
+     */
+    public static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Fork-join pool of daemon workers named {@code <prefix>-<n>}. Workers use the
+     * caller's context class loader, so deployment classes resolve on them.
+     */
+    public static ForkJoinPool newForkJoinPool(String prefix, int parallelism) {
+        AtomicInteger counter = new AtomicInteger();
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return new ForkJoinPool(parallelism, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setContextClassLoader(loader);
+            return thread;
+        }, null, false);
+    }
+}
@@ -0,0 +1,134 @@
+package com.bloomberg.fxdeals.config;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * Application settings.
+ *
+ * Values are read from the bundled application.properties, then from the optional
+ * external file named by the fxdeals.config.file system property, then from system
+ * properties, later sources overriding earlier ones. Call {@link #reload()} to pick up
+ * changes at runtime.
+ */
+@ApplicationScoped
+public class FxDealsConfig {
+
+    public static final String CONFIG_FILE_PROPERTY = "fxdeals.config.file";
+
+    private static final Logger logger = LoggerFactory.getLogger(FxDealsConfig.class);
+    private static final String BUNDLED_PROPERTIES = "/application.properties";
+
+    private volatile Properties properties;
+    private volatile long version;
+
+    public FxDealsConfig() {
+        this.properties = load();
+    }
+
+    public synchronized void reload() {
+        this.properties = load();
+        this.version++;
+        logger.info("Configuration reloaded (version {})", version);
+    }
+
+    /**
+     * Incremented on every reload so that components caching derived values can
+     * detect that they need to rebuild them.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid integer value '{}' for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid long value '{}' for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public double getDouble(String key, double defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid decimal value '{}' for {}, using {}", value, key, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
+    private static Properties load() {
+        Properties loaded = new Properties();
+
+        try (InputStream in = FxDealsConfig.class.getResourceAsStream(BUNDLED_PROPERTIES)) {
+            if (in != null) {
+                loaded.load(in);
+            }
+        } catch (IOException e) {
+            logger.warn("Could not read bundled application.properties", e);
+        }
+
+        String externalFile = System.getProperty(CONFIG_FILE_PROPERTY);
+        if (externalFile != null && !externalFile.isBlank()) {
+            Path path = Paths.get(externalFile);
+            try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                loaded.load(reader);
+            } catch (IOException e) {
+                logger.warn("Could not read configuration file {}", path, e);
+            }
+        }
+
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("fxdeals.")) {
+                loaded.setProperty(name, System.getProperty(name));
+            }
+        }
+
+        return loaded;
+    }
+}
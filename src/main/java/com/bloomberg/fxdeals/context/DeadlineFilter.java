@@ -0,0 +1,191 @@
+package com.bloomberg.fxdeals.context;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.ErrorResponse;
+import com.bloomberg.fxdeals.exception.DeadlineExceededException;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.ext.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.security.Principal;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds the {@link RequestContext} for each request and drops requests whose deadline
+ * has already passed.
+ *
+ * Clients are identified by their authenticated principal, else by their address. The
+ * address is the peer's, unless the peer is listed in fxdeals.admission.trusted-proxies.
+ * Such a proxy may name its client in X-Client-Id, or pass its address in
+ * X-Forwarded-For, read from the right past any other trusted proxies. Headers from
+ * other peers are ignored, so a caller cannot choose its own key and with it a fresh
+ * rate limit bucket. This filter runs before JAX-RS authentication filters, so a
+ * principal they set is only seen by AdmissionFilter, which rekeys the context.
+ *
+ * Clients send their absolute deadline as epoch milliseconds in the X-Request-Deadline
+ * header. Because the deadline is absolute, time spent queued in front of the
+ * application counts against it.
+ *
+ * The response filter unbinds the context only on the thread that bound it. A suspended
+ * request is resumed on another thread, and there {@link RequestContextCleanupFilter}
+ * clears the container thread once dispatch returns.
+ */
+@Provider
+@Priority(400)
+public class DeadlineFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+    public static final String DEADLINE_HEADER = "X-Request-Deadline";
+    public static final String FORWARDED_FOR_HEADER = "X-Forwarded-For";
+    public static final String TRUSTED_PROXIES_PROPERTY = "fxdeals.admission.trusted-proxies";
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineFilter.class);
+    private static final String THREAD_PROPERTY = DeadlineFilter.class.getName() + ".thread";
+
+    @Inject
+    LoadSheddingStats stats;
+
+    @Inject
+    FxDealsConfig config;
+
+    @Context
+    HttpServletRequest servletRequest;
+
+    private volatile TrustedProxies trustedProxies;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        RequestContext clientContext = RequestContext.forClient(clientKey(requestContext));
+        RequestContext.bind(clientContext);
+        requestContext.setProperty(THREAD_PROPERTY, Thread.currentThread());
+
+        String header = requestContext.getHeaderString(DEADLINE_HEADER);
+        if (header == null || header.isBlank()) {
+            return;
+        }
+
+        long deadlineMillis;
+        try {
+            deadlineMillis = Long.parseLong(header.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Ignoring malformed {} header: {}", DEADLINE_HEADER, header);
+            return;
+        }
+
+        long remainingMillis = deadlineMillis - System.currentTimeMillis();
+        RequestContext context = clientContext.withDeadline(TimeUnit.MILLISECONDS.toNanos(remainingMillis));
+        RequestContext.bind(context);
+
+        if (context.isExpired()) {
+            DeadlineExceededException exception = new DeadlineExceededException("request admission");
+            logger.warn("Dropping request to {}: {}", requestContext.getUriInfo().getPath(), exception.getMessage());
+            requestContext.abortWith(Response.status(DeadlineExceededException.STATUS)
+                .type(MediaType.APPLICATION_JSON)
+                .entity(new ErrorResponse(DeadlineExceededException.STATUS, "Deadline Exceeded", exception.getMessage()))
+                .build());
+        }
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (responseContext.getStatus() == DeadlineExceededException.STATUS) {
+            stats.recordDropped();
+        } else {
+            stats.recordServed();
+        }
+        if (requestContext.getProperty(THREAD_PROPERTY) == Thread.currentThread()) {
+            RequestContext.clear();
+        }
+    }
+
+    private String clientKey(ContainerRequestContext requestContext) {
+        SecurityContext security = requestContext.getSecurityContext();
+        return clientKey(security != null ? security.getUserPrincipal() : null, remoteAddress(),
+                         requestContext.getHeaderString(RequestContext.CLIENT_ID_HEADER),
+                         requestContext.getHeaderString(FORWARDED_FOR_HEADER), trustedProxies());
+    }
+
+    /**
+     * The client key of an authenticated principal, or null without one.
+     */
+    public static String principalKey(Principal principal) {
+        return principal != null ? "user:" + principal.getName() : null;
+    }
+
+    static String clientKey(Principal principal, String peer, String clientId, String forwardedFor,
+                            Set<String> trustedProxies) {
+        if (principal != null) {
+            return principalKey(principal);
+        }
+        if (peer == null) {
+            return "anonymous";
+        }
+        if (!trustedProxies.contains(peer)) {
+            return peer;
+        }
+        if (clientId != null && !clientId.isBlank()) {
+            return "client:" + clientId.trim();
+        }
+        if (forwardedFor != null) {
+            String[] hops = forwardedFor.split(",");
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (!hop.isEmpty() && !trustedProxies.contains(hop)) {
+                    return hop;
+                }
+            }
+        }
+        return peer;
+    }
+
+    private String remoteAddress() {
+        if (servletRequest == null) {
+            return null;
+        }
+        try {
+            return servletRequest.getRemoteAddr();
+        } catch (RuntimeException e) {
+            // outside a servlet container, for example on a mock dispatcher
+            logger.debug("Remote address not available: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Set<String> trustedProxies() {
+        long version = config.getVersion();
+        TrustedProxies current = trustedProxies;
+        if (current == null || current.version != version) {
+            Set<String> addresses = new HashSet<>();
+            for (String address : config.getString(TRUSTED_PROXIES_PROPERTY, "").split(",")) {
+                if (!address.isBlank()) {
+                    addresses.add(address.trim());
+                }
+            }
+            current = new TrustedProxies(version, Set.copyOf(addresses));
+            trustedProxies = current;
+        }
+        return current.addresses;
+    }
+
+    private static final class TrustedProxies {
+        final long version;
+        final Set<String> addresses;
+
+        TrustedProxies(long version, Set<String> addresses) {
+            this.version = version;
+            this.addresses = addresses;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.bloomberg.fxdeals.context;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts requests that were served versus dropped because their deadline had passed.
+ */
+@ApplicationScoped
+public class LoadSheddingStats {
+
+    private final LongAdder served = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public void recordServed() {
+        served.increment();
+    }
+
+    public void recordDropped() {
+        dropped.increment();
+    }
+
+    public long getServed() {
+        return served.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,183 @@
+package com.bloomberg.fxdeals.context;
+
+import com.bloomberg.fxdeals.exception.DeadlineExceededException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request state that has to follow a request from the REST layer down to the
+ * repository, including onto executor threads.
+ *
+ * The context carries the caller's client key, its deadline when the client sent one,
+ * its {@link RequestTiming} when the request is traced, and whether the call is part of
+ * the startup warm-up rather than a client request. It is bound to the current thread by {@link DeadlineFilter}; code that hands
+ * work to another thread should wrap it with {@link #propagate(Callable)}.
+ */
+public final class RequestContext {
+
+    /** Header by which a trusted proxy names its client; see {@link DeadlineFilter}. */
+    public static final String CLIENT_ID_HEADER = "X-Client-Id";
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private final String clientKey;
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private final RequestTiming timing;
+    private final boolean warmUp;
+
+    private RequestContext(String clientKey, boolean hasDeadline, long deadlineNanos, RequestTiming timing,
+                           boolean warmUp) {
+        this.clientKey = clientKey;
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+        this.timing = timing;
+        this.warmUp = warmUp;
+    }
+
+    /**
+     * Creates a context for a request that must finish within the given number of
+     * nanoseconds from now.
+     */
+    public static RequestContext withTimeout(long timeoutNanos) {
+        return new RequestContext(null, true, System.nanoTime() + timeoutNanos, null, false);
+    }
+
+    /**
+     * Creates a context without a deadline for the given client.
+     */
+    public static RequestContext forClient(String clientKey) {
+        return new RequestContext(clientKey, false, 0L, null, false);
+    }
+
+    /**
+     * Creates a context for the startup warm-up, whose calls are not counted as deal
+     * outcomes.
+     */
+    public static RequestContext forWarmUp() {
+        return new RequestContext(null, false, 0L, null, true);
+    }
+
+    /**
+     * Returns a copy of this context that must finish within the given number of
+     * nanoseconds from now.
+     */
+    public RequestContext withDeadline(long timeoutNanos) {
+        return new RequestContext(clientKey, true, System.nanoTime() + timeoutNanos, timing, warmUp);
+    }
+
+    /**
+     * Returns a copy of this context for the given client.
+     */
+    public RequestContext withClientKey(String clientKey) {
+        return new RequestContext(clientKey, hasDeadline, deadlineNanos, timing, warmUp);
+    }
+
+    /**
+     * Returns a copy of this context that records its phase timings in the given timing.
+     */
+    public RequestContext withTiming(RequestTiming timing) {
+        return new RequestContext(clientKey, hasDeadline, deadlineNanos, timing, warmUp);
+    }
+
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(RequestContext context) {
+        if (context == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Throws {@link DeadlineExceededException} if the current request's deadline has
+     * passed. Does nothing when no deadline was supplied.
+     */
+    public static void checkDeadline(String operation) {
+        RequestContext context = CURRENT.get();
+        if (context != null && context.isExpired()) {
+            throw new DeadlineExceededException(operation);
+        }
+    }
+
+    /**
+     * Remaining budget of the current request in milliseconds, or -1 when the request
+     * has no deadline.
+     */
+    public static long remainingMillis() {
+        RequestContext context = CURRENT.get();
+        if (context == null || !context.hasDeadline) {
+            return -1;
+        }
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(context.remainingNanos()));
+    }
+
+    /**
+     * Key of the client that issued the current request, or null outside a request.
+     */
+    public static String currentClientKey() {
+        RequestContext context = CURRENT.get();
+        return context != null ? context.clientKey : null;
+    }
+
+    /**
+     * True while the current thread runs the startup warm-up.
+     */
+    public static boolean isWarmUp() {
+        RequestContext context = CURRENT.get();
+        return context != null && context.warmUp;
+    }
+
+    /**
+     * Wraps a task so that it runs with the caller's context bound.
+     */
+    public static <T> Callable<T> propagate(Callable<T> task) {
+        RequestContext captured = CURRENT.get();
+        if (captured == null) {
+            return task;
+        }
+        return () -> {
+            RequestContext previous = CURRENT.get();
+            CURRENT.set(captured);
+            try {
+                return task.call();
+            } finally {
+                bind(previous);
+            }
+        };
+    }
+
+    public String getClientKey() {
+        return clientKey;
+    }
+
+    /**
+     * Phase timings of this request, or null when it is not traced.
+     */
+    public RequestTiming getTiming() {
+        return timing;
+    }
+
+    public boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    /**
+     * Nanoseconds until the deadline, or {@link Long#MAX_VALUE} without one.
+     */
+    public long remainingNanos() {
+        return hasDeadline ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return hasDeadline && remainingNanos() <= 0;
+    }
+}
@@ -0,0 +1,33 @@
+package com.bloomberg.fxdeals.context;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.annotation.WebFilter;
+
+import java.io.IOException;
+
+/**
+ * Unbinds the {@link RequestContext} from the container thread once the request has
+ * been dispatched.
+ *
+ * {@link DeadlineFilter} binds the context on the container thread, but the response
+ * filters of a suspended request run on whichever thread resumes it. This filter clears
+ * the container thread's context when dispatch returns, whether or not the request was
+ * suspended, so the next work on that thread does not inherit a stale deadline or timing.
+ */
+@WebFilter(urlPatterns = "/*", asyncSupported = true)
+public class RequestContextCleanupFilter implements Filter {
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestContext.clear();
+        }
+    }
+}
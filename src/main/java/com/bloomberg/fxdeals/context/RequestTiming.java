@@ -0,0 +1,140 @@
+package com.bloomberg.fxdeals.context;
+
+import java.util.Locale;
+
+/**
+ * Time one traced request spent in each phase, reported in its Server-Timing header and
+ * in the slow request log by {@link RequestTimingFilter}.
+ *
+ * The timing travels with the {@link RequestContext}, so the service and repository
+ * layers and executor threads running the request's work all add to the same one. A
+ * request's phases are recorded by one thread at a time. While timing is switched off
+ * {@link #current()} returns null after a single volatile read, and {@link #start()} and
+ * {@link #stop} neither read the clock nor allocate.
+ */
+public final class RequestTiming {
+
+    /** Returned by {@link #start()} when the current request is not traced. */
+    public static final long NOT_TRACED = Long.MIN_VALUE;
+
+    public enum Phase {
+        PARSE("parse"),
+        VALIDATE("validate"),
+        DEDUP("dedup"),
+        DB_READ("db-read"),
+        DB_WRITE("db-write"),
+        SERIALIZE("serialize");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private static volatile boolean enabled;
+
+    private final long startNanos;
+    private final long[] phaseNanos = new long[PHASES.length];
+    private int recorded;
+
+    public RequestTiming(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    /**
+     * Switched by {@link RequestTimingFilter} according to fxdeals.timing.mode.
+     */
+    public static void setEnabled(boolean enabled) {
+        RequestTiming.enabled = enabled;
+    }
+
+    /**
+     * Timing of the request bound to this thread, or null when timing is off or the
+     * request is not traced.
+     */
+    public static RequestTiming current() {
+        if (!enabled) {
+            return null;
+        }
+        RequestContext context = RequestContext.current();
+        return context != null ? context.getTiming() : null;
+    }
+
+    /**
+     * Clock reading to pass to {@link #stop}, or {@link #NOT_TRACED}.
+     */
+    public static long start() {
+        return current() != null ? System.nanoTime() : NOT_TRACED;
+    }
+
+    /**
+     * Adds the time since a {@link #start()} reading to a phase of the current request.
+     */
+    public static void stop(Phase phase, long startNanos) {
+        if (startNanos != NOT_TRACED) {
+            record(phase, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Adds to a phase of the current request, if it is traced.
+     */
+    public static void record(Phase phase, long nanos) {
+        RequestTiming timing = current();
+        if (timing != null) {
+            timing.add(phase, nanos);
+        }
+    }
+
+    public void add(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] += nanos;
+        recorded |= 1 << phase.ordinal();
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Server-Timing header value with every recorded phase and the total, in
+     * milliseconds: {@code validate;dur=0.042, db-write;dur=3.100, total;dur=3.511}.
+     */
+    public String toServerTiming(long totalNanos) {
+        StringBuilder header = new StringBuilder(128);
+        for (Phase phase : PHASES) {
+            if ((recorded & (1 << phase.ordinal())) != 0) {
+                header.append(phase.label).append(";dur=").append(millis(phaseNanos[phase.ordinal()])).append(", ");
+            }
+        }
+        return header.append("total;dur=").append(millis(totalNanos)).toString();
+    }
+
+    /**
+     * The same breakdown as key=value fields for a log line:
+     * {@code total_ms=3.511 validate_ms=0.042 db-write_ms=3.100}.
+     */
+    public String toLogFields(long totalNanos) {
+        StringBuilder fields = new StringBuilder(128).append("total_ms=").append(millis(totalNanos));
+        for (Phase phase : PHASES) {
+            if ((recorded & (1 << phase.ordinal())) != 0) {
+                fields.append(' ').append(phase.label).append("_ms=").append(millis(phaseNanos[phase.ordinal()]));
+            }
+        }
+        return fields.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,181 @@
+package com.bloomberg.fxdeals.context;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.ReaderInterceptor;
+import jakarta.ws.rs.ext.ReaderInterceptorContext;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Traces requests phase by phase and reports the breakdown in a Server-Timing header
+ * and, for requests slower than fxdeals.timing.slow-request-ms, in one log line.
+ *
+ * fxdeals.timing.mode selects the traced requests: "off", "header" for requests that
+ * carry the X-Request-Timing header, or "all". Runs after {@link DeadlineFilter} has
+ * bound the request context, which then carries the {@link RequestTiming} down to the
+ * repository. Request body parsing is timed by the reader interceptor. Headers cannot
+ * change once the body is being written, so the writer interceptor serialises the body
+ * into a buffer, adds the header with the serialisation time, and then copies the buffer
+ * out; streamed bodies are passed through and report no serialisation time.
+ */
+@Provider
+@Priority(450)
+public class RequestTimingFilter implements ContainerRequestFilter, ContainerResponseFilter,
+                                            ReaderInterceptor, WriterInterceptor {
+
+    public static final String MODE_PROPERTY = "fxdeals.timing.mode";
+    public static final String SLOW_REQUEST_PROPERTY = "fxdeals.timing.slow-request-ms";
+    public static final String TIMING_HEADER = "X-Request-Timing";
+    public static final String SERVER_TIMING_HEADER = "Server-Timing";
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTimingFilter.class);
+    private static final String TIMING_PROPERTY = RequestTimingFilter.class.getName() + ".timing";
+    private static final String REQUEST_PROPERTY = RequestTimingFilter.class.getName() + ".request";
+    private static final String STATUS_PROPERTY = RequestTimingFilter.class.getName() + ".status";
+
+    enum Mode {
+        OFF,
+        HEADER,
+        ALL
+    }
+
+    @Inject
+    FxDealsConfig config;
+
+    private volatile Settings settings;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        Settings current = currentSettings();
+        if (current.mode == Mode.OFF
+                || (current.mode == Mode.HEADER && requestContext.getHeaderString(TIMING_HEADER) == null)) {
+            return;
+        }
+        RequestContext context = RequestContext.current();
+        if (context == null) {
+            return;
+        }
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        RequestContext.bind(context.withTiming(timing));
+        requestContext.setProperty(TIMING_PROPERTY, timing);
+        requestContext.setProperty(REQUEST_PROPERTY, String.format("method=%s path=%s client=%s",
+            requestContext.getMethod(), requestContext.getUriInfo().getRequestUri().getRawPath(),
+            context.getClientKey()));
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        RequestTiming timing = (RequestTiming) requestContext.getProperty(TIMING_PROPERTY);
+        if (timing == null) {
+            return;
+        }
+        requestContext.setProperty(STATUS_PROPERTY, responseContext.getStatus());
+        if (responseContext.hasEntity()) {
+            // reported by aroundWriteTo once the body has been serialised
+            return;
+        }
+        requestContext.removeProperty(TIMING_PROPERTY);
+        long totalNanos = timing.elapsedNanos();
+        responseContext.getHeaders().add(SERVER_TIMING_HEADER, timing.toServerTiming(totalNanos));
+        logIfSlow((String) requestContext.getProperty(REQUEST_PROPERTY), responseContext.getStatus(),
+                  timing, totalNanos);
+    }
+
+    @Override
+    public Object aroundReadFrom(ReaderInterceptorContext context) throws IOException {
+        RequestTiming timing = (RequestTiming) context.getProperty(TIMING_PROPERTY);
+        if (timing == null) {
+            return context.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            return context.proceed();
+        } finally {
+            timing.add(RequestTiming.Phase.PARSE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        RequestTiming timing = (RequestTiming) context.getProperty(TIMING_PROPERTY);
+        if (timing == null) {
+            context.proceed();
+            return;
+        }
+        context.removeProperty(TIMING_PROPERTY);
+        String request = (String) context.getProperty(REQUEST_PROPERTY);
+        Object status = context.getProperty(STATUS_PROPERTY);
+
+        if (context.getEntity() instanceof StreamingOutput) {
+            context.getHeaders().add(SERVER_TIMING_HEADER, timing.toServerTiming(timing.elapsedNanos()));
+            context.proceed();
+        } else {
+            OutputStream out = context.getOutputStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+            context.setOutputStream(body);
+            long start = System.nanoTime();
+            try {
+                context.proceed();
+            } finally {
+                context.setOutputStream(out);
+            }
+            timing.add(RequestTiming.Phase.SERIALIZE, System.nanoTime() - start);
+            context.getHeaders().add(SERVER_TIMING_HEADER, timing.toServerTiming(timing.elapsedNanos()));
+            body.writeTo(out);
+        }
+        logIfSlow(request, status != null ? (Integer) status : 0, timing, timing.elapsedNanos());
+    }
+
+    private void logIfSlow(String request, int status, RequestTiming timing, long totalNanos) {
+        if (totalNanos >= currentSettings().slowRequestNanos) {
+            logger.warn("Slow request {} status={} {}", request, status, timing.toLogFields(totalNanos));
+        }
+    }
+
+    private Settings currentSettings() {
+        Settings current = settings;
+        long version = config.getVersion();
+        if (current == null || current.version != version) {
+            synchronized (this) {
+                current = settings;
+                if (current == null || current.version != version) {
+                    current = new Settings(config, version);
+                    settings = current;
+                    RequestTiming.setEnabled(current.mode != Mode.OFF);
+                    logger.info("Request timing {} with slow request threshold {} ms",
+                                current.mode.name().toLowerCase(Locale.ROOT),
+                                TimeUnit.NANOSECONDS.toMillis(current.slowRequestNanos));
+                }
+            }
+        }
+        return current;
+    }
+
+    private static final class Settings {
+        final long version;
+        final Mode mode;
+        final long slowRequestNanos;
+
+        Settings(FxDealsConfig config, long version) {
+            this.version = version;
+            this.mode = Mode.valueOf(config.getString(MODE_PROPERTY, "header").trim().toUpperCase(Locale.ROOT));
+            this.slowRequestNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong(SLOW_REQUEST_PROPERTY, 1000));
+        }
+    }
+}
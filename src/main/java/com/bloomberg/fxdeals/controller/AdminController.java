@@ -0,0 +1,186 @@
+package com.bloomberg.fxdeals.controller;
+
+import com.bloomberg.fxdeals.admission.AdmissionControl;
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.archive.DealArchiver;
+import com.bloomberg.fxdeals.cache.LatestDealsCache;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.LoadSheddingStats;
+import com.bloomberg.fxdeals.dedup.NearDuplicateIndex;
+import com.bloomberg.fxdeals.metrics.OrmStatistics;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import com.bloomberg.fxdeals.service.FxDealService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Operational endpoints. Not limited by admission control.
+ */
+@Path("/api/admin")
+@Produces(MediaType.APPLICATION_JSON)
+public class AdminController {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
+    @Inject
+    private FxDealsConfig config;
+
+    @Inject
+    private AdmissionControl admissionControl;
+
+    @Inject
+    private LoadSheddingStats sheddingStats;
+
+    @Inject
+    private FxDealService dealService;
+
+    @Inject
+    private LatestDealsCache latestDeals;
+
+    @Inject
+    private ReplicaRouter replicaRouter;
+
+    @Inject
+    private DealArchive archive;
+
+    @Inject
+    private DealArchiver archiver;
+
+    @Inject
+    private NearDuplicateIndex nearDuplicates;
+
+    @Inject
+    private OrmStatistics ormStatistics;
+
+    @POST
+    @Path("/config/reload")
+    public Response reloadConfig() {
+        logger.info("Received request to reload configuration");
+        config.reload();
+        return admission();
+    }
+
+    @GET
+    @Path("/admission")
+    public Response admission() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("configVersion", config.getVersion());
+        stats.put("concurrencyLimit", admissionControl.getConcurrencyLimit());
+        stats.put("inFlight", admissionControl.getInFlight());
+        stats.put("rateLimited", admissionControl.getRateLimitedCount());
+        stats.put("overloaded", admissionControl.getOverloadedCount());
+        stats.put("trackedClients", admissionControl.getTrackedClients());
+        stats.put("overflowed", admissionControl.getOverflowCount());
+        return Response.ok(stats).build();
+    }
+
+    @GET
+    @Path("/shedding")
+    public Response shedding() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("served", sheddingStats.getServed());
+        stats.put("deadlineDropped", sheddingStats.getDropped());
+        stats.put("rateLimited", admissionControl.getRateLimitedCount());
+        stats.put("overloaded", admissionControl.getOverloadedCount());
+        return Response.ok(stats).build();
+    }
+
+    @GET
+    @Path("/coalescing")
+    public Response coalescing() {
+        Map<String, Long> counts = dealService.getCoalescedReadCounts();
+        Map<String, Object> stats = new LinkedHashMap<>(counts);
+        stats.put("total", counts.values().stream().mapToLong(Long::longValue).sum());
+        return Response.ok(stats).build();
+    }
+
+    @GET
+    @Path("/cache")
+    public Response cache() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("latestDealsHits", latestDeals.getHitCount());
+        stats.put("latestDealsMisses", latestDeals.getMissCount());
+        return Response.ok(stats).build();
+    }
+
+    @GET
+    @Path("/replica")
+    public Response replica() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", replicaRouter.isEnabled());
+        stats.put("available", replicaRouter.isReplicaAvailable());
+        stats.put("lagMillis", replicaRouter.getLagMillis());
+        stats.put("replicaReads", replicaRouter.getReplicaReads());
+        stats.put("primaryReads", replicaRouter.getPrimaryReads());
+        stats.put("fallbacks", replicaRouter.getFallbacks());
+        return Response.ok(stats).build();
+    }
+
+    @GET
+    @Path("/archive")
+    public Response archive() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", archive.isEnabled());
+        stats.put("segments", archive.getSegmentCount());
+        stats.put("archivedDeals", archive.getArchivedDealCount());
+        stats.put("archiveBytes", archive.getArchiveBytes());
+        stats.put("lookups", archive.getLookupCount());
+        stats.put("lookupHits", archive.getHitCount());
+        stats.put("meanLookupMicros", archive.getMeanLookupMicros());
+        stats.put("movedSinceStart", archiver.getMovedCount());
+        stats.put("lastRun", archiver.getLastRun() != null ? archiver.getLastRun().toString() : null);
+        return Response.ok(stats).build();
+    }
+
+    @GET
+    @Path("/near-duplicates")
+    public Response nearDuplicates() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", nearDuplicates.getMode().name().toLowerCase(Locale.ROOT));
+        stats.put("indexedDeals", nearDuplicates.getIndexedDealCount());
+        stats.put("matches", nearDuplicates.getMatchCount());
+        stats.put("skipped", nearDuplicates.getSkippedCount());
+        return Response.ok(stats).build();
+    }
+
+    @GET
+    @Path("/orm")
+    public Response orm() {
+        return Response.ok(ormStatistics.snapshot()).build();
+    }
+
+    @POST
+    @Path("/orm/reset")
+    public Response resetOrmStatistics() {
+        logger.info("Received request to reset ORM statistics");
+        ormStatistics.reset();
+        return orm();
+    }
+
+    @POST
+    @Path("/archive/run")
+    public Response runArchival() {
+        logger.info("Received request to archive old deals");
+        archiver.run();
+        return archive();
+    }
+
+    @POST
+    @Path("/cache/invalidate")
+    public Response invalidateCache() {
+        logger.info("Received request to invalidate the latest deals cache");
+        latestDeals.invalidate();
+        return Response.noContent().build();
+    }
+}
@@ -0,0 +1,190 @@
+package com.bloomberg.fxdeals.controller;
+
+import com.bloomberg.fxdeals.concurrent.DealExecutor;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.dto.ErrorResponse;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.exception.DeadlineExceededException;
+import com.bloomberg.fxdeals.service.FxDealService;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous variant of {@link FxDealController}.
+ *
+ * Requests are suspended and the service calls run on the {@link DealExecutor}, so the
+ * HTTP worker thread is released immediately and stays available for other traffic
+ * (including health checks) while the database is slow.
+ *
+ * Each call gets fxdeals.async.timeout-ms as its deadline, tightened from the client's
+ * own deadline if that is sooner, so repository calls stop once the response has timed
+ * out. A call still queued for the database at the timeout is cancelled and answered
+ * 503, and can be retried. A create already running may still commit. It is answered 202
+ * with the deal's lookup URI, since only a lookup can tell whether it was stored.
+ */
+@Path("/api/async/fx-deals")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class FxDealAsyncController {
+
+    public static final String TIMEOUT_PROPERTY = "fxdeals.async.timeout-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(FxDealAsyncController.class);
+    private static final int PENDING = 0;
+    private static final int RUNNING = 1;
+    private static final int TIMED_OUT = 2;
+
+    @Inject
+    private FxDealService dealService;
+
+    @Inject
+    private DealExecutor executor;
+
+    @Inject
+    private FxDealsConfig config;
+
+    @POST
+    public void createDeal(FxDealRequest request, @Suspended AsyncResponse asyncResponse) {
+        logger.info("Received async request to create FX deal");
+        RequestContext.checkDeadline("createDeal");
+        execute(asyncResponse, () -> outcomeUnknown(request), () -> {
+            FxDealResponse response = dealService.createDeal(request);
+            return Response.status(Response.Status.CREATED)
+                .entity(response)
+                .build();
+        });
+    }
+
+    @GET
+    @Path("/{id}")
+    public void getDealById(@PathParam("id") Long id, @Suspended AsyncResponse asyncResponse) {
+        logger.info("Received async request to get FX deal by ID: {}", id);
+        RequestContext.checkDeadline("getDealById");
+        execute(asyncResponse, FxDealAsyncController::retryLater,
+                () -> Response.ok(dealService.getDealById(id)).build());
+    }
+
+    @GET
+    @Path("/unique/{dealUniqueId}")
+    public void getDealByUniqueId(@PathParam("dealUniqueId") String dealUniqueId,
+                                  @Suspended AsyncResponse asyncResponse) {
+        logger.info("Received async request to get FX deal by unique ID: {}", dealUniqueId);
+        RequestContext.checkDeadline("getDealByUniqueId");
+        execute(asyncResponse, FxDealAsyncController::retryLater,
+                () -> Response.ok(dealService.getDealByUniqueId(dealUniqueId)).build());
+    }
+
+    @GET
+    public void getAllDeals(
+            @QueryParam("offset") @DefaultValue("0") int offset,
+            @QueryParam("limit") @DefaultValue("100") int limit,
+            @Suspended AsyncResponse asyncResponse) {
+        logger.info("Received async request to get all FX deals with offset: {} and limit: {}", offset, limit);
+        RequestContext.checkDeadline("getAllDeals");
+
+        int pageLimit = (limit <= 0 || limit > 1000) ? 100 : limit;
+        int pageOffset = Math.max(offset, 0);
+
+        execute(asyncResponse, FxDealAsyncController::retryLater, () -> {
+            List<FxDealResponse> deals = dealService.getDeals(pageOffset, pageLimit);
+            long totalCount = dealService.getTotalCount();
+
+            return Response.ok()
+                .entity(deals)
+                .header("X-Total-Count", totalCount)
+                .header("X-Offset", pageOffset)
+                .header("X-Limit", pageLimit)
+                .build();
+        });
+    }
+
+    /**
+     * Runs the call on the executor with the async timeout as its deadline. On timeout, a
+     * call that has not started is cancelled and answered 503; one that is running is
+     * answered with whatever whileRunning builds.
+     */
+    private void execute(AsyncResponse asyncResponse, Supplier<Response> whileRunning, Callable<Response> call) {
+        long timeoutMillis = config.getLong(TIMEOUT_PROPERTY, 30000);
+        AtomicInteger state = new AtomicInteger(PENDING);
+        asyncResponse.setTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(timedOut -> timedOut.resume(
+            state.compareAndSet(PENDING, TIMED_OUT) ? retryLater() : whileRunning.get()));
+
+        RequestContext previous = RequestContext.current();
+        RequestContext.bind(withTimeout(previous, TimeUnit.MILLISECONDS.toNanos(timeoutMillis)));
+        try {
+            executor.submit(() -> {
+                if (!state.compareAndSet(PENDING, RUNNING)) {
+                    throw new DeadlineExceededException("start of the async call");
+                }
+                return call.call();
+            }).whenComplete((response, error) -> {
+                if (error != null) {
+                    asyncResponse.resume(unwrap(error));
+                } else {
+                    asyncResponse.resume(response);
+                }
+            });
+        } finally {
+            RequestContext.bind(previous);
+        }
+    }
+
+    private static RequestContext withTimeout(RequestContext context, long timeoutNanos) {
+        if (context == null) {
+            return RequestContext.withTimeout(timeoutNanos);
+        }
+        return context.remainingNanos() <= timeoutNanos ? context : context.withDeadline(timeoutNanos);
+    }
+
+    private static Response retryLater() {
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+            .type(MediaType.APPLICATION_JSON)
+            .entity(new ErrorResponse(
+                Response.Status.SERVICE_UNAVAILABLE.getStatusCode(),
+                "Service Unavailable",
+                "The request could not be processed in time. Please try again later."))
+            .build();
+    }
+
+    private static Response outcomeUnknown(FxDealRequest request) {
+        String uniqueId = request != null ? request.getDealUniqueId() : null;
+        Response.ResponseBuilder response = Response.status(Response.Status.ACCEPTED)
+            .type(MediaType.APPLICATION_JSON)
+            .entity(new ErrorResponse(
+                Response.Status.ACCEPTED.getStatusCode(),
+                "Outcome Unknown",
+                "The deal was still being created when the request timed out and may have been stored. "
+                    + "Look it up by its unique ID before retrying."));
+        if (uniqueId != null && !uniqueId.isBlank()) {
+            response.location(UriBuilder.fromPath("/api/async/fx-deals/unique/{dealUniqueId}").build(uniqueId));
+        }
+        return response.build();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
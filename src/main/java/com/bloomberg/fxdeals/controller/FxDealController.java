@@ -1,16 +1,36 @@
 package com.bloomberg.fxdeals.controller;
 
+import com.bloomberg.fxdeals.concurrent.DealExecutor;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.dto.DealOutcome;
 import com.bloomberg.fxdeals.dto.FxDealRequest;
 import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.service.BatchDealProcessor;
 import com.bloomberg.fxdeals.service.FxDealService;
+import com.bloomberg.fxdeals.startup.StartupWarmUp;
+import com.bloomberg.fxdeals.stream.ChangeFeed;
+import com.bloomberg.fxdeals.stream.DealBroadcaster;
+import com.bloomberg.fxdeals.stream.SseDealSink;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @Path("/api/fx-deals")
 @Produces(MediaType.APPLICATION_JSON)
@@ -18,23 +38,56 @@ import java.util.List;
 public class FxDealController {
 
     private static final Logger logger = LoggerFactory.getLogger(FxDealController.class);
+    private static final int MAX_CHANGES_LIMIT = 10000;
+    private static final long MAX_CHANGES_WAIT_MS = 30000;
 
     @Inject
     private FxDealService dealService;
 
+    @Inject
+    private DealBroadcaster broadcaster;
+
+    @Inject
+    private ChangeFeed changeFeed;
+
+    @Inject
+    private DealExecutor executor;
+
+    @Inject
+    private BatchDealProcessor batchProcessor;
+
+    @Inject
+    private StartupWarmUp warmUp;
+
     @POST
     public Response createDeal(FxDealRequest request) {
         logger.info("Received request to create FX deal");
+        RequestContext.checkDeadline("createDeal");
         FxDealResponse response = dealService.createDeal(request);
         return Response.status(Response.Status.CREATED)
             .entity(response)
             .build();
     }
 
+    /**
+     * Creates up to fxdeals.batch.max-size deals and returns an outcome per request in
+     * request order. Chunks are committed separately, so a failure part-way leaves the
+     * earlier chunks in place.
+     */
+    @POST
+    @Path("/batch")
+    public Response createDeals(List<FxDealRequest> requests) {
+        logger.info("Received request to create a batch of FX deals");
+        RequestContext.checkDeadline("createDeals");
+        List<DealOutcome> outcomes = batchProcessor.process(requests);
+        return Response.ok(outcomes).build();
+    }
+
     @GET
     @Path("/{id}")
     public Response getDealById(@PathParam("id") Long id) {
         logger.info("Received request to get FX deal by ID: {}", id);
+        RequestContext.checkDeadline("getDealById");
         FxDealResponse response = dealService.getDealById(id);
         return Response.ok(response).build();
     }
@@ -43,6 +96,7 @@ public class FxDealController {
     @Path("/unique/{dealUniqueId}")
     public Response getDealByUniqueId(@PathParam("dealUniqueId") String dealUniqueId) {
         logger.info("Received request to get FX deal by unique ID: {}", dealUniqueId);
+        RequestContext.checkDeadline("getDealByUniqueId");
         FxDealResponse response = dealService.getDealByUniqueId(dealUniqueId);
         return Response.ok(response).build();
     }
@@ -52,7 +106,8 @@ public class FxDealController {
             @QueryParam("offset") @DefaultValue("0") int offset,
             @QueryParam("limit") @DefaultValue("100") int limit) {
         logger.info("Received request to get all FX deals with offset: {} and limit: {}", offset, limit);
-        
+        RequestContext.checkDeadline("getAllDeals");
+
         if (limit <= 0 || limit > 1000) {
             limit = 100;
         }
@@ -71,10 +126,128 @@ public class FxDealController {
             .build();
     }
 
+    /**
+     * Deals with an id greater than {@code since}, in id order. Resume with the
+     * X-Next-Since header. With {@code waitMs}, a caught-up consumer is held until new
+     * deals commit or the wait expires, and then gets an empty page.
+     */
+    @GET
+    @Path("/changes")
+    public void getChanges(
+            @QueryParam("since") @DefaultValue("0") long since,
+            @QueryParam("limit") @DefaultValue("1000") int limit,
+            @QueryParam("waitMs") @DefaultValue("0") long waitMs,
+            @Suspended AsyncResponse asyncResponse) {
+        logger.info("Received request to get FX deal changes since ID: {} with limit: {} and wait: {} ms",
+                    since, limit, waitMs);
+        RequestContext.checkDeadline("getChanges");
+
+        long afterId = Math.max(since, 0);
+        int pageLimit = (limit <= 0 || limit > MAX_CHANGES_LIMIT) ? 1000 : limit;
+        long wait = Math.min(Math.max(waitMs, 0), MAX_CHANGES_WAIT_MS);
+        long remainingMillis = RequestContext.remainingMillis();
+        if (remainingMillis >= 0) {
+            wait = Math.min(wait, remainingMillis);
+        }
+
+        Callable<List<FxDealResponse>> query =
+            RequestContext.propagate(() -> dealService.getChangesSince(afterId, pageLimit));
+        pollChanges(afterId, pageLimit, query, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(wait),
+                    executor.continuationsIn(RequestContext.current()), asyncResponse);
+    }
+
+    /**
+     * Every deal with an id greater than {@code since} that has committed, as a columnar
+     * snapshot file. The X-Snapshot-Watermark header is the highest id covered; pass it as
+     * {@code since} to fetch the next incremental snapshot.
+     */
+    @GET
+    @Path("/snapshot")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response getSnapshot(@QueryParam("since") @DefaultValue("0") long since) {
+        logger.info("Received request to export FX deal snapshot since ID: {}", since);
+        RequestContext.checkDeadline("getSnapshot");
+
+        long sinceId = Math.max(since, 0);
+        long watermark = Math.max(dealService.snapshotWatermark(), sinceId);
+        StreamingOutput body = out -> dealService.exportSnapshot(sinceId, watermark, out);
+        return Response.ok(body)
+            .header("X-Snapshot-Watermark", watermark)
+            .header("Content-Disposition",
+                    String.format("attachment; filename=\"deals-%d-%d.fxcol\"", sinceId, watermark))
+            .build();
+    }
+
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    public void streamDeals(
+            @QueryParam("pairs") String pairs,
+            @Context SseEventSink eventSink,
+            @Context Sse sse) {
+        logger.info("Received request to stream FX deals for pairs: {}", pairs);
+        Set<String> currencyPairs = DealBroadcaster.parseCurrencyPairs(pairs);
+
+        broadcaster.subscribe(new SseDealSink(eventSink, sse, broadcaster.getSendTimeoutMillis()), currencyPairs);
+    }
+
+    private void pollChanges(long afterId, int limit, Callable<List<FxDealResponse>> query,
+                             long waitUntilNanos, Executor continuations, AsyncResponse asyncResponse) {
+        // registered before querying so a commit between the query and the wait is not missed
+        CompletableFuture<Boolean> changed = changeFeed.awaitChange(afterId);
+
+        executor.submit(query).whenComplete((deals, error) -> {
+            long remainingNanos = waitUntilNanos - System.nanoTime();
+            if (error != null) {
+                changed.cancel(false);
+                asyncResponse.resume(error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error);
+            } else if (!deals.isEmpty() || remainingNanos <= 0) {
+                changed.cancel(false);
+                asyncResponse.resume(changesResponse(deals, afterId, limit));
+            } else {
+                // resumed off the committing thread, whose own request context must not leak in
+                changed.completeOnTimeout(Boolean.FALSE, remainingNanos, TimeUnit.NANOSECONDS)
+                    .thenAcceptAsync(wasChanged -> {
+                        if (wasChanged) {
+                            pollChanges(afterId, limit, query, waitUntilNanos, continuations, asyncResponse);
+                        } else {
+                            asyncResponse.resume(changesResponse(List.of(), afterId, limit));
+                        }
+                    }, continuations);
+            }
+        });
+    }
+
+    private static Response changesResponse(List<FxDealResponse> deals, long afterId, int limit) {
+        long nextSince = deals.isEmpty() ? afterId : deals.get(deals.size() - 1).getId();
+        return Response.ok()
+            .entity(deals)
+            .header("X-Next-Since", nextSince)
+            .header("X-Limit", limit)
+            .build();
+    }
+
     @GET
     @Path("/health")
     @Produces(MediaType.TEXT_PLAIN)
     public Response health() {
         return Response.ok("FX Deals API is running").build();
     }
+
+    /**
+     * Readiness: 503 until the startup warm-up has finished. /health answers as soon as
+     * the application is deployed.
+     */
+    @GET
+    @Path("/health/ready")
+    @Produces(MediaType.TEXT_PLAIN)
+    public Response ready() {
+        if (!warmUp.isReady()) {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+                .entity("FX Deals API is warming up")
+                .build();
+        }
+        return Response.ok("FX Deals API is ready").build();
+    }
 }
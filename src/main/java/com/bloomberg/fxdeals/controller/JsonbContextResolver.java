@@ -0,0 +1,27 @@
+package com.bloomberg.fxdeals.controller;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.ContextResolver;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * Supplies one shared Jsonb for reading and writing JSON bodies.
+ *
+ * Without a resolver RESTEasy's JSON-B provider builds a new Jsonb for every body it
+ * reads or writes, which repeats the provider lookup and throws away the per-class
+ * binding metadata each time. Jsonb instances are thread-safe, so one is enough.
+ */
+@Provider
+@Produces(MediaType.APPLICATION_JSON)
+public class JsonbContextResolver implements ContextResolver<Jsonb> {
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    @Override
+    public Jsonb getContext(Class<?> type) {
+        return JSONB;
+    }
+}
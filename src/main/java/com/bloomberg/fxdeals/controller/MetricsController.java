@@ -0,0 +1,20 @@
+package com.bloomberg.fxdeals.controller;
+
+import com.bloomberg.fxdeals.metrics.Metrics;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Prometheus scrape endpoint. Not limited by admission control.
+ */
+@Path("/metrics")
+public class MetricsController {
+
+    @GET
+    @Produces(Metrics.CONTENT_TYPE)
+    public Response metrics() {
+        return Response.ok(Metrics.scrape()).build();
+    }
+}
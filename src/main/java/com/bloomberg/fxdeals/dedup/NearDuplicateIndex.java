@@ -0,0 +1,346 @@
+package com.bloomberg.fxdeals.dedup;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Remembers recently created deals by content, to catch a trade that upstream resends
+ * under a new unique ID.
+ *
+ * Two deals match when they have the same currency pair and amount and their deal
+ * timestamps are at most fxdeals.near-duplicate.tolerance-ms apart. Deals are kept in
+ * one hash table per bucket of deal time, at least twice the tolerance wide, so a
+ * lookup reads at most two tables and probes one 64-bit content hash in each. A table
+ * that has not been written to for fxdeals.near-duplicate.window-ms is dropped whole,
+ * which for live flow means a deal is remembered for about one window. Memory is
+ * bounded by fxdeals.near-duplicate.max-deals, beyond which new deals are not indexed
+ * until old tables expire.
+ *
+ * Lookups take no lock: they read a table optimistically and retry only if a deal was
+ * added to it meanwhile. Adds to one table are serialized.
+ *
+ * Deals are indexed when their transaction commits, so two near-duplicates created at
+ * the same moment are not caught. The index is per instance and starts empty.
+ */
+@ApplicationScoped
+public class NearDuplicateIndex {
+
+    public static final String MODE_PROPERTY = "fxdeals.near-duplicate.mode";
+    public static final String TOLERANCE_PROPERTY = "fxdeals.near-duplicate.tolerance-ms";
+    public static final String WINDOW_PROPERTY = "fxdeals.near-duplicate.window-ms";
+    public static final String MAX_DEALS_PROPERTY = "fxdeals.near-duplicate.max-deals";
+
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateIndex.class);
+    private static final int BUCKETS_PER_WINDOW = 8;
+    private static final long NO_DEAL = Long.MIN_VALUE;
+
+    /**
+     * What a create does on a match: nothing, log and count it, or refuse the deal.
+     */
+    public enum Mode {
+        OFF,
+        FLAG,
+        REJECT
+    }
+
+    @Inject
+    FxDealsConfig config;
+
+    private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong nextSweepMillis = new AtomicLong();
+    private final LongAdder matches = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+
+    private Mode mode = Mode.OFF;
+    private long toleranceMillis;
+    private long windowMillis;
+    private long bucketMillis;
+    private long maxDeals;
+
+    @PostConstruct
+    void init() {
+        start(Mode.valueOf(config.getString(MODE_PROPERTY, "flag").trim().toUpperCase(Locale.ROOT)),
+              config.getLong(TOLERANCE_PROPERTY, 1000),
+              config.getLong(WINDOW_PROPERTY, 600000),
+              config.getLong(MAX_DEALS_PROPERTY, 1000000));
+    }
+
+    void start(Mode mode, long toleranceMillis, long windowMillis, long maxDeals) {
+        this.mode = mode;
+        this.toleranceMillis = Math.max(1, toleranceMillis);
+        this.windowMillis = Math.max(1, windowMillis);
+        this.bucketMillis = Math.max(2 * this.toleranceMillis, this.windowMillis / BUCKETS_PER_WINDOW);
+        this.maxDeals = maxDeals;
+        buckets.clear();
+        indexed.set(0);
+        logger.info("Near-duplicate detection {} with tolerance {} ms over a {} ms window",
+                    mode.name().toLowerCase(Locale.ROOT), this.toleranceMillis, this.windowMillis);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public boolean isRejecting() {
+        return mode == Mode.REJECT;
+    }
+
+    /**
+     * Returns the id of a remembered deal that the request matches, if any.
+     */
+    public OptionalLong findMatch(FxDealRequest request) {
+        return findMatch(request.getFromCurrencyIso(), request.getToCurrencyIso(),
+                         request.getDealTimestamp(), request.getDealAmount());
+    }
+
+    public OptionalLong findMatch(String fromCurrencyIso, String toCurrencyIso,
+                                  LocalDateTime dealTimestamp, BigDecimal dealAmount) {
+        return findMatch(fromCurrencyIso, toCurrencyIso, dealTimestamp, dealAmount, System.currentTimeMillis());
+    }
+
+    OptionalLong findMatch(String fromCurrencyIso, String toCurrencyIso, LocalDateTime dealTimestamp,
+                           BigDecimal dealAmount, long nowMillis) {
+        if (mode == Mode.OFF) {
+            return OptionalLong.empty();
+        }
+        long timestamp = toMillis(dealTimestamp);
+        long content = contentHash(fromCurrencyIso, toCurrencyIso, dealAmount);
+        // buckets are at least twice the tolerance wide, so every match lies in one of these two
+        long low = Math.floorDiv(timestamp - toleranceMillis, bucketMillis);
+        long high = Math.floorDiv(timestamp + toleranceMillis, bucketMillis);
+        for (long index = low; index <= high; index++) {
+            Bucket bucket = buckets.get(index);
+            if (bucket == null || bucket.lastWriteMillis < nowMillis - windowMillis) {
+                continue;
+            }
+            long dealId = bucket.find(content, timestamp, toleranceMillis);
+            if (dealId != NO_DEAL) {
+                matches.increment();
+                return OptionalLong.of(dealId);
+            }
+        }
+        return OptionalLong.empty();
+    }
+
+    void onDealCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) DealCreatedEvent event) {
+        record(event.getDeal(), System.currentTimeMillis());
+    }
+
+    void record(FxDealResponse deal, long nowMillis) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        expire(nowMillis);
+        if (indexed.incrementAndGet() > maxDeals) {
+            indexed.decrementAndGet();
+            skipped.increment();
+            return;
+        }
+        long timestamp = toMillis(deal.getDealTimestamp());
+        long content = contentHash(deal.getFromCurrencyIso(), deal.getToCurrencyIso(), deal.getDealAmount());
+        long key = Math.floorDiv(timestamp, bucketMillis);
+        // a table being expired refuses the add; it is removed from the map right after
+        while (!buckets.computeIfAbsent(key, ignored -> new Bucket()).add(content, timestamp, deal.getId(), nowMillis)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Drops the tables not written to within the window. Runs at most once per
+     * window / {@value #BUCKETS_PER_WINDOW}, on the first thread to record after that.
+     */
+    private void expire(long nowMillis) {
+        long due = nextSweepMillis.get();
+        if (nowMillis < due || !nextSweepMillis.compareAndSet(due, nowMillis + windowMillis / BUCKETS_PER_WINDOW)) {
+            return;
+        }
+        for (Map.Entry<Long, Bucket> entry : buckets.entrySet()) {
+            Bucket bucket = entry.getValue();
+            if (bucket.lastWriteMillis >= nowMillis - windowMillis) {
+                continue;
+            }
+            // closed first, so that no add lands in it after its deals are uncounted
+            int size = bucket.close(nowMillis - windowMillis);
+            if (size >= 0) {
+                buckets.remove(entry.getKey(), bucket);
+                indexed.addAndGet(-size);
+            }
+        }
+    }
+
+    private static long toMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * 64-bit hash of pair and amount. Different content collides with probability around
+     * 2^-64, which is accepted; 0 marks an empty table slot and is never returned.
+     */
+    private static long contentHash(String fromCurrencyIso, String toCurrencyIso, BigDecimal dealAmount) {
+        BigDecimal amount = dealAmount.stripTrailingZeros();
+        long hash = mix(((long) fromCurrencyIso.hashCode() << 32) | (toCurrencyIso.hashCode() & 0xffffffffL));
+        hash = mix(hash ^ amount.unscaledValue().longValue());
+        hash = mix(hash ^ amount.scale());
+        return hash != 0 ? hash : 1;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Deals currently remembered.
+     */
+    public long getIndexedDealCount() {
+        return indexed.get();
+    }
+
+    public long getMatchCount() {
+        return matches.sum();
+    }
+
+    /**
+     * Deals not indexed because fxdeals.near-duplicate.max-deals was reached.
+     */
+    public long getSkippedCount() {
+        return skipped.sum();
+    }
+
+    /**
+     * Open-addressing table of the deals in one bucket of deal time: a content hash, deal
+     * timestamp and deal id per slot, about 48 bytes per deal at the maximum load of one
+     * half. Deals with the same content occupy separate slots of one probe run.
+     *
+     * The three values of a slot sit next to each other in one array, replaced whole when
+     * the table grows, so a lookup sees one consistent array. A lookup that overlaps an add
+     * is detected by the lock's stamp and repeated under the read lock.
+     */
+    private static final class Bucket {
+        private static final int INITIAL_CAPACITY = 64;
+        private static final int SLOT_LONGS = 3;
+
+        private final StampedLock lock = new StampedLock();
+        volatile long lastWriteMillis;
+        private volatile long[] slots = new long[INITIAL_CAPACITY * SLOT_LONGS];
+        private int size;
+        private boolean closed;
+
+        /**
+         * @return false if the table has been closed for expiry
+         */
+        boolean add(long hash, long timestamp, long dealId, long nowMillis) {
+            long stamp = lock.writeLock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                long[] table = slots;
+                if ((size + 1) * 2 > table.length / SLOT_LONGS) {
+                    table = grown(table);
+                    slots = table;
+                }
+                insert(table, hash, timestamp, dealId);
+                size++;
+                lastWriteMillis = nowMillis;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        long find(long hash, long timestamp, long toleranceMillis) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                long dealId = probe(slots, hash, timestamp, toleranceMillis);
+                if (lock.validate(stamp)) {
+                    return dealId;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return probe(slots, hash, timestamp, toleranceMillis);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        /**
+         * Stops further adds if the table has not been written to since the cutoff.
+         *
+         * @return the number of deals in the closed table, or -1 if it is still in use
+         */
+        int close(long cutoffMillis) {
+            long stamp = lock.writeLock();
+            try {
+                if (lastWriteMillis >= cutoffMillis) {
+                    return -1;
+                }
+                closed = true;
+                return size;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        // bounded by the capacity, since an optimistic read may see a table mid-add
+        private static long probe(long[] table, long hash, long timestamp, long toleranceMillis) {
+            int capacity = table.length / SLOT_LONGS;
+            int mask = capacity - 1;
+            int slot = (int) hash & mask;
+            for (int probes = 0; probes < capacity && table[slot * SLOT_LONGS] != 0; probes++) {
+                int base = slot * SLOT_LONGS;
+                if (table[base] == hash && Math.abs(table[base + 1] - timestamp) <= toleranceMillis) {
+                    return table[base + 2];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return NO_DEAL;
+        }
+
+        private static void insert(long[] table, long hash, long timestamp, long dealId) {
+            int mask = table.length / SLOT_LONGS - 1;
+            int slot = (int) hash & mask;
+            while (table[slot * SLOT_LONGS] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            int base = slot * SLOT_LONGS;
+            table[base] = hash;
+            table[base + 1] = timestamp;
+            table[base + 2] = dealId;
+        }
+
+        private static long[] grown(long[] table) {
+            long[] larger = new long[table.length * 2];
+            for (int base = 0; base < table.length; base += SLOT_LONGS) {
+                if (table[base] != 0) {
+                    insert(larger, table[base], table[base + 1], table[base + 2]);
+                }
+            }
+            return larger;
+        }
+    }
+}
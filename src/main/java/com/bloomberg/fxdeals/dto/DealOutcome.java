@@ -0,0 +1,77 @@
+package com.bloomberg.fxdeals.dto;
+
+/**
+ * Result of one deal in a batch create: the created deal, or why it was not created.
+ */
+public class DealOutcome {
+
+    public enum Status {
+        CREATED,
+        DUPLICATE,
+        INVALID,
+        ERROR
+    }
+
+    private Status status;
+    private FxDealResponse deal;
+    private String message;
+
+    public DealOutcome() {
+    }
+
+    public DealOutcome(Status status, FxDealResponse deal, String message) {
+        this.status = status;
+        this.deal = deal;
+        this.message = message;
+    }
+
+    public static DealOutcome created(FxDealResponse deal) {
+        return new DealOutcome(Status.CREATED, deal, null);
+    }
+
+    public static DealOutcome duplicate(String dealUniqueId) {
+        return new DealOutcome(Status.DUPLICATE, null,
+            String.format("FX Deal with unique ID '%s' already exists", dealUniqueId));
+    }
+
+    public static DealOutcome invalid(String message) {
+        return new DealOutcome(Status.INVALID, null, message);
+    }
+
+    public static DealOutcome error(String message) {
+        return new DealOutcome(Status.ERROR, null, message);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public FxDealResponse getDeal() {
+        return deal;
+    }
+
+    public void setDeal(FxDealResponse deal) {
+        this.deal = deal;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "DealOutcome{" +
+                "status=" + status +
+                ", deal=" + deal +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
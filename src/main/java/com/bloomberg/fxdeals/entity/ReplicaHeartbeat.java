@@ -0,0 +1,39 @@
+package com.bloomberg.fxdeals.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * A counter the primary increments in its own transaction. Replication applies commits
+ * in order, so the value a replica holds tells which heartbeats, and with them every
+ * transaction committed before those heartbeats started, it has applied.
+ */
+@Entity
+@Table(name = "fxdeals_replica_heartbeat")
+public class ReplicaHeartbeat {
+
+    @Id
+    private Integer id;
+
+    @Column(name = "seq", nullable = false)
+    private Long sequence;
+
+    public ReplicaHeartbeat() {
+    }
+
+    public ReplicaHeartbeat(Integer id, Long sequence) {
+        this.id = id;
+        this.sequence = sequence;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+}
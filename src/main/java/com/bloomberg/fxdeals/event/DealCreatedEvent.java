@@ -0,0 +1,22 @@
+package com.bloomberg.fxdeals.event;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+
+/**
+ * CDI event fired by FxDealService when a deal has been inserted.
+ *
+ * The event is fired inside the creating transaction. Observers that must only see
+ * committed deals should observe it with {@code TransactionPhase.AFTER_SUCCESS}.
+ */
+public class DealCreatedEvent {
+
+    private final FxDealResponse deal;
+
+    public DealCreatedEvent(FxDealResponse deal) {
+        this.deal = deal;
+    }
+
+    public FxDealResponse getDeal() {
+        return deal;
+    }
+}
@@ -0,0 +1,14 @@
+package com.bloomberg.fxdeals.exception;
+
+/**
+ * Exception thrown when a request's deadline passes before its work is done.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    /** HTTP status used for requests abandoned because of their deadline. */
+    public static final int STATUS = 504;
+
+    public DeadlineExceededException(String operation) {
+        super(String.format("Request deadline exceeded before %s", operation));
+    }
+}
@@ -0,0 +1,33 @@
+package com.bloomberg.fxdeals.exception;
+
+import com.bloomberg.fxdeals.dto.ErrorResponse;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exception mapper for DeadlineExceededException.
+ * Returns HTTP 504 Gateway Timeout with error details.
+ */
+@Provider
+public class DeadlineExceededExceptionMapper implements ExceptionMapper<DeadlineExceededException> {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeadlineExceededExceptionMapper.class);
+
+    @Override
+    public Response toResponse(DeadlineExceededException exception) {
+        logger.warn("Deadline exceeded exception: {}", exception.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            DeadlineExceededException.STATUS,
+            "Deadline Exceeded",
+            exception.getMessage()
+        );
+
+        return Response.status(DeadlineExceededException.STATUS)
+            .entity(error)
+            .build();
+    }
+}
@@ -0,0 +1,13 @@
+package com.bloomberg.fxdeals.exception;
+
+/**
+ * Exception thrown when a change-feed page or an incremental snapshot is requested from
+ * sharded storage, whose deal ids are only time-ordered per instance and so cannot serve
+ * as a resume cursor.
+ */
+public class IdCursorUnsupportedException extends RuntimeException {
+
+    public IdCursorUnsupportedException() {
+        super("The change feed and incremental snapshots are not available with sharded storage");
+    }
+}
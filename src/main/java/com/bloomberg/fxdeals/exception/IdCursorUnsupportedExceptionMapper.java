@@ -0,0 +1,33 @@
+package com.bloomberg.fxdeals.exception;
+
+import com.bloomberg.fxdeals.dto.ErrorResponse;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exception mapper for IdCursorUnsupportedException.
+ * Returns HTTP 501 Not Implemented with error details.
+ */
+@Provider
+public class IdCursorUnsupportedExceptionMapper implements ExceptionMapper<IdCursorUnsupportedException> {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdCursorUnsupportedExceptionMapper.class);
+
+    @Override
+    public Response toResponse(IdCursorUnsupportedException exception) {
+        logger.warn("Id cursor unsupported: {}", exception.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            Response.Status.NOT_IMPLEMENTED.getStatusCode(),
+            "Not Implemented",
+            exception.getMessage()
+        );
+
+        return Response.status(Response.Status.NOT_IMPLEMENTED)
+            .entity(error)
+            .build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.bloomberg.fxdeals.exception;
+
+/**
+ * Exception thrown when a new deal matches a recently created one on currency pair,
+ * amount and timestamp, and near-duplicate rejection is enabled.
+ */
+public class NearDuplicateDealException extends RuntimeException {
+
+    private final String dealUniqueId;
+    private final long matchingDealId;
+
+    public NearDuplicateDealException(String dealUniqueId, long matchingDealId) {
+        super(String.format("FX Deal '%s' matches recent deal with ID %d on currency pair, amount and timestamp",
+                            dealUniqueId, matchingDealId));
+        this.dealUniqueId = dealUniqueId;
+        this.matchingDealId = matchingDealId;
+    }
+
+    public String getDealUniqueId() {
+        return dealUniqueId;
+    }
+
+    public long getMatchingDealId() {
+        return matchingDealId;
+    }
+}
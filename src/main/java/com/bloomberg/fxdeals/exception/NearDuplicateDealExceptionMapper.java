@@ -0,0 +1,33 @@
+package com.bloomberg.fxdeals.exception;
+
+import com.bloomberg.fxdeals.dto.ErrorResponse;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exception mapper for NearDuplicateDealException.
+ * Returns HTTP 409 Conflict with error details.
+ */
+@Provider
+public class NearDuplicateDealExceptionMapper implements ExceptionMapper<NearDuplicateDealException> {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearDuplicateDealExceptionMapper.class);
+
+    @Override
+    public Response toResponse(NearDuplicateDealException exception) {
+        logger.error("Near-duplicate deal exception: {}", exception.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            Response.Status.CONFLICT.getStatusCode(),
+            "Near-Duplicate Deal",
+            exception.getMessage()
+        );
+
+        return Response.status(Response.Status.CONFLICT)
+            .entity(error)
+            .build();
+    }
+}
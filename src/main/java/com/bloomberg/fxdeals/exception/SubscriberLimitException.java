@@ -0,0 +1,12 @@
+package com.bloomberg.fxdeals.exception;
+
+/**
+ * Exception thrown when a live deal stream cannot be opened because the
+ * subscriber limit has been reached.
+ */
+public class SubscriberLimitException extends RuntimeException {
+
+    public SubscriberLimitException(int limit) {
+        super(String.format("Deal stream subscriber limit of %d reached", limit));
+    }
+}
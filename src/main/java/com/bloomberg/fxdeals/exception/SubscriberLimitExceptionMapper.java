@@ -0,0 +1,34 @@
+package com.bloomberg.fxdeals.exception;
+
+import com.bloomberg.fxdeals.dto.ErrorResponse;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Exception mapper for SubscriberLimitException.
+ * Returns HTTP 503 Service Unavailable with error details.
+ */
+@Provider
+public class SubscriberLimitExceptionMapper implements ExceptionMapper<SubscriberLimitException> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SubscriberLimitExceptionMapper.class);
+
+    @Override
+    public Response toResponse(SubscriberLimitException exception) {
+        logger.warn("Subscriber limit exception: {}", exception.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+            Response.Status.SERVICE_UNAVAILABLE.getStatusCode(),
+            "Service Unavailable",
+            exception.getMessage()
+        );
+
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+            .header("Retry-After", 5)
+            .entity(error)
+            .build();
+    }
+}
@@ -0,0 +1,138 @@
+package com.bloomberg.fxdeals.export;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Constants and primitives shared by {@link ColumnarSnapshotWriter} and
+ * {@link ColumnarSnapshotReader}.
+ *
+ * File layout, all fixed-width integers big-endian:
+ * <pre>
+ *   magic       "FXCOL" + version byte
+ *   header      sinceId (long), watermark (long), column count (varint),
+ *               then per column: name, type, encoding (modified UTF-8 strings)
+ *   row group*  row count (varint, never 0), then per column in header order:
+ *               raw length (varint), deflated length (varint), deflated bytes
+ *   end         row count 0
+ *   footer      row group count (varint), per group: offset (long), rows (varint),
+ *               min id (long), max id (long); total rows (long)
+ *   trailer     footer offset (long), "FXCOL"
+ * </pre>
+ * Encodings: {@code delta-varint} stores each value as the zigzag varint of its
+ * difference from the previous value in the row group (the first from 0);
+ * {@code dictionary} stores a varint-counted list of distinct strings followed by one
+ * varint index per row; {@code utf8} stores a varint byte length and the bytes;
+ * {@code scaled-long} stores the zigzag varint of the amount times 10^scale.
+ */
+final class ColumnarFormat {
+
+    static final byte[] MAGIC = "FXCOL".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int AMOUNT_SCALE = 2;
+
+    static final List<String[]> COLUMNS = List.of(
+        new String[] {"id", "int64", "delta-varint"},
+        new String[] {"deal_unique_id", "string", "utf8"},
+        new String[] {"from_currency_iso", "string", "dictionary"},
+        new String[] {"to_currency_iso", "string", "dictionary"},
+        new String[] {"deal_timestamp", "timestamp-micros-utc", "delta-varint"},
+        new String[] {"deal_amount", "decimal(19," + AMOUNT_SCALE + ")", "scaled-long"},
+        new String[] {"created_at", "timestamp-micros-utc", "delta-varint"}
+    );
+
+    private ColumnarFormat() {
+    }
+
+    static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static void writeZigzag(ByteArrayOutputStream out, long value) {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readVarint(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    static long readZigzag(InputStream in) throws IOException {
+        long encoded = readVarint(in);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static byte[] deflate(byte[] raw, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        try {
+            deflater.setInput(raw, 0, length);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] chunk = new byte[16384];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] raw = new byte[rawLength];
+            int read = 0;
+            while (read < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, read, rawLength - read);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != rawLength) {
+                throw new IOException("Column chunk is corrupt");
+            }
+            return raw;
+        } catch (DataFormatException e) {
+            throw new IOException("Column chunk is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.bloomberg.fxdeals.export;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.bloomberg.fxdeals.export.ColumnarFormat.readString;
+import static com.bloomberg.fxdeals.export.ColumnarFormat.readVarint;
+import static com.bloomberg.fxdeals.export.ColumnarFormat.readZigzag;
+
+/**
+ * Reads a columnar snapshot written by {@link ColumnarSnapshotWriter} sequentially, one
+ * row group at a time.
+ */
+public final class ColumnarSnapshotReader implements AutoCloseable {
+
+    private final DataInputStream in;
+    private final long sinceId;
+    private final long watermark;
+    private final List<String> columnNames = new ArrayList<>();
+
+    private FxDeal[] rowGroup = new FxDeal[0];
+    private int position;
+    private boolean ended;
+
+    public ColumnarSnapshotReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+            throw new IOException("Not a columnar snapshot");
+        }
+        int version = this.in.readUnsignedByte();
+        if (version != ColumnarFormat.VERSION) {
+            throw new IOException("Unsupported snapshot version " + version);
+        }
+        this.sinceId = this.in.readLong();
+        this.watermark = this.in.readLong();
+        long columnCount = readVarint(this.in);
+        for (long i = 0; i < columnCount; i++) {
+            columnNames.add(this.in.readUTF());
+            this.in.readUTF();
+            this.in.readUTF();
+        }
+        if (columnCount != ColumnarFormat.COLUMNS.size()) {
+            throw new IOException("Unexpected column count " + columnCount);
+        }
+    }
+
+    public long getSinceId() {
+        return sinceId;
+    }
+
+    public long getWatermark() {
+        return watermark;
+    }
+
+    public List<String> getColumnNames() {
+        return columnNames;
+    }
+
+    /**
+     * @return the next deal, or null once every row group has been read
+     */
+    public FxDeal next() throws IOException {
+        if (position == rowGroup.length) {
+            if (ended) {
+                return null;
+            }
+            readRowGroup();
+            if (ended) {
+                return null;
+            }
+        }
+        return rowGroup[position++];
+    }
+
+    private void readRowGroup() throws IOException {
+        int rows = (int) readVarint(in);
+        if (rows == 0) {
+            ended = true;
+            return;
+        }
+        FxDeal[] deals = new FxDeal[rows];
+        for (int i = 0; i < rows; i++) {
+            deals[i] = new FxDeal();
+        }
+
+        InputStream ids = chunk();
+        long id = 0;
+        for (FxDeal deal : deals) {
+            id += readZigzag(ids);
+            deal.setId(id);
+        }
+        DataInputStream uniqueIds = new DataInputStream(chunk());
+        for (FxDeal deal : deals) {
+            deal.setDealUniqueId(readString(uniqueIds));
+        }
+        String[] from = dictionary(rows);
+        String[] to = dictionary(rows);
+        InputStream timestamps = chunk();
+        long timestamp = 0;
+        for (int i = 0; i < rows; i++) {
+            deals[i].setFromCurrencyIso(from[i]);
+            deals[i].setToCurrencyIso(to[i]);
+            timestamp += readZigzag(timestamps);
+            deals[i].setDealTimestamp(timestamp(timestamp));
+        }
+        InputStream amounts = chunk();
+        for (FxDeal deal : deals) {
+            deal.setDealAmount(BigDecimal.valueOf(readZigzag(amounts), ColumnarFormat.AMOUNT_SCALE));
+        }
+        InputStream createdAts = chunk();
+        long createdAt = 0;
+        for (FxDeal deal : deals) {
+            createdAt += readZigzag(createdAts);
+            deal.setCreatedAt(timestamp(createdAt));
+        }
+
+        rowGroup = deals;
+        position = 0;
+    }
+
+    private InputStream chunk() throws IOException {
+        int rawLength = (int) readVarint(in);
+        byte[] compressed = new byte[(int) readVarint(in)];
+        in.readFully(compressed);
+        return new ByteArrayInputStream(ColumnarFormat.inflate(compressed, rawLength));
+    }
+
+    private String[] dictionary(int rows) throws IOException {
+        DataInputStream chunk = new DataInputStream(chunk());
+        String[] values = new String[(int) readVarint(chunk)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(chunk);
+        }
+        String[] column = new String[rows];
+        for (int i = 0; i < rows; i++) {
+            column[i] = values[(int) readVarint(chunk)];
+        }
+        return column;
+    }
+
+    private static LocalDateTime timestamp(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                                           (int) Math.floorMod(micros, 1_000_000L) * 1000, ZoneOffset.UTC);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
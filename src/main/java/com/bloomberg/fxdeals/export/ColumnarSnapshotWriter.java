@@ -0,0 +1,240 @@
+package com.bloomberg.fxdeals.export;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.bloomberg.fxdeals.export.ColumnarFormat.writeString;
+import static com.bloomberg.fxdeals.export.ColumnarFormat.writeVarint;
+import static com.bloomberg.fxdeals.export.ColumnarFormat.writeZigzag;
+
+/**
+ * Streams deals into the columnar snapshot format described in {@link ColumnarFormat}.
+ *
+ * Deals are buffered one row group at a time, so memory use is bounded by the row group
+ * size regardless of how many deals are written. {@link #finish()} writes the footer but
+ * leaves the underlying stream open.
+ */
+public final class ColumnarSnapshotWriter {
+
+    public static final int DEFAULT_ROW_GROUP_SIZE = 65536;
+
+    private final DataOutputStream out;
+    private final CountingOutputStream counter;
+    private final int rowGroupSize;
+    private final List<long[]> rowGroups = new ArrayList<>();
+
+    private final ByteArrayOutputStream ids = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream uniqueIds = new ByteArrayOutputStream();
+    private final Dictionary fromCurrencies = new Dictionary();
+    private final Dictionary toCurrencies = new Dictionary();
+    private final ByteArrayOutputStream timestamps = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream amounts = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream createdAts = new ByteArrayOutputStream();
+
+    private int rows;
+    private long previousId;
+    private long previousTimestamp;
+    private long previousCreatedAt;
+    private long minId;
+    private long maxId;
+    private long totalRows;
+    private boolean finished;
+
+    public ColumnarSnapshotWriter(OutputStream out, long sinceId, long watermark) throws IOException {
+        this(out, sinceId, watermark, DEFAULT_ROW_GROUP_SIZE);
+    }
+
+    public ColumnarSnapshotWriter(OutputStream out, long sinceId, long watermark, int rowGroupSize)
+            throws IOException {
+        this.counter = new CountingOutputStream(out);
+        this.out = new DataOutputStream(counter);
+        this.rowGroupSize = rowGroupSize;
+
+        this.out.write(ColumnarFormat.MAGIC);
+        this.out.writeByte(ColumnarFormat.VERSION);
+        this.out.writeLong(sinceId);
+        this.out.writeLong(watermark);
+        ByteArrayOutputStream columns = new ByteArrayOutputStream();
+        writeVarint(columns, ColumnarFormat.COLUMNS.size());
+        this.out.write(columns.toByteArray());
+        for (String[] column : ColumnarFormat.COLUMNS) {
+            this.out.writeUTF(column[0]);
+            this.out.writeUTF(column[1]);
+            this.out.writeUTF(column[2]);
+        }
+    }
+
+    public void write(FxDeal deal) throws IOException {
+        long id = deal.getId();
+        if (rows == 0) {
+            minId = id;
+            maxId = id;
+        } else {
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+        }
+        writeZigzag(ids, id - previousId);
+        previousId = id;
+        writeString(uniqueIds, deal.getDealUniqueId());
+        fromCurrencies.add(deal.getFromCurrencyIso());
+        toCurrencies.add(deal.getToCurrencyIso());
+        long timestamp = micros(deal.getDealTimestamp());
+        writeZigzag(timestamps, timestamp - previousTimestamp);
+        previousTimestamp = timestamp;
+        writeZigzag(amounts, deal.getDealAmount()
+            .setScale(ColumnarFormat.AMOUNT_SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        long createdAt = deal.getCreatedAt() != null ? micros(deal.getCreatedAt()) : timestamp;
+        writeZigzag(createdAts, createdAt - previousCreatedAt);
+        previousCreatedAt = createdAt;
+
+        if (++rows == rowGroupSize) {
+            flushRowGroup();
+        }
+    }
+
+    /**
+     * Writes any buffered deals, the end marker and the footer, and flushes.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        flushRowGroup();
+        ByteArrayOutputStream end = new ByteArrayOutputStream();
+        writeVarint(end, 0);
+        out.write(end.toByteArray());
+
+        long footerOffset = counter.count;
+        ByteArrayOutputStream groupCount = new ByteArrayOutputStream();
+        writeVarint(groupCount, rowGroups.size());
+        out.write(groupCount.toByteArray());
+        for (long[] group : rowGroups) {
+            out.writeLong(group[0]);
+            ByteArrayOutputStream groupRows = new ByteArrayOutputStream();
+            writeVarint(groupRows, group[1]);
+            out.write(groupRows.toByteArray());
+            out.writeLong(group[2]);
+            out.writeLong(group[3]);
+        }
+        out.writeLong(totalRows);
+        out.writeLong(footerOffset);
+        out.write(ColumnarFormat.MAGIC);
+        out.flush();
+        finished = true;
+    }
+
+    public long getRowCount() {
+        return totalRows + rows;
+    }
+
+    public long getBytesWritten() {
+        return counter.count;
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        rowGroups.add(new long[] {counter.count, rows, minId, maxId});
+        ByteArrayOutputStream rowCount = new ByteArrayOutputStream();
+        writeVarint(rowCount, rows);
+        out.write(rowCount.toByteArray());
+        writeChunk(ids);
+        writeChunk(uniqueIds);
+        writeChunk(fromCurrencies.encode());
+        writeChunk(toCurrencies.encode());
+        writeChunk(timestamps);
+        writeChunk(amounts);
+        writeChunk(createdAts);
+
+        totalRows += rows;
+        rows = 0;
+        previousId = 0;
+        previousTimestamp = 0;
+        previousCreatedAt = 0;
+        fromCurrencies.reset();
+        toCurrencies.reset();
+    }
+
+    private void writeChunk(ByteArrayOutputStream column) throws IOException {
+        byte[] raw = column.toByteArray();
+        byte[] compressed = ColumnarFormat.deflate(raw, raw.length);
+        ByteArrayOutputStream lengths = new ByteArrayOutputStream();
+        writeVarint(lengths, raw.length);
+        writeVarint(lengths, compressed.length);
+        out.write(lengths.toByteArray());
+        out.write(compressed);
+        column.reset();
+    }
+
+    private static long micros(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + timestamp.getNano() / 1000;
+    }
+
+    /**
+     * Per-row-group dictionary of distinct values with one index per row.
+     */
+    private static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private final ByteArrayOutputStream indexes = new ByteArrayOutputStream();
+
+        void add(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            writeVarint(indexes, code);
+        }
+
+        ByteArrayOutputStream encode() {
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(indexes.size() + values.size() * 4 + 4);
+            writeVarint(encoded, values.size());
+            for (String value : values) {
+                writeString(encoded, value);
+            }
+            encoded.writeBytes(indexes.toByteArray());
+            return encoded;
+        }
+
+        void reset() {
+            codes.clear();
+            values.clear();
+            indexes.reset();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
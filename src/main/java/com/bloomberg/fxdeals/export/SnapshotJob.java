@@ -0,0 +1,149 @@
+package com.bloomberg.fxdeals.export;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.service.FxDealService;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Periodically writes incremental columnar snapshots to fxdeals.snapshot.dir for offline
+ * analytics.
+ *
+ * Each file is named deals-&lt;since&gt;-&lt;watermark&gt;.fxcol and holds the deals with
+ * since &lt; id &lt;= watermark. The next run starts from the highest watermark already in
+ * the directory, so the files together cover every deal exactly once and a restart picks
+ * up where the last complete file ended. Files are written under a temporary name and
+ * renamed when complete.
+ *
+ * The watermark is a deal id, which only orders deals by commit when ids come from
+ * the primary's auto-increment. Sharded ids are generated per instance, so the job
+ * fails startup when sharding is enabled.
+ */
+@ApplicationScoped
+public class SnapshotJob {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.snapshot.enabled";
+    public static final String DIR_PROPERTY = "fxdeals.snapshot.dir";
+    public static final String INTERVAL_PROPERTY = "fxdeals.snapshot.interval-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotJob.class);
+    private static final Pattern FILE_NAME = Pattern.compile("deals-(\\d+)-(\\d+)\\.fxcol");
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    FxDealService dealService;
+
+    @Inject
+    ShardedDealStore shards;
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!config.getBoolean(ENABLED_PROPERTY, false)) {
+            return;
+        }
+        if (shards.isEnabled()) {
+            throw new IllegalStateException(ENABLED_PROPERTY + " cannot be combined with " + ShardedDealStore.ENABLED_PROPERTY
+                                            + ": sharded deal ids are not ordered across instances");
+        }
+        if (scheduler == null) {
+            return;
+        }
+        long interval = config.getLong(INTERVAL_PROPERTY, 86400000L);
+        scheduler.scheduleWithFixedDelay(this::runSafely, interval, interval, TimeUnit.MILLISECONDS);
+        logger.info("Columnar snapshots every {} ms into {}", interval, directory());
+    }
+
+    /**
+     * Writes a snapshot of the deals committed since the last one, if there are any.
+     * Returns null if there is nothing new or a run is already in progress.
+     *
+     * @return the snapshot file written
+     */
+    public Path run() throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return snapshot(directory());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    Path snapshot(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        long since = lastWatermark(directory);
+        long watermark = dealService.snapshotWatermark();
+        if (watermark <= since) {
+            return null;
+        }
+        Path file = directory.resolve(String.format("deals-%d-%d.fxcol", since, watermark));
+        Path temp = directory.resolve(file.getFileName() + ".tmp");
+        long rows;
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp), 65536)) {
+            rows = dealService.exportSnapshot(since, watermark, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Wrote snapshot {} with {} deals", file, rows);
+        return file;
+    }
+
+    static long lastWatermark(Path directory) throws IOException {
+        long watermark = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                Matcher matcher = FILE_NAME.matcher(entry.getFileName().toString());
+                if (matcher.matches()) {
+                    watermark = Math.max(watermark, Long.parseLong(matcher.group(2)));
+                }
+            }
+        }
+        return watermark;
+    }
+
+    private Path directory() {
+        String dir = config.getString(DIR_PROPERTY, "");
+        if (dir.isBlank()) {
+            return Paths.get(System.getProperty("jboss.server.data.dir", System.getProperty("java.io.tmpdir")),
+                             "fxdeals-snapshots");
+        }
+        return Paths.get(dir);
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Snapshot export failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.bloomberg.fxdeals.gateway;
+
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Binary frames of the TCP ingestion gateway. Integers are big-endian and every frame
+ * starts with an int giving the number of bytes that follow.
+ *
+ * <pre>
+ * deal: length | long correlationId | short uniqueIdLength | uniqueId (UTF-8)
+ *       | 3 bytes fromCurrency | 3 bytes toCurrency (ASCII)
+ *       | long dealTimestamp (epoch millis, UTC) | long amountUnscaled | byte amountScale
+ * ack:  length | long correlationId | byte status | long dealId (0 unless created)
+ *       | short messageLength | message (UTF-8)
+ * </pre>
+ *
+ * Ack status bytes are the ordinals of {@link DealOutcome.Status}.
+ */
+public final class DealFrameCodec {
+
+    /** Largest frame body either side accepts; longer frames close the connection. */
+    public static final int MAX_FRAME_LENGTH = 1024;
+
+    private static final int MAX_MESSAGE_BYTES = 512;
+    private static final DealOutcome.Status[] STATUSES = DealOutcome.Status.values();
+
+    private DealFrameCodec() {
+    }
+
+    public static int dealFrameSize(FxDealRequest deal) {
+        return 4 + 8 + 2 + utf8(deal.getDealUniqueId()).length + 3 + 3 + 8 + 8 + 1;
+    }
+
+    public static void encodeDeal(ByteBuffer out, long correlationId, FxDealRequest deal) {
+        byte[] uniqueId = utf8(deal.getDealUniqueId());
+        out.putInt(dealFrameSize(deal) - 4);
+        out.putLong(correlationId);
+        out.putShort((short) uniqueId.length);
+        out.put(uniqueId);
+        out.put(currency(deal.getFromCurrencyIso()));
+        out.put(currency(deal.getToCurrencyIso()));
+        out.putLong(deal.getDealTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        out.putLong(deal.getDealAmount().unscaledValue().longValueExact());
+        out.put((byte) deal.getDealAmount().scale());
+    }
+
+    /**
+     * Decodes a deal frame body (the bytes after the length). A body that cannot be
+     * decoded still yields its correlation id when present, with an error message.
+     */
+    static DecodedDeal decodeDeal(ByteBuffer body) {
+        long correlationId = body.remaining() >= 8 ? body.getLong() : -1L;
+        try {
+            byte[] uniqueId = new byte[body.getShort()];
+            body.get(uniqueId);
+            byte[] from = new byte[3];
+            body.get(from);
+            byte[] to = new byte[3];
+            body.get(to);
+            long timestamp = body.getLong();
+            long unscaledAmount = body.getLong();
+            int scale = body.get();
+            if (body.hasRemaining()) {
+                return DecodedDeal.malformed(correlationId, "Unexpected trailing bytes in deal frame");
+            }
+
+            FxDealRequest request = new FxDealRequest(
+                new String(uniqueId, StandardCharsets.UTF_8),
+                new String(from, StandardCharsets.US_ASCII),
+                new String(to, StandardCharsets.US_ASCII),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC),
+                BigDecimal.valueOf(unscaledAmount, scale)
+            );
+            return DecodedDeal.of(correlationId, request);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            return DecodedDeal.malformed(correlationId, "Truncated deal frame");
+        }
+    }
+
+    public static int ackFrameSize(DealOutcome outcome) {
+        return 4 + 8 + 1 + 8 + 2 + message(outcome).length;
+    }
+
+    public static void encodeAck(ByteBuffer out, long correlationId, DealOutcome outcome) {
+        byte[] message = message(outcome);
+        out.putInt(ackFrameSize(outcome) - 4);
+        out.putLong(correlationId);
+        out.put((byte) outcome.getStatus().ordinal());
+        out.putLong(outcome.getDeal() != null ? outcome.getDeal().getId() : 0L);
+        out.putShort((short) message.length);
+        out.put(message);
+    }
+
+    /**
+     * Decodes an ack frame body (the bytes after the length).
+     */
+    public static Ack decodeAck(ByteBuffer body) {
+        long correlationId = body.getLong();
+        DealOutcome.Status status = STATUSES[body.get()];
+        long dealId = body.getLong();
+        byte[] message = new byte[body.getShort()];
+        body.get(message);
+        return new Ack(correlationId, status, dealId, new String(message, StandardCharsets.UTF_8));
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] currency(String iso) {
+        byte[] bytes = iso.getBytes(StandardCharsets.US_ASCII);
+        if (bytes.length != 3) {
+            throw new IllegalArgumentException("Currency code must be 3 characters: " + iso);
+        }
+        return bytes;
+    }
+
+    private static byte[] message(DealOutcome outcome) {
+        if (outcome.getMessage() == null) {
+            return new byte[0];
+        }
+        byte[] bytes = utf8(outcome.getMessage());
+        if (bytes.length <= MAX_MESSAGE_BYTES) {
+            return bytes;
+        }
+        byte[] truncated = new byte[MAX_MESSAGE_BYTES];
+        System.arraycopy(bytes, 0, truncated, 0, MAX_MESSAGE_BYTES);
+        return truncated;
+    }
+
+    /**
+     * Acknowledgement of one deal frame.
+     */
+    public static final class Ack {
+        private final long correlationId;
+        private final DealOutcome.Status status;
+        private final long dealId;
+        private final String message;
+
+        public Ack(long correlationId, DealOutcome.Status status, long dealId, String message) {
+            this.correlationId = correlationId;
+            this.status = status;
+            this.dealId = dealId;
+            this.message = message;
+        }
+
+        public long getCorrelationId() {
+            return correlationId;
+        }
+
+        public DealOutcome.Status getStatus() {
+            return status;
+        }
+
+        public long getDealId() {
+            return dealId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    /**
+     * A decoded deal frame: the request, or the reason it could not be decoded.
+     */
+    static final class DecodedDeal {
+        final long correlationId;
+        final FxDealRequest request;
+        final String error;
+
+        private DecodedDeal(long correlationId, FxDealRequest request, String error) {
+            this.correlationId = correlationId;
+            this.request = request;
+            this.error = error;
+        }
+
+        static DecodedDeal of(long correlationId, FxDealRequest request) {
+            return new DecodedDeal(correlationId, request, null);
+        }
+
+        static DecodedDeal malformed(long correlationId, String error) {
+            return new DecodedDeal(correlationId, null, error);
+        }
+    }
+}
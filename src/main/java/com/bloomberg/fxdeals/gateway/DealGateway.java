@@ -0,0 +1,434 @@
+package com.bloomberg.fxdeals.gateway;
+
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.exception.NearDuplicateDealException;
+import com.bloomberg.fxdeals.exception.ValidationException;
+import com.bloomberg.fxdeals.gateway.DealFrameCodec.DecodedDeal;
+import com.bloomberg.fxdeals.metrics.Metrics;
+import com.bloomberg.fxdeals.service.FxDealService;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional TCP listener that ingests binary deal frames (see {@link DealFrameCodec}).
+ *
+ * A single selector thread accepts connections, decodes frames and writes acks. Decoded
+ * frames are handed to a worker that creates everything queued on the connection at
+ * that moment through {@link FxDealService#createDeals}, so batches grow with load
+ * while a lone frame is not delayed. Clients may pipeline: acks are written in frame
+ * order, and a connection with too many unacknowledged frames stops being read until
+ * its worker catches up.
+ */
+@ApplicationScoped
+public class DealGateway {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.tcp.enabled";
+    public static final String PORT_PROPERTY = "fxdeals.tcp.port";
+    public static final String MAX_BATCH_PROPERTY = "fxdeals.tcp.max-batch";
+    public static final String WORKERS_PROPERTY = "fxdeals.tcp.workers";
+
+    private static final Logger logger = LoggerFactory.getLogger(DealGateway.class);
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    FxDealService dealService;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Connection> pendingUpdates = new ConcurrentLinkedQueue<>();
+    private final LongAdder framesReceived = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private Selector selector;
+    private ServerSocketChannel server;
+    private ExecutorService workers;
+    private Thread eventLoop;
+    private int maxBatch;
+    private int maxQueuedFrames;
+    private volatile boolean running;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!config.getBoolean(ENABLED_PROPERTY, false)) {
+            logger.info("TCP ingestion gateway disabled");
+            return;
+        }
+        // workers call transactional CDI beans, so they need container-managed threads
+        ThreadFactory threadFactory = managedThreadFactory != null
+            ? managedThreadFactory
+            : Threads.daemonThreadFactory("fxdeals-tcp-worker");
+        ExecutorService executor = Executors.newFixedThreadPool(config.getInt(WORKERS_PROPERTY, 4), threadFactory);
+        try {
+            start(new InetSocketAddress(config.getInt(PORT_PROPERTY, 9400)),
+                  config.getInt(MAX_BATCH_PROPERTY, 256), executor);
+        } catch (IOException e) {
+            executor.shutdown();
+            logger.error("Failed to start TCP ingestion gateway: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Binds the listener and starts the selector thread.
+     *
+     * @return the bound address (useful when binding port 0)
+     */
+    synchronized InetSocketAddress start(InetSocketAddress address, int maxBatch, ExecutorService workers)
+            throws IOException {
+        this.maxBatch = maxBatch;
+        this.maxQueuedFrames = maxBatch * 8;
+        this.workers = workers;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        eventLoop = new Thread(this::runEventLoop, "fxdeals-tcp-gateway");
+        eventLoop.setDaemon(true);
+        eventLoop.start();
+
+        InetSocketAddress bound = (InetSocketAddress) server.getLocalAddress();
+        logger.info("TCP ingestion gateway listening on {} (max batch {})", bound, maxBatch);
+        return bound;
+    }
+
+    @PreDestroy
+    synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            eventLoop.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Connection connection : connections) {
+            close(connection);
+        }
+        closeQuietly(server);
+        closeQuietly(selector);
+        workers.shutdownNow();
+        logger.info("TCP ingestion gateway stopped");
+    }
+
+    public int getConnectionCount() {
+        return connections.size();
+    }
+
+    public long getFramesReceived() {
+        return framesReceived.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    private void runEventLoop() {
+        while (running) {
+            try {
+                selector.select();
+                applyPendingUpdates();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            } catch (IOException | ClosedSelectorException e) {
+                if (running) {
+                    logger.error("TCP ingestion gateway selector failed: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(connection);
+            }
+        } catch (IOException e) {
+            logger.debug("TCP connection {} failed: {}", connection.remoteAddress, e.getMessage());
+            close(connection);
+        }
+    }
+
+    private void accept() {
+        try {
+            SocketChannel channel = server.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connections.add(connection);
+            logger.info("TCP ingestion client connected from {}", connection.remoteAddress);
+        } catch (IOException e) {
+            logger.warn("Failed to accept TCP ingestion client: {}", e.getMessage());
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        ByteBuffer inbound = connection.inbound;
+        if (connection.channel.read(inbound) < 0) {
+            close(connection);
+            return;
+        }
+        inbound.flip();
+        int decoded = 0;
+        while (inbound.remaining() >= 4) {
+            int length = inbound.getInt(inbound.position());
+            if (length < 8 || length > DealFrameCodec.MAX_FRAME_LENGTH) {
+                logger.warn("Closing TCP connection {}: invalid frame length {}", connection.remoteAddress, length);
+                close(connection);
+                return;
+            }
+            if (inbound.remaining() < 4 + length) {
+                break;
+            }
+            ByteBuffer body = inbound.slice(inbound.position() + 4, length);
+            inbound.position(inbound.position() + 4 + length);
+            connection.frames.offer(DealFrameCodec.decodeDeal(body));
+            decoded++;
+        }
+        inbound.compact();
+
+        if (decoded > 0) {
+            framesReceived.add(decoded);
+            if (connection.queuedFrames.addAndGet(decoded) >= maxQueuedFrames) {
+                connection.readPaused = true;
+                updateInterest(connection);
+            }
+            schedule(connection);
+        }
+    }
+
+    private void write(Connection connection) throws IOException {
+        ByteBuffer buffer;
+        while ((buffer = connection.outbound.peek()) != null) {
+            connection.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                break;
+            }
+            connection.outbound.poll();
+        }
+        updateInterest(connection);
+    }
+
+    private void updateInterest(Connection connection) {
+        if (connection.readPaused && connection.queuedFrames.get() <= maxQueuedFrames / 2) {
+            connection.readPaused = false;
+        }
+        int ops = (connection.readPaused ? 0 : SelectionKey.OP_READ)
+            | (connection.outbound.isEmpty() ? 0 : SelectionKey.OP_WRITE);
+        connection.key.interestOps(ops);
+    }
+
+    /** Runs on the selector thread: flushes acks and applies closes requested by workers. */
+    private void applyPendingUpdates() {
+        Connection connection;
+        while ((connection = pendingUpdates.poll()) != null) {
+            if (connection.failed) {
+                close(connection);
+            } else if (connection.key.isValid()) {
+                try {
+                    write(connection);
+                } catch (IOException e) {
+                    close(connection);
+                }
+            }
+        }
+    }
+
+    private void requestUpdate(Connection connection) {
+        pendingUpdates.offer(connection);
+        selector.wakeup();
+    }
+
+    private void schedule(Connection connection) {
+        if (!connection.failed && connection.scheduled.compareAndSet(false, true)) {
+            workers.execute(() -> process(connection));
+        }
+    }
+
+    private void process(Connection connection) {
+        try {
+            List<DecodedDeal> batch = new ArrayList<>(maxBatch);
+            while (!connection.failed) {
+                batch.clear();
+                DecodedDeal frame;
+                while (batch.size() < maxBatch && (frame = connection.frames.poll()) != null) {
+                    batch.add(frame);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                List<DealOutcome> outcomes = createDeals(batch);
+                connection.outbound.offer(encodeAcks(batch, outcomes));
+                connection.queuedFrames.addAndGet(-batch.size());
+                requestUpdate(connection);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Closing TCP connection {}: {}", connection.remoteAddress, e.getMessage(), e);
+            connection.failed = true;
+            requestUpdate(connection);
+        } finally {
+            connection.scheduled.set(false);
+        }
+        if (!connection.failed && !connection.frames.isEmpty()) {
+            schedule(connection);
+        }
+    }
+
+    private List<DealOutcome> createDeals(List<DecodedDeal> batch) {
+        List<FxDealRequest> requests = new ArrayList<>(batch.size());
+        for (DecodedDeal frame : batch) {
+            if (frame.request != null) {
+                requests.add(frame.request);
+            }
+        }
+
+        List<DealOutcome> created = List.of();
+        if (!requests.isEmpty()) {
+            batches.increment();
+            try {
+                created = dealService.createDeals(requests);
+            } catch (RuntimeException e) {
+                logger.warn("Batch of {} deals failed ({}), retrying individually", requests.size(), e.getMessage());
+                created = createIndividually(requests);
+            }
+        }
+
+        List<DealOutcome> outcomes = new ArrayList<>(batch.size());
+        Iterator<DealOutcome> results = created.iterator();
+        for (DecodedDeal frame : batch) {
+            if (frame.request != null) {
+                outcomes.add(results.next());
+            } else {
+                outcomes.add(DealOutcome.invalid(frame.error));
+                Metrics.DEALS_INVALID.increment();
+            }
+        }
+        return outcomes;
+    }
+
+    private List<DealOutcome> createIndividually(List<FxDealRequest> requests) {
+        List<DealOutcome> outcomes = new ArrayList<>(requests.size());
+        for (FxDealRequest request : requests) {
+            try {
+                outcomes.add(DealOutcome.created(dealService.createDeal(request)));
+            } catch (DuplicateDealException e) {
+                outcomes.add(DealOutcome.duplicate(e.getDealUniqueId()));
+            } catch (NearDuplicateDealException e) {
+                outcomes.add(new DealOutcome(DealOutcome.Status.DUPLICATE, null, e.getMessage()));
+            } catch (ValidationException e) {
+                outcomes.add(DealOutcome.invalid(e.getMessage()));
+            } catch (RuntimeException e) {
+                logger.error("Failed to create deal {}: {}", request.getDealUniqueId(), e.getMessage(), e);
+                outcomes.add(DealOutcome.error("An unexpected error occurred"));
+            }
+        }
+        return outcomes;
+    }
+
+    private static ByteBuffer encodeAcks(List<DecodedDeal> batch, List<DealOutcome> outcomes) {
+        int size = 0;
+        for (DealOutcome outcome : outcomes) {
+            size += DealFrameCodec.ackFrameSize(outcome);
+        }
+        ByteBuffer acks = ByteBuffer.allocate(size);
+        for (int i = 0; i < batch.size(); i++) {
+            DealFrameCodec.encodeAck(acks, batch.get(i).correlationId, outcomes.get(i));
+        }
+        return acks.flip();
+    }
+
+    private void close(Connection connection) {
+        connection.failed = true;
+        if (connections.remove(connection)) {
+            connection.key.cancel();
+            closeQuietly(connection.channel);
+            logger.info("TCP ingestion client {} disconnected", connection.remoteAddress);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            if (closeable != null) {
+                closeable.close();
+            }
+        } catch (Exception e) {
+            logger.debug("Error closing {}: {}", closeable, e.getMessage());
+        }
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        final String remoteAddress;
+        final ByteBuffer inbound = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        final ConcurrentLinkedQueue<DecodedDeal> frames = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queuedFrames = new AtomicInteger();
+        final ConcurrentLinkedQueue<ByteBuffer> outbound = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean failed;
+        SelectionKey key;
+        boolean readPaused;
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            this.remoteAddress = String.valueOf(channel.getRemoteAddress());
+        }
+    }
+}
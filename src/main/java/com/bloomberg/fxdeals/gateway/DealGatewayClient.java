@@ -0,0 +1,67 @@
+package com.bloomberg.fxdeals.gateway;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+
+/**
+ * Blocking client for the TCP ingestion gateway.
+ *
+ * Frames are buffered until {@link #flush()}; sending and reading acks may happen on
+ * two different threads so that requests can be pipelined.
+ */
+public class DealGatewayClient implements Closeable {
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final DataInputStream in;
+
+    public DealGatewayClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+    }
+
+    public void send(long correlationId, FxDealRequest deal) throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(DealFrameCodec.dealFrameSize(deal));
+        DealFrameCodec.encodeDeal(frame, correlationId, deal);
+        out.write(frame.array());
+    }
+
+    /**
+     * Writes raw bytes, e.g. a hand-built frame.
+     */
+    public void sendRaw(byte[] bytes) throws IOException {
+        out.write(bytes);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Blocks until the next ack arrives.
+     */
+    public DealFrameCodec.Ack readAck() throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > DealFrameCodec.MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid ack frame length " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return DealFrameCodec.decodeAck(ByteBuffer.wrap(body));
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,185 @@
+package com.bloomberg.fxdeals.gateway;
+
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Load generator for the TCP ingestion gateway. Sends unique deals over one or more
+ * pipelined connections and reports throughput, outcomes and ack latency percentiles.
+ *
+ * <pre>
+ * java -cp target/classes com.bloomberg.fxdeals.gateway.DealLoadGenerator \
+ *     [host] [port] [deals] [connections] [window]
+ * </pre>
+ *
+ * {@code window} is the number of unacknowledged frames allowed per connection.
+ */
+public class DealLoadGenerator {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "CHF", "AUD", "CAD"};
+
+    private final String host;
+    private final int port;
+    private final int deals;
+    private final int connections;
+    private final int window;
+
+    public DealLoadGenerator(String host, int port, int deals, int connections, int window) {
+        this.host = host;
+        this.port = port;
+        this.deals = deals;
+        this.connections = connections;
+        this.window = window;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 9400;
+        int deals = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        int connections = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+        int window = args.length > 4 ? Integer.parseInt(args[4]) : 512;
+
+        Report report = new DealLoadGenerator(host, port, deals, connections, window).run();
+        System.out.println(report);
+    }
+
+    /**
+     * Sends {@code deals} frames split across the connections and waits for every ack.
+     */
+    public Report run() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        AtomicLongArray sentAt = new AtomicLongArray(deals);
+        AtomicLongArray latencies = new AtomicLongArray(deals);
+        Map<DealOutcome.Status, Integer> outcomes = new EnumMap<>(DealOutcome.Status.class);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int c = 0; c < connections; c++) {
+            int first = (int) ((long) deals * c / connections);
+            int last = (int) ((long) deals * (c + 1) / connections);
+            DealGatewayClient client = new DealGatewayClient(host, port);
+            Semaphore permits = new Semaphore(window);
+
+            threads.add(start(() -> {
+                LocalDateTime timestamp = LocalDateTime.now().minusMinutes(1);
+                for (int i = first; i < last; i++) {
+                    permits.acquire();
+                    sentAt.set(i, System.nanoTime());
+                    client.send(i, deal(runId, i, timestamp));
+                    if (permits.availablePermits() == 0 || (i & 63) == 63 || i == last - 1) {
+                        client.flush();
+                    }
+                }
+            }, failures));
+
+            threads.add(start(() -> {
+                try (client) {
+                    for (int received = first; received < last; received++) {
+                        DealFrameCodec.Ack ack = client.readAck();
+                        int i = (int) ack.getCorrelationId();
+                        latencies.set(i, System.nanoTime() - sentAt.get(i));
+                        synchronized (outcomes) {
+                            outcomes.merge(ack.getStatus(), 1, Integer::sum);
+                        }
+                        permits.release();
+                    }
+                }
+            }, failures));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Load generation failed", failures.get(0));
+        }
+
+        long[] sorted = new long[deals];
+        for (int i = 0; i < deals; i++) {
+            sorted[i] = latencies.get(i);
+        }
+        Arrays.sort(sorted);
+        return new Report(deals, elapsed, outcomes, sorted);
+    }
+
+    private static FxDealRequest deal(String runId, int i, LocalDateTime timestamp) {
+        String from = CURRENCIES[i % CURRENCIES.length];
+        String to = CURRENCIES[(i + 1) % CURRENCIES.length];
+        return new FxDealRequest("LOAD-" + runId + "-" + i, from, to, timestamp,
+                                 BigDecimal.valueOf(100_000 + i % 10_000, 2));
+    }
+
+    private static Thread start(IoTask task, List<Throwable> failures) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    @FunctionalInterface
+    private interface IoTask {
+        void run() throws Exception;
+    }
+
+    /**
+     * Outcome of a load run. Latencies are sorted ascending, in nanoseconds.
+     */
+    public static final class Report {
+        private final int deals;
+        private final long elapsedNanos;
+        private final Map<DealOutcome.Status, Integer> outcomes;
+        private final long[] latencies;
+
+        Report(int deals, long elapsedNanos, Map<DealOutcome.Status, Integer> outcomes, long[] latencies) {
+            this.deals = deals;
+            this.elapsedNanos = elapsedNanos;
+            this.outcomes = outcomes;
+            this.latencies = latencies;
+        }
+
+        public double getDealsPerSecond() {
+            return deals / (elapsedNanos / 1e9);
+        }
+
+        public int getCount(DealOutcome.Status status) {
+            return outcomes.getOrDefault(status, 0);
+        }
+
+        /**
+         * Ack latency at the given percentile (0-100) in microseconds.
+         */
+        public double getLatencyMicros(double percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * latencies.length) - 1;
+            return latencies[Math.max(0, Math.min(index, latencies.length - 1))] / 1e3;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%d deals in %.2f s: %.0f deals/s, outcomes %s%n"
+                    + "ack latency (us): p50=%.0f p90=%.0f p99=%.0f p99.9=%.0f max=%.0f",
+                deals, elapsedNanos / 1e9, getDealsPerSecond(), outcomes,
+                getLatencyMicros(50), getLatencyMicros(90), getLatencyMicros(99),
+                getLatencyMicros(99.9), getLatencyMicros(100));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.bloomberg.fxdeals.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One reload of the latest deals cache from the database.
+ */
+@Name(CacheLoadEvent.NAME)
+@Label("Cache Load")
+@Category({"FX Deals", "Cache"})
+@Description("The latest deals cache reloaded from the database")
+@StackTrace(false)
+@Threshold("0 ms")
+public class CacheLoadEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.bloomberg.fxdeals.CacheLoad";
+
+    @Label("Deals")
+    private int deals;
+
+    @Label("Succeeded")
+    private boolean succeeded;
+
+    public void setDeals(int deals) {
+        this.deals = deals;
+    }
+
+    public void setSucceeded(boolean succeeded) {
+        this.succeeded = succeeded;
+    }
+}
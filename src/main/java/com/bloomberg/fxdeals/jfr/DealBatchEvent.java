@@ -0,0 +1,51 @@
+package com.bloomberg.fxdeals.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One batch create in FxDealService, from the batch endpoint, the TCP gateway or a
+ * chunk of the batch processor.
+ */
+@Name(DealBatchEvent.NAME)
+@Label("Deal Batch")
+@Category({"FX Deals", "Ingest"})
+@Description("A batch of deals created in one transaction, with outcome counts")
+@StackTrace(false)
+@Threshold("0 ms")
+public class DealBatchEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.bloomberg.fxdeals.DealBatch";
+
+    @Label("Operation")
+    private String operation;
+
+    @Label("Deals")
+    private int deals;
+
+    @Label("Created")
+    private int created;
+
+    @Label("Duplicates")
+    private int duplicates;
+
+    public void setOperation(String operation) {
+        this.operation = operation;
+    }
+
+    public void setDeals(int deals) {
+        this.deals = deals;
+    }
+
+    public void setCreated(int created) {
+        this.created = created;
+    }
+
+    public void setDuplicates(int duplicates) {
+        this.duplicates = duplicates;
+    }
+}
@@ -0,0 +1,80 @@
+package com.bloomberg.fxdeals.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One FxDealService.createDeal call, with the time spent in each stage. A stage the
+ * create did not reach, such as save for a duplicate, is zero.
+ */
+@Name(DealIngestEvent.NAME)
+@Label("Deal Ingest")
+@Category({"FX Deals", "Ingest"})
+@Description("A single deal create, its outcome and the duration of each stage")
+@StackTrace(false)
+@Threshold("0 ms")
+public class DealIngestEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.bloomberg.fxdeals.DealIngest";
+
+    @Label("Deal Unique ID")
+    private String dealUniqueId;
+
+    @Label("Outcome")
+    @Description("CREATED, DUPLICATE, NEAR_DUPLICATE, INVALID or ERROR")
+    private String outcome;
+
+    @Label("Validate")
+    @Timespan(Timespan.NANOSECONDS)
+    private long validate;
+
+    @Label("Exists Check")
+    @Timespan(Timespan.NANOSECONDS)
+    private long existsCheck;
+
+    @Label("Near-duplicate Check")
+    @Timespan(Timespan.NANOSECONDS)
+    private long nearDuplicateCheck;
+
+    @Label("Save")
+    @Timespan(Timespan.NANOSECONDS)
+    private long save;
+
+    @Label("Map")
+    @Description("Request to entity and entity to response")
+    @Timespan(Timespan.NANOSECONDS)
+    private long map;
+
+    public void setDealUniqueId(String dealUniqueId) {
+        this.dealUniqueId = dealUniqueId;
+    }
+
+    public void setOutcome(String outcome) {
+        this.outcome = outcome;
+    }
+
+    public void setValidate(long nanos) {
+        this.validate = nanos;
+    }
+
+    public void setExistsCheck(long nanos) {
+        this.existsCheck = nanos;
+    }
+
+    public void setNearDuplicateCheck(long nanos) {
+        this.nearDuplicateCheck = nanos;
+    }
+
+    public void setSave(long nanos) {
+        this.save = nanos;
+    }
+
+    public void setMap(long nanos) {
+        this.map = nanos;
+    }
+}
@@ -0,0 +1,151 @@
+package com.bloomberg.fxdeals.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Summarises the FX deal events in a JFR recording into latency percentiles per ingest
+ * stage, per repository query and per batch operation.
+ *
+ * <pre>
+ * java -cp target/classes com.bloomberg.fxdeals.jfr.JfrStageReport recording.jfr
+ * </pre>
+ *
+ * Only events above the recording's thresholds are in the file, so with a non-zero
+ * threshold the percentiles describe the slow tail rather than every call. Ingest stages
+ * the create did not reach are left out of that stage's samples.
+ */
+public final class JfrStageReport {
+
+    private static final String[] INGEST_STAGES = {"validate", "existsCheck", "nearDuplicateCheck", "save", "map"};
+
+    private final Map<String, Samples> rows = new LinkedHashMap<>();
+    private final Map<String, Long> outcomes = new TreeMap<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: JfrStageReport <recording.jfr>");
+            System.exit(2);
+        }
+        System.out.print(read(Paths.get(args[0])).format());
+    }
+
+    public static JfrStageReport read(Path recording) throws IOException {
+        JfrStageReport report = new JfrStageReport();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                report.add(file.readEvent());
+            }
+        }
+        return report;
+    }
+
+    void add(RecordedEvent event) {
+        switch (event.getEventType().getName()) {
+            case DealIngestEvent.NAME:
+                samples("ingest total").add(event.getDuration());
+                for (String stage : INGEST_STAGES) {
+                    Duration duration = event.getDuration(stage);
+                    if (!duration.isZero()) {
+                        samples("ingest " + stage).add(duration);
+                    }
+                }
+                outcomes.merge(event.getString("outcome"), 1L, Long::sum);
+                break;
+            case RepositoryQueryEvent.NAME:
+                samples("query " + event.getString("query")).add(event.getDuration());
+                break;
+            case DealBatchEvent.NAME:
+                samples("batch " + event.getString("operation")).add(event.getDuration());
+                break;
+            case CacheLoadEvent.NAME:
+                samples("cache load").add(event.getDuration());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Samples recorded for a row such as "ingest save" or "query findById", or null.
+     */
+    Samples get(String row) {
+        return rows.get(row);
+    }
+
+    Map<String, Long> getOutcomes() {
+        return outcomes;
+    }
+
+    String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-36s %9s %10s %10s %10s %10s%n",
+                                 "stage", "count", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, Samples> row : rows.entrySet()) {
+            Samples samples = row.getValue();
+            out.append(String.format(Locale.ROOT, "%-36s %9d %10.3f %10.3f %10.3f %10.3f%n",
+                                     row.getKey(), samples.count(), millis(samples.percentile(50)),
+                                     millis(samples.percentile(90)), millis(samples.percentile(99)),
+                                     millis(samples.percentile(100))));
+        }
+        if (!outcomes.isEmpty()) {
+            out.append(String.format("%ningest outcomes: %s%n", outcomes));
+        }
+        return out.toString();
+    }
+
+    private Samples samples(String row) {
+        return rows.computeIfAbsent(row, ignored -> new Samples());
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Durations in nanoseconds, sorted on first read.
+     */
+    static final class Samples {
+        private long[] nanos = new long[64];
+        private int size;
+        private boolean sorted;
+
+        void add(Duration duration) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = duration.toNanos();
+            sorted = false;
+        }
+
+        int count() {
+            return size;
+        }
+
+        /**
+         * Nearest-rank percentile: the smallest sample with at least p% of samples at or
+         * below it.
+         */
+        long percentile(double p) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(nanos, 0, size);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(p / 100 * size);
+            return nanos[Math.max(0, Math.min(size, rank) - 1)];
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.bloomberg.fxdeals.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One FxDealRepository call.
+ */
+@Name(RepositoryQueryEvent.NAME)
+@Label("Repository Query")
+@Category({"FX Deals", "Database"})
+@Description("A FxDealRepository call and the number of rows it read or wrote")
+@StackTrace(false)
+@Threshold("1 ms")
+public class RepositoryQueryEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "com.bloomberg.fxdeals.RepositoryQuery";
+
+    @Label("Query")
+    @Description("Repository method name")
+    private String query;
+
+    @Label("Rows")
+    @Description("Rows returned, saved or deleted; 1 for a count or other single value")
+    private long rows;
+
+    public void setQuery(String query) {
+        this.query = query;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+}
@@ -0,0 +1,501 @@
+package com.bloomberg.fxdeals.loader;
+
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.shard.JumpHash;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Offline loader for large deal files, for backfills and disaster recovery.
+ *
+ * The input file is memory-mapped and cut into fixed-size chunks that parser threads
+ * read, validate with {@link com.bloomberg.fxdeals.service.DealRequestRules} and hand on
+ * in parallel (see {@link DealCsvParser} for the file format). Valid rows are routed by
+ * {@link JumpHash} of their unique ID to one of several writer threads, each with its own
+ * connection, so a given unique ID is only ever written through one connection. A writer
+ * drops repeats within a batch, looks up which unique IDs in the batch already exist in
+ * the table or the cold-tier archive, and inserts the rest with one multi-row INSERT and
+ * one commit per batch. If another process
+ * inserts one of those deals in between, the unique key rejects the batch and it is
+ * checked and retried. Bounded queues between parsers and writers keep memory flat
+ * however large the file.
+ *
+ * Rejected lines are written to a tab-separated file of byte offset, reason and the
+ * original line.
+ *
+ * The loader writes to the unsharded fx_deals table, so it refuses to run when
+ * fxdeals.shard.enabled is set. With fxdeals.archive.enabled it opens the segments in
+ * fxdeals.archive.dir for lookups; segments archived after it started are not seen.
+ * Pass the server's settings with -Dfxdeals.config.file. Build it with
+ * {@code mvn package -Ploader} and run:
+ * <pre>
+ * java -jar target/loader/fxdeals-loader.jar &lt;user&gt; &lt;password&gt; &lt;jdbc url&gt; &lt;input csv&gt; [rejects file]
+ * </pre>
+ * Tune with -Dfxdeals.loader.connections, -Dfxdeals.loader.parsers, -Dfxdeals.loader.batch-size
+ * and -Dfxdeals.loader.chunk-mb.
+ */
+public class BulkLoader {
+
+    public static final String CONNECTIONS_PROPERTY = "fxdeals.loader.connections";
+    public static final String PARSERS_PROPERTY = "fxdeals.loader.parsers";
+    public static final String BATCH_SIZE_PROPERTY = "fxdeals.loader.batch-size";
+    public static final String CHUNK_MB_PROPERTY = "fxdeals.loader.chunk-mb";
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkLoader.class);
+    private static final String COLUMNS =
+        "deal_unique_id, from_currency_iso, to_currency_iso, deal_timestamp, deal_amount, created_at, updated_at";
+    private static final int QUEUE_CAPACITY = 4;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final List<LoadRow> END = new ArrayList<>();
+
+    private final List<Connection> connections;
+    private final int parsers;
+    private final int batchSize;
+    private final long chunkBytes;
+    private final Validator validator;
+    private final DealArchive archive;
+
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder inserted = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private BufferedWriter rejects;
+    private volatile boolean aborted;
+
+    public BulkLoader(List<Connection> connections, int parsers, int batchSize, long chunkBytes, Validator validator) {
+        this(connections, parsers, batchSize, chunkBytes, validator, new DealArchive());
+    }
+
+    public BulkLoader(List<Connection> connections, int parsers, int batchSize, long chunkBytes, Validator validator,
+                      DealArchive archive) {
+        if (connections.isEmpty()) {
+            throw new IllegalArgumentException("At least one connection is required");
+        }
+        if (chunkBytes <= 0 || batchSize <= 0 || parsers <= 0) {
+            throw new IllegalArgumentException("Parsers, batch size and chunk size must be positive");
+        }
+        this.connections = connections;
+        this.parsers = parsers;
+        this.batchSize = batchSize;
+        this.chunkBytes = chunkBytes;
+        this.validator = validator;
+        this.archive = archive;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: BulkLoader <user> <password> <jdbc url> <input csv> [rejects file]");
+            System.exit(2);
+        }
+        FxDealsConfig config = new FxDealsConfig();
+        String refusal = unsupportedConfiguration(config);
+        if (refusal != null) {
+            System.err.println(refusal);
+            System.exit(2);
+        }
+        int parsers = config.getInt(PARSERS_PROPERTY, 0);
+        parsers = parsers > 0 ? parsers : Runtime.getRuntime().availableProcessors();
+        Path input = Paths.get(args[3]);
+        Path rejects = args.length > 4 ? Paths.get(args[4]) : Paths.get(args[3] + ".rejected.tsv");
+
+        List<Connection> connections = new ArrayList<>();
+        try (ValidatorFactory validation = Validation.buildDefaultValidatorFactory()) {
+            for (int i = 0; i < config.getInt(CONNECTIONS_PROPERTY, 4); i++) {
+                connections.add(DriverManager.getConnection(args[2], args[0], args[1]));
+            }
+            BulkLoader loader = new BulkLoader(connections, parsers, config.getInt(BATCH_SIZE_PROPERTY, 1000),
+                                               config.getLong(CHUNK_MB_PROPERTY, 64) << 20,
+                                               validation.getValidator(), archive(config));
+            LoadReport report = loader.load(input, rejects);
+            System.out.println(report);
+            if (report.getInvalid() + report.getDuplicates() > 0) {
+                System.out.println("Rejected rows written to " + rejects);
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Why the loader cannot run with the given settings, or null if it can.
+     */
+    static String unsupportedConfiguration(FxDealsConfig config) {
+        if (config.getBoolean(ShardedDealStore.ENABLED_PROPERTY, false)) {
+            return "The bulk loader writes to a single fx_deals table and cannot load sharded storage ("
+                   + ShardedDealStore.ENABLED_PROPERTY + "=true)";
+        }
+        if (config.getBoolean(DealArchive.ENABLED_PROPERTY, false)
+                && config.getString(DealArchive.DIR_PROPERTY, "").isBlank()) {
+            return "Set " + DealArchive.DIR_PROPERTY + " to the server's archive directory so archived deals"
+                   + " are recognised as duplicates";
+        }
+        return null;
+    }
+
+    private static DealArchive archive(FxDealsConfig config) throws IOException {
+        if (!config.getBoolean(DealArchive.ENABLED_PROPERTY, false)) {
+            return new DealArchive();
+        }
+        return DealArchive.forLookups(Paths.get(config.getString(DealArchive.DIR_PROPERTY, "")));
+    }
+
+    /**
+     * Loads every valid deal in input, writing rejected lines to rejects.
+     */
+    public LoadReport load(Path input, Path rejectsFile) throws IOException, SQLException, InterruptedException {
+        long start = System.nanoTime();
+        rows.reset();
+        inserted.reset();
+        invalid.reset();
+        duplicates.reset();
+        aborted = false;
+
+        List<BlockingQueue<List<LoadRow>>> queues = new ArrayList<>();
+        ExecutorService parserPool = Executors.newFixedThreadPool(parsers, Threads.daemonThreadFactory("fxdeals-loader-parser"));
+        ExecutorService writerPool = Executors.newFixedThreadPool(connections.size(), Threads.daemonThreadFactory("fxdeals-loader-writer"));
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             BufferedWriter rejectsOut = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8)) {
+            this.rejects = rejectsOut;
+            long size = channel.size();
+            logger.info("Loading {} ({} bytes) with {} parsers and {} connections",
+                        input, size, parsers, connections.size());
+
+            List<Future<?>> writerResults = new ArrayList<>();
+            for (Connection connection : connections) {
+                BlockingQueue<List<LoadRow>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+                queues.add(queue);
+                writerResults.add(writerPool.submit(new Writer(connection, queue)));
+            }
+
+            List<Future<?>> chunks = new ArrayList<>();
+            for (long chunkStart = 0; chunkStart < size; chunkStart += chunkBytes) {
+                long from = chunkStart;
+                long to = Math.min(size, chunkStart + chunkBytes);
+                chunks.add(parserPool.submit(() -> {
+                    parseChunk(channel, from, to, size, queues);
+                    return null;
+                }));
+            }
+            Exception failure = null;
+            for (Future<?> chunk : chunks) {
+                try {
+                    chunk.get();
+                } catch (ExecutionException e) {
+                    aborted = true;
+                    if (failure == null && !(e.getCause() instanceof Aborted)) {
+                        failure = (Exception) e.getCause();
+                    }
+                }
+            }
+            for (BlockingQueue<List<LoadRow>> queue : queues) {
+                queue.put(END);
+            }
+            for (Future<?> writerResult : writerResults) {
+                try {
+                    writerResult.get();
+                } catch (ExecutionException e) {
+                    failure = failure != null ? failure : (Exception) e.getCause();
+                }
+            }
+            rethrow(failure);
+
+            LoadReport report = new LoadReport(size, rows.sum(), inserted.sum(), invalid.sum(), duplicates.sum(),
+                                               System.nanoTime() - start);
+            logger.info("{}", report);
+            return report;
+        } finally {
+            parserPool.shutdownNow();
+            writerPool.shutdownNow();
+            this.rejects = null;
+        }
+    }
+
+    private void parseChunk(FileChannel channel, long start, long end, long size,
+                            List<BlockingQueue<List<LoadRow>>> queues) throws IOException, InterruptedException {
+        List<List<LoadRow>> pending = new ArrayList<>(queues.size());
+        for (int i = 0; i < queues.size(); i++) {
+            pending.add(new ArrayList<>(batchSize));
+        }
+        DealCsvParser parser = new DealCsvParser(validator);
+        long lines = parser.parse(channel, start, end, size, new DealCsvParser.Listener() {
+            @Override
+            public void accepted(LoadRow row) throws InterruptedException {
+                if (aborted) {
+                    throw new Aborted();
+                }
+                int writer = JumpHash.shardFor(row.request.getDealUniqueId(), queues.size());
+                List<LoadRow> batch = pending.get(writer);
+                batch.add(row);
+                if (batch.size() == batchSize) {
+                    queues.get(writer).put(batch);
+                    pending.set(writer, new ArrayList<>(batchSize));
+                }
+            }
+
+            @Override
+            public void rejected(long offset, String line, String reason) {
+                invalid.increment();
+                reject(offset, line, reason);
+            }
+        });
+        for (int i = 0; i < queues.size(); i++) {
+            if (!pending.get(i).isEmpty()) {
+                queues.get(i).put(pending.get(i));
+            }
+        }
+        rows.add(lines);
+    }
+
+    private void reject(long offset, String line, String reason) {
+        synchronized (rejects) {
+            try {
+                rejects.write(offset + "\t" + reason.replace('\t', ' ') + "\t" + line);
+                rejects.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static void rethrow(Exception failure) throws IOException, SQLException, InterruptedException {
+        if (failure == null) {
+            return;
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof UncheckedIOException) {
+            throw ((UncheckedIOException) failure).getCause();
+        }
+        if (failure instanceof SQLException) {
+            throw (SQLException) failure;
+        }
+        if (failure instanceof InterruptedException) {
+            throw (InterruptedException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        throw new IllegalStateException(failure);
+    }
+
+    /**
+     * Drains one queue into one connection in batches of batchSize.
+     */
+    private final class Writer implements Callable<Void> {
+
+        private final Connection connection;
+        private final BlockingQueue<List<LoadRow>> queue;
+        private final List<LoadRow> pending = new ArrayList<>();
+        private PreparedStatement fullBatchInsert;
+
+        Writer(Connection connection, BlockingQueue<List<LoadRow>> queue) {
+            this.connection = connection;
+            this.queue = queue;
+        }
+
+        /**
+         * Takes batches until END whatever fails, so that parsers never block on a full
+         * queue: after the first failure, here or in another writer, batches are dropped.
+         */
+        @Override
+        public Void call() throws Exception {
+            Exception failure = null;
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                failure = e;
+                aborted = true;
+            }
+            try {
+                List<LoadRow> rows;
+                while ((rows = queue.take()) != END) {
+                    if (aborted || failure != null) {
+                        continue;
+                    }
+                    pending.addAll(rows);
+                    try {
+                        while (pending.size() >= batchSize) {
+                            List<LoadRow> batch = pending.subList(0, batchSize);
+                            write(batch);
+                            batch.clear();
+                        }
+                    } catch (SQLException | RuntimeException e) {
+                        failure = e;
+                        aborted = true;
+                    }
+                }
+                if (failure == null && !aborted && !pending.isEmpty()) {
+                    try {
+                        write(pending);
+                    } catch (SQLException | RuntimeException e) {
+                        failure = e;
+                        aborted = true;
+                    }
+                    pending.clear();
+                }
+            } finally {
+                if (fullBatchInsert != null) {
+                    fullBatchInsert.close();
+                }
+            }
+            if (failure != null) {
+                try {
+                    connection.rollback();
+                } catch (SQLException e) {
+                    failure.addSuppressed(e);
+                }
+                throw failure;
+            }
+            return null;
+        }
+
+        private void write(List<LoadRow> batch) throws SQLException {
+            Map<String, LoadRow> unique = new LinkedHashMap<>(batch.size() * 2);
+            for (LoadRow row : batch) {
+                if (unique.putIfAbsent(row.request.getDealUniqueId(), row) != null) {
+                    duplicates.increment();
+                    reject(row.offset, row.line, "Duplicate deal unique ID in file");
+                }
+            }
+            for (String archived : archive.findExistingDealUniqueIds(unique.keySet())) {
+                LoadRow row = unique.remove(archived);
+                duplicates.increment();
+                reject(row.offset, row.line, "Deal already archived");
+            }
+            for (int attempt = 1; ; attempt++) {
+                for (String existing : existing(unique.keySet())) {
+                    LoadRow row = unique.remove(existing);
+                    duplicates.increment();
+                    reject(row.offset, row.line, "Deal already exists");
+                }
+                try {
+                    if (!unique.isEmpty()) {
+                        insert(unique.values());
+                    }
+                    connection.commit();
+                    inserted.add(unique.size());
+                    return;
+                } catch (SQLException e) {
+                    connection.rollback();
+                    if (attempt == MAX_ATTEMPTS || !isRetryable(e)) {
+                        throw e;
+                    }
+                    logger.debug("Retrying batch after rollback: {}", e.getMessage());
+                }
+            }
+        }
+
+        private void insert(Collection<LoadRow> rows) throws SQLException {
+            PreparedStatement insert = rows.size() == batchSize ? fullBatchInsert() : null;
+            PreparedStatement statement = insert != null ? insert : connection.prepareStatement(insertSql(rows.size()));
+            try {
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                int index = 1;
+                for (LoadRow row : rows) {
+                    statement.setString(index++, row.request.getDealUniqueId());
+                    statement.setString(index++, row.request.getFromCurrencyIso());
+                    statement.setString(index++, row.request.getToCurrencyIso());
+                    statement.setTimestamp(index++, Timestamp.valueOf(row.request.getDealTimestamp()));
+                    statement.setBigDecimal(index++, row.request.getDealAmount());
+                    statement.setTimestamp(index++, now);
+                    statement.setTimestamp(index++, now);
+                }
+                statement.executeUpdate();
+            } finally {
+                if (statement != insert) {
+                    statement.close();
+                }
+            }
+        }
+
+        private Set<String> existing(Set<String> dealUniqueIds) throws SQLException {
+            Set<String> existing = new HashSet<>();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "SELECT deal_unique_id FROM fx_deals WHERE deal_unique_id IN ("
+                    + String.join(", ", Collections.nCopies(dealUniqueIds.size(), "?")) + ")")) {
+                int index = 1;
+                for (String dealUniqueId : dealUniqueIds) {
+                    statement.setString(index++, dealUniqueId);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        existing.add(resultSet.getString(1));
+                    }
+                }
+            }
+            return existing;
+        }
+
+        private PreparedStatement fullBatchInsert() throws SQLException {
+            if (fullBatchInsert == null) {
+                fullBatchInsert = connection.prepareStatement(insertSql(batchSize));
+            }
+            return fullBatchInsert;
+        }
+    }
+
+    /**
+     * Stops the remaining parse work once a writer has failed.
+     */
+    private static final class Aborted extends RuntimeException {
+        Aborted() {
+            super("Load aborted", null, false, false);
+        }
+    }
+
+    /**
+     * A unique-key violation (another process inserted one of the deals after the
+     * existence check) or a deadlock rollback (SQLState classes 23 and 40).
+     */
+    private static boolean isRetryable(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("23") || state.startsWith("40"));
+    }
+
+    static String insertSql(int rows) {
+        return "INSERT INTO fx_deals (" + COLUMNS + ") VALUES "
+            + String.join(", ", Collections.nCopies(rows, "(?, ?, ?, ?, ?, ?, ?)"));
+    }
+}
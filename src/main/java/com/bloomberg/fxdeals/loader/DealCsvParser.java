@@ -0,0 +1,134 @@
+package com.bloomberg.fxdeals.loader;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.service.DealRequestRules;
+import jakarta.validation.Validator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses and validates the lines of one chunk of a memory-mapped deal file.
+ *
+ * Input lines are {@code dealUniqueId,fromCurrencyIso,toCurrencyIso,dealTimestamp,dealAmount}
+ * with an ISO-8601 local timestamp and no quoting; an optional header line starting with
+ * dealUniqueId is skipped. A chunk owns every line that starts inside it, so chunks can be
+ * cut at arbitrary byte offsets and parsed independently: a chunk skips the partial line it
+ * starts in and reads past its end to finish its last line.
+ */
+final class DealCsvParser {
+
+    static final int MAX_LINE_BYTES = 64 * 1024;
+    private static final int FIELDS = 5;
+
+    interface Listener {
+        void accepted(LoadRow row) throws InterruptedException;
+
+        void rejected(long offset, String line, String reason);
+    }
+
+    private final Validator validator;
+    private final byte[] line = new byte[MAX_LINE_BYTES];
+
+    DealCsvParser(Validator validator) {
+        this.validator = validator;
+    }
+
+    /**
+     * Parses the lines starting in [start, end) of a file of the given size.
+     *
+     * @return number of non-empty lines read
+     */
+    long parse(FileChannel channel, long start, long end, long size, Listener listener)
+            throws IOException, InterruptedException {
+        long mapStart = start == 0 ? 0 : start - 1;
+        long mapEnd = Math.min(size, end + MAX_LINE_BYTES);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = buffer.limit();
+        int ownedEnd = (int) (end - mapStart);
+
+        int position = 0;
+        if (start > 0) {
+            // the line containing byte start - 1 belongs to the previous chunk
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        long lines = 0;
+        while (position < ownedEnd && position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            long offset = mapStart + position;
+            if (lineEnd == limit && mapEnd < size) {
+                listener.rejected(offset, decode(buffer, position, Math.min(limit - position, 256)),
+                                  "Line is longer than " + MAX_LINE_BYTES + " bytes");
+                return lines + 1;
+            }
+            int length = lineEnd - position;
+            if (length > 0 && buffer.get(lineEnd - 1) == '\r') {
+                length--;
+            }
+            if (length > 0) {
+                String text = decode(buffer, position, length);
+                if (offset != 0 || !text.regionMatches(true, 0, "dealUniqueId", 0, 12)) {
+                    lines++;
+                    parseLine(offset, text, listener);
+                }
+            }
+            position = lineEnd + 1;
+        }
+        return lines;
+    }
+
+    private void parseLine(long offset, String text, Listener listener) throws InterruptedException {
+        String[] fields = new String[FIELDS];
+        int from = 0;
+        for (int i = 0; i < FIELDS; i++) {
+            int comma = text.indexOf(',', from);
+            if ((comma < 0) != (i == FIELDS - 1)) {
+                listener.rejected(offset, text, "Expected " + FIELDS + " comma-separated fields");
+                return;
+            }
+            String field = text.substring(from, comma < 0 ? text.length() : comma);
+            fields[i] = field.isEmpty() ? null : field;
+            from = comma + 1;
+        }
+
+        LocalDateTime timestamp;
+        try {
+            timestamp = fields[3] == null ? null : LocalDateTime.parse(fields[3]);
+        } catch (DateTimeParseException e) {
+            listener.rejected(offset, text, "Invalid deal timestamp: " + fields[3]);
+            return;
+        }
+        BigDecimal amount;
+        try {
+            amount = fields[4] == null ? null : new BigDecimal(fields[4]);
+        } catch (NumberFormatException e) {
+            listener.rejected(offset, text, "Invalid deal amount: " + fields[4]);
+            return;
+        }
+
+        FxDealRequest request = new FxDealRequest(fields[0], fields[1], fields[2], timestamp, amount);
+        String error = DealRequestRules.check(validator, request);
+        if (error != null) {
+            listener.rejected(offset, text, error);
+        } else {
+            listener.accepted(new LoadRow(offset, text, request));
+        }
+    }
+
+    private String decode(MappedByteBuffer buffer, int position, int length) {
+        buffer.get(position, line, 0, length);
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+}
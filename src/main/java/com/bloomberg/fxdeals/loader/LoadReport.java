@@ -0,0 +1,69 @@
+package com.bloomberg.fxdeals.loader;
+
+/**
+ * Outcome and throughput of one {@link BulkLoader} run.
+ */
+public final class LoadReport {
+
+    private final long bytes;
+    private final long rows;
+    private final long inserted;
+    private final long invalid;
+    private final long duplicates;
+    private final long elapsedNanos;
+
+    LoadReport(long bytes, long rows, long inserted, long invalid, long duplicates, long elapsedNanos) {
+        this.bytes = bytes;
+        this.rows = rows;
+        this.inserted = inserted;
+        this.invalid = invalid;
+        this.duplicates = duplicates;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Non-empty data lines read, excluding any header.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    public long getInserted() {
+        return inserted;
+    }
+
+    public long getInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Rows whose unique ID was already in the database or earlier in the file.
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows / (elapsedNanos / 1e9);
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytes / 1e6 / (elapsedNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Read %,d rows (%,d bytes) in %.1f s: %,d inserted, %,d invalid, %,d duplicates; "
+                             + "%,.0f rows/s, %.1f MB/s",
+                             rows, bytes, elapsedNanos / 1e9, inserted, invalid, duplicates,
+                             getRowsPerSecond(), getMegabytesPerSecond());
+    }
+}
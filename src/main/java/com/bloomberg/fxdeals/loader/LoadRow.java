@@ -0,0 +1,19 @@
+package com.bloomberg.fxdeals.loader;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+
+/**
+ * A valid input line on its way to the database.
+ */
+final class LoadRow {
+
+    final long offset;
+    final String line;
+    final FxDealRequest request;
+
+    LoadRow(long offset, String line, FxDealRequest request) {
+        this.offset = offset;
+        this.line = line;
+        this.request = request;
+    }
+}
@@ -0,0 +1,84 @@
+package com.bloomberg.fxdeals.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import com.bloomberg.fxdeals.metrics.Metrics;
+import org.slf4j.Marker;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lets through one in N events of each call site of the configured loggers.
+ *
+ * A call site is a logger and the message format of the call, so "Received request to
+ * create FX deal" and "Successfully created FX deal ..." are counted separately and
+ * each is written for its first call and every Nth after. WARN and ERROR events, and
+ * events carrying an exception, always pass. Events below the logger's level are left
+ * alone, so they are not counted. A sampled-out event is denied before its message is
+ * formatted and counted as fxdeals_log_events_total{outcome="sampled_out"}.
+ *
+ * <pre>
+ * &lt;turboFilter class="com.bloomberg.fxdeals.logging.LogSampler"&gt;
+ *     &lt;sample&gt;com.bloomberg.fxdeals.service.FxDealService=100&lt;/sample&gt;
+ * &lt;/turboFilter&gt;
+ * </pre>
+ */
+public class LogSampler extends TurboFilter {
+
+    // logger name, call sites of that logger; filled before start and only read after
+    private final Map<String, Rule> rules = new HashMap<>();
+
+    /**
+     * Adds a rule of the form loggerName=N.
+     */
+    public void addSample(String rule) {
+        int separator = rule.lastIndexOf('=');
+        if (separator <= 0) {
+            addError("Invalid sample rule [" + rule + "], expected loggerName=N");
+            return;
+        }
+        String loggerName = rule.substring(0, separator).trim();
+        try {
+            int rate = Integer.parseInt(rule.substring(separator + 1).trim());
+            if (rate < 1) {
+                addError("Invalid sample rate in [" + rule + "], expected a positive number");
+                return;
+            }
+            rules.put(loggerName, new Rule(rate));
+        } catch (NumberFormatException e) {
+            addError("Invalid sample rate in [" + rule + "], expected a positive number");
+        }
+    }
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format,
+                              Object[] params, Throwable t) {
+        if (format == null || t != null || level.levelInt >= Level.WARN_INT) {
+            return FilterReply.NEUTRAL;
+        }
+        Rule rule = rules.get(logger.getName());
+        if (rule == null || rule.rate == 1 || !level.isGreaterOrEqual(logger.getEffectiveLevel())) {
+            return FilterReply.NEUTRAL;
+        }
+        long call = rule.callSites.computeIfAbsent(format, site -> new AtomicLong()).getAndIncrement();
+        if (call % rule.rate == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        Metrics.LOG_EVENTS_SAMPLED_OUT.increment();
+        return FilterReply.DENY;
+    }
+
+    private static final class Rule {
+        final int rate;
+        final Map<String, AtomicLong> callSites = new ConcurrentHashMap<>();
+
+        Rule(int rate) {
+            this.rate = rate;
+        }
+    }
+}
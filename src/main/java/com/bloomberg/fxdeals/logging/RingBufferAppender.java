@@ -0,0 +1,174 @@
+package com.bloomberg.fxdeals.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+import com.bloomberg.fxdeals.metrics.Metrics;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands log events to the attached appenders on one writer thread, so request threads
+ * never wait for console or file output.
+ *
+ * A logging call prepares the event for deferred processing (formats the message and
+ * captures thread name and MDC) and offers it to an {@link EventRing}. It takes no lock
+ * and never blocks: when the ring is full the event is dropped and counted as
+ * fxdeals_log_events_total{outcome="dropped"}, so the capacity should absorb the
+ * bursts the writer cannot keep up with. The writer thread parks while the ring is
+ * empty and is unparked only by the call that finds it parked. On stop the writer
+ * drains what is queued, for at most shutdownTimeoutMillis, before the attached
+ * appenders are stopped.
+ *
+ * <pre>
+ * &lt;appender name="ASYNC" class="com.bloomberg.fxdeals.logging.RingBufferAppender"&gt;
+ *     &lt;capacity&gt;8192&lt;/capacity&gt;
+ *     &lt;appender-ref ref="FILE"/&gt;
+ * &lt;/appender&gt;
+ * </pre>
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+    implements AppenderAttachable<ILoggingEvent> {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 1000;
+
+    // upper bound of a park, in case an unpark is missed
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+    private int capacity = DEFAULT_CAPACITY;
+    private long shutdownTimeoutMillis = DEFAULT_SHUTDOWN_TIMEOUT_MILLIS;
+    private EventRing<ILoggingEvent> ring;
+    private Thread writer;
+    private volatile boolean writerParked;
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Events the ring holds; rounded up to a power of two.
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public long getShutdownTimeoutMillis() {
+        return shutdownTimeoutMillis;
+    }
+
+    public void setShutdownTimeoutMillis(long shutdownTimeoutMillis) {
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+    }
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to RingBufferAppender [" + name + "]");
+            return;
+        }
+        if (capacity < 2) {
+            addError("Invalid capacity " + capacity + " for RingBufferAppender [" + name + "]");
+            return;
+        }
+        ring = new EventRing<>(capacity);
+        writer = new Thread(this::drain, "fxdeals-log-writer-" + name);
+        writer.setDaemon(true);
+        super.start();
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        LockSupport.unpark(writer);
+        try {
+            writer.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            addWarn("RingBufferAppender [" + name + "] stopped with events still queued");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        event.prepareForDeferredProcessing();
+        if (!ring.offer(event)) {
+            Metrics.LOG_EVENTS_DROPPED.increment();
+            return;
+        }
+        if (writerParked) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            ILoggingEvent event = ring.poll();
+            if (event != null) {
+                appenders.appendLoopOnAppenders(event);
+                Metrics.LOG_EVENTS_WRITTEN.increment();
+                continue;
+            }
+            if (!isStarted()) {
+                return;
+            }
+            // publish the flag before the last look, so an offer either sees it or is seen
+            writerParked = true;
+            if (ring.isEmpty() && isStarted()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            writerParked = false;
+        }
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        addInfo("Attaching appender [" + appender.getName() + "] to RingBufferAppender [" + name + "]");
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
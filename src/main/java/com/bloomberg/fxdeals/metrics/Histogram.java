@@ -0,0 +1,90 @@
+package com.bloomberg.fxdeals.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram from 1.024 µs up to about 34 s, plus an overflow bucket. Each power
+ * of two nanoseconds is split into {@value #SUB_BUCKETS} linear sub-buckets, as in
+ * HdrHistogram, so a bucket is at most 1/8 as wide as the values it holds and a recorded
+ * value is off by at most 12.5%.
+ *
+ * Recording is a leading-zero count, a shift and two LongAdder increments. It allocates
+ * nothing once the adders have grown their cells, and concurrent writers spread over
+ * separate cells instead of contending on one counter.
+ */
+public final class Histogram {
+
+    static final int MIN_SHIFT = 10;
+    static final int MAX_SHIFT = 35;
+    static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** One bucket up to 2^MIN_SHIFT ns, the sub-buckets up to 2^MAX_SHIFT ns, and the overflow bucket. */
+    static final int BUCKETS = 1 + (MAX_SHIFT - MIN_SHIFT) * SUB_BUCKETS + 1;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[bucketIndex(value)].increment();
+        sumNanos.add(value);
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Index of the smallest bucket whose upper bound is at least the value.
+     */
+    static int bucketIndex(long nanos) {
+        if (nanos <= 1L << MIN_SHIFT) {
+            return 0;
+        }
+        // nanos - 1 so that each power of two is the inclusive bound of the range below it
+        long value = nanos - 1;
+        int power = 63 - Long.numberOfLeadingZeros(value);
+        if (power >= MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        int sub = (int) (value >>> (power - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return 1 + (power - MIN_SHIFT) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Inclusive upper bound of a finite bucket.
+     */
+    static long upperBoundNanos(int index) {
+        if (index == 0) {
+            return 1L << MIN_SHIFT;
+        }
+        int power = MIN_SHIFT + (index - 1) / SUB_BUCKETS;
+        int sub = (index - 1) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (power - SUB_BUCKET_BITS);
+    }
+
+    long getBucketCount(int index) {
+        return counts[index].sum();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : counts) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+}
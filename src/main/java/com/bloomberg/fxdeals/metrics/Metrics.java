@@ -0,0 +1,175 @@
+package com.bloomberg.fxdeals.metrics;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide latency histograms and counters, written out in the Prometheus text
+ * format by {@link #scrape()}.
+ *
+ * The metrics are static so that code created outside CDI, such as executors started by
+ * tests, can record without being wired up. Hot paths hold on to the {@link Histogram}
+ * or {@link Counter} for their label instead of looking it up on every call.
+ */
+public final class Metrics {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final List<Family<?>> FAMILIES = new CopyOnWriteArrayList<>();
+    private static final String[] BUCKET_BOUNDS = bucketBounds();
+
+    public static final Family<Histogram> HTTP_REQUESTS = histograms(
+        "fxdeals_http_request_duration_seconds",
+        "Time to handle a FxDealController request, response body included", "endpoint");
+    public static final Family<Histogram> HTTP_SERIALIZATION = histograms(
+        "fxdeals_http_serialization_duration_seconds",
+        "Time to write the response body of a FxDealController request", "endpoint");
+    public static final Family<Histogram> CREATE_STAGES = histograms(
+        "fxdeals_create_stage_duration_seconds",
+        "Time spent in each stage of FxDealService.createDeal", "stage");
+    public static final Family<Histogram> REPOSITORY_CALLS = histograms(
+        "fxdeals_repository_duration_seconds",
+        "Time spent in each FxDealRepository method, shard and archive lookups included", "method");
+    public static final Family<Counter> DEAL_OUTCOMES = counters(
+        "fxdeals_deals_total",
+        "Deals submitted for creation, by outcome", "outcome");
+    public static final Family<Counter> LOG_EVENTS = counters(
+        "fxdeals_log_events_total",
+        "Log events handled by RingBufferAppender and LogSampler, by outcome", "outcome");
+
+    public static final Histogram STAGE_VALIDATE = CREATE_STAGES.labels("validate");
+    public static final Histogram STAGE_EXISTS_CHECK = CREATE_STAGES.labels("exists_check");
+    public static final Histogram STAGE_NEAR_DUPLICATE_CHECK = CREATE_STAGES.labels("near_duplicate_check");
+    public static final Histogram STAGE_SAVE = CREATE_STAGES.labels("save");
+    public static final Histogram STAGE_MAP = CREATE_STAGES.labels("map");
+
+    public static final Histogram DB_PERMIT_WAIT = histograms(
+        "fxdeals_db_permit_wait_seconds",
+        "Time DealExecutor tasks wait for one of the fxdeals.datasource.pool-size database permits", null)
+        .labels("");
+
+    public static final Counter DEALS_CREATED = DEAL_OUTCOMES.labels("created");
+    public static final Counter DEALS_DUPLICATE = DEAL_OUTCOMES.labels("duplicate");
+    public static final Counter DEALS_INVALID = DEAL_OUTCOMES.labels("invalid");
+
+    public static final Counter LOG_EVENTS_WRITTEN = LOG_EVENTS.labels("written");
+    public static final Counter LOG_EVENTS_DROPPED = LOG_EVENTS.labels("dropped");
+    public static final Counter LOG_EVENTS_SAMPLED_OUT = LOG_EVENTS.labels("sampled_out");
+
+    private Metrics() {
+    }
+
+    /**
+     * Every metric in the Prometheus text exposition format, version 0.0.4.
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(16384);
+        for (Family<?> family : FAMILIES) {
+            family.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    private static Family<Histogram> histograms(String name, String help, String labelName) {
+        return register(new Family<>(name, help, "histogram", labelName, Histogram::new, Metrics::writeHistogram));
+    }
+
+    private static Family<Counter> counters(String name, String help, String labelName) {
+        return register(new Family<>(name, help, "counter", labelName, Counter::new,
+            (out, metric, labels, counter) -> sample(out, metric, labels, Long.toString(counter.get()))));
+    }
+
+    private static <T> Family<T> register(Family<T> family) {
+        FAMILIES.add(family);
+        return family;
+    }
+
+    private static void writeHistogram(StringBuilder out, String name, String labels, Histogram histogram) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < Histogram.BUCKETS; i++) {
+            cumulative += histogram.getBucketCount(i);
+            out.append(name).append("_bucket{").append(prefix).append("le=\"").append(BUCKET_BOUNDS[i])
+                .append("\"} ").append(cumulative).append('\n');
+        }
+        sample(out, name + "_sum", labels, Double.toString(histogram.getSumNanos() / 1e9));
+        // derived from the buckets so that count and +Inf agree within one scrape
+        sample(out, name + "_count", labels, Long.toString(cumulative));
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, String value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String[] bucketBounds() {
+        String[] bounds = new String[Histogram.BUCKETS];
+        for (int i = 0; i < bounds.length - 1; i++) {
+            bounds[i] = BigDecimal.valueOf(Histogram.upperBoundNanos(i)).movePointLeft(9).toPlainString();
+        }
+        bounds[bounds.length - 1] = "+Inf";
+        return bounds;
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    /**
+     * Metrics sharing a name and help text, one per value of a single label. A family
+     * without a label name has one unlabelled metric, under the label value "".
+     */
+    public static final class Family<T> {
+
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String labelName;
+        private final Supplier<T> factory;
+        private final SampleWriter<T> writer;
+        private final ConcurrentMap<String, T> children = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String type, String labelName,
+                       Supplier<T> factory, SampleWriter<T> writer) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelName = labelName;
+            this.factory = factory;
+            this.writer = writer;
+        }
+
+        /**
+         * The metric for a label value, created on first use.
+         */
+        public T labels(String labelValue) {
+            T child = children.get(labelValue);
+            return child != null ? child : children.computeIfAbsent(labelValue, ignored -> factory.get());
+        }
+
+        private void writeTo(StringBuilder out) {
+            if (children.isEmpty()) {
+                return;
+            }
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (String labelValue : new TreeSet<>(children.keySet())) {
+                String labels = labelName == null ? "" : labelName + "=\"" + escape(labelValue) + "\"";
+                writer.write(out, name, labels, children.get(labelValue));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface SampleWriter<T> {
+        void write(StringBuilder out, String name, String labels, T metric);
+    }
+}
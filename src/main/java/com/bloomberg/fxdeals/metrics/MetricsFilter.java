@@ -0,0 +1,92 @@
+package com.bloomberg.fxdeals.metrics;
+
+import com.bloomberg.fxdeals.controller.FxDealController;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+import jakarta.ws.rs.sse.SseEventSink;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Times every {@link FxDealController} request, labelled by resource method name.
+ *
+ * Runs before the deadline and admission filters, so time spent there and in rejected
+ * requests counts. Response filters run before the body is written, so for responses
+ * with an entity the request is recorded by the writer interceptor instead, which also
+ * records the serialisation time on its own. The live stream is not timed, since its
+ * request lasts as long as the subscription.
+ */
+@Provider
+@Priority(300)
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+
+    private static final String START_PROPERTY = MetricsFilter.class.getName() + ".start";
+    private static final String ENDPOINT_PROPERTY = MetricsFilter.class.getName() + ".endpoint";
+    private static final ConcurrentMap<Method, String> ENDPOINTS = new ConcurrentHashMap<>();
+
+    @Context
+    ResourceInfo resourceInfo;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        Method method = resourceInfo.getResourceMethod();
+        if (method == null || resourceInfo.getResourceClass() != FxDealController.class) {
+            return;
+        }
+        String endpoint = ENDPOINTS.computeIfAbsent(method, MetricsFilter::endpointName);
+        if (endpoint.isEmpty()) {
+            return;
+        }
+        requestContext.setProperty(ENDPOINT_PROPERTY, endpoint);
+        requestContext.setProperty(START_PROPERTY, System.nanoTime());
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        Object start = requestContext.getProperty(START_PROPERTY);
+        if (start == null || responseContext.hasEntity()) {
+            return;
+        }
+        requestContext.removeProperty(START_PROPERTY);
+        Metrics.HTTP_REQUESTS.labels((String) requestContext.getProperty(ENDPOINT_PROPERTY))
+            .recordSince((Long) start);
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        Object start = context.getProperty(START_PROPERTY);
+        if (start == null) {
+            context.proceed();
+            return;
+        }
+        context.removeProperty(START_PROPERTY);
+        String endpoint = (String) context.getProperty(ENDPOINT_PROPERTY);
+        long writeStart = System.nanoTime();
+        try {
+            context.proceed();
+        } finally {
+            long end = System.nanoTime();
+            Metrics.HTTP_SERIALIZATION.labels(endpoint).record(end - writeStart);
+            Metrics.HTTP_REQUESTS.labels(endpoint).record(end - (Long) start);
+        }
+    }
+
+    /**
+     * The method name, or "" for methods that are not timed.
+     */
+    private static String endpointName(Method method) {
+        return Arrays.asList(method.getParameterTypes()).contains(SseEventSink.class) ? "" : method.getName();
+    }
+}
@@ -0,0 +1,252 @@
+package com.bloomberg.fxdeals.metrics;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * What the ORM and the connection pools are doing: Hibernate {@link Statistics} of both
+ * persistence units, pool figures of the datasources and a {@link SlowQueryLog} of
+ * repository calls.
+ *
+ * Collection follows fxdeals.orm-stats.enabled and can be switched with a configuration
+ * reload, which takes effect at the next repository call or snapshot. While it is off,
+ * Hibernate statistics are disabled, so sessions skip every counter, and a repository
+ * call costs one settings check. Switching it on clears the Hibernate statistics, so
+ * the figures cover one continuous period. Pool figures are collected by the container
+ * and read on request either way.
+ */
+@ApplicationScoped
+public class OrmStatistics {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.orm-stats.enabled";
+    public static final String SLOW_QUERY_PROPERTY = "fxdeals.orm-stats.slow-query-ms";
+    public static final String SLOW_QUERY_LOG_SIZE_PROPERTY = "fxdeals.orm-stats.slow-query-log-size";
+    public static final String DATASOURCES_PROPERTY = "fxdeals.orm-stats.datasources";
+
+    private static final Logger logger = LoggerFactory.getLogger(OrmStatistics.class);
+    private static final int DEFAULT_SLOW_QUERY_LOG_SIZE = 100;
+
+    @Inject
+    FxDealsConfig config;
+
+    @PersistenceUnit(unitName = "fxdealsPU")
+    EntityManagerFactory primary;
+
+    @PersistenceUnit(unitName = "fxdealsReadPU")
+    EntityManagerFactory replica;
+
+    private final SlowQueryLog slowQueries = new SlowQueryLog(DEFAULT_SLOW_QUERY_LOG_SIZE);
+    private volatile Settings settings;
+
+    @PostConstruct
+    void init() {
+        currentSettings();
+    }
+
+    public boolean isEnabled() {
+        return currentSettings().enabled;
+    }
+
+    /**
+     * Adds a repository call to the slow query log if collection is on and the call took
+     * at least fxdeals.orm-stats.slow-query-ms.
+     */
+    public void record(String query, Object[] parameters, long nanos, Object result) {
+        Settings current = currentSettings();
+        if (current.enabled && nanos >= current.slowQueryNanos) {
+            slowQueries.add(query, parameters, nanos, TimedRepositoryInterceptor.rows(result));
+        }
+    }
+
+    /**
+     * Clears the Hibernate statistics and the slow query log.
+     */
+    public void reset() {
+        for (EntityManagerFactory factory : units().values()) {
+            statistics(factory).clear();
+        }
+        slowQueries.clear();
+        logger.info("ORM statistics reset");
+    }
+
+    public Map<String, Object> snapshot() {
+        Settings current = currentSettings();
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("enabled", current.enabled);
+        snapshot.put("slowQueryMillis", TimeUnit.NANOSECONDS.toMillis(current.slowQueryNanos));
+        Map<String, Object> persistenceUnits = new LinkedHashMap<>();
+        for (Map.Entry<String, EntityManagerFactory> unit : units().entrySet()) {
+            persistenceUnits.put(unit.getKey(), describe(unit.getValue().unwrap(SessionFactory.class)));
+        }
+        snapshot.put("persistenceUnits", persistenceUnits);
+        Map<String, Object> pools = new LinkedHashMap<>();
+        for (String dataSource : current.dataSources) {
+            pools.put(dataSource, PoolStatistics.read(dataSource));
+        }
+        snapshot.put("pools", pools);
+        snapshot.put("slowQueries", slowQueries.entries());
+        return snapshot;
+    }
+
+    private static Map<String, Object> describe(SessionFactory sessionFactory) {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, Object> unit = new LinkedHashMap<>();
+        unit.put("since", statistics.getStart().toString());
+        unit.put("sessionsOpened", statistics.getSessionOpenCount());
+        unit.put("transactions", statistics.getTransactionCount());
+        unit.put("flushes", statistics.getFlushCount());
+        unit.put("connectionsObtained", statistics.getConnectCount());
+        unit.put("statementsPrepared", statistics.getPrepareStatementCount());
+        unit.put("entityLoads", statistics.getEntityLoadCount());
+        unit.put("entityFetches", statistics.getEntityFetchCount());
+        unit.put("entityInserts", statistics.getEntityInsertCount());
+        unit.put("entityUpdates", statistics.getEntityUpdateCount());
+        unit.put("entityDeletes", statistics.getEntityDeleteCount());
+        unit.put("queryExecutions", statistics.getQueryExecutionCount());
+        unit.put("queryMaxMillis", statistics.getQueryExecutionMaxTime());
+        unit.put("slowestQuery", statistics.getQueryExecutionMaxTimeQueryString());
+
+        Map<String, Object> entities = new LinkedHashMap<>();
+        for (String entityName : statistics.getEntityNames()) {
+            EntityStatistics entity = statistics.getEntityStatistics(entityName);
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("loads", entity.getLoadCount());
+            counts.put("fetches", entity.getFetchCount());
+            counts.put("inserts", entity.getInsertCount());
+            counts.put("updates", entity.getUpdateCount());
+            counts.put("deletes", entity.getDeleteCount());
+            entities.put(entityName, counts);
+        }
+        unit.put("entities", entities);
+
+        // slowest first
+        List<String> queries = new ArrayList<>(Arrays.asList(statistics.getQueries()));
+        queries.sort(Comparator.comparingLong(
+            (String query) -> statistics.getQueryStatistics(query).getExecutionMaxTime()).reversed());
+        Map<String, Object> queryStatistics = new LinkedHashMap<>();
+        for (String query : queries) {
+            QueryStatistics figures = statistics.getQueryStatistics(query);
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("executions", figures.getExecutionCount());
+            counts.put("rows", figures.getExecutionRowCount());
+            counts.put("averageMillis", figures.getExecutionAvgTimeAsDouble());
+            counts.put("maxMillis", figures.getExecutionMaxTime());
+            counts.put("totalMillis", figures.getExecutionTotalTime());
+            queryStatistics.put(query, counts);
+        }
+        unit.put("queries", queryStatistics);
+        unit.put("secondLevelCache", secondLevelCache(
+            sessionFactory.unwrap(SessionFactoryImplementor.class).getSessionFactoryOptions(), statistics));
+        return unit;
+    }
+
+    private static Map<String, Object> secondLevelCache(SessionFactoryOptions options, Statistics statistics) {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("enabled", options.isSecondLevelCacheEnabled());
+        if (options.isSecondLevelCacheEnabled()) {
+            cache.putAll(ratio(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                               statistics.getSecondLevelCachePutCount()));
+        }
+        if (options.isQueryCacheEnabled()) {
+            cache.put("queryCache", ratio(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount(),
+                                          statistics.getQueryCachePutCount()));
+        }
+        return cache;
+    }
+
+    private static Map<String, Object> ratio(long hits, long misses, long puts) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("hits", hits);
+        counts.put("misses", misses);
+        counts.put("puts", puts);
+        counts.put("hitRatio", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return counts;
+    }
+
+    private Map<String, EntityManagerFactory> units() {
+        Map<String, EntityManagerFactory> units = new LinkedHashMap<>();
+        if (primary != null) {
+            units.put("fxdealsPU", primary);
+        }
+        if (replica != null) {
+            units.put("fxdealsReadPU", replica);
+        }
+        return units;
+    }
+
+    private static Statistics statistics(EntityManagerFactory factory) {
+        return factory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    private Settings currentSettings() {
+        Settings current = settings;
+        long version = config.getVersion();
+        if (current == null || current.version != version) {
+            synchronized (this) {
+                current = settings;
+                if (current == null || current.version != version) {
+                    boolean wasEnabled = current != null && current.enabled;
+                    current = new Settings(config, version);
+                    apply(current, wasEnabled);
+                    settings = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private void apply(Settings current, boolean wasEnabled) {
+        for (EntityManagerFactory factory : units().values()) {
+            Statistics statistics = statistics(factory);
+            if (current.enabled && !wasEnabled) {
+                statistics.clear();
+            }
+            statistics.setStatisticsEnabled(current.enabled);
+        }
+        slowQueries.setCapacity(current.slowQueryLogSize);
+        if (current.enabled != wasEnabled) {
+            logger.info("ORM statistics {} (slow query threshold {} ms)", current.enabled ? "enabled" : "disabled",
+                        TimeUnit.NANOSECONDS.toMillis(current.slowQueryNanos));
+        }
+    }
+
+    private static final class Settings {
+        final long version;
+        final boolean enabled;
+        final long slowQueryNanos;
+        final int slowQueryLogSize;
+        final List<String> dataSources;
+
+        Settings(FxDealsConfig config, long version) {
+            this.version = version;
+            this.enabled = config.getBoolean(ENABLED_PROPERTY, false);
+            this.slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong(SLOW_QUERY_PROPERTY, 100));
+            this.slowQueryLogSize = config.getInt(SLOW_QUERY_LOG_SIZE_PROPERTY, DEFAULT_SLOW_QUERY_LOG_SIZE);
+            this.dataSources = Arrays.stream(config.getString(DATASOURCES_PROPERTY, "FxDealsDS,FxDealsReadDS").split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.bloomberg.fxdeals.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Connection pool figures of a WildFly datasource, read from the JMX view of the
+ * management model (jboss.as:subsystem=datasources,data-source=NAME,statistics=pool).
+ *
+ * The container collects these only for a datasource with statistics-enabled=true.
+ * Outside WildFly, or for an unknown datasource, the pool is reported as not reachable.
+ */
+final class PoolStatistics {
+
+    private static final Logger logger = LoggerFactory.getLogger(PoolStatistics.class);
+
+    // reported name, pool statistics attribute
+    private static final String[][] FIGURES = {
+        {"statisticsEnabled", "statisticsEnabled"},
+        {"inUse", "InUseCount"},
+        {"idle", "IdleCount"},
+        {"open", "ActiveCount"},
+        {"available", "AvailableCount"},
+        {"maxUsed", "MaxUsedCount"},
+        {"created", "CreatedCount"},
+        {"destroyed", "DestroyedCount"},
+        {"waits", "WaitCount"},
+        {"maxWaiting", "MaxWaitCount"},
+        {"averageBlockingMillis", "AverageBlockingTime"},
+        {"maxWaitMillis", "MaxWaitTime"},
+        {"blockingFailures", "BlockingFailureCount"},
+        {"timedOut", "TimedOut"},
+    };
+
+    private PoolStatistics() {
+    }
+
+    static Map<String, Object> read(String dataSource) {
+        return read(ManagementFactory.getPlatformMBeanServer(), dataSource);
+    }
+
+    static Map<String, Object> read(MBeanServer server, String dataSource) {
+        Map<String, Object> pool = new LinkedHashMap<>();
+        try {
+            ObjectName name = new ObjectName(
+                "jboss.as:subsystem=datasources,data-source=" + dataSource + ",statistics=pool");
+            if (!server.isRegistered(name)) {
+                pool.put("reachable", false);
+                return pool;
+            }
+            // attribute names follow the management model; match them without regard to case
+            Map<String, String> attributes = new HashMap<>();
+            for (MBeanAttributeInfo attribute : server.getMBeanInfo(name).getAttributes()) {
+                attributes.put(attribute.getName().toLowerCase(Locale.ROOT), attribute.getName());
+            }
+            pool.put("reachable", true);
+            for (String[] figure : FIGURES) {
+                String attribute = attributes.get(figure[1].toLowerCase(Locale.ROOT));
+                if (attribute != null) {
+                    pool.put(figure[0], server.getAttribute(name, attribute));
+                }
+            }
+        } catch (JMException e) {
+            logger.debug("Could not read pool statistics of datasource {}", dataSource, e);
+            pool.put("reachable", false);
+        }
+        return pool;
+    }
+}
@@ -0,0 +1,93 @@
+package com.bloomberg.fxdeals.metrics;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The most recent repository calls that took at least the slow query threshold, newest
+ * first, with the shape of their parameters rather than their values: "String(12)",
+ * "List&lt;String&gt;[250]", "LocalDateTime". The shape is what decides the SQL text and the
+ * plan, and leaves deal data out of the admin API.
+ */
+public final class SlowQueryLog {
+
+    private final ArrayDeque<Map<String, Object>> entries = new ArrayDeque<>();
+    private volatile int capacity;
+
+    public SlowQueryLog(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public void setCapacity(int capacity) {
+        synchronized (entries) {
+            this.capacity = Math.max(1, capacity);
+            while (entries.size() > this.capacity) {
+                entries.removeLast();
+            }
+        }
+    }
+
+    public void add(String query, Object[] parameters, long nanos, long rows) {
+        Map<String, Object> entry = new LinkedHashMap<>();
+        entry.put("at", Instant.now().toString());
+        entry.put("query", query);
+        entry.put("millis", nanos / 1e6);
+        entry.put("rows", rows);
+        entry.put("parameters", shapes(parameters));
+        synchronized (entries) {
+            if (entries.size() == capacity) {
+                entries.removeLast();
+            }
+            entries.addFirst(entry);
+        }
+    }
+
+    public List<Map<String, Object>> entries() {
+        synchronized (entries) {
+            return new ArrayList<>(entries);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    static List<String> shapes(Object[] parameters) {
+        List<String> shapes = new ArrayList<>(parameters == null ? 0 : parameters.length);
+        if (parameters != null) {
+            for (Object parameter : parameters) {
+                shapes.add(shape(parameter));
+            }
+        }
+        return shapes;
+    }
+
+    /**
+     * Type and size of a parameter: length for strings, element type and count for
+     * collections, the simple class name for anything else.
+     */
+    static String shape(Object parameter) {
+        if (parameter == null) {
+            return "null";
+        }
+        if (parameter instanceof CharSequence) {
+            return "String(" + ((CharSequence) parameter).length() + ")";
+        }
+        if (parameter instanceof Collection) {
+            Collection<?> collection = (Collection<?>) parameter;
+            String type = parameter instanceof List ? "List" : parameter instanceof Set ? "Set" : "Collection";
+            Object first = collection.isEmpty() ? null : collection.iterator().next();
+            String element = first == null ? "" : "<" + first.getClass().getSimpleName() + ">";
+            return type + element + "[" + collection.size() + "]";
+        }
+        return parameter.getClass().getSimpleName();
+    }
+}
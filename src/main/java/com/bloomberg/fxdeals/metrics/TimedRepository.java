@@ -0,0 +1,20 @@
+package com.bloomberg.fxdeals.metrics;
+
+import jakarta.interceptor.InterceptorBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository whose method calls are timed in
+ * fxdeals_repository_duration_seconds, labelled by method name.
+ *
+ * @see TimedRepositoryInterceptor
+ */
+@InterceptorBinding
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimedRepository {
+}
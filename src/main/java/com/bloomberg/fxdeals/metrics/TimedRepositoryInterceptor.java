@@ -0,0 +1,71 @@
+package com.bloomberg.fxdeals.metrics;
+
+import com.bloomberg.fxdeals.jfr.RepositoryQueryEvent;
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Records the duration of every call on a {@link TimedRepository}, whether it returns
+ * or throws, commits a {@link RepositoryQueryEvent} for it when JFR is recording and
+ * the call is above the event's threshold, and passes it to {@link OrmStatistics} for
+ * the slow query log.
+ */
+@TimedRepository
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class TimedRepositoryInterceptor {
+
+    @Inject
+    OrmStatistics ormStatistics;
+
+    @AroundInvoke
+    public Object time(InvocationContext context) throws Exception {
+        RepositoryQueryEvent event = new RepositoryQueryEvent();
+        event.begin();
+        long start = System.nanoTime();
+        Object result = null;
+        try {
+            result = context.proceed();
+            return result;
+        } finally {
+            long nanos = System.nanoTime() - start;
+            Metrics.REPOSITORY_CALLS.labels(context.getMethod().getName()).record(nanos);
+            ormStatistics.record(context.getMethod().getName(), context.getParameters(), nanos, result);
+            event.end();
+            if (event.shouldCommit()) {
+                event.setQuery(context.getMethod().getName());
+                event.setRows(rows(result));
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Rows read or written, as far as the return value tells: the size of a collection,
+     * one for a present value, an update count as returned.
+     */
+    static long rows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof Boolean) {
+            return (Boolean) result ? 1 : 0;
+        }
+        if (result instanceof Integer) {
+            return (Integer) result;
+        }
+        return 1;
+    }
+}
@@ -1,76 +1,207 @@
 package com.bloomberg.fxdeals.repository;
 
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.context.RequestContext;
 import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.metrics.TimedRepository;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 @ApplicationScoped
+@TimedRepository
 public class FxDealRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(FxDealRepository.class);
+    private static final String QUERY_TIMEOUT_HINT = "jakarta.persistence.query.timeout";
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
 
     @PersistenceContext(unitName = "fxdealsPU")
-    private EntityManager entityManager;
+    EntityManager entityManager;
 
+    @PersistenceContext(unitName = "fxdealsReadPU")
+    EntityManager replicaEntityManager;
+
+    @Inject
+    ReplicaRouter replicaRouter;
+
+    // when sharding is enabled every call goes to the shards instead of fxdealsPU
+    @Inject
+    ShardedDealStore shards;
+
+    // deals moved out of the database; point lookups and duplicate checks fall back to it
+    @Inject
+    DealArchive archive;
+
+    // when enabled, inserts into fxdealsPU's database go through plain JDBC instead of persist
+    @Inject
+    JdbcDealWriter jdbcWriter;
+
+    /**
+     * Inserts the deal. A deal whose unique ID is already stored fails the insert on the
+     * unique key and is reported as a {@link DuplicateDealException}; the transaction is
+     * then marked for rollback.
+     */
     public FxDeal save(FxDeal deal) {
         logger.debug("Saving FX deal with unique ID: {}", deal.getDealUniqueId());
-        entityManager.persist(deal);
-        entityManager.flush();
+        RequestContext.checkDeadline("save");
+        try {
+            if (shards.isEnabled()) {
+                return shards.save(deal);
+            }
+            if (jdbcWriter.isEnabled()) {
+                jdbcWriter.insert(deal);
+            } else {
+                applyDeadlineToWrites();
+                entityManager.persist(deal);
+                entityManager.flush();
+            }
+        } catch (PersistenceException e) {
+            if (isUniqueViolation(e)) {
+                throw new DuplicateDealException(deal.getDealUniqueId());
+            }
+            throw e;
+        }
         logger.info("Successfully saved FX deal with ID: {} and unique ID: {}", 
                     deal.getId(), deal.getDealUniqueId());
         return deal;
     }
 
+    /**
+     * Persists a batch of deals with a single flush, or with multi-row inserts when the
+     * {@link JdbcDealWriter} is enabled.
+     */
+    public List<FxDeal> saveAll(List<FxDeal> deals) {
+        logger.debug("Saving batch of {} FX deals", deals.size());
+        RequestContext.checkDeadline("saveAll");
+        if (shards.isEnabled()) {
+            return shards.saveAll(deals);
+        }
+        if (jdbcWriter.isEnabled()) {
+            jdbcWriter.insertAll(deals);
+            logger.info("Successfully saved batch of {} FX deals", deals.size());
+            return deals;
+        }
+        applyDeadlineToWrites();
+        for (FxDeal deal : deals) {
+            entityManager.persist(deal);
+        }
+        entityManager.flush();
+        logger.info("Successfully saved batch of {} FX deals", deals.size());
+        return deals;
+    }
+
     public Optional<FxDeal> findById(Long id) {
         logger.debug("Finding FX deal by ID: {}", id);
-        FxDeal deal = entityManager.find(FxDeal.class, id);
-        return Optional.ofNullable(deal);
+        RequestContext.checkDeadline("findById");
+        Optional<FxDeal> deal;
+        if (shards.isEnabled()) {
+            deal = shards.findById(id);
+        } else {
+            long remainingMillis = RequestContext.remainingMillis();
+            deal = Optional.ofNullable(remainingMillis < 0
+                ? readEntityManager().find(FxDeal.class, id)
+                : readEntityManager().find(FxDeal.class, id, Map.of(QUERY_TIMEOUT_HINT, statementTimeout(remainingMillis))));
+        }
+        if (deal.isEmpty() && archive.isEnabled()) {
+            return archive.findById(id);
+        }
+        return deal;
     }
 
     public Optional<FxDeal> findByDealUniqueId(String dealUniqueId) {
         logger.debug("Finding FX deal by unique ID: {}", dealUniqueId);
+        RequestContext.checkDeadline("findByDealUniqueId");
+        if (shards.isEnabled()) {
+            return shards.findByDealUniqueId(dealUniqueId).or(() -> findArchived(dealUniqueId));
+        }
         try {
-            TypedQuery<FxDeal> query = entityManager.createQuery(
+            TypedQuery<FxDeal> query = readEntityManager().createQuery(
                 "SELECT f FROM FxDeal f WHERE f.dealUniqueId = :dealUniqueId", 
                 FxDeal.class
             );
             query.setParameter("dealUniqueId", dealUniqueId);
+            applyDeadline(query);
             FxDeal deal = query.getSingleResult();
             logger.debug("Found FX deal with unique ID: {}", dealUniqueId);
             return Optional.of(deal);
         } catch (NoResultException e) {
             logger.debug("No FX deal found with unique ID: {}", dealUniqueId);
-            return Optional.empty();
+            return findArchived(dealUniqueId);
         }
     }
 
     public boolean existsByDealUniqueId(String dealUniqueId) {
         logger.debug("Checking if FX deal exists with unique ID: {}", dealUniqueId);
-        TypedQuery<Long> query = entityManager.createQuery(
+        RequestContext.checkDeadline("existsByDealUniqueId");
+        if (shards.isEnabled()) {
+            return shards.existsByDealUniqueId(dealUniqueId)
+                || (archive.isEnabled() && archive.existsByDealUniqueId(dealUniqueId));
+        }
+        TypedQuery<Long> query = readEntityManager().createQuery(
             "SELECT COUNT(f) FROM FxDeal f WHERE f.dealUniqueId = :dealUniqueId", 
             Long.class
         );
         query.setParameter("dealUniqueId", dealUniqueId);
+        applyDeadline(query);
         Long count = query.getSingleResult();
-        boolean exists = count > 0;
+        boolean exists = count > 0 || (archive.isEnabled() && archive.existsByDealUniqueId(dealUniqueId));
         logger.debug("FX deal with unique ID {} exists: {}", dealUniqueId, exists);
         return exists;
     }
 
+    /**
+     * Which of the given unique IDs already exist, in one query.
+     */
+    public Set<String> findExistingDealUniqueIds(Collection<String> dealUniqueIds) {
+        logger.debug("Checking which of {} FX deal unique IDs exist", dealUniqueIds.size());
+        RequestContext.checkDeadline("findExistingDealUniqueIds");
+        if (dealUniqueIds.isEmpty()) {
+            return Set.of();
+        }
+        if (shards.isEnabled()) {
+            return withArchived(shards.findExistingDealUniqueIds(dealUniqueIds), dealUniqueIds);
+        }
+        TypedQuery<String> query = readEntityManager().createQuery(
+            "SELECT f.dealUniqueId FROM FxDeal f WHERE f.dealUniqueId IN :dealUniqueIds",
+            String.class
+        );
+        query.setParameter("dealUniqueIds", dealUniqueIds);
+        applyDeadline(query);
+        Set<String> existing = withArchived(new HashSet<>(query.getResultList()), dealUniqueIds);
+        logger.debug("{} of {} FX deal unique IDs exist", existing.size(), dealUniqueIds.size());
+        return existing;
+    }
+
     public List<FxDeal> findAll() {
         logger.debug("Retrieving all FX deals");
-        TypedQuery<FxDeal> query = entityManager.createQuery(
-            "SELECT f FROM FxDeal f ORDER BY f.dealTimestamp DESC", 
+        RequestContext.checkDeadline("findAll");
+        if (shards.isEnabled()) {
+            return shards.findAll();
+        }
+        TypedQuery<FxDeal> query = readEntityManager().createQuery(
+            "SELECT f FROM FxDeal f ORDER BY f.dealTimestamp DESC, f.id DESC", 
             FxDeal.class
         );
+        applyDeadline(query);
         List<FxDeal> deals = query.getResultList();
         logger.debug("Retrieved {} FX deals", deals.size());
         return deals;
@@ -78,12 +209,39 @@ public class FxDealRepository {
 
     public List<FxDeal> findAll(int offset, int limit) {
         logger.debug("Retrieving FX deals with offset: {} and limit: {}", offset, limit);
-        TypedQuery<FxDeal> query = entityManager.createQuery(
-            "SELECT f FROM FxDeal f ORDER BY f.dealTimestamp DESC", 
+        RequestContext.checkDeadline("findAll");
+        if (shards.isEnabled()) {
+            return shards.findAll(offset, limit);
+        }
+        TypedQuery<FxDeal> query = readEntityManager().createQuery(
+            "SELECT f FROM FxDeal f ORDER BY f.dealTimestamp DESC, f.id DESC", 
             FxDeal.class
         );
         query.setFirstResult(offset);
         query.setMaxResults(limit);
+        applyDeadline(query);
+        List<FxDeal> deals = query.getResultList();
+        logger.debug("Retrieved {} FX deals", deals.size());
+        return deals;
+    }
+
+    /**
+     * Deals with afterId &lt; id &lt; beforeId in id order: a primary-key range scan.
+     */
+    public List<FxDeal> findByIdRange(long afterId, long beforeId, int limit) {
+        logger.debug("Retrieving up to {} FX deals with ID after {} and before {}", limit, afterId, beforeId);
+        RequestContext.checkDeadline("findByIdRange");
+        if (shards.isEnabled()) {
+            return shards.findByIdRange(afterId, beforeId, limit);
+        }
+        TypedQuery<FxDeal> query = readEntityManager().createQuery(
+            "SELECT f FROM FxDeal f WHERE f.id > :afterId AND f.id < :beforeId ORDER BY f.id",
+            FxDeal.class
+        );
+        query.setParameter("afterId", afterId);
+        query.setParameter("beforeId", beforeId);
+        query.setMaxResults(limit);
+        applyDeadline(query);
         List<FxDeal> deals = query.getResultList();
         logger.debug("Retrieved {} FX deals", deals.size());
         return deals;
@@ -91,12 +249,139 @@ public class FxDealRepository {
 
     public long count() {
         logger.debug("Counting total FX deals");
-        TypedQuery<Long> query = entityManager.createQuery(
+        RequestContext.checkDeadline("count");
+        if (shards.isEnabled()) {
+            return shards.count();
+        }
+        TypedQuery<Long> query = readEntityManager().createQuery(
             "SELECT COUNT(f) FROM FxDeal f", 
             Long.class
         );
+        applyDeadline(query);
         Long count = query.getSingleResult();
         logger.debug("Total FX deals: {}", count);
         return count;
     }
+
+    /**
+     * Highest id currently visible, or 0 when the table is empty.
+     */
+    public long maxId() {
+        logger.debug("Finding highest FX deal ID");
+        RequestContext.checkDeadline("maxId");
+        if (shards.isEnabled()) {
+            return shards.maxId();
+        }
+        TypedQuery<Long> query = readEntityManager().createQuery(
+            "SELECT MAX(f.id) FROM FxDeal f",
+            Long.class
+        );
+        applyDeadline(query);
+        Long maxId = query.getSingleResult();
+        return maxId != null ? maxId : 0L;
+    }
+
+    /**
+     * Deals whose deal timestamp is before the cutoff, in id order, read from the primary.
+     */
+    public List<FxDeal> findOlderThan(LocalDateTime cutoff, int limit) {
+        logger.debug("Retrieving up to {} FX deals older than {}", limit, cutoff);
+        if (shards.isEnabled()) {
+            return shards.findOlderThan(cutoff, limit);
+        }
+        TypedQuery<FxDeal> query = entityManager.createQuery(
+            "SELECT f FROM FxDeal f WHERE f.dealTimestamp < :cutoff ORDER BY f.id",
+            FxDeal.class
+        );
+        query.setParameter("cutoff", cutoff);
+        query.setMaxResults(limit);
+        return query.getResultList();
+    }
+
+    /**
+     * @return number of deals deleted
+     */
+    public int deleteByIds(Collection<Long> ids) {
+        logger.debug("Deleting {} FX deals", ids.size());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        if (shards.isEnabled()) {
+            return shards.deleteByIds(ids);
+        }
+        int deleted = entityManager.createQuery("DELETE FROM FxDeal f WHERE f.id IN :ids")
+            .setParameter("ids", ids)
+            .executeUpdate();
+        logger.info("Deleted {} FX deals", deleted);
+        return deleted;
+    }
+
+    /**
+     * Whether the failure was caused by a unique key violation: SQLState 23505, or MySQL
+     * error 1062, which reports the generic integrity SQLState 23000.
+     */
+    static boolean isUniqueViolation(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                if ("23505".equals(sqlException.getSQLState())
+                        || sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Optional<FxDeal> findArchived(String dealUniqueId) {
+        return archive.isEnabled() ? archive.findByDealUniqueId(dealUniqueId) : Optional.empty();
+    }
+
+    private Set<String> withArchived(Set<String> existing, Collection<String> dealUniqueIds) {
+        if (archive.isEnabled() && existing.size() < dealUniqueIds.size()) {
+            Set<String> merged = new HashSet<>(existing);
+            merged.addAll(archive.findExistingDealUniqueIds(dealUniqueIds));
+            return merged;
+        }
+        return existing;
+    }
+
+    /**
+     * The replica's entity manager while the {@link ReplicaRouter} has routed the current
+     * read there, otherwise the primary's.
+     */
+    private EntityManager readEntityManager() {
+        return replicaRouter.isReplicaSelected() ? replicaEntityManager : entityManager;
+    }
+
+    private static void applyDeadline(TypedQuery<?> query) {
+        long remainingMillis = RequestContext.remainingMillis();
+        if (remainingMillis >= 0) {
+            query.setHint(QUERY_TIMEOUT_HINT, statementTimeout(remainingMillis));
+        }
+    }
+
+    /**
+     * Bounds the inserts that persist and flush run by the request's deadline, as the hint
+     * does for queries. Hibernate times insert statements from the transaction timeout of the
+     * session's JDBC coordinator, as the whole seconds left, and fails any statement once
+     * that reaches zero. One second is added so that the statements get the same rounded-up
+     * timeout as queries instead of failing with under a second left. The timeout lasts
+     * until the transaction ends.
+     */
+    private void applyDeadlineToWrites() {
+        long remainingMillis = RequestContext.remainingMillis();
+        if (remainingMillis >= 0) {
+            int seconds = (int) (statementTimeout(remainingMillis) / 1000) + 1;
+            entityManager.unwrap(SessionImplementor.class).getJdbcCoordinator().setTransactionTimeOut(seconds);
+        }
+    }
+
+    /**
+     * JDBC statement timeouts have one-second granularity, so the remaining budget is
+     * rounded up to a whole second rather than truncated to "no timeout".
+     */
+    private static long statementTimeout(long remainingMillis) {
+        return Math.max(1, (remainingMillis + 999) / 1000) * 1000;
+    }
 }
@@ -0,0 +1,197 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts deals with plain JDBC on the primary datasource, in place of JPA persist and
+ * flush, when fxdeals.jdbc-writer.enabled is set. Read once at startup.
+ *
+ * Hibernate writes an IDENTITY entity with one INSERT per deal, since it needs each
+ * generated id before it can go on, and passes it through the persistence context and
+ * the {@code @PrePersist} callback. Here a call writes its deals with multi-row INSERTs
+ * of up to fxdeals.jdbc-writer.rows-per-statement rows and reads their ids from the
+ * generated keys, which MySQL hands out consecutively to the rows of one such statement.
+ * The rows are the ones the JPA path writes: every column of {@link FxDeal}, with
+ * created_at and updated_at both set to the insert time.
+ *
+ * A batch is cut into statements whose row counts are the configured maximum or a power
+ * of two below it, so there are only a handful of distinct statements. Each is prepared
+ * once per call, and the datasource's prepared statement cache (see the Dockerfile)
+ * keeps them prepared across calls on the same pooled connection.
+ *
+ * Connections come from the datasource inside the caller's JTA transaction, as JPA's
+ * do, so the inserts commit or roll back with everything else in it. The deals written
+ * are not managed by the entity manager.
+ */
+@ApplicationScoped
+public class JdbcDealWriter {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.jdbc-writer.enabled";
+    public static final String DATASOURCE_PROPERTY = "fxdeals.jdbc-writer.datasource";
+    public static final String ROWS_PER_STATEMENT_PROPERTY = "fxdeals.jdbc-writer.rows-per-statement";
+
+    static final String COLUMNS =
+        "deal_unique_id, from_currency_iso, to_currency_iso, deal_timestamp, deal_amount, created_at, updated_at";
+
+    private static final Logger logger = LoggerFactory.getLogger(JdbcDealWriter.class);
+    private static final String DEFAULT_DATASOURCE = "java:jboss/datasources/FxDealsDS";
+    private static final int DEFAULT_ROWS_PER_STATEMENT = 64;
+
+    @Inject
+    FxDealsConfig config;
+
+    private boolean enabled;
+    private DataSource dataSource;
+    private int rowsPerStatement = DEFAULT_ROWS_PER_STATEMENT;
+
+    @PostConstruct
+    void init() {
+        if (!config.getBoolean(ENABLED_PROPERTY, false)) {
+            return;
+        }
+        start(lookup(config.getString(DATASOURCE_PROPERTY, DEFAULT_DATASOURCE)),
+              config.getInt(ROWS_PER_STATEMENT_PROPERTY, DEFAULT_ROWS_PER_STATEMENT));
+    }
+
+    void start(DataSource dataSource, int rowsPerStatement) {
+        if (rowsPerStatement < 1) {
+            throw new IllegalStateException(ROWS_PER_STATEMENT_PROPERTY + " must be positive, got " + rowsPerStatement);
+        }
+        this.dataSource = dataSource;
+        this.rowsPerStatement = rowsPerStatement;
+        this.enabled = true;
+        logger.info("JDBC deal writer enabled with up to {} rows per INSERT", rowsPerStatement);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public FxDeal insert(FxDeal deal) {
+        insertAll(List.of(deal));
+        return deal;
+    }
+
+    /**
+     * Inserts the deals in order and sets their ids, created_at and updated_at. A failed
+     * statement, for example on the unique key, is reported as a PersistenceException
+     * caused by the SQLException.
+     */
+    public List<FxDeal> insertAll(List<FxDeal> deals) {
+        if (deals.isEmpty()) {
+            return deals;
+        }
+        // the columns keep microseconds; truncating keeps the deals equal to their rows
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        for (FxDeal deal : deals) {
+            deal.setCreatedAt(now);
+            deal.setUpdatedAt(now);
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            Map<Integer, PreparedStatement> statements = new HashMap<>();
+            try {
+                int from = 0;
+                for (int rows : statementSizes(deals.size(), rowsPerStatement)) {
+                    PreparedStatement statement = statements.get(rows);
+                    if (statement == null) {
+                        statement = connection.prepareStatement(insertSql(rows), Statement.RETURN_GENERATED_KEYS);
+                        statements.put(rows, statement);
+                    }
+                    insert(statement, deals.subList(from, from + rows));
+                    from += rows;
+                }
+            } finally {
+                for (PreparedStatement statement : statements.values()) {
+                    statement.close();
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("JDBC insert of " + deals.size() + " deals failed: " + e.getMessage(), e);
+        }
+        return deals;
+    }
+
+    private static void insert(PreparedStatement statement, List<FxDeal> deals) throws SQLException {
+        int index = 1;
+        for (FxDeal deal : deals) {
+            statement.setString(index++, deal.getDealUniqueId());
+            statement.setString(index++, deal.getFromCurrencyIso());
+            statement.setString(index++, deal.getToCurrencyIso());
+            statement.setObject(index++, deal.getDealTimestamp());
+            statement.setBigDecimal(index++, deal.getDealAmount());
+            statement.setObject(index++, deal.getCreatedAt());
+            statement.setObject(index++, deal.getUpdatedAt());
+        }
+        RequestContext.checkDeadline("jdbc insert");
+        long remainingMillis = RequestContext.remainingMillis();
+        // JDBC timeouts are whole seconds; 0 clears one left from an earlier request
+        statement.setQueryTimeout(remainingMillis < 0
+            ? 0 : (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999)));
+        statement.executeUpdate();
+        int row = 0;
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            while (keys.next() && row < deals.size()) {
+                deals.get(row++).setId(keys.getLong(1));
+            }
+        }
+        if (row != deals.size()) {
+            throw new SQLException("Expected " + deals.size() + " generated keys, got " + row);
+        }
+    }
+
+    /**
+     * Row counts of the statements for a batch: as many full statements as fit, then the
+     * powers of two that make up the rest, largest first.
+     */
+    static List<Integer> statementSizes(int deals, int rowsPerStatement) {
+        List<Integer> sizes = new ArrayList<>();
+        int remaining = deals;
+        for (; remaining >= rowsPerStatement; remaining -= rowsPerStatement) {
+            sizes.add(rowsPerStatement);
+        }
+        while (remaining > 0) {
+            int rows = Integer.highestOneBit(remaining);
+            sizes.add(rows);
+            remaining -= rows;
+        }
+        return sizes;
+    }
+
+    static String insertSql(int rows) {
+        return "INSERT INTO fx_deals (" + COLUMNS + ") VALUES "
+            + String.join(", ", Collections.nCopies(rows, "(?, ?, ?, ?, ?, ?, ?)"));
+    }
+
+    private static DataSource lookup(String jndiName) {
+        try {
+            return InitialContext.doLookup(jndiName);
+        } catch (NamingException e) {
+            throw new IllegalStateException("JDBC writer datasource not found: " + jndiName, e);
+        }
+    }
+}
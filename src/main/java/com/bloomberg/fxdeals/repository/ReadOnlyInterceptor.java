@@ -0,0 +1,24 @@
+package com.bloomberg.fxdeals.repository;
+
+import jakarta.annotation.Priority;
+import jakarta.inject.Inject;
+import jakarta.interceptor.AroundInvoke;
+import jakarta.interceptor.Interceptor;
+import jakarta.interceptor.InvocationContext;
+
+/**
+ * Routes {@link ReadOnly} methods through the {@link ReplicaRouter}.
+ */
+@ReadOnly
+@Interceptor
+@Priority(Interceptor.Priority.APPLICATION)
+public class ReadOnlyInterceptor {
+
+    @Inject
+    ReplicaRouter router;
+
+    @AroundInvoke
+    public Object route(InvocationContext context) throws Exception {
+        return router.read(context::proceed);
+    }
+}
@@ -0,0 +1,96 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Connections for the fxdealsReadPU persistence unit.
+ *
+ * The unit's jta-data-source is the primary's FxDealsDS, so a server without a replica
+ * datasource still deploys the application. Only when fxdeals.replica.enabled is set
+ * does this provider look up the datasource named by fxdeals.replica.datasource and
+ * hand out its connections instead; if that name is not bound, the persistence unit,
+ * and with it the deployment, fails to start. Read once at startup.
+ */
+public class ReplicaConnectionProvider implements ConnectionProvider, Configurable {
+
+    public static final String DATASOURCE_PROPERTY = "fxdeals.replica.datasource";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaConnectionProvider.class);
+    private static final String DEFAULT_DATASOURCE = "java:jboss/datasources/FxDealsReadDS";
+
+    private DataSource dataSource;
+
+    @Override
+    public void configure(Map<String, Object> settings) {
+        FxDealsConfig config = new FxDealsConfig();
+        if (config.getBoolean(ReplicaRouter.ENABLED_PROPERTY, false)) {
+            String jndiName = config.getString(DATASOURCE_PROPERTY, DEFAULT_DATASOURCE);
+            dataSource = lookup(jndiName);
+            logger.info("Replica reads use {}", jndiName);
+            return;
+        }
+        Object primary = settings.get(AvailableSettings.DATASOURCE);
+        if (primary instanceof DataSource) {
+            dataSource = (DataSource) primary;
+        } else if (primary instanceof String) {
+            dataSource = lookup((String) primary);
+        } else {
+            throw new IllegalStateException(AvailableSettings.DATASOURCE + " is not set for the read persistence unit");
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return true;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return ConnectionProvider.class.equals(unwrapType)
+            || ReplicaConnectionProvider.class.isAssignableFrom(unwrapType)
+            || DataSource.class.isAssignableFrom(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (ConnectionProvider.class.equals(unwrapType) || ReplicaConnectionProvider.class.isAssignableFrom(unwrapType)) {
+            return (T) this;
+        }
+        if (DataSource.class.isAssignableFrom(unwrapType)) {
+            return (T) dataSource;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    private static DataSource lookup(String jndiName) {
+        try {
+            return InitialContext.doLookup(jndiName);
+        } catch (NamingException e) {
+            throw new IllegalStateException("Replica datasource not found: " + jndiName, e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Status;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Decides whether repository reads go to the primary or the read replica.
+ *
+ * Reads inside a {@link ReadOnly} method use the replica when replica routing is
+ * enabled, the replica answered the last probe, its estimated lag is within the
+ * configured maximum, no transaction is active and the calling client has not created
+ * a deal the replica may not have yet (read-your-writes). A read that fails on the
+ * replica marks it unavailable until the next successful probe and, if configured, is
+ * retried on the primary.
+ *
+ * Lag and read-your-writes are judged by {@link ReplicationHeartbeat}, a counter each
+ * probe advances on the primary in its own transaction and then reads on the replica.
+ * The probe keeps recent samples of when each heartbeat started; the lag is the age of
+ * the oldest heartbeat the replica has not applied. A replica that has applied a
+ * heartbeat has every transaction that committed before that heartbeat started, so a
+ * client's deal is visible there once a heartbeat started after its commit has arrived.
+ * Both are accurate to one probe interval.
+ */
+@ApplicationScoped
+public class ReplicaRouter {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.replica.enabled";
+    public static final String FALLBACK_PROPERTY = "fxdeals.replica.fallback-to-primary";
+    public static final String MAX_LAG_PROPERTY = "fxdeals.replica.max-lag-ms";
+    public static final String PROBE_INTERVAL_PROPERTY = "fxdeals.replica.probe-interval-ms";
+    public static final String READ_YOUR_WRITES_PROPERTY = "fxdeals.replica.read-your-writes-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouter.class);
+    private static final ThreadLocal<Boolean> REPLICA_SELECTED = new ThreadLocal<>();
+    private static final int MAX_SAMPLES = 64;
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    ReplicationHeartbeat heartbeat;
+
+    @Resource
+    TransactionSynchronizationRegistry transactions;
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
+    // client key to System.nanoTime() just after its latest deal committed
+    private final ConcurrentHashMap<String, Long> recentWrites = new ConcurrentHashMap<>();
+    // {System.nanoTime() before the heartbeat was written, heartbeat value}
+    private final ArrayDeque<long[]> primarySamples = new ArrayDeque<>();
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    private boolean enabled;
+    private boolean fallbackToPrimary;
+    private long maxLagMillis;
+    private long readYourWritesNanos;
+    private volatile boolean replicaAvailable;
+    private volatile long replicaCaughtUpNanos = Long.MIN_VALUE;
+    private volatile long lagMillis = -1;
+
+    @PostConstruct
+    void init() {
+        enabled = config.getBoolean(ENABLED_PROPERTY, false);
+        fallbackToPrimary = config.getBoolean(FALLBACK_PROPERTY, true);
+        maxLagMillis = config.getLong(MAX_LAG_PROPERTY, 5000L);
+        readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(config.getLong(READ_YOUR_WRITES_PROPERTY, 30000L));
+        if (enabled && scheduler != null) {
+            long interval = config.getLong(PROBE_INTERVAL_PROPERTY, 1000L);
+            scheduler.scheduleWithFixedDelay(this::probe, 0, interval, TimeUnit.MILLISECONDS);
+            logger.info("Read replica routing enabled (max lag {} ms, probe every {} ms)", maxLagMillis, interval);
+        }
+    }
+
+    /**
+     * True while the current thread runs a read that was routed to the replica.
+     */
+    public boolean isReplicaSelected() {
+        return REPLICA_SELECTED.get() == Boolean.TRUE;
+    }
+
+    /**
+     * Runs a read-only call against the replica or the primary. Nested calls keep the
+     * outer decision.
+     */
+    public <T> T read(Callable<T> call) throws Exception {
+        if (REPLICA_SELECTED.get() != null) {
+            return call.call();
+        }
+        boolean useReplica = shouldUseReplica();
+        REPLICA_SELECTED.set(useReplica);
+        try {
+            if (!useReplica) {
+                primaryReads.increment();
+                return call.call();
+            }
+            try {
+                T result = call.call();
+                replicaReads.increment();
+                return result;
+            } catch (PersistenceException e) {
+                markReplicaUnavailable(e);
+                if (!fallbackToPrimary) {
+                    throw e;
+                }
+                fallbacks.increment();
+                REPLICA_SELECTED.set(Boolean.FALSE);
+                return call.call();
+            }
+        } finally {
+            REPLICA_SELECTED.remove();
+        }
+    }
+
+    /**
+     * Runs a call against the primary, whatever the enclosing read chose. Used for work
+     * that must see every committed deal even when it is triggered from a read routed to
+     * the replica.
+     */
+    public <T> T primary(Supplier<T> call) {
+        Boolean previous = REPLICA_SELECTED.get();
+        REPLICA_SELECTED.set(Boolean.FALSE);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                REPLICA_SELECTED.remove();
+            } else {
+                REPLICA_SELECTED.set(previous);
+            }
+        }
+    }
+
+    void onDealCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) DealCreatedEvent event) {
+        String clientKey = RequestContext.currentClientKey();
+        if (!enabled || clientKey == null) {
+            return;
+        }
+        recentWrites.put(clientKey, System.nanoTime());
+    }
+
+    /**
+     * Advances the heartbeat on the primary, reads it back from the replica and updates
+     * availability and lag.
+     */
+    void probe() {
+        try {
+            long startNanos = System.nanoTime();
+            long primarySequence = heartbeat.advance();
+            long replicaSequence = heartbeat.replicaSequence();
+            recordProbe(startNanos, primarySequence, replicaSequence);
+        } catch (RuntimeException e) {
+            markReplicaUnavailable(e);
+        }
+    }
+
+    /**
+     * Records a heartbeat written on the primary at nowNanos and the heartbeat the
+     * replica had applied when it was read back.
+     */
+    synchronized void recordProbe(long nowNanos, long primarySequence, long replicaSequence) {
+        primarySamples.addLast(new long[] {nowNanos, primarySequence});
+        if (primarySamples.size() > MAX_SAMPLES) {
+            primarySamples.removeFirst();
+        }
+
+        long lagNanos = 0;
+        long caughtUpNanos = replicaCaughtUpNanos;
+        for (long[] sample : primarySamples) {
+            if (sample[1] > replicaSequence) {
+                if (lagNanos == 0) {
+                    lagNanos = nowNanos - sample[0];
+                }
+            } else {
+                caughtUpNanos = Math.max(caughtUpNanos, sample[0]);
+            }
+        }
+        lagMillis = TimeUnit.NANOSECONDS.toMillis(lagNanos);
+        replicaCaughtUpNanos = caughtUpNanos;
+        if (!replicaAvailable) {
+            logger.info("Read replica available (heartbeat {}, lag {} ms)", replicaSequence, lagMillis);
+        }
+        replicaAvailable = true;
+
+        recentWrites.entrySet().removeIf(entry ->
+            entry.getValue() < replicaCaughtUpNanos || nowNanos - entry.getValue() > readYourWritesNanos);
+    }
+
+    private boolean shouldUseReplica() {
+        if (!enabled || !replicaAvailable || lagMillis > maxLagMillis || transactionActive()) {
+            return false;
+        }
+        String clientKey = RequestContext.currentClientKey();
+        Long committedNanos = clientKey != null ? recentWrites.get(clientKey) : null;
+        return committedNanos == null
+            || committedNanos < replicaCaughtUpNanos
+            || System.nanoTime() - committedNanos > readYourWritesNanos;
+    }
+
+    private boolean transactionActive() {
+        return transactions != null && transactions.getTransactionStatus() != Status.STATUS_NO_TRANSACTION;
+    }
+
+    private void markReplicaUnavailable(Exception e) {
+        if (replicaAvailable) {
+            logger.warn("Read replica unavailable, reading from primary: {}", e.getMessage());
+        }
+        replicaAvailable = false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReplicaAvailable() {
+        return replicaAvailable;
+    }
+
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getReplicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+}
@@ -0,0 +1,62 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.entity.ReplicaHeartbeat;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Transactional;
+
+import java.util.List;
+
+/**
+ * Commit-ordered replication position for {@link ReplicaRouter}.
+ *
+ * Deal ids cannot serve as one: IDENTITY values are assigned when a row is inserted, not
+ * when it commits, so a replica can hold a higher id while still missing a lower one.
+ * The heartbeat row is advanced in its own transaction on the primary, and the replica
+ * applies that commit only after every commit that came before it.
+ */
+@ApplicationScoped
+public class ReplicationHeartbeat {
+
+    static final int ROW_ID = 1;
+
+    @PersistenceContext(unitName = "fxdealsPU")
+    EntityManager entityManager;
+
+    @PersistenceContext(unitName = "fxdealsReadPU")
+    EntityManager replicaEntityManager;
+
+    /**
+     * Increments the heartbeat on the primary and commits it.
+     *
+     * @return the new value
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public long advance() {
+        int updated = entityManager.createQuery(
+                "UPDATE ReplicaHeartbeat h SET h.sequence = h.sequence + 1 WHERE h.id = :id")
+            .setParameter("id", ROW_ID)
+            .executeUpdate();
+        if (updated == 0) {
+            entityManager.persist(new ReplicaHeartbeat(ROW_ID, 1L));
+            return 1L;
+        }
+        return sequence(entityManager);
+    }
+
+    /**
+     * The heartbeat the replica has applied, or 0 before the first one reaches it.
+     */
+    public long replicaSequence() {
+        return sequence(replicaEntityManager);
+    }
+
+    private static long sequence(EntityManager entityManager) {
+        List<Long> sequence = entityManager.createQuery(
+                "SELECT h.sequence FROM ReplicaHeartbeat h WHERE h.id = :id", Long.class)
+            .setParameter("id", ROW_ID)
+            .getResultList();
+        return sequence.isEmpty() ? 0L : sequence.get(0);
+    }
+}
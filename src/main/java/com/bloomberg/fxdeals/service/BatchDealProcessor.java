@@ -0,0 +1,211 @@
+package com.bloomberg.fxdeals.service;
+
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.exception.NearDuplicateDealException;
+import com.bloomberg.fxdeals.exception.ValidationException;
+import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import com.bloomberg.fxdeals.metrics.Metrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Creates large batches of deals by validating and mapping them in parallel and
+ * persisting them in order.
+ *
+ * The batch is cut into chunks of fxdeals.batch.chunk-size requests. Every chunk is
+ * submitted to a dedicated fork-join pool at once, where its requests are validated
+ * and mapped with a parallel stream, while the calling thread persists the chunks one
+ * after another through {@link FxDealService#createMapped}, each in its own
+ * transaction. Persisting chunk n therefore overlaps with the CPU work on the chunks
+ * after it, and a failed chunk does not undo the ones committed before it.
+ *
+ * A unique ID repeated within the batch is created at its first position and reported
+ * as a duplicate elsewhere, as in {@link FxDealService#createDeals}. The first position
+ * of each ID is tracked in a concurrent map updated with min(), so the result does not
+ * depend on which worker sees an ID first. Every outcome keeps the index of its request.
+ */
+@ApplicationScoped
+public class BatchDealProcessor {
+
+    public static final String PARALLELISM_PROPERTY = "fxdeals.batch.parallelism";
+    public static final String CHUNK_SIZE_PROPERTY = "fxdeals.batch.chunk-size";
+    public static final String MAX_SIZE_PROPERTY = "fxdeals.batch.max-size";
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchDealProcessor.class);
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    FxDealService dealService;
+
+    @Inject
+    FxDealMapper mapper;
+
+    @Inject
+    Validator validator;
+
+    private ForkJoinPool pool;
+    private int chunkSize;
+    private int maxSize;
+
+    @PostConstruct
+    void init() {
+        int parallelism = config.getInt(PARALLELISM_PROPERTY, 0);
+        start(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(),
+              config.getInt(CHUNK_SIZE_PROPERTY, 1000),
+              config.getInt(MAX_SIZE_PROPERTY, 100000));
+    }
+
+    void start(int parallelism, int chunkSize, int maxSize) {
+        this.pool = Threads.newForkJoinPool("fxdeals-batch", parallelism);
+        this.chunkSize = chunkSize;
+        this.maxSize = maxSize;
+        logger.info("Batch processor started with parallelism {} and chunks of {}", parallelism, chunkSize);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+            try {
+                if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+                    pool.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                pool.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns an outcome per request, in request order.
+     *
+     * @throws ValidationException if the batch is empty or larger than fxdeals.batch.max-size
+     */
+    public List<DealOutcome> process(List<FxDealRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ValidationException("Batch must contain at least one deal");
+        }
+        if (requests.size() > maxSize) {
+            throw new ValidationException("Batch must not contain more than " + maxSize + " deals");
+        }
+        logger.info("Processing batch of {} FX deals in chunks of {}", requests.size(), chunkSize);
+
+        int size = requests.size();
+        DealOutcome[] outcomes = new DealOutcome[size];
+        FxDeal[] deals = new FxDeal[size];
+        ConcurrentMap<String, Integer> firstPositions = new ConcurrentHashMap<>();
+        List<ForkJoinTask<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < size; from += chunkSize) {
+            int start = from;
+            int end = Math.min(size, from + chunkSize);
+            chunks.add(pool.submit(() -> IntStream.range(start, end).parallel()
+                .forEach(i -> prepare(requests.get(i), i, outcomes, deals, firstPositions))));
+        }
+
+        int created = 0;
+        for (int chunk = 0; chunk < chunks.size(); chunk++) {
+            chunks.get(chunk).join();
+            int start = chunk * chunkSize;
+            int end = Math.min(size, start + chunkSize);
+            // later chunks only add higher positions, so first positions in this one are final
+            List<FxDeal> accepted = new ArrayList<>(end - start);
+            List<Integer> positions = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                if (deals[i] == null) {
+                    continue;
+                }
+                if (firstPositions.get(deals[i].getDealUniqueId()) != i) {
+                    outcomes[i] = DealOutcome.duplicate(deals[i].getDealUniqueId());
+                    Metrics.DEALS_DUPLICATE.increment();
+                } else {
+                    accepted.add(deals[i]);
+                    positions.add(i);
+                }
+                deals[i] = null;
+            }
+            created += persist(requests, accepted, positions, outcomes);
+        }
+
+        logger.info("Batch of {} FX deals processed: {} created", size, created);
+        return Arrays.asList(outcomes);
+    }
+
+    private void prepare(FxDealRequest request, int position, DealOutcome[] outcomes, FxDeal[] deals,
+                         ConcurrentMap<String, Integer> firstPositions) {
+        String error = request == null ? "Deal must not be null" : DealRequestRules.check(validator, request);
+        if (error != null) {
+            outcomes[position] = DealOutcome.invalid(error);
+            Metrics.DEALS_INVALID.increment();
+            return;
+        }
+        firstPositions.merge(request.getDealUniqueId(), position, Math::min);
+        deals[position] = mapper.toEntity(request);
+    }
+
+    private int persist(List<FxDealRequest> requests, List<FxDeal> deals, List<Integer> positions,
+                        DealOutcome[] outcomes) {
+        if (deals.isEmpty()) {
+            return 0;
+        }
+        List<DealOutcome> persisted;
+        try {
+            persisted = dealService.createMapped(deals);
+        } catch (RuntimeException e) {
+            logger.warn("Chunk of {} deals failed ({}), retrying individually", deals.size(), e.getMessage());
+            persisted = new ArrayList<>(deals.size());
+            for (Integer position : positions) {
+                persisted.add(createIndividually(requests.get(position)));
+            }
+        }
+        int created = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            outcomes[positions.get(i)] = persisted.get(i);
+            if (persisted.get(i).getStatus() == DealOutcome.Status.CREATED) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    private DealOutcome createIndividually(FxDealRequest request) {
+        try {
+            return DealOutcome.created(dealService.createDeal(request));
+        } catch (DuplicateDealException e) {
+            return DealOutcome.duplicate(e.getDealUniqueId());
+        } catch (NearDuplicateDealException e) {
+            return new DealOutcome(DealOutcome.Status.DUPLICATE, null, e.getMessage());
+        } catch (ValidationException e) {
+            return DealOutcome.invalid(e.getMessage());
+        } catch (RuntimeException e) {
+            logger.error("Failed to create deal {}: {}", request.getDealUniqueId(), e.getMessage(), e);
+            return DealOutcome.error("An unexpected error occurred");
+        }
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+}
@@ -0,0 +1,37 @@
+package com.bloomberg.fxdeals.service;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validation rules for a deal request, shared by {@link FxDealService} and the offline
+ * bulk loader: the Bean Validation constraints on {@link FxDealRequest} plus a check that
+ * the two currencies differ.
+ */
+public final class DealRequestRules {
+
+    public static final String SAME_CURRENCY_MESSAGE = "From Currency and To Currency must be different";
+
+    private DealRequestRules() {
+    }
+
+    /**
+     * @return the reason the request is invalid, or null if it is valid
+     */
+    public static String check(Validator validator, FxDealRequest request) {
+        Set<ConstraintViolation<FxDealRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                .map(ConstraintViolation::getMessage)
+                .collect(Collectors.joining(", "));
+        }
+        if (request.getFromCurrencyIso().equals(request.getToCurrencyIso())) {
+            return SAME_CURRENCY_MESSAGE;
+        }
+        return null;
+    }
+}
@@ -1,22 +1,51 @@
 package com.bloomberg.fxdeals.service;
 
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.cache.LatestDealsCache;
+import com.bloomberg.fxdeals.concurrent.SingleFlight;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.context.RequestTiming;
+import com.bloomberg.fxdeals.dedup.NearDuplicateIndex;
+import com.bloomberg.fxdeals.dto.DealOutcome;
 import com.bloomberg.fxdeals.dto.FxDealRequest;
 import com.bloomberg.fxdeals.dto.FxDealResponse;
 import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
 import com.bloomberg.fxdeals.exception.DealNotFoundException;
 import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.exception.IdCursorUnsupportedException;
+import com.bloomberg.fxdeals.exception.NearDuplicateDealException;
 import com.bloomberg.fxdeals.exception.ValidationException;
+import com.bloomberg.fxdeals.export.ColumnarSnapshotWriter;
+import com.bloomberg.fxdeals.jfr.DealBatchEvent;
+import com.bloomberg.fxdeals.jfr.DealIngestEvent;
 import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import com.bloomberg.fxdeals.metrics.Counter;
+import com.bloomberg.fxdeals.metrics.Histogram;
+import com.bloomberg.fxdeals.metrics.Metrics;
 import com.bloomberg.fxdeals.repository.FxDealRepository;
+import com.bloomberg.fxdeals.repository.ReadOnly;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import com.bloomberg.fxdeals.stream.ChangeFeed;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import jakarta.transaction.Transactional;
-import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -24,6 +53,7 @@ import java.util.stream.Collectors;
 public class FxDealService {
 
     private static final Logger logger = LoggerFactory.getLogger(FxDealService.class);
+    private static final int SNAPSHOT_FETCH_SIZE = 5000;
 
     @Inject
     FxDealRepository repository;
@@ -34,42 +64,344 @@ public class FxDealService {
     @Inject
     Validator validator;
 
+    @Inject
+    LatestDealsCache latestDeals;
+
+    @Inject
+    Event<DealCreatedEvent> dealCreated;
+
+    @Inject
+    ChangeFeed changeFeed;
+
+    @Inject
+    ReplicaRouter replicaRouter;
+
+    @Inject
+    DealArchive archive;
+
+    @Inject
+    NearDuplicateIndex nearDuplicates;
+
+    // sharded ids are time-ordered per instance only, so they cannot be change-feed or snapshot cursors
+    @Inject
+    ShardedDealStore shards;
+
+    // a read routed to the primary for read-your-writes must not join a replica load
+    private final ReadLoads primaryLoads = new ReadLoads();
+    private final ReadLoads replicaLoads = new ReadLoads();
+
+    /**
+     * Creates one deal. During the startup warm-up, whose transactions are rolled back,
+     * neither the outcome counters, the stage histograms nor the DealIngest event record it.
+     */
     @Transactional
     public FxDealResponse createDeal(FxDealRequest request) {
         logger.info("Processing FX deal creation request for unique ID: {}", request.getDealUniqueId());
 
+        DealIngestEvent event = new DealIngestEvent();
+        event.begin();
+        try {
+            FxDealResponse response = create(request, event);
+            event.setOutcome("CREATED");
+            return response;
+        } catch (RuntimeException e) {
+            event.setOutcome(outcomeOf(e));
+            throw e;
+        } finally {
+            event.setDealUniqueId(request.getDealUniqueId());
+            if (!RequestContext.isWarmUp()) {
+                event.commit();
+            }
+        }
+    }
+
+    private FxDealResponse create(FxDealRequest request, DealIngestEvent event) {
+        long start = System.nanoTime();
         validateRequest(request);
+        event.setValidate(recordStage(Metrics.STAGE_VALIDATE, RequestTiming.Phase.VALIDATE, start));
 
-        if (repository.existsByDealUniqueId(request.getDealUniqueId())) {
-            logger.warn("Duplicate FX deal detected with unique ID: {}", request.getDealUniqueId());
-            throw new DuplicateDealException(request.getDealUniqueId());
+        // the unique key on deal_unique_id is the duplicate check; only the archive, which
+        // the key does not cover, is consulted before the insert
+        start = System.nanoTime();
+        boolean archived = archive.isEnabled() && archive.existsByDealUniqueId(request.getDealUniqueId());
+        event.setExistsCheck(recordStage(Metrics.STAGE_EXISTS_CHECK, RequestTiming.Phase.DEDUP, start));
+        if (archived) {
+            throw duplicate(request.getDealUniqueId());
+        }
+        start = System.nanoTime();
+        OptionalLong match = nearDuplicates.findMatch(request);
+        event.setNearDuplicateCheck(
+            recordStage(Metrics.STAGE_NEAR_DUPLICATE_CHECK, RequestTiming.Phase.DEDUP, start));
+        // a resend of a stored deal matches its own content; report it as a duplicate
+        if (match.isPresent() && repository.existsByDealUniqueId(request.getDealUniqueId())) {
+            throw duplicate(request.getDealUniqueId());
+        }
+        try {
+            checkNearDuplicate(request.getDealUniqueId(), match);
+        } catch (NearDuplicateDealException e) {
+            countOutcome(Metrics.DEALS_DUPLICATE);
+            throw e;
         }
 
+        start = System.nanoTime();
         FxDeal deal = mapper.toEntity(request);
-        FxDeal savedDeal = repository.save(deal);
+        long mapNanos = System.nanoTime() - start;
+        changeFeed.beginWrite();
+        start = System.nanoTime();
+        FxDeal savedDeal;
+        try {
+            savedDeal = repository.save(deal);
+        } catch (DuplicateDealException e) {
+            throw duplicate(request.getDealUniqueId());
+        } finally {
+            event.setSave(recordStage(Metrics.STAGE_SAVE, RequestTiming.Phase.DB_WRITE, start));
+        }
 
         logger.info("Successfully created FX deal with ID: {} and unique ID: {}", 
                     savedDeal.getId(), savedDeal.getDealUniqueId());
 
-        return mapper.toResponse(savedDeal);
+        start = System.nanoTime();
+        FxDealResponse response = mapper.toResponse(savedDeal);
+        mapNanos += System.nanoTime() - start;
+        event.setMap(mapNanos);
+        dealCreated.fire(new DealCreatedEvent(response));
+        if (!RequestContext.isWarmUp()) {
+            Metrics.STAGE_MAP.record(mapNanos);
+        }
+        countOutcome(Metrics.DEALS_CREATED);
+        return response;
+    }
+
+    /**
+     * Creates a batch of deals in one transaction with the same validation and duplicate
+     * rules as {@link #createDeal}: one existence query for the whole batch, one flush,
+     * and an outcome per request in request order. A repeated unique ID within the batch
+     * is created once and reported as a duplicate afterwards.
+     *
+     * A unique-key violation from a concurrent writer rolls back the whole batch; callers
+     * can then fall back to {@link #createDeal} per request.
+     */
+    @Transactional
+    public List<DealOutcome> createDeals(List<FxDealRequest> requests) {
+        logger.info("Processing batch of {} FX deal creation requests", requests.size());
+        DealBatchEvent event = new DealBatchEvent();
+        event.begin();
+
+        DealOutcome[] outcomes = new DealOutcome[requests.size()];
+        Map<String, Integer> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            FxDealRequest request = requests.get(i);
+            long validateStart = RequestTiming.start();
+            try {
+                validateRequest(request);
+            } catch (ValidationException e) {
+                outcomes[i] = DealOutcome.invalid(e.getMessage());
+                continue;
+            } finally {
+                RequestTiming.stop(RequestTiming.Phase.VALIDATE, validateStart);
+            }
+            long dedupStart = RequestTiming.start();
+            try {
+                checkNearDuplicate(request.getDealUniqueId(), nearDuplicates.findMatch(request));
+            } catch (NearDuplicateDealException e) {
+                outcomes[i] = new DealOutcome(DealOutcome.Status.DUPLICATE, null, e.getMessage());
+                continue;
+            } finally {
+                RequestTiming.stop(RequestTiming.Phase.DEDUP, dedupStart);
+            }
+            if (accepted.putIfAbsent(request.getDealUniqueId(), i) != null) {
+                outcomes[i] = DealOutcome.duplicate(request.getDealUniqueId());
+            }
+        }
+
+        long dedupStart = RequestTiming.start();
+        Set<String> existing = repository.findExistingDealUniqueIds(accepted.keySet());
+        RequestTiming.stop(RequestTiming.Phase.DEDUP, dedupStart);
+        List<FxDeal> deals = new ArrayList<>(accepted.size());
+        List<Integer> positions = new ArrayList<>(accepted.size());
+        for (Map.Entry<String, Integer> entry : accepted.entrySet()) {
+            if (existing.contains(entry.getKey())) {
+                logger.warn("Duplicate FX deal detected with unique ID: {}", entry.getKey());
+                outcomes[entry.getValue()] = DealOutcome.duplicate(entry.getKey());
+            } else {
+                deals.add(mapper.toEntity(requests.get(entry.getValue())));
+                positions.add(entry.getValue());
+            }
+        }
+
+        saveAll(deals, positions, outcomes);
+        commitBatchEvent(event, "createDeals", outcomes, deals.size(), countDuplicates(outcomes));
+
+        logger.info("Batch of {} FX deals processed: {} created", requests.size(), deals.size());
+        return Arrays.asList(outcomes);
+    }
+
+    /**
+     * Persists deals that the caller has already validated, mapped and deduplicated
+     * against each other, with one existence query and one flush. Returns an outcome per
+     * deal in order: created, or duplicate when the unique ID is already stored or the
+     * deal is rejected as a near-duplicate.
+     */
+    @Transactional
+    public List<DealOutcome> createMapped(List<FxDeal> deals) {
+        DealBatchEvent event = new DealBatchEvent();
+        event.begin();
+        DealOutcome[] outcomes = new DealOutcome[deals.size()];
+        long dedupStart = RequestTiming.start();
+        Set<String> existing = repository.findExistingDealUniqueIds(
+            deals.stream().map(FxDeal::getDealUniqueId).collect(Collectors.toList()));
+        List<FxDeal> fresh = new ArrayList<>(deals.size());
+        List<Integer> positions = new ArrayList<>(deals.size());
+        for (int i = 0; i < deals.size(); i++) {
+            FxDeal deal = deals.get(i);
+            String dealUniqueId = deal.getDealUniqueId();
+            if (existing.contains(dealUniqueId)) {
+                logger.warn("Duplicate FX deal detected with unique ID: {}", dealUniqueId);
+                outcomes[i] = DealOutcome.duplicate(dealUniqueId);
+                continue;
+            }
+            try {
+                checkNearDuplicate(dealUniqueId, nearDuplicates.findMatch(deal.getFromCurrencyIso(),
+                    deal.getToCurrencyIso(), deal.getDealTimestamp(), deal.getDealAmount()));
+            } catch (NearDuplicateDealException e) {
+                outcomes[i] = new DealOutcome(DealOutcome.Status.DUPLICATE, null, e.getMessage());
+                continue;
+            }
+            fresh.add(deal);
+            positions.add(i);
+        }
+        RequestTiming.stop(RequestTiming.Phase.DEDUP, dedupStart);
+        saveAll(fresh, positions, outcomes);
+        commitBatchEvent(event, "createMapped", outcomes, fresh.size(), countDuplicates(outcomes));
+        return Arrays.asList(outcomes);
+    }
+
+    private static DuplicateDealException duplicate(String dealUniqueId) {
+        logger.warn("Duplicate FX deal detected with unique ID: {}", dealUniqueId);
+        countOutcome(Metrics.DEALS_DUPLICATE);
+        return new DuplicateDealException(dealUniqueId);
+    }
+
+    /**
+     * Logs a content match against a recent deal, and refuses the create when
+     * near-duplicate rejection is enabled.
+     */
+    private void checkNearDuplicate(String dealUniqueId, OptionalLong match) {
+        if (match.isEmpty()) {
+            return;
+        }
+        if (nearDuplicates.isRejecting()) {
+            logger.warn("Rejecting FX deal {} as a near-duplicate of deal ID {}", dealUniqueId, match.getAsLong());
+            throw new NearDuplicateDealException(dealUniqueId, match.getAsLong());
+        }
+        logger.warn("FX deal {} looks like a near-duplicate of deal ID {}", dealUniqueId, match.getAsLong());
+    }
+
+    private void saveAll(List<FxDeal> deals, List<Integer> positions, DealOutcome[] outcomes) {
+        if (deals.isEmpty()) {
+            return;
+        }
+        changeFeed.beginWrite();
+        long writeStart = RequestTiming.start();
+        List<FxDeal> savedDeals = repository.saveAll(deals);
+        RequestTiming.stop(RequestTiming.Phase.DB_WRITE, writeStart);
+        for (int i = 0; i < savedDeals.size(); i++) {
+            FxDealResponse response = mapper.toResponse(savedDeals.get(i));
+            outcomes[positions.get(i)] = DealOutcome.created(response);
+            dealCreated.fire(new DealCreatedEvent(response));
+        }
+        Metrics.DEALS_CREATED.add(savedDeals.size());
+    }
+
+    /**
+     * Counted once the batch has been saved, so a batch that fails and is retried deal
+     * by deal is not counted twice.
+     */
+    private static int countDuplicates(DealOutcome[] outcomes) {
+        int duplicates = 0;
+        for (DealOutcome outcome : outcomes) {
+            if (outcome != null && outcome.getStatus() == DealOutcome.Status.DUPLICATE) {
+                duplicates++;
+            }
+        }
+        Metrics.DEALS_DUPLICATE.add(duplicates);
+        return duplicates;
+    }
+
+    private static void commitBatchEvent(DealBatchEvent event, String operation, DealOutcome[] outcomes,
+                                         int created, int duplicates) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.setOperation(operation);
+            event.setDeals(outcomes.length);
+            event.setCreated(created);
+            event.setDuplicates(duplicates);
+            event.commit();
+        }
+    }
+
+    /**
+     * Records the time since stageStart in the stage histogram, unless warming up, and the
+     * current request's timing, and returns it.
+     */
+    private static long recordStage(Histogram stage, RequestTiming.Phase phase, long stageStart) {
+        long nanos = System.nanoTime() - stageStart;
+        if (!RequestContext.isWarmUp()) {
+            stage.record(nanos);
+        }
+        RequestTiming.record(phase, nanos);
+        return nanos;
+    }
+
+    /**
+     * Counts a single create's outcome, unless it is the startup warm-up's.
+     */
+    private static void countOutcome(Counter outcome) {
+        if (!RequestContext.isWarmUp()) {
+            outcome.increment();
+        }
+    }
+
+    private static String outcomeOf(RuntimeException e) {
+        if (e instanceof DuplicateDealException) {
+            return "DUPLICATE";
+        }
+        if (e instanceof NearDuplicateDealException) {
+            return "NEAR_DUPLICATE";
+        }
+        if (e instanceof ValidationException) {
+            return "INVALID";
+        }
+        return "ERROR";
     }
 
+    @ReadOnly
     public FxDealResponse getDealById(Long id) {
         logger.debug("Retrieving FX deal by ID: {}", id);
-        FxDeal deal = repository.findById(id)
-            .orElseThrow(() -> new DealNotFoundException(id));
-        return mapper.toResponse(deal);
+        return loads().dealById.execute(id, () -> {
+            long readStart = RequestTiming.start();
+            Optional<FxDeal> found = repository.findById(id);
+            RequestTiming.stop(RequestTiming.Phase.DB_READ, readStart);
+            FxDeal deal = found.orElseThrow(() -> new DealNotFoundException(id));
+            return mapper.toResponse(deal);
+        });
     }
 
+    @ReadOnly
     public FxDealResponse getDealByUniqueId(String dealUniqueId) {
         logger.debug("Retrieving FX deal by unique ID: {}", dealUniqueId);
-        FxDeal deal = repository.findByDealUniqueId(dealUniqueId)
-            .orElseThrow(() -> new DealNotFoundException(
-                String.format("FX Deal with unique ID '%s' not found", dealUniqueId)
-            ));
-        return mapper.toResponse(deal);
+        return loads().dealByUniqueId.execute(dealUniqueId, () -> {
+            long readStart = RequestTiming.start();
+            Optional<FxDeal> found = repository.findByDealUniqueId(dealUniqueId);
+            RequestTiming.stop(RequestTiming.Phase.DB_READ, readStart);
+            FxDeal deal = found.orElseThrow(() -> new DealNotFoundException(
+                    String.format("FX Deal with unique ID '%s' not found", dealUniqueId)
+                ));
+            return mapper.toResponse(deal);
+        });
     }
 
+    @ReadOnly
     public List<FxDealResponse> getAllDeals() {
         logger.debug("Retrieving all FX deals");
         List<FxDeal> deals = repository.findAll();
@@ -78,35 +410,149 @@ public class FxDealService {
             .collect(Collectors.toList());
     }
 
+    @ReadOnly
     public List<FxDealResponse> getDeals(int offset, int limit) {
         logger.debug("Retrieving FX deals with offset: {} and limit: {}", offset, limit);
-        List<FxDeal> deals = repository.findAll(offset, limit);
+        Optional<List<FxDealResponse>> cached = latestDeals.firstPage(offset, limit);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        long pageKey = ((long) offset << 32) | (limit & 0xFFFFFFFFL);
+        // every coalesced caller gets this same list, so it must not be modifiable
+        return loads().dealPage.execute(pageKey, () -> {
+            long readStart = RequestTiming.start();
+            List<FxDeal> deals = repository.findAll(offset, limit);
+            RequestTiming.stop(RequestTiming.Phase.DB_READ, readStart);
+            return deals.stream()
+                .map(mapper::toResponse)
+                .toList();
+        });
+    }
+
+    /**
+     * Deals with an id greater than afterId, in id order. Stops below any id that may
+     * still be committing, so a consumer resuming from the last id it received never
+     * skips a deal. Not available with sharded storage.
+     *
+     * @throws IdCursorUnsupportedException when sharding is enabled
+     */
+    public List<FxDealResponse> getChangesSince(long afterId, int limit) {
+        logger.debug("Retrieving up to {} FX deals after ID: {}", limit, afterId);
+        long bound = visibleBound();
+        if (bound <= afterId + 1) {
+            return List.of();
+        }
+        long readStart = RequestTiming.start();
+        List<FxDeal> deals = repository.findByIdRange(afterId, bound, limit);
+        RequestTiming.stop(RequestTiming.Phase.DB_READ, readStart);
         return deals.stream()
             .map(mapper::toResponse)
             .collect(Collectors.toList());
     }
 
+    /**
+     * Highest id below which every deal has committed: the upper bound of a snapshot taken
+     * now, and the sinceId of the next incremental one. Not available with sharded storage.
+     *
+     * @throws IdCursorUnsupportedException when sharding is enabled
+     */
+    public long snapshotWatermark() {
+        return visibleBound() - 1;
+    }
+
+    /**
+     * Writes every deal with sinceId &lt; id &lt;= watermark, archived ones included, to out
+     * as a columnar snapshot. Database deals come first in id order, fetched in keyset
+     * batches so memory stays bounded by the batch and row group size; archived deals
+     * follow. Reading the archive last means a deal archived mid-export is never missed,
+     * though it may appear twice. Runs on the primary, since a lagging replica could leave
+     * holes below the watermark.
+     *
+     * @return number of deals written
+     */
+    public long exportSnapshot(long sinceId, long watermark, OutputStream out) throws IOException {
+        logger.info("Exporting FX deal snapshot for IDs after {} up to {}", sinceId, watermark);
+        ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(out, sinceId, watermark);
+        long afterId = sinceId;
+        while (afterId < watermark) {
+            List<FxDeal> deals = repository.findByIdRange(afterId, watermark + 1, SNAPSHOT_FETCH_SIZE);
+            for (FxDeal deal : deals) {
+                writer.write(deal);
+            }
+            if (deals.size() < SNAPSHOT_FETCH_SIZE) {
+                break;
+            }
+            afterId = deals.get(deals.size() - 1).getId();
+        }
+        try {
+            archive.scan(sinceId, watermark, deal -> {
+                try {
+                    writer.write(deal);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.finish();
+        logger.info("Exported {} FX deals in a {} byte snapshot", writer.getRowCount(), writer.getBytesWritten());
+        return writer.getRowCount();
+    }
+
+    @ReadOnly
     public long getTotalCount() {
-        return repository.count();
+        OptionalLong cached = latestDeals.totalCount();
+        if (cached.isPresent()) {
+            return cached.getAsLong();
+        }
+        long readStart = RequestTiming.start();
+        long count = repository.count();
+        RequestTiming.stop(RequestTiming.Phase.DB_READ, readStart);
+        return count;
     }
 
-    private void validateRequest(FxDealRequest request) {
-        Set<ConstraintViolation<FxDealRequest>> violations = validator.validate(request);
+    /**
+     * Number of reads answered by joining an identical in-flight load, per operation.
+     */
+    public Map<String, Long> getCoalescedReadCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        counts.put("getDealById",
+                   primaryLoads.dealById.getCoalescedCount() + replicaLoads.dealById.getCoalescedCount());
+        counts.put("getDealByUniqueId",
+                   primaryLoads.dealByUniqueId.getCoalescedCount() + replicaLoads.dealByUniqueId.getCoalescedCount());
+        counts.put("getDeals",
+                   primaryLoads.dealPage.getCoalescedCount() + replicaLoads.dealPage.getCoalescedCount());
+        return counts;
+    }
 
-        if (!violations.isEmpty()) {
-            String errorMessage = violations.stream()
-                .map(ConstraintViolation::getMessage)
-                .collect(Collectors.joining(", "));
-            
-            logger.error("Validation failed for FX deal request: {}", errorMessage);
-            throw new ValidationException(errorMessage);
+    private long visibleBound() {
+        if (shards.isEnabled()) {
+            throw new IdCursorUnsupportedException();
         }
+        changeFeed.refreshIfStale();
+        return changeFeed.visibleBound();
+    }
+
+    private ReadLoads loads() {
+        return replicaRouter.isReplicaSelected() ? replicaLoads : primaryLoads;
+    }
+
+    private void validateRequest(FxDealRequest request) {
+        String error = DealRequestRules.check(validator, request);
 
-        if (request.getFromCurrencyIso().equals(request.getToCurrencyIso())) {
-            logger.error("Invalid currency pair: From and To currencies are the same");
-            throw new ValidationException("From Currency and To Currency must be different");
+        if (error != null) {
+            logger.error("Validation failed for FX deal request: {}", error);
+            countOutcome(Metrics.DEALS_INVALID);
+            throw new ValidationException(error);
         }
 
         logger.debug("Validation successful for FX deal request");
     }
+
+    private static final class ReadLoads {
+        final SingleFlight<Long, FxDealResponse> dealById = new SingleFlight<>();
+        final SingleFlight<String, FxDealResponse> dealByUniqueId = new SingleFlight<>();
+        final SingleFlight<Long, List<FxDealResponse>> dealPage = new SingleFlight<>();
+    }
 }
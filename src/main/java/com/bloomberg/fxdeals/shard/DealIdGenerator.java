@@ -0,0 +1,86 @@
+package com.bloomberg.fxdeals.shard;
+
+/**
+ * Generates globally unique, roughly time-ordered deal IDs without coordinating with
+ * other instances or shards.
+ *
+ * An ID is a positive 63-bit number laid out as:
+ * <pre>
+ *   41 bits  milliseconds since 2024-01-01T00:00:00Z
+ *    6 bits  home shard: the shard the deal was first written to
+ *    4 bits  node: this application instance, from fxdeals.shard.node-id
+ *   12 bits  sequence within the millisecond
+ * </pre>
+ * The home shard lets a lookup by ID go straight to one shard; a deal moved by the
+ * rebalancer keeps its ID, so callers fall back to the other shards on a miss.
+ *
+ * If the clock steps backwards the generator keeps counting from the last timestamp it
+ * used, and it borrows the next millisecond when a sequence is exhausted, so it never
+ * blocks and never repeats an ID.
+ *
+ * IDs are ordered only within one instance: another instance whose clock is behind can
+ * hand out a lower ID later. They therefore cannot serve as change-feed or snapshot
+ * cursors, and FxDealService refuses both while sharding is enabled.
+ */
+public final class DealIdGenerator {
+
+    public static final long EPOCH_MILLIS = 1704067200000L;
+    public static final int MAX_SHARDS = 1 << 6;
+    public static final int MAX_NODES = 1 << 4;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 4;
+    private static final int SHARD_BITS = 6;
+    private static final int NODE_SHIFT = SEQUENCE_BITS;
+    private static final int SHARD_SHIFT = SEQUENCE_BITS + NODE_BITS;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + NODE_BITS + SHARD_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final int node;
+    private long lastMillis = -1;
+    private long sequence;
+
+    public DealIdGenerator(int node) {
+        if (node < 0 || node >= MAX_NODES) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + (MAX_NODES - 1) + ": " + node);
+        }
+        this.node = node;
+    }
+
+    public long nextId(int shard) {
+        return nextId(shard, System.currentTimeMillis());
+    }
+
+    synchronized long nextId(int shard, long nowMillis) {
+        if (shard < 0 || shard >= MAX_SHARDS) {
+            throw new IllegalArgumentException("Shard must be between 0 and " + (MAX_SHARDS - 1) + ": " + shard);
+        }
+        long millis = Math.max(nowMillis - EPOCH_MILLIS, lastMillis);
+        if (millis == lastMillis) {
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            if (sequence == 0) {
+                millis++;
+            }
+        } else {
+            sequence = 0;
+        }
+        lastMillis = millis;
+        return (millis << TIMESTAMP_SHIFT) | ((long) shard << SHARD_SHIFT) | ((long) node << NODE_SHIFT) | sequence;
+    }
+
+    /**
+     * Home shard encoded in an ID. IDs allocated before sharding decode to shard 0 for
+     * any realistic table size.
+     */
+    public static int shardOf(long id) {
+        return (int) ((id >>> SHARD_SHIFT) & (MAX_SHARDS - 1));
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> NODE_SHIFT) & (MAX_NODES - 1));
+    }
+
+    public static long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+    }
+}
@@ -0,0 +1,61 @@
+package com.bloomberg.fxdeals.shard;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Maps deal unique IDs to shards with Lamping and Veach's jump consistent hash.
+ *
+ * Growing from n to n + 1 shards moves only the keys that now belong on the new shard,
+ * about 1 / (n + 1) of them, and never moves a key between two existing shards. Shards
+ * can therefore only be added or removed at the end of the list.
+ */
+public final class JumpHash {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private JumpHash() {
+    }
+
+    /**
+     * Shard for a deal unique ID, in [0, shards).
+     */
+    public static int shardFor(String dealUniqueId, int shards) {
+        return bucket(hash(dealUniqueId), shards);
+    }
+
+    /**
+     * Jump consistent hash of a 64-bit key into [0, buckets).
+     */
+    public static int bucket(long key, int buckets) {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("Bucket count must be positive: " + buckets);
+        }
+        long bucket = -1;
+        long next = 0;
+        while (next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    /**
+     * Stable 64-bit hash of a string: FNV-1a over its UTF-8 bytes with a final avalanche,
+     * so IDs that differ only in their last characters still spread across shards.
+     */
+    public static long hash(String value) {
+        long hash = FNV_OFFSET;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
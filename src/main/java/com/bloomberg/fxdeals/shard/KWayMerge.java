@@ -0,0 +1,62 @@
+package com.bloomberg.fxdeals.shard;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges per-shard result lists that are each already sorted into one sorted list.
+ */
+final class KWayMerge {
+
+    private KWayMerge() {
+    }
+
+    /**
+     * Merges sorted runs, skips the first skip elements of the merged order and returns
+     * at most limit of the rest. Costs O((skip + limit) log k) for k runs.
+     */
+    static <T> List<T> merge(List<List<T>> runs, Comparator<? super T> order, long skip, int limit) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+            (a, b) -> order.compare(a.head(), b.head()));
+        for (List<T> run : runs) {
+            if (!run.isEmpty()) {
+                heads.add(new Cursor<>(run));
+            }
+        }
+
+        List<T> merged = new ArrayList<>(Math.min(limit, 1024));
+        long skipped = 0;
+        while (!heads.isEmpty() && merged.size() < limit) {
+            Cursor<T> cursor = heads.poll();
+            T next = cursor.head();
+            if (skipped < skip) {
+                skipped++;
+            } else {
+                merged.add(next);
+            }
+            if (cursor.advance()) {
+                heads.add(cursor);
+            }
+        }
+        return merged;
+    }
+
+    private static final class Cursor<T> {
+        private final List<T> run;
+        private int position;
+
+        Cursor(List<T> run) {
+            this.run = run;
+        }
+
+        T head() {
+            return run.get(position);
+        }
+
+        boolean advance() {
+            return ++position < run.size();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.bloomberg.fxdeals.shard;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Moves deals to the shard {@link JumpHash} assigns them after the shard count changes.
+ *
+ * Every shard is scanned in id order in batches. Deals that belong elsewhere are copied
+ * to their new shard, that copy is committed, and only then are they deleted from the
+ * old one, so a deal is never missing from both. Deals already present on the target
+ * are not copied again, so an interrupted run can simply be repeated.
+ *
+ * To add shards: append the new datasources to fxdeals.shard.datasources, set
+ * fxdeals.shard.previous-count to the old count and restart; run this tool; then reset
+ * fxdeals.shard.previous-count to 0. A single unsharded fx_deals table can be split the
+ * same way by treating it as shard 0 of a one-shard layout. Until the run finishes a
+ * deal being moved may be counted twice in listings.
+ *
+ * <pre>
+ * java -cp target/classes:mysql-connector-j.jar com.bloomberg.fxdeals.shard.ShardRebalancer \
+ *     &lt;user&gt; &lt;password&gt; &lt;shard count&gt; &lt;jdbc url of shard 0&gt; &lt;jdbc url of shard 1&gt; ...
+ * </pre>
+ * When shrinking, list the retiring shards after the ones that remain.
+ */
+public class ShardRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardRebalancer.class);
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final List<Connection> shards;
+    private final int batchSize;
+
+    public ShardRebalancer(List<Connection> shards, int batchSize) {
+        this.shards = shards;
+        this.batchSize = batchSize;
+    }
+
+    public static void main(String[] args) throws SQLException {
+        if (args.length < 4) {
+            System.err.println("Usage: ShardRebalancer <user> <password> <shard count> <jdbc url>...");
+            System.exit(2);
+        }
+        List<Connection> connections = new ArrayList<>();
+        try {
+            for (String url : Arrays.copyOfRange(args, 3, args.length)) {
+                connections.add(DriverManager.getConnection(url, args[0], args[1]));
+            }
+            long moved = new ShardRebalancer(connections, DEFAULT_BATCH_SIZE).rebalance(Integer.parseInt(args[2]));
+            System.out.printf("Moved %d deals%n", moved);
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Moves every deal whose shard under shardCount differs from the one it is on.
+     *
+     * @return number of deals moved
+     */
+    public long rebalance(int shardCount) throws SQLException {
+        if (shardCount <= 0 || shardCount > shards.size()) {
+            throw new IllegalArgumentException("Shard count must be between 1 and " + shards.size() + ": " + shardCount);
+        }
+        for (Connection shard : shards) {
+            shard.setAutoCommit(false);
+            try (Statement statement = shard.createStatement()) {
+                statement.execute(ShardedDealStore.CREATE_TABLE_SQL);
+            }
+            shard.commit();
+        }
+
+        long moved = 0;
+        for (int source = 0; source < shards.size(); source++) {
+            long movedFromSource = rebalanceShard(source, shardCount);
+            logger.info("Moved {} deals off shard {}", movedFromSource, source);
+            moved += movedFromSource;
+        }
+        return moved;
+    }
+
+    private long rebalanceShard(int source, int shardCount) throws SQLException {
+        Connection sourceShard = shards.get(source);
+        String scan = "SELECT " + ShardedDealStore.COLUMNS + " FROM fx_deals WHERE id > ? ORDER BY id LIMIT ?";
+        long moved = 0;
+        long lastId = Long.MIN_VALUE;
+        while (true) {
+            List<FxDeal> batch;
+            try (PreparedStatement statement = sourceShard.prepareStatement(scan)) {
+                statement.setLong(1, lastId);
+                statement.setInt(2, batchSize);
+                batch = ShardedDealStore.readDeals(statement);
+            }
+            sourceShard.commit();
+            if (batch.isEmpty()) {
+                return moved;
+            }
+            lastId = batch.get(batch.size() - 1).getId();
+
+            Map<Integer, List<FxDeal>> byTarget = new LinkedHashMap<>();
+            for (FxDeal deal : batch) {
+                int target = JumpHash.shardFor(deal.getDealUniqueId(), shardCount);
+                if (target != source) {
+                    byTarget.computeIfAbsent(target, ignored -> new ArrayList<>()).add(deal);
+                }
+            }
+            for (Map.Entry<Integer, List<FxDeal>> entry : byTarget.entrySet()) {
+                copy(shards.get(entry.getKey()), entry.getValue());
+                delete(sourceShard, entry.getValue());
+                moved += entry.getValue().size();
+            }
+        }
+    }
+
+    private static void copy(Connection target, List<FxDeal> deals) throws SQLException {
+        Set<Long> present = new HashSet<>();
+        try (PreparedStatement statement = target.prepareStatement(
+                "SELECT id FROM fx_deals WHERE id IN (" + placeholders(deals.size()) + ")")) {
+            for (int i = 0; i < deals.size(); i++) {
+                statement.setLong(i + 1, deals.get(i).getId());
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    present.add(resultSet.getLong(1));
+                }
+            }
+        }
+        try (PreparedStatement statement = target.prepareStatement(ShardedDealStore.INSERT_SQL)) {
+            for (FxDeal deal : deals) {
+                if (!present.contains(deal.getId())) {
+                    ShardedDealStore.bindInsert(statement, deal);
+                    statement.addBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+        target.commit();
+    }
+
+    private static void delete(Connection source, List<FxDeal> deals) throws SQLException {
+        try (PreparedStatement statement = source.prepareStatement(
+                "DELETE FROM fx_deals WHERE id IN (" + placeholders(deals.size()) + ")")) {
+            for (int i = 0; i < deals.size(); i++) {
+                statement.setLong(i + 1, deals.get(i).getId());
+            }
+            statement.executeUpdate();
+        }
+        source.commit();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,526 @@
+package com.bloomberg.fxdeals.shard;
+
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.persistence.PersistenceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores deals across several databases, each holding its own {@code fx_deals} table.
+ *
+ * A deal lives on the shard chosen by {@link JumpHash} from its unique ID, so lookups
+ * and duplicate checks by unique ID touch one shard and the unique constraint of each
+ * shard is enough to keep unique IDs unique overall. IDs come from a
+ * {@link DealIdGenerator} instead of the database. Listings and counts query every
+ * shard in parallel and merge the sorted results.
+ *
+ * While the rebalancer is moving deals after shards were added, fxdeals.shard.previous-count
+ * holds the old shard count and lookups that miss on the new shard also try the old one.
+ *
+ * Reads run on a separate thread per shard outside the caller's transaction. Writes run
+ * on the calling thread; a batch that spans shards enlists several datasources in one
+ * transaction, which needs XA datasources.
+ */
+@ApplicationScoped
+public class ShardedDealStore {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.shard.enabled";
+    public static final String DATASOURCES_PROPERTY = "fxdeals.shard.datasources";
+    public static final String NODE_ID_PROPERTY = "fxdeals.shard.node-id";
+    public static final String PREVIOUS_COUNT_PROPERTY = "fxdeals.shard.previous-count";
+    public static final String CREATE_SCHEMA_PROPERTY = "fxdeals.shard.create-schema";
+
+    public static final String CREATE_TABLE_SQL =
+        "CREATE TABLE IF NOT EXISTS fx_deals ("
+        + "id BIGINT NOT NULL PRIMARY KEY, "
+        + "deal_unique_id VARCHAR(100) NOT NULL, "
+        + "from_currency_iso VARCHAR(3) NOT NULL, "
+        + "to_currency_iso VARCHAR(3) NOT NULL, "
+        + "deal_timestamp DATETIME(6) NOT NULL, "
+        + "deal_amount DECIMAL(19,2) NOT NULL, "
+        + "created_at DATETIME(6) NOT NULL, "
+        + "updated_at DATETIME(6), "
+        + "CONSTRAINT idx_deal_unique_id UNIQUE (deal_unique_id), "
+        + "INDEX idx_deal_timestamp (deal_timestamp, id))";
+
+    static final String COLUMNS =
+        "id, deal_unique_id, from_currency_iso, to_currency_iso, deal_timestamp, deal_amount, created_at, updated_at";
+    static final String INSERT_SQL = "INSERT INTO fx_deals (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    static final int DELETE_BATCH_SIZE = 500;
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedDealStore.class);
+    private static final Comparator<FxDeal> NEWEST_FIRST =
+        Comparator.comparing(FxDeal::getDealTimestamp).thenComparing(FxDeal::getId).reversed();
+    private static final Comparator<FxDeal> ID_ORDER = Comparator.comparing(FxDeal::getId);
+
+    @Inject
+    FxDealsConfig config;
+
+    private boolean enabled;
+    private List<DataSource> shards = List.of();
+    private int previousCount;
+    private DealIdGenerator idGenerator;
+    private ExecutorService executor;
+
+    @PostConstruct
+    void init() {
+        if (!config.getBoolean(ENABLED_PROPERTY, false)) {
+            return;
+        }
+        List<DataSource> dataSources = new ArrayList<>();
+        for (String name : config.getString(DATASOURCES_PROPERTY, "").split(",")) {
+            if (!name.isBlank()) {
+                dataSources.add(lookup(name.trim()));
+            }
+        }
+        ExecutorService selected = Threads.newVirtualThreadExecutor();
+        if (selected == null) {
+            selected = Executors.newCachedThreadPool(Threads.daemonThreadFactory("fxdeals-shard"));
+        }
+        start(dataSources, config.getInt(NODE_ID_PROPERTY, 0), config.getInt(PREVIOUS_COUNT_PROPERTY, 0),
+              config.getBoolean(CREATE_SCHEMA_PROPERTY, true), selected);
+    }
+
+    void start(List<DataSource> dataSources, int nodeId, int previousCount, boolean createSchema,
+               ExecutorService executor) {
+        if (dataSources.isEmpty() || dataSources.size() > DealIdGenerator.MAX_SHARDS) {
+            throw new IllegalStateException("Sharding needs between 1 and " + DealIdGenerator.MAX_SHARDS
+                + " datasources, got " + dataSources.size());
+        }
+        if (previousCount > dataSources.size()) {
+            throw new IllegalStateException("Previous shard count " + previousCount
+                + " exceeds the " + dataSources.size() + " configured datasources");
+        }
+        this.shards = List.copyOf(dataSources);
+        this.previousCount = previousCount;
+        this.idGenerator = new DealIdGenerator(nodeId);
+        this.executor = executor;
+        if (createSchema) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                query(shard, connection -> {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute(CREATE_TABLE_SQL);
+                    }
+                    return null;
+                });
+            }
+        }
+        this.enabled = true;
+        logger.info("Sharded deal storage enabled with {} shards (node {}, previous shard count {})",
+                    shards.size(), nodeId, previousCount);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Shard a deal unique ID is written to.
+     */
+    public int shardFor(String dealUniqueId) {
+        return JumpHash.shardFor(dealUniqueId, shards.size());
+    }
+
+    public FxDeal save(FxDeal deal) {
+        saveAll(List.of(deal));
+        return deal;
+    }
+
+    /**
+     * Assigns IDs and inserts the deals, one JDBC batch per shard.
+     */
+    public List<FxDeal> saveAll(List<FxDeal> deals) {
+        Map<Integer, List<FxDeal>> byShard = new LinkedHashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (FxDeal deal : deals) {
+            int shard = shardFor(deal.getDealUniqueId());
+            deal.setId(idGenerator.nextId(shard));
+            deal.setCreatedAt(now);
+            deal.setUpdatedAt(now);
+            byShard.computeIfAbsent(shard, ignored -> new ArrayList<>()).add(deal);
+        }
+        for (Map.Entry<Integer, List<FxDeal>> entry : byShard.entrySet()) {
+            query(entry.getKey(), connection -> {
+                try (PreparedStatement statement = prepare(connection, INSERT_SQL)) {
+                    for (FxDeal deal : entry.getValue()) {
+                        bindInsert(statement, deal);
+                        statement.addBatch();
+                    }
+                    statement.executeBatch();
+                }
+                return null;
+            });
+        }
+        return deals;
+    }
+
+    /**
+     * Tries the home shard encoded in the ID first, then every other shard.
+     */
+    public Optional<FxDeal> findById(long id) {
+        int home = DealIdGenerator.shardOf(id);
+        if (home < shards.size()) {
+            Optional<FxDeal> deal = query(home, connection -> findOne(connection, "id = ?", id));
+            if (deal.isPresent()) {
+                return deal;
+            }
+        }
+        List<Callable<Optional<FxDeal>>> others = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shard != home) {
+                int target = shard;
+                others.add(() -> query(target, connection -> findOne(connection, "id = ?", id)));
+            }
+        }
+        return fanOut(others).stream().flatMap(Optional::stream).findFirst();
+    }
+
+    public Optional<FxDeal> findByDealUniqueId(String dealUniqueId) {
+        for (int shard : shardsHolding(dealUniqueId)) {
+            Optional<FxDeal> deal = query(shard, connection -> findOne(connection, "deal_unique_id = ?", dealUniqueId));
+            if (deal.isPresent()) {
+                return deal;
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean existsByDealUniqueId(String dealUniqueId) {
+        return findByDealUniqueId(dealUniqueId).isPresent();
+    }
+
+    /**
+     * Which of the given unique IDs already exist, with one query per shard involved.
+     */
+    public Set<String> findExistingDealUniqueIds(Collection<String> dealUniqueIds) {
+        Map<Integer, List<String>> byShard = new LinkedHashMap<>();
+        for (String dealUniqueId : dealUniqueIds) {
+            for (int shard : shardsHolding(dealUniqueId)) {
+                byShard.computeIfAbsent(shard, ignored -> new ArrayList<>()).add(dealUniqueId);
+            }
+        }
+        List<Callable<List<String>>> tasks = new ArrayList<>();
+        for (Map.Entry<Integer, List<String>> entry : byShard.entrySet()) {
+            tasks.add(() -> query(entry.getKey(), connection -> existingIds(connection, entry.getValue())));
+        }
+        Set<String> existing = new HashSet<>();
+        fanOut(tasks).forEach(existing::addAll);
+        return existing;
+    }
+
+    public List<FxDeal> findAll() {
+        return findAll(0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Newest first across all shards. Every shard returns its first offset + limit deals,
+     * so deep pages cost more than shallow ones.
+     */
+    public List<FxDeal> findAll(int offset, int limit) {
+        long perShard = Math.min((long) offset + limit, Integer.MAX_VALUE);
+        String sql = "SELECT " + COLUMNS + " FROM fx_deals ORDER BY deal_timestamp DESC, id DESC LIMIT ?";
+        List<List<FxDeal>> runs = onEveryShard(connection -> {
+            try (PreparedStatement statement = prepare(connection, sql)) {
+                statement.setLong(1, perShard);
+                return readDeals(statement);
+            }
+        });
+        return KWayMerge.merge(runs, NEWEST_FIRST, offset, limit);
+    }
+
+    /**
+     * Deals with afterId &lt; id &lt; beforeId in id order, merged from every shard.
+     */
+    public List<FxDeal> findByIdRange(long afterId, long beforeId, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM fx_deals WHERE id > ? AND id < ? ORDER BY id LIMIT ?";
+        List<List<FxDeal>> runs = onEveryShard(connection -> {
+            try (PreparedStatement statement = prepare(connection, sql)) {
+                statement.setLong(1, afterId);
+                statement.setLong(2, beforeId);
+                statement.setInt(3, limit);
+                return readDeals(statement);
+            }
+        });
+        return KWayMerge.merge(runs, ID_ORDER, 0, limit);
+    }
+
+    /**
+     * Deals whose deal timestamp is before the cutoff, in id order across all shards.
+     */
+    public List<FxDeal> findOlderThan(LocalDateTime cutoff, int limit) {
+        String sql = "SELECT " + COLUMNS + " FROM fx_deals WHERE deal_timestamp < ? ORDER BY id LIMIT ?";
+        List<List<FxDeal>> runs = onEveryShard(connection -> {
+            try (PreparedStatement statement = prepare(connection, sql)) {
+                statement.setObject(1, cutoff);
+                statement.setInt(2, limit);
+                return readDeals(statement);
+            }
+        });
+        return KWayMerge.merge(runs, ID_ORDER, 0, limit);
+    }
+
+    /**
+     * Deletes the deals from whichever shards hold them, on the calling thread, in
+     * statements of at most DELETE_BATCH_SIZE ids.
+     */
+    public int deleteByIds(Collection<Long> ids) {
+        List<Long> idList = new ArrayList<>(ids);
+        int deleted = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            deleted += query(shard, connection -> deleteBatches(connection, idList));
+        }
+        return deleted;
+    }
+
+    private static int deleteBatches(Connection connection, List<Long> ids) throws SQLException {
+        int deleted = 0;
+        PreparedStatement full = null;
+        try {
+            for (int from = 0; from < ids.size(); from += DELETE_BATCH_SIZE) {
+                List<Long> batch = ids.subList(from, Math.min(from + DELETE_BATCH_SIZE, ids.size()));
+                if (batch.size() < DELETE_BATCH_SIZE) {
+                    try (PreparedStatement statement = prepare(connection, deleteSql(batch.size()))) {
+                        deleted += delete(statement, batch);
+                    }
+                } else {
+                    if (full == null) {
+                        full = prepare(connection, deleteSql(DELETE_BATCH_SIZE));
+                    }
+                    deleted += delete(full, batch);
+                }
+            }
+        } finally {
+            if (full != null) {
+                full.close();
+            }
+        }
+        return deleted;
+    }
+
+    private static int delete(PreparedStatement statement, List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            statement.setLong(i + 1, ids.get(i));
+        }
+        return statement.executeUpdate();
+    }
+
+    static String deleteSql(int ids) {
+        return "DELETE FROM fx_deals WHERE id IN (" + String.join(", ", Collections.nCopies(ids, "?")) + ")";
+    }
+
+    public long count() {
+        return onEveryShard(connection -> singleLong(connection, "SELECT COUNT(*) FROM fx_deals"))
+            .stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long maxId() {
+        return onEveryShard(connection -> singleLong(connection, "SELECT COALESCE(MAX(id), 0) FROM fx_deals"))
+            .stream().mapToLong(Long::longValue).max().orElse(0L);
+    }
+
+    /**
+     * The deal's current shard, then its shard under the previous layout while a
+     * rebalance is in progress.
+     */
+    private List<Integer> shardsHolding(String dealUniqueId) {
+        int current = shardFor(dealUniqueId);
+        if (previousCount > 0) {
+            int previous = JumpHash.shardFor(dealUniqueId, previousCount);
+            if (previous != current) {
+                return List.of(current, previous);
+            }
+        }
+        return List.of(current);
+    }
+
+    private <T> List<T> onEveryShard(ShardQuery<T> shardQuery) {
+        List<Callable<T>> tasks = new ArrayList<>(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            int target = shard;
+            tasks.add(() -> query(target, shardQuery));
+        }
+        return fanOut(tasks);
+    }
+
+    /**
+     * Runs the tasks in parallel and returns their results in task order. A single task
+     * runs on the calling thread.
+     */
+    private <T> List<T> fanOut(List<Callable<T>> tasks) {
+        if (tasks.size() == 1) {
+            return Collections.singletonList(call(tasks.get(0)));
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            Callable<T> propagated = RequestContext.propagate(task);
+            futures.add(CompletableFuture.supplyAsync(() -> call(propagated), executor));
+        }
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            futures.forEach(future -> future.cancel(true));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static <T> T call(Callable<T> task) {
+        try {
+            return task.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    private <T> T query(int shard, ShardQuery<T> shardQuery) {
+        try (Connection connection = shards.get(shard).getConnection()) {
+            return shardQuery.run(connection);
+        } catch (SQLException e) {
+            throw new PersistenceException("Query on shard " + shard + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static Optional<FxDeal> findOne(Connection connection, String condition, Object value)
+            throws SQLException {
+        try (PreparedStatement statement = prepare(connection,
+                "SELECT " + COLUMNS + " FROM fx_deals WHERE " + condition)) {
+            statement.setObject(1, value);
+            List<FxDeal> deals = readDeals(statement);
+            return deals.isEmpty() ? Optional.empty() : Optional.of(deals.get(0));
+        }
+    }
+
+    private static List<String> existingIds(Connection connection, List<String> dealUniqueIds) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(dealUniqueIds.size(), "?"));
+        try (PreparedStatement statement = prepare(connection,
+                "SELECT deal_unique_id FROM fx_deals WHERE deal_unique_id IN (" + placeholders + ")")) {
+            for (int i = 0; i < dealUniqueIds.size(); i++) {
+                statement.setString(i + 1, dealUniqueIds.get(i));
+            }
+            List<String> existing = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    existing.add(resultSet.getString(1));
+                }
+            }
+            return existing;
+        }
+    }
+
+    private static long singleLong(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = prepare(connection, sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    static List<FxDeal> readDeals(PreparedStatement statement) throws SQLException {
+        List<FxDeal> deals = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                FxDeal deal = new FxDeal(
+                    resultSet.getString("deal_unique_id"),
+                    resultSet.getString("from_currency_iso"),
+                    resultSet.getString("to_currency_iso"),
+                    resultSet.getObject("deal_timestamp", LocalDateTime.class),
+                    resultSet.getBigDecimal("deal_amount"));
+                deal.setId(resultSet.getLong("id"));
+                deal.setCreatedAt(resultSet.getObject("created_at", LocalDateTime.class));
+                deal.setUpdatedAt(resultSet.getObject("updated_at", LocalDateTime.class));
+                deals.add(deal);
+            }
+        }
+        return deals;
+    }
+
+    static void bindInsert(PreparedStatement statement, FxDeal deal) throws SQLException {
+        statement.setLong(1, deal.getId());
+        statement.setString(2, deal.getDealUniqueId());
+        statement.setString(3, deal.getFromCurrencyIso());
+        statement.setString(4, deal.getToCurrencyIso());
+        statement.setObject(5, deal.getDealTimestamp());
+        statement.setBigDecimal(6, deal.getDealAmount());
+        statement.setObject(7, deal.getCreatedAt());
+        statement.setObject(8, deal.getUpdatedAt());
+    }
+
+    /**
+     * Prepares a statement whose timeout is the request's remaining budget, rounded up to
+     * whole seconds as JDBC requires.
+     */
+    private static PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        RequestContext.checkDeadline("shard query");
+        PreparedStatement statement = connection.prepareStatement(sql);
+        long remainingMillis = RequestContext.remainingMillis();
+        if (remainingMillis >= 0) {
+            statement.setQueryTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(remainingMillis + 999)));
+        }
+        return statement;
+    }
+
+    private static DataSource lookup(String jndiName) {
+        try {
+            return InitialContext.doLookup(jndiName);
+        } catch (NamingException e) {
+            throw new IllegalStateException("Shard datasource not found: " + jndiName, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ShardQuery<T> {
+        T run(Connection connection) throws SQLException;
+    }
+}
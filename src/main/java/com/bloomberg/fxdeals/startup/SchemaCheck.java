@@ -0,0 +1,77 @@
+package com.bloomberg.fxdeals.startup;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Fails the deployment when fxdeals.schema.mode is "validate" and the database lacks a
+ * bundled migration, or has one that changed after it was applied.
+ *
+ * In that mode {@link SchemaModeContributor} has Hibernate validate its mapping against
+ * the tables instead of inspecting and altering the schema at every boot; the schema
+ * comes from {@link SchemaMigrator}, run before the server starts. The default,
+ * "update", keeps Hibernate's schema update and skips this check.
+ */
+@ApplicationScoped
+public class SchemaCheck {
+
+    public static final String MODE_PROPERTY = "fxdeals.schema.mode";
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaCheck.class);
+    private static final String DATASOURCE = "java:jboss/datasources/FxDealsDS";
+
+    @Inject
+    FxDealsConfig config;
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (mode(config).equals("validate")) {
+            check(lookup(DATASOURCE), new SchemaMigrator());
+        }
+    }
+
+    /**
+     * The configured schema mode, "update" or "validate".
+     */
+    static String mode(FxDealsConfig config) {
+        String mode = config.getString(MODE_PROPERTY, "update");
+        if (!mode.equals("update") && !mode.equals("validate")) {
+            throw new IllegalStateException(MODE_PROPERTY + " must be update or validate, got " + mode);
+        }
+        return mode;
+    }
+
+    void check(DataSource dataSource, SchemaMigrator migrator) {
+        List<String> problems;
+        try (Connection connection = dataSource.getConnection()) {
+            problems = migrator.validate(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot check the schema migrations: " + e.getMessage(), e);
+        }
+        if (!problems.isEmpty()) {
+            throw new IllegalStateException("Schema does not match migrations up to V" + migrator.latestVersion()
+                                            + ": " + String.join("; ", problems)
+                                            + ". Run SchemaMigrator before starting the server.");
+        }
+        logger.info("Schema validated against migrations up to V{}", migrator.latestVersion());
+    }
+
+    private static DataSource lookup(String jndiName) {
+        try {
+            return InitialContext.doLookup(jndiName);
+        } catch (NamingException e) {
+            throw new IllegalStateException("Datasource not found: " + jndiName, e);
+        }
+    }
+}
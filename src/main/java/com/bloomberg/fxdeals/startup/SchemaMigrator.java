@@ -0,0 +1,324 @@
+package com.bloomberg.fxdeals.startup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Applies and checks the versioned schema scripts in db/migration, which replace
+ * Hibernate's hbm2ddl update when fxdeals.schema.mode is "validate" (see
+ * {@link SchemaCheck}).
+ *
+ * Scripts are named V&lt;version&gt;__&lt;description&gt;.sql and listed in version order in
+ * db/migration/migrations.txt, since a WAR's class path cannot be listed. Every applied
+ * script is recorded in {@value #HISTORY_TABLE} with a SHA-256 checksum of its text, so a
+ * script must not change once it has been applied; the next change is a new version.
+ * Statements end with a semicolon at the end of a line, and lines starting with -- are
+ * comments. MySQL commits each DDL statement on its own, so a script that fails part-way
+ * is left half applied and unrecorded, and has to be repaired by hand.
+ *
+ * On MySQL a migration holds a named lock, so instances starting together apply each
+ * script once. Scripts should keep the schema usable by the previous release, which is
+ * still serving while a restart rolls.
+ *
+ * <pre>
+ * java -cp target/loader/fxdeals-loader.jar com.bloomberg.fxdeals.startup.SchemaMigrator \
+ *     &lt;user&gt; &lt;password&gt; &lt;jdbc url&gt; [migrate|validate]
+ * </pre>
+ */
+public final class SchemaMigrator {
+
+    public static final String HISTORY_TABLE = "fxdeals_schema_history";
+
+    static final String LOCATION = "db/migration/";
+    static final String INDEX = LOCATION + "migrations.txt";
+
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final String CREATE_HISTORY_SQL =
+        "CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+        + "version INT NOT NULL PRIMARY KEY, "
+        + "description VARCHAR(200) NOT NULL, "
+        + "script VARCHAR(200) NOT NULL, "
+        + "checksum VARCHAR(64) NOT NULL, "
+        + "installed_at DATETIME(6) NOT NULL, "
+        + "execution_ms BIGINT NOT NULL)";
+    private static final String LOCK_NAME = "fxdeals_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 300;
+
+    private final List<Migration> migrations;
+
+    /**
+     * The migrations bundled with this build.
+     */
+    public SchemaMigrator() {
+        this(load(SchemaMigrator.class.getClassLoader()));
+    }
+
+    SchemaMigrator(List<Migration> migrations) {
+        for (int i = 1; i < migrations.size(); i++) {
+            if (migrations.get(i).version <= migrations.get(i - 1).version) {
+                throw new IllegalStateException("Migrations out of order: " + migrations.get(i - 1).script
+                                                + " before " + migrations.get(i).script);
+            }
+        }
+        this.migrations = List.copyOf(migrations);
+    }
+
+    public static void main(String[] args) throws Exception {
+        String command = args.length > 3 ? args[3] : "migrate";
+        if (args.length < 3 || !(command.equals("migrate") || command.equals("validate"))) {
+            System.err.println("Usage: SchemaMigrator <user> <password> <jdbc url> [migrate|validate]");
+            System.exit(2);
+        }
+        SchemaMigrator migrator = new SchemaMigrator();
+        try (Connection connection = DriverManager.getConnection(args[2], args[0], args[1])) {
+            if (command.equals("migrate")) {
+                int applied = migrator.migrate(connection);
+                System.out.println("Applied " + applied + " migration(s); schema is at V" + migrator.latestVersion());
+                return;
+            }
+            List<String> problems = migrator.validate(connection);
+            if (!problems.isEmpty()) {
+                problems.forEach(System.out::println);
+                System.exit(1);
+            }
+            System.out.println("Schema is at V" + migrator.latestVersion());
+        }
+    }
+
+    public int latestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version;
+    }
+
+    /**
+     * Applies the scripts that have not been applied yet, in version order, each in its
+     * own transaction with its history row, and returns how many it applied. Fails
+     * without applying anything if an applied script has changed since.
+     */
+    public int migrate(Connection connection) throws SQLException {
+        boolean locked = lock(connection);
+        boolean autoCommit = connection.getAutoCommit();
+        try {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_HISTORY_SQL);
+            }
+            Map<Integer, String> applied = appliedChecksums(connection);
+            List<String> changed = new ArrayList<>();
+            for (Migration migration : migrations) {
+                String checksum = applied.get(migration.version);
+                if (checksum != null && !checksum.equals(migration.checksum)) {
+                    changed.add(changedMessage(migration));
+                }
+            }
+            if (!changed.isEmpty()) {
+                throw new IllegalStateException(String.join("; ", changed));
+            }
+            int count = 0;
+            connection.setAutoCommit(false);
+            for (Migration migration : migrations) {
+                if (!applied.containsKey(migration.version)) {
+                    apply(connection, migration);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+            if (locked) {
+                unlock(connection);
+            }
+        }
+    }
+
+    /**
+     * Reasons the database does not match the bundled scripts: a script not applied, or
+     * changed after it was applied. Empty when every script is applied as bundled.
+     * Versions applied by a later release are not reported.
+     */
+    public List<String> validate(Connection connection) throws SQLException {
+        Map<Integer, String> applied;
+        try {
+            applied = appliedChecksums(connection);
+        } catch (SQLException e) {
+            return List.of(HISTORY_TABLE + " cannot be read (" + e.getMessage() + "); no migrations have been applied");
+        }
+        List<String> problems = new ArrayList<>();
+        for (Migration migration : migrations) {
+            String checksum = applied.get(migration.version);
+            if (checksum == null) {
+                problems.add(migration.script + " has not been applied");
+            } else if (!checksum.equals(migration.checksum)) {
+                problems.add(changedMessage(migration));
+            }
+        }
+        return problems;
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : statements(migration.sql)) {
+                    statement.execute(sql);
+                }
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO " + HISTORY_TABLE
+                     + " (version, description, script, checksum, installed_at, execution_ms)"
+                     + " VALUES (?, ?, ?, ?, ?, ?)")) {
+                insert.setInt(1, migration.version);
+                insert.setString(2, migration.description);
+                insert.setString(3, migration.script);
+                insert.setString(4, migration.checksum);
+                insert.setObject(5, LocalDateTime.now());
+                insert.setLong(6, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                insert.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Migration " + migration.script + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    private static Map<Integer, String> appliedChecksums(Connection connection) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT version, checksum FROM " + HISTORY_TABLE)) {
+            while (rows.next()) {
+                applied.put(rows.getInt(1), rows.getString(2));
+            }
+        }
+        return applied;
+    }
+
+    private static String changedMessage(Migration migration) {
+        return migration.script + " has changed since it was applied";
+    }
+
+    /**
+     * Takes MySQL's named lock for the migration. Other databases have no equivalent
+     * here and are not locked.
+     */
+    private static boolean lock(Connection connection) throws SQLException {
+        if (!connection.getMetaData().getDatabaseProductName().equals("MySQL")) {
+            return false;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet result = statement.executeQuery()) {
+                if (!result.next() || result.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for the schema migration lock " + LOCK_NAME);
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            statement.setString(1, LOCK_NAME);
+            statement.executeQuery().close();
+        }
+    }
+
+    /**
+     * Splits a script into statements at semicolons ending a line, dropping comment
+     * lines.
+     */
+    static List<String> statements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : sql.split("\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            if (trimmed.endsWith(";")) {
+                current.append(trimmed, 0, trimmed.length() - 1);
+                statements.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(trimmed).append('\n');
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    static List<Migration> load(ClassLoader loader) {
+        List<Migration> migrations = new ArrayList<>();
+        for (String line : read(loader, INDEX).split("\n")) {
+            String script = line.trim();
+            if (!script.isEmpty() && !script.startsWith("#")) {
+                migrations.add(Migration.of(script, read(loader, LOCATION + script)));
+            }
+        }
+        return migrations;
+    }
+
+    private static String read(ClassLoader loader, String resource) {
+        try (InputStream in = loader.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Migration resource not found: " + resource);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read migration resource " + resource, e);
+        }
+    }
+
+    static final class Migration {
+        final int version;
+        final String description;
+        final String script;
+        final String sql;
+        final String checksum;
+
+        private Migration(int version, String description, String script, String sql, String checksum) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.sql = sql;
+            this.checksum = checksum;
+        }
+
+        static Migration of(String script, String sql) {
+            Matcher name = SCRIPT_NAME.matcher(script);
+            if (!name.matches()) {
+                throw new IllegalStateException("Migration " + script + " is not named V<version>__<description>.sql");
+            }
+            return new Migration(Integer.parseInt(name.group(1)), name.group(2).replace('_', ' '),
+                                 script, sql, sha256(sql));
+        }
+
+        private static String sha256(String text) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+                return HexFormat.of().formatHex(digest);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.bloomberg.fxdeals.startup;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.service.spi.ServiceContributor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sets hibernate.hbm2ddl.auto of the persistence unit that owns the schema from
+ * fxdeals.schema.mode, read through {@link FxDealsConfig}.
+ *
+ * persistence.xml cannot take the mode from configuration itself: WildFly only expands
+ * expressions in it with spec-descriptor-property-replacement enabled, and otherwise
+ * hands the literal text to Hibernate. Hibernate applies contributors, registered in
+ * META-INF/services, to every unit it builds, so this one only acts on units that set
+ * {@link #UNIT_PROPERTY}.
+ */
+public class SchemaModeContributor implements ServiceContributor {
+
+    public static final String UNIT_PROPERTY = "fxdeals.schema.owner";
+
+    private static final Logger logger = LoggerFactory.getLogger(SchemaModeContributor.class);
+
+    @Override
+    public void contribute(StandardServiceRegistryBuilder serviceRegistryBuilder) {
+        if (!Boolean.parseBoolean(String.valueOf(serviceRegistryBuilder.getSettings().get(UNIT_PROPERTY)))) {
+            return;
+        }
+        String mode = SchemaCheck.mode(new FxDealsConfig());
+        serviceRegistryBuilder.applySetting(AvailableSettings.HBM2DDL_AUTO, mode);
+        logger.info("Schema mode {}", mode);
+    }
+}
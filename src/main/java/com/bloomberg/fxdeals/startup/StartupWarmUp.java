@@ -0,0 +1,137 @@
+package com.bloomberg.fxdeals.startup;
+
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.controller.JsonbContextResolver;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.service.FxDealService;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import jakarta.json.bind.Jsonb;
+import jakarta.transaction.UserTransaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the create and listing paths at startup, before GET /api/fx-deals/health/ready
+ * reports ready, so that the first requests after a restart find their classes loaded,
+ * the hot methods compiled and the connection pool filled instead of paying for it.
+ *
+ * Each round reads a request from JSON, creates it through FxDealService.createDeal in a
+ * transaction that is then rolled back, so nothing is stored and no after-commit
+ * observer sees it, and writes a page of deals as JSON, alternately the cached first
+ * page and a page from the database. Rounds run on a background thread until
+ * fxdeals.warmup.iterations are done or fxdeals.warmup.max-ms has passed; the server
+ * already answers requests meanwhile. Creates are left out when sharded storage is
+ * enabled, since shard writes do not go through the primary's transaction.
+ *
+ * The rounds run under {@link RequestContext#forWarmUp()}, so FxDealService leaves
+ * their creates out of the deal outcome counters, the create stage histograms and the
+ * DealIngest JFR events; repository timings and logs still include them. A round that
+ * fails ends the warm-up early with a warning; readiness does not wait for it.
+ */
+@ApplicationScoped
+public class StartupWarmUp {
+
+    public static final String ENABLED_PROPERTY = "fxdeals.warmup.enabled";
+    public static final String ITERATIONS_PROPERTY = "fxdeals.warmup.iterations";
+    public static final String MAX_MS_PROPERTY = "fxdeals.warmup.max-ms";
+
+    static final int PAGE_SIZE = 20;
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+    private static final String[][] PAIRS = {{"USD", "EUR"}, {"GBP", "JPY"}, {"EUR", "CHF"}, {"AUD", "USD"}};
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    FxDealService service;
+
+    @Inject
+    ShardedDealStore shards;
+
+    @Resource
+    UserTransaction transaction;
+
+    private final Jsonb jsonb = new JsonbContextResolver().getContext(FxDealRequest.class);
+    private volatile boolean ready;
+    private boolean enabled;
+    private int iterations;
+    private long maxMillis;
+
+    @PostConstruct
+    void init() {
+        enabled = config.getBoolean(ENABLED_PROPERTY, true);
+        iterations = config.getInt(ITERATIONS_PROPERTY, 200);
+        maxMillis = config.getLong(MAX_MS_PROPERTY, 10000);
+    }
+
+    void onStartup(@Observes @Initialized(ApplicationScoped.class) Object event) {
+        if (!enabled) {
+            ready = true;
+            return;
+        }
+        Threads.daemonThreadFactory("fxdeals-warmup").newThread(this::run).start();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Runs the warm-up on the calling thread and marks the application ready. Returns
+     * the number of rounds completed.
+     */
+    public int run() {
+        boolean creates = !shards.isEnabled();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        int rounds = 0;
+        RequestContext previous = RequestContext.current();
+        RequestContext.bind(RequestContext.forWarmUp());
+        try {
+            for (; rounds < iterations && System.nanoTime() - deadline < 0; rounds++) {
+                round(rounds, creates);
+            }
+            logger.info("Warm-up finished {} rounds in {} ms", rounds,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            logger.warn("Warm-up stopped after {} rounds: {}", rounds, e.toString());
+        } finally {
+            RequestContext.bind(previous);
+            ready = true;
+        }
+        return rounds;
+    }
+
+    private void round(int round, boolean creates) throws Exception {
+        if (creates) {
+            FxDealRequest request = jsonb.fromJson(jsonb.toJson(request(round)), FxDealRequest.class);
+            transaction.begin();
+            try {
+                jsonb.toJson(service.createDeal(request));
+            } finally {
+                transaction.rollback();
+            }
+        }
+        int offset = round % 2 == 0 ? 0 : PAGE_SIZE * (1 + round % 5);
+        jsonb.toJson(service.getDeals(offset, PAGE_SIZE));
+    }
+
+    private static FxDealRequest request(int round) {
+        String[] pair = PAIRS[round % PAIRS.length];
+        return new FxDealRequest("WARMUP-" + System.nanoTime() + "-" + round, pair[0], pair[1],
+                                 LocalDateTime.now().minusMinutes(1), BigDecimal.valueOf(987_654_321L + round, 2));
+    }
+}
@@ -0,0 +1,196 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import com.bloomberg.fxdeals.repository.FxDealRepository;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks which deal ids are safe to hand to change-feed consumers and wakes long-polling
+ * consumers when new deals commit.
+ *
+ * Auto-increment ids are allocated at insert but become visible at commit, so a deal with
+ * a higher id can be visible before one with a lower id. A consumer that advanced past
+ * the higher id would never see the lower one. Every create therefore registers itself
+ * before inserting, with the highest id known at that moment as its floor; the feed only
+ * returns ids up to the lowest floor of any open create, and never above the highest id
+ * known when the bound was taken.
+ *
+ * The highest known id rises with local commits and with a refresh of the primary's
+ * MAX(id), taken when a poll finds the last one older than the refresh interval and, while
+ * consumers are waiting, on a timer that also wakes them. That covers deals this instance
+ * never sees an event for: those created on other instances, through the TCP gateway
+ * elsewhere or by the bulk loader. Their in-flight creates cannot be registered here, so
+ * a refresh only publishes the MAX(id) read by the previous one, giving them at least an
+ * interval to commit; a create elsewhere that stays open longer can still be skipped.
+ */
+@ApplicationScoped
+public class ChangeFeed {
+
+    public static final String REFRESH_INTERVAL_PROPERTY = "fxdeals.changes.refresh-interval-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeFeed.class);
+
+    @Inject
+    FxDealsConfig config;
+
+    @Inject
+    FxDealRepository repository;
+
+    @Inject
+    ReplicaRouter replicaRouter;
+
+    @Resource
+    TransactionSynchronizationRegistry transactions;
+
+    @Resource
+    ManagedScheduledExecutorService scheduler;
+
+    private final AtomicLong highestKnownId = new AtomicLong();
+    private final AtomicLong writerIds = new AtomicLong();
+    private final ConcurrentHashMap<Long, Long> openWriters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<CompletableFuture<Boolean>, Long> waiters = new ConcurrentHashMap<>();
+    private final Object refreshLock = new Object();
+    private long refreshIntervalNanos;
+    private volatile boolean refreshed;
+    private volatile long lastRefreshNanos;
+    private long unsettledMaxId;
+
+    @PostConstruct
+    void init() {
+        long interval = config.getLong(REFRESH_INTERVAL_PROPERTY, 500L);
+        refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(interval);
+        if (scheduler != null) {
+            scheduler.scheduleWithFixedDelay(this::refreshForWaiters, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Registers the current transaction as a create in progress. Must be called before
+     * the insert; the registration ends when the transaction completes.
+     */
+    public void beginWrite() {
+        if (transactions == null || transactions.getTransactionStatus() != Status.STATUS_ACTIVE) {
+            return;
+        }
+        Long writer = writerIds.incrementAndGet();
+        openWriters.put(writer, highestKnownId.get());
+        transactions.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                openWriters.remove(writer);
+                signalWaiters();
+            }
+        });
+    }
+
+    /**
+     * Observed after commit only: an id from a create that rolls back, such as the
+     * startup warm-up's, must not raise the bound.
+     */
+    void onDealSaved(@Observes(during = TransactionPhase.AFTER_SUCCESS) DealCreatedEvent event) {
+        advance(event.getDeal().getId());
+        signalWaiters();
+    }
+
+    /**
+     * Raises the highest known id.
+     */
+    public void advance(long id) {
+        highestKnownId.accumulateAndGet(id, Math::max);
+    }
+
+    /**
+     * Reads the primary's highest id if no refresh has happened within the refresh
+     * interval. The first refresh publishes it at once; later ones publish the value read
+     * by the refresh before.
+     */
+    public void refreshIfStale() {
+        if (refreshed && System.nanoTime() - lastRefreshNanos < refreshIntervalNanos) {
+            return;
+        }
+        synchronized (refreshLock) {
+            if (refreshed && System.nanoTime() - lastRefreshNanos < refreshIntervalNanos) {
+                return;
+            }
+            long primaryMaxId = replicaRouter.primary(repository::maxId);
+            advance(refreshed ? unsettledMaxId : primaryMaxId);
+            unsettledMaxId = primaryMaxId;
+            lastRefreshNanos = System.nanoTime();
+            refreshed = true;
+        }
+        signalWaiters();
+    }
+
+    /**
+     * Exclusive upper bound on ids that can be returned without skipping a deal that
+     * is still being committed.
+     */
+    public long visibleBound() {
+        long bound = highestKnownId.get();
+        for (Long floor : openWriters.values()) {
+            bound = Math.min(bound, floor);
+        }
+        return bound + 1;
+    }
+
+    /**
+     * Returns a future completed with true when a create finishes after which ids above
+     * {@code afterId} may be visible. Callers that stop waiting should cancel it.
+     */
+    public CompletableFuture<Boolean> awaitChange(long afterId) {
+        CompletableFuture<Boolean> signal = new CompletableFuture<>();
+        waiters.put(signal, afterId);
+        signal.whenComplete((changed, error) -> waiters.remove(signal));
+        return signal;
+    }
+
+    public int getWaiterCount() {
+        return waiters.size();
+    }
+
+    private void refreshForWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        try {
+            refreshIfStale();
+        } catch (RuntimeException e) {
+            logger.warn("Change feed refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private void signalWaiters() {
+        if (waiters.isEmpty()) {
+            return;
+        }
+        long bound = visibleBound();
+        waiters.forEach((signal, afterId) -> {
+            if (afterId + 1 < bound) {
+                signal.complete(Boolean.TRUE);
+            }
+        });
+        logger.debug("Change feed signalled, visible bound {}", bound);
+    }
+}
@@ -0,0 +1,272 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import com.bloomberg.fxdeals.exception.SubscriberLimitException;
+import com.bloomberg.fxdeals.exception.ValidationException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.event.TransactionPhase;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Fans committed deals out to live subscribers.
+ *
+ * Creates only enqueue the deal and wake the dispatcher thread, which is the single
+ * writer of a {@link DealRing}. Each subscriber reads the ring from its own position on
+ * its own task, so a slow subscriber never blocks ingestion or other subscribers. A
+ * subscriber that falls more than the ring size behind is either told to resync or
+ * disconnected, depending on configuration.
+ */
+@ApplicationScoped
+public class DealBroadcaster {
+
+    public static final String BUFFER_SIZE_PROPERTY = "fxdeals.stream.buffer-size";
+    public static final String LAG_POLICY_PROPERTY = "fxdeals.stream.lag-policy";
+    public static final String MAX_SUBSCRIBERS_PROPERTY = "fxdeals.stream.max-subscribers";
+    public static final String SEND_TIMEOUT_PROPERTY = "fxdeals.stream.send-timeout-ms";
+
+    private static final Logger logger = LoggerFactory.getLogger(DealBroadcaster.class);
+
+    /** What to do with a subscriber that has been lapped by the ring. */
+    public enum LagPolicy {
+        RESYNC,
+        DROP
+    }
+
+    @Inject
+    FxDealsConfig config;
+
+    private final ConcurrentLinkedQueue<FxDealResponse> incoming = new ConcurrentLinkedQueue<>();
+    private final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder resyncs = new LongAdder();
+    private final LongAdder disconnects = new LongAdder();
+
+    private DealRing ring;
+    private LagPolicy lagPolicy;
+    private int maxSubscribers;
+    private ExecutorService drainExecutor;
+    private Thread dispatcher;
+    private volatile boolean running;
+
+    @PostConstruct
+    void init() {
+        ExecutorService executor = Threads.newVirtualThreadExecutor();
+        if (executor == null) {
+            executor = Executors.newCachedThreadPool(Threads.daemonThreadFactory("fxdeals-stream"));
+        }
+        start(config.getInt(BUFFER_SIZE_PROPERTY, 4096),
+              LagPolicy.valueOf(config.getString(LAG_POLICY_PROPERTY, "resync").toUpperCase(Locale.ROOT)),
+              config.getInt(MAX_SUBSCRIBERS_PROPERTY, 2000),
+              executor);
+    }
+
+    void start(int bufferSize, LagPolicy lagPolicy, int maxSubscribers, ExecutorService drainExecutor) {
+        this.ring = new DealRing(bufferSize);
+        this.lagPolicy = lagPolicy;
+        this.maxSubscribers = maxSubscribers;
+        this.drainExecutor = drainExecutor;
+        this.running = true;
+        this.dispatcher = new Thread(this::dispatch, "fxdeals-stream-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+        logger.info("Deal broadcaster started (buffer {}, lag policy {})", bufferSize, lagPolicy);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        if (dispatcher != null) {
+            LockSupport.unpark(dispatcher);
+        }
+        for (Subscription subscription : subscriptions) {
+            remove(subscription);
+        }
+        if (drainExecutor != null) {
+            drainExecutor.shutdownNow();
+        }
+    }
+
+    void onDealCreated(@Observes(during = TransactionPhase.AFTER_SUCCESS) DealCreatedEvent event) {
+        publish(event.getDeal());
+    }
+
+    /**
+     * Queues a committed deal for delivery. Never blocks.
+     */
+    public void publish(FxDealResponse deal) {
+        incoming.offer(deal);
+        LockSupport.unpark(dispatcher);
+    }
+
+    /**
+     * Registers a subscriber for deals committed from now on.
+     *
+     * @param currencyPairs pairs such as "USD/EUR" or "USDEUR" to receive, or null for all
+     * @throws SubscriberLimitException if the subscriber limit has been reached
+     */
+    public void subscribe(DealSink sink, Set<String> currencyPairs) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new SubscriberLimitException(maxSubscribers);
+        }
+        subscriptions.add(new Subscription(sink, currencyPairs, ring.lastPublished() + 1));
+        logger.debug("Deal stream subscriber added ({} active)", subscriptions.size());
+    }
+
+    public long getSendTimeoutMillis() {
+        return config.getLong(SEND_TIMEOUT_PROPERTY, 5000L);
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    public long getPublishedCount() {
+        return published.sum();
+    }
+
+    public long getResyncCount() {
+        return resyncs.sum();
+    }
+
+    public long getDisconnectCount() {
+        return disconnects.sum();
+    }
+
+    /**
+     * Parses a comma-separated list of currency pairs ("USD/EUR,GBPJPY") into the form
+     * used for matching. Returns null for an empty list, meaning all pairs.
+     */
+    public static Set<String> parseCurrencyPairs(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        Set<String> pairs = new HashSet<>();
+        for (String token : value.split(",")) {
+            String pair = token.replace("/", "").trim().toUpperCase(Locale.ROOT);
+            if (!pair.matches("[A-Z]{6}")) {
+                throw new ValidationException("Invalid currency pair '" + token.trim() + "', expected e.g. USD/EUR");
+            }
+            pairs.add(pair);
+        }
+        return pairs;
+    }
+
+    private void dispatch() {
+        while (running) {
+            FxDealResponse deal = incoming.poll();
+            if (deal == null) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+                continue;
+            }
+            do {
+                ring.publish(deal);
+                published.increment();
+                deal = incoming.poll();
+            } while (deal != null);
+
+            for (Subscription subscription : subscriptions) {
+                schedule(subscription);
+            }
+        }
+    }
+
+    private void schedule(Subscription subscription) {
+        if (!subscription.closed && subscription.scheduled.compareAndSet(false, true)) {
+            drainExecutor.execute(() -> drain(subscription));
+        }
+    }
+
+    private void drain(Subscription subscription) {
+        try {
+            deliver(subscription);
+        } catch (RuntimeException e) {
+            logger.warn("Deal stream subscriber failed: {}", e.getMessage());
+            remove(subscription);
+        } finally {
+            subscription.scheduled.set(false);
+        }
+        // a publish may have happened after the last check and found us still scheduled
+        if (!subscription.closed && subscription.cursor <= ring.lastPublished()) {
+            schedule(subscription);
+        }
+    }
+
+    private void deliver(Subscription subscription) {
+        long last = ring.lastPublished();
+        while (subscription.cursor <= last && !subscription.closed) {
+            long sequence = subscription.cursor;
+            FxDealResponse deal = last - sequence < ring.capacity() ? ring.read(sequence) : null;
+
+            if (deal == null) {
+                if (lagPolicy == LagPolicy.DROP) {
+                    logger.warn("Disconnecting deal stream subscriber that fell behind at sequence {}", sequence);
+                    remove(subscription);
+                    return;
+                }
+                long resumeAt = ring.lastPublished() + 1;
+                resyncs.increment();
+                if (!subscription.sink.resync(sequence, resumeAt)) {
+                    remove(subscription);
+                    return;
+                }
+                subscription.cursor = resumeAt;
+                last = ring.lastPublished();
+                continue;
+            }
+
+            if (subscription.matches(deal) && !subscription.sink.send(sequence, deal)) {
+                remove(subscription);
+                return;
+            }
+            subscription.cursor = sequence + 1;
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            subscription.closed = true;
+            disconnects.increment();
+            subscription.sink.close();
+            logger.debug("Deal stream subscriber removed ({} active)", subscriptions.size());
+        }
+    }
+
+    private static final class Subscription {
+        final DealSink sink;
+        final Set<String> currencyPairs;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean closed;
+        long cursor;
+
+        Subscription(DealSink sink, Set<String> currencyPairs, long cursor) {
+            this.sink = sink;
+            this.currencyPairs = currencyPairs;
+            this.cursor = cursor;
+        }
+
+        boolean matches(FxDealResponse deal) {
+            return currencyPairs == null
+                || currencyPairs.contains(deal.getFromCurrencyIso() + deal.getToCurrencyIso());
+        }
+    }
+}
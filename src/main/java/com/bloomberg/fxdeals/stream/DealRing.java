@@ -0,0 +1,63 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size ring of recently committed deals with a single writer and any number of
+ * readers, each tracking its own position.
+ *
+ * Every slot records the sequence it was written for, so a reader that has been lapped
+ * by the writer can detect that the slot no longer holds the deal it asked for.
+ */
+final class DealRing {
+
+    private final AtomicReferenceArray<Slot> slots;
+    private final int mask;
+    private volatile long lastPublished = -1;
+
+    DealRing(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Appends a deal. Must only be called from the writer thread.
+     */
+    long publish(FxDealResponse deal) {
+        long sequence = lastPublished + 1;
+        slots.set((int) (sequence & mask), new Slot(sequence, deal));
+        lastPublished = sequence;
+        return sequence;
+    }
+
+    long lastPublished() {
+        return lastPublished;
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the deal for a published sequence, or null if it has been overwritten.
+     */
+    FxDealResponse read(long sequence) {
+        Slot slot = slots.get((int) (sequence & mask));
+        return slot != null && slot.sequence == sequence ? slot.deal : null;
+    }
+
+    private static final class Slot {
+        final long sequence;
+        final FxDealResponse deal;
+
+        Slot(long sequence, FxDealResponse deal) {
+            this.sequence = sequence;
+            this.deal = deal;
+        }
+    }
+}
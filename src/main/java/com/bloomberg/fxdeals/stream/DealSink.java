@@ -0,0 +1,29 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+
+/**
+ * Destination of a live deal subscription.
+ *
+ * Calls for one subscriber are never concurrent, but they may block: each subscriber
+ * is drained on its own task, so a slow sink only delays itself.
+ */
+public interface DealSink {
+
+    /**
+     * Delivers a deal.
+     *
+     * @return false if the subscriber is gone and should be removed
+     */
+    boolean send(long sequence, FxDealResponse deal);
+
+    /**
+     * Tells the subscriber that it fell behind and missed deals; it should reload its
+     * state (for example from {@code GET /api/fx-deals}) before continuing.
+     *
+     * @return false if the subscriber is gone and should be removed
+     */
+    boolean resync(long missedFrom, long resumeAt);
+
+    void close();
+}
@@ -0,0 +1,80 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Delivers deals to a Server-Sent Events connection as "deal" events (JSON data, the
+ * ring sequence as event id) and lag notifications as "resync" events.
+ */
+public class SseDealSink implements DealSink {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseDealSink.class);
+
+    private final SseEventSink eventSink;
+    private final Sse sse;
+    private final long sendTimeoutMillis;
+
+    public SseDealSink(SseEventSink eventSink, Sse sse, long sendTimeoutMillis) {
+        this.eventSink = eventSink;
+        this.sse = sse;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+    }
+
+    @Override
+    public boolean send(long sequence, FxDealResponse deal) {
+        OutboundSseEvent event = sse.newEventBuilder()
+            .name("deal")
+            .id(Long.toString(sequence))
+            .mediaType(MediaType.APPLICATION_JSON_TYPE)
+            .data(FxDealResponse.class, deal)
+            .build();
+        return deliver(event);
+    }
+
+    @Override
+    public boolean resync(long missedFrom, long resumeAt) {
+        OutboundSseEvent event = sse.newEventBuilder()
+            .name("resync")
+            .id(Long.toString(resumeAt))
+            .data(String.class, "Missed deals from sequence " + missedFrom + "; reload and continue")
+            .build();
+        return deliver(event);
+    }
+
+    @Override
+    public void close() {
+        try {
+            eventSink.close();
+        } catch (RuntimeException e) {
+            logger.debug("Error closing SSE sink: {}", e.getMessage());
+        }
+    }
+
+    private boolean deliver(OutboundSseEvent event) {
+        if (eventSink.isClosed()) {
+            return false;
+        }
+        CompletionStage<?> sent = eventSink.send(event);
+        try {
+            sent.toCompletableFuture().get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            logger.debug("SSE delivery failed: {}", e.toString());
+            return false;
+        }
+    }
+}
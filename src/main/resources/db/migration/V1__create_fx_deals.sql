@@ -0,0 +1,15 @@
+-- The fx_deals table as Hibernate maps FxDeal. IF NOT EXISTS lets a database whose
+-- table was created by hbm2ddl update be brought under the migrations unchanged.
+CREATE TABLE IF NOT EXISTS fx_deals (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    deal_unique_id VARCHAR(100) NOT NULL,
+    from_currency_iso VARCHAR(3) NOT NULL,
+    to_currency_iso VARCHAR(3) NOT NULL,
+    deal_timestamp DATETIME(6) NOT NULL,
+    deal_amount DECIMAL(19,2) NOT NULL,
+    created_at DATETIME(6) NOT NULL,
+    updated_at DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT idx_deal_unique_id UNIQUE (deal_unique_id),
+    INDEX idx_deal_timestamp (deal_timestamp)
+);
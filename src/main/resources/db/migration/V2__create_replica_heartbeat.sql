@@ -0,0 +1,6 @@
+-- The counter ReplicaRouter advances on the primary and reads back from the replica.
+CREATE TABLE IF NOT EXISTS fxdeals_replica_heartbeat (
+    id INT NOT NULL,
+    seq BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
@@ -0,0 +1,83 @@
+package com.bloomberg.fxdeals.admission;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AdmissionControl.
+ */
+class AdmissionControlTest {
+
+    private AdmissionControl control;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, String> properties = Map.of(
+            "fxdeals.ratelimit.read.per-second", "1",
+            "fxdeals.ratelimit.read.burst", "2",
+            "fxdeals.ratelimit.max-clients", "2");
+        properties.forEach(System::setProperty);
+        try {
+            control = new AdmissionControl();
+            control.config = new FxDealsConfig();
+        } finally {
+            properties.keySet().forEach(System::clearProperty);
+        }
+        // settings, and with them the overflow buckets, are created on first use
+        assertEquals(0, control.getTrackedClients());
+        now = System.nanoTime();
+    }
+
+    @Test
+    void testAdmit_EachClientHasItsOwnBudget() {
+        assertEquals(AdmissionControl.Decision.ADMITTED, admit("a"));
+        assertEquals(AdmissionControl.Decision.ADMITTED, admit("a"));
+        assertEquals(AdmissionControl.Decision.RATE_LIMITED, admit("a"));
+        assertEquals(AdmissionControl.Decision.ADMITTED, admit("b"));
+    }
+
+    @Test
+    void testAdmit_NewKeysBeyondMaxClientsShareOneBucket() {
+        admit("a");
+        admit("b");
+
+        assertEquals(AdmissionControl.Decision.ADMITTED, admit("new-1"));
+        assertEquals(AdmissionControl.Decision.ADMITTED, admit("new-2"));
+        assertEquals(AdmissionControl.Decision.RATE_LIMITED, admit("new-3"));
+
+        assertEquals(2, control.getTrackedClients());
+        assertEquals(3, control.getOverflowCount());
+    }
+
+    @Test
+    void testSweep_DropsOnlyRefilledBuckets() {
+        admit("a");
+        admit("a");
+        admit("b");
+
+        control.sweep(now);
+        assertEquals(2, control.getTrackedClients());
+
+        control.sweep(now + TimeUnit.SECONDS.toNanos(1) + 1);
+        assertEquals(1, control.getTrackedClients());
+
+        control.sweep(now + TimeUnit.SECONDS.toNanos(2) + 1);
+        assertEquals(0, control.getTrackedClients());
+        assertEquals(AdmissionControl.Decision.ADMITTED, admit("c"));
+    }
+
+    private AdmissionControl.Decision admit(String client) {
+        AdmissionControl.Decision decision = control.admit(client, false, now, new long[1]);
+        if (decision == AdmissionControl.Decision.ADMITTED) {
+            control.release(1_000_000L);
+        }
+        return decision;
+    }
+}
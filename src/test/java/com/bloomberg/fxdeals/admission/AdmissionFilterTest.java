@@ -0,0 +1,96 @@
+package com.bloomberg.fxdeals.admission;
+
+import com.bloomberg.fxdeals.context.RequestContext;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.HttpMethod;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.core.UriInfo;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for AdmissionFilter.
+ */
+@ExtendWith(MockitoExtension.class)
+class AdmissionFilterTest {
+
+    @Mock
+    private AdmissionControl admissionControl;
+
+    @Mock
+    private ContainerRequestContext requestContext;
+
+    @Mock
+    private UriInfo uriInfo;
+
+    @Mock
+    private SecurityContext security;
+
+    private AdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new AdmissionFilter();
+        filter.admissionControl = admissionControl;
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void testPriority_RunsAfterAuthenticationAndAuthorization() {
+        int priority = AdmissionFilter.class.getAnnotation(Priority.class).value();
+
+        assertTrue(priority > Priorities.AUTHENTICATION);
+        assertTrue(priority > Priorities.AUTHORIZATION);
+    }
+
+    @Test
+    void testFilter_KeysByPrincipalSetAfterDeadlineFilter() {
+        RequestContext.bind(RequestContext.forClient("10.0.0.9").withDeadline(1_000_000_000L));
+        givenListingRequest();
+        when(security.getUserPrincipal()).thenReturn(() -> "alice");
+
+        filter.filter(requestContext);
+
+        verify(admissionControl).admit(eq("user:alice"), eq(false), anyLong(), any());
+        assertEquals("user:alice", RequestContext.currentClientKey());
+        assertTrue(RequestContext.current().hasDeadline());
+    }
+
+    @Test
+    void testFilter_WithoutPrincipalKeepsTheBoundKey() {
+        RequestContext bound = RequestContext.forClient("10.0.0.9");
+        RequestContext.bind(bound);
+        givenListingRequest();
+
+        filter.filter(requestContext);
+
+        verify(admissionControl).admit(eq("10.0.0.9"), eq(false), anyLong(), any());
+        assertSame(bound, RequestContext.current());
+    }
+
+    private void givenListingRequest() {
+        when(requestContext.getUriInfo()).thenReturn(uriInfo);
+        when(uriInfo.getPath()).thenReturn("/api/fx-deals");
+        when(requestContext.getMethod()).thenReturn(HttpMethod.GET);
+        when(requestContext.getSecurityContext()).thenReturn(security);
+        when(admissionControl.admit(any(), anyBoolean(), anyLong(), any()))
+            .thenReturn(AdmissionControl.Decision.ADMITTED);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bloomberg.fxdeals.admission;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the per-request cost of an admission decision. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class AdmissionOverheadBenchmark {
+
+    private static final int ITERATIONS = 5_000_000;
+
+    @Test
+    void benchmarkAdmitAndRelease() {
+        System.setProperty("fxdeals.ratelimit.read.per-second", "1000000000");
+        System.setProperty("fxdeals.ratelimit.read.burst", "1000000000");
+        AdmissionControl control = new AdmissionControl();
+        control.config = new FxDealsConfig();
+        System.clearProperty("fxdeals.ratelimit.read.per-second");
+        System.clearProperty("fxdeals.ratelimit.read.burst");
+
+        long[] retryAfter = new long[1];
+        String[] clients = {"client-a", "client-b", "client-c", "client-d"};
+
+        // warm up
+        run(control, clients, retryAfter, ITERATIONS);
+
+        long start = System.nanoTime();
+        int admitted = run(control, clients, retryAfter, ITERATIONS);
+        double nanosPerRequest = (System.nanoTime() - start) / (double) ITERATIONS;
+
+        System.out.printf("Admission control: %.1f ns/request (%d admitted)%n", nanosPerRequest, admitted);
+        assertEquals(ITERATIONS, admitted);
+        assertTrue(nanosPerRequest < 1000, "admission overhead " + nanosPerRequest + " ns/request");
+    }
+
+    private static int run(AdmissionControl control, String[] clients, long[] retryAfter, int iterations) {
+        int admitted = 0;
+        for (int i = 0; i < iterations; i++) {
+            long now = System.nanoTime();
+            if (control.admit(clients[i & 3], false, now, retryAfter) == AdmissionControl.Decision.ADMITTED) {
+                admitted++;
+                control.release(1_000_000L);
+            }
+        }
+        return admitted;
+    }
+}
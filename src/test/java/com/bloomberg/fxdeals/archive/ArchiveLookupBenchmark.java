@@ -0,0 +1,79 @@
+package com.bloomberg.fxdeals.archive;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures archive lookup latency over 1,000,000 archived deals in 20 segments.
+ * Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class ArchiveLookupBenchmark {
+
+    private static final int SEGMENTS = 20;
+    private static final int DEALS_PER_SEGMENT = 50_000;
+    private static final int LOOKUPS = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void benchmarkLookups() throws IOException {
+        DealArchive archive = new DealArchive();
+        archive.open(directory);
+        try {
+            for (int i = 0; i < SEGMENTS; i++) {
+                archive.append(DealSegmentTest.deals(DEALS_PER_SEGMENT, 1 + (long) i * DEALS_PER_SEGMENT));
+            }
+            long total = (long) SEGMENTS * DEALS_PER_SEGMENT;
+            System.out.printf("Archive: %d deals, %d segments, %.1f bytes per deal%n",
+                              total, archive.getSegmentCount(), archive.getArchiveBytes() / (double) total);
+
+            // warm-up
+            measure(archive, total, false);
+            measure(archive, total, true);
+
+            report("findById", measure(archive, total, false));
+            report("findByDealUniqueId", measure(archive, total, true));
+            long[] misses = new long[LOOKUPS];
+            for (int i = 0; i < LOOKUPS; i++) {
+                long start = System.nanoTime();
+                assertFalse(archive.existsByDealUniqueId("NEW" + i));
+                misses[i] = System.nanoTime() - start;
+            }
+            report("existsByDealUniqueId (miss)", misses);
+        } finally {
+            archive.close();
+        }
+    }
+
+    private static long[] measure(DealArchive archive, long total, boolean byUniqueId) {
+        long[] nanos = new long[LOOKUPS];
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < LOOKUPS; i++) {
+            long id = 1 + random.nextLong(total);
+            long start = System.nanoTime();
+            boolean found = byUniqueId
+                ? archive.findByDealUniqueId("DEAL" + id).isPresent()
+                : archive.findById(id).isPresent();
+            nanos[i] = System.nanoTime() - start;
+            assertTrue(found);
+        }
+        return nanos;
+    }
+
+    private static void report(String operation, long[] nanos) {
+        Arrays.sort(nanos);
+        System.out.printf("%s: p50 %.1f us, p99 %.1f us, max %.1f us%n", operation,
+                          nanos[nanos.length / 2] / 1000.0, nanos[nanos.length * 99 / 100] / 1000.0,
+                          nanos[nanos.length - 1] / 1000.0);
+    }
+}
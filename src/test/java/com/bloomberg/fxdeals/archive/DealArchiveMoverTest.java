@@ -0,0 +1,56 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.repository.FxDealRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DealArchiveMover.
+ */
+@ExtendWith(MockitoExtension.class)
+class DealArchiveMoverTest {
+
+    @Mock
+    private FxDealRepository repository;
+
+    @Mock
+    private DealArchive archive;
+
+    @InjectMocks
+    private DealArchiveMover mover;
+
+    @Test
+    void testWritesSegmentBeforeDeletingRows() {
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(90);
+        List<FxDeal> deals = DealSegmentTest.deals(3, 10);
+        when(repository.findOlderThan(cutoff, 100)).thenReturn(deals);
+        when(repository.deleteByIds(List.of(10L, 11L, 12L))).thenReturn(3);
+
+        assertEquals(3, mover.moveBatch(cutoff, 100));
+
+        InOrder order = inOrder(archive, repository);
+        order.verify(archive).append(deals);
+        order.verify(repository).deleteByIds(List.of(10L, 11L, 12L));
+    }
+
+    @Test
+    void testNothingToMove() {
+        when(repository.findOlderThan(any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, mover.moveBatch(LocalDateTime.now(), 100));
+        verifyNoInteractions(archive);
+        verify(repository, never()).deleteByIds(any());
+    }
+}
@@ -0,0 +1,124 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DealArchive.
+ */
+class DealArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    private DealArchive archive;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        archive = new DealArchive();
+        archive.open(directory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        archive.close();
+    }
+
+    @Test
+    void testLookupsSearchEverySegment() {
+        archive.append(DealSegmentTest.deals(100, 1));
+        archive.append(DealSegmentTest.deals(100, 101));
+
+        assertEquals(2, archive.getSegmentCount());
+        assertEquals(200, archive.getArchivedDealCount());
+        assertEquals("DEAL42", archive.findById(42).orElseThrow().getDealUniqueId());
+        assertEquals(150L, archive.findByDealUniqueId("DEAL150").orElseThrow().getId());
+        assertTrue(archive.findById(500).isEmpty());
+        assertEquals(Set.of("DEAL7", "DEAL199"),
+                     archive.findExistingDealUniqueIds(List.of("DEAL7", "DEAL199", "DEAL500")));
+        assertEquals(3, archive.getLookupCount());
+        assertEquals(2, archive.getHitCount());
+    }
+
+    @Test
+    void testLookupOnlyArchiveLeavesTheDirectoryAlone() throws IOException {
+        archive.append(DealSegmentTest.deals(10, 1));
+        Path inProgress = Files.createFile(directory.resolve("deals-0000000000000000009.seg.tmp"));
+
+        DealArchive lookups = DealArchive.forLookups(directory);
+        try {
+            assertTrue(lookups.existsByDealUniqueId("DEAL5"));
+            assertTrue(Files.exists(inProgress));
+            assertThrows(IllegalStateException.class, () -> lookups.append(DealSegmentTest.deals(1, 11)));
+        } finally {
+            lookups.close();
+        }
+        assertThrows(IOException.class, () -> DealArchive.forLookups(directory.resolve("missing")));
+    }
+
+    @Test
+    void testScanCoversEverySegmentOldestFirst() {
+        archive.append(DealSegmentTest.deals(100, 1));
+        archive.append(DealSegmentTest.deals(100, 101));
+
+        List<Long> ids = new ArrayList<>();
+        archive.scan(90, 110, deal -> ids.add(deal.getId()));
+
+        assertEquals(20, ids.size());
+        assertEquals(91L, ids.get(0));
+        assertEquals(110L, ids.get(19));
+    }
+
+    @Test
+    void testAlreadyArchivedDealsAreNotWrittenAgain() {
+        List<FxDeal> first = DealSegmentTest.deals(50, 1);
+        archive.append(first);
+
+        assertEquals(0, archive.append(first));
+        assertEquals(10, archive.append(DealSegmentTest.deals(60, 1)));
+        assertEquals(2, archive.getSegmentCount());
+        assertEquals(60, archive.getArchivedDealCount());
+    }
+
+    @Test
+    void testReopenLoadsSegmentsAndRemovesPartialWrites() throws IOException {
+        archive.append(DealSegmentTest.deals(30, 1));
+        archive.append(DealSegmentTest.deals(30, 31));
+        archive.close();
+        Files.write(directory.resolve("deals-0000000000000000002.seg.tmp"), new byte[] {1, 2, 3});
+
+        DealArchive reopened = new DealArchive();
+        reopened.open(directory);
+        try {
+            assertEquals(2, reopened.getSegmentCount());
+            assertTrue(reopened.existsByDealUniqueId("DEAL45"));
+            assertFalse(Files.exists(directory.resolve("deals-0000000000000000002.seg.tmp")));
+
+            reopened.append(DealSegmentTest.deals(5, 61));
+            assertTrue(Files.exists(directory.resolve("deals-0000000000000000002.seg")));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void testDisabledArchiveFindsNothing() {
+        DealArchive disabled = new DealArchive();
+
+        assertFalse(disabled.isEnabled());
+        assertTrue(disabled.findById(1).isEmpty());
+        assertFalse(disabled.existsByDealUniqueId("DEAL1"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.bloomberg.fxdeals.archive;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DealSegment.
+ */
+class DealSegmentTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEveryDealCanBeFoundByIdAndUniqueId() throws IOException {
+        List<FxDeal> deals = deals(1000, 1);
+        Collections.shuffle(deals);
+
+        try (DealSegment segment = DealSegment.write(directory.resolve("deals-1.seg"), deals)) {
+            assertEquals(1000, segment.getDealCount());
+            assertEquals(1, segment.getMinId());
+            assertEquals(1000, segment.getMaxId());
+            for (FxDeal deal : deals) {
+                assertDealEquals(deal, segment.findById(deal.getId()).orElseThrow());
+                assertDealEquals(deal, segment.findByDealUniqueId(deal.getDealUniqueId()).orElseThrow());
+            }
+        }
+    }
+
+    @Test
+    void testMissingDealsAreNotFound() throws IOException {
+        List<FxDeal> deals = deals(300, 100);
+        deals.removeIf(deal -> deal.getId() == 250);
+
+        try (DealSegment segment = DealSegment.write(directory.resolve("deals-1.seg"), deals)) {
+            assertEquals(Optional.empty(), segment.findById(250));
+            assertEquals(Optional.empty(), segment.findById(99));
+            assertEquals(Optional.empty(), segment.findById(10_000));
+            assertEquals(Optional.empty(), segment.findByDealUniqueId("DEAL250"));
+            assertFalse(segment.containsDealUniqueId("UNKNOWN"));
+            assertTrue(segment.containsDealUniqueId("DEAL251"));
+        }
+    }
+
+    @Test
+    void testReopenedSegmentReadsSameDeals() throws IOException {
+        Path file = directory.resolve("deals-1.seg");
+        List<FxDeal> deals = deals(200, 1);
+        DealSegment.write(file, deals).close();
+
+        try (DealSegment segment = DealSegment.open(file)) {
+            assertDealEquals(deals.get(150), segment.findById(151).orElseThrow());
+        }
+        assertFalse(Files.exists(directory.resolve("deals-1.seg.tmp")));
+    }
+
+    @Test
+    void testScanReturnsDealsInRangeInIdOrder() throws IOException {
+        List<FxDeal> deals = deals(500, 1);
+        Collections.shuffle(deals);
+
+        try (DealSegment segment = DealSegment.write(directory.resolve("deals-1.seg"), deals)) {
+            List<Long> ids = new ArrayList<>();
+            segment.scan(99, 300, deal -> ids.add(deal.getId()));
+            assertEquals(201, ids.size());
+            assertEquals(100L, ids.get(0));
+            assertEquals(300L, ids.get(ids.size() - 1));
+            for (int i = 1; i < ids.size(); i++) {
+                assertEquals(ids.get(i - 1) + 1, ids.get(i));
+            }
+
+            List<Long> none = new ArrayList<>();
+            segment.scan(500, 900, deal -> none.add(deal.getId()));
+            assertTrue(none.isEmpty());
+        }
+    }
+
+    @Test
+    void testSegmentIsSmallerThanRawDeals() throws IOException {
+        try (DealSegment segment = DealSegment.write(directory.resolve("deals-1.seg"), deals(5000, 1))) {
+            // a deal serializes to roughly 70 bytes before compression
+            assertTrue(segment.getSizeBytes() < 5000 * 70 / 2, "segment is " + segment.getSizeBytes() + " bytes");
+        }
+    }
+
+    @Test
+    void testTruncatedFileIsRejected() throws IOException {
+        Path file = directory.resolve("deals-1.seg");
+        DealSegment.write(file, deals(100, 1)).close();
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, java.util.Arrays.copyOf(bytes, bytes.length - 5));
+
+        assertThrows(IOException.class, () -> DealSegment.open(file));
+    }
+
+    static List<FxDeal> deals(int count, long firstId) {
+        LocalDateTime base = LocalDateTime.of(2023, 3, 1, 9, 30, 15, 123_000_000);
+        List<FxDeal> deals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = firstId + i;
+            FxDeal deal = new FxDeal("DEAL" + id, "USD", i % 2 == 0 ? "EUR" : "JPY", base.plusMinutes(i),
+                                     new BigDecimal("1000.50").add(BigDecimal.valueOf(i)));
+            deal.setId(id);
+            deal.setCreatedAt(base.plusMinutes(i).plusSeconds(1));
+            deal.setUpdatedAt(i % 3 == 0 ? null : base.plusMinutes(i).plusSeconds(2));
+            deals.add(deal);
+        }
+        return deals;
+    }
+
+    static void assertDealEquals(FxDeal expected, FxDeal actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDealUniqueId(), actual.getDealUniqueId());
+        assertEquals(expected.getFromCurrencyIso(), actual.getFromCurrencyIso());
+        assertEquals(expected.getToCurrencyIso(), actual.getToCurrencyIso());
+        assertEquals(expected.getDealTimestamp(), actual.getDealTimestamp());
+        assertEquals(expected.getDealAmount(), actual.getDealAmount());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+        assertEquals(expected.getUpdatedAt(), actual.getUpdatedAt());
+    }
+}
@@ -0,0 +1,157 @@
+package com.bloomberg.fxdeals.cache;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for LatestDealsCache. The test configuration keeps the 3 newest deals.
+ */
+@ExtendWith(MockitoExtension.class)
+class LatestDealsCacheTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 15, 12, 0);
+
+    @Mock
+    private LatestDealsLoader loader;
+
+    private LatestDealsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LatestDealsCache();
+        cache.config = new FxDealsConfig();
+        cache.loader = loader;
+        cache.init();
+    }
+
+    @Test
+    void testFirstPage_LoadsOnceThenServesFromMemory() {
+        when(loader.load(3)).thenReturn(window(10, deal(3, 0), deal(2, -1), deal(1, -2)));
+
+        List<FxDealResponse> first = cache.firstPage(0, 3).orElseThrow();
+        List<FxDealResponse> second = cache.firstPage(0, 2).orElseThrow();
+
+        assertEquals(List.of(3L, 2L, 1L), ids(first));
+        assertEquals(List.of(3L, 2L), ids(second));
+        assertEquals(10L, cache.totalCount().getAsLong());
+        verify(loader, times(1)).load(3);
+    }
+
+    @Test
+    void testFirstPage_NotServedForOtherPages() {
+        assertTrue(cache.firstPage(10, 3).isEmpty());
+        assertTrue(cache.firstPage(0, 50).isEmpty());
+        verifyNoInteractions(loader);
+    }
+
+    @Test
+    void testOnDealCreated_NewestDealGoesFirst() {
+        when(loader.load(3)).thenReturn(window(10, deal(3, 0), deal(2, -1), deal(1, -2)));
+        cache.firstPage(0, 3);
+
+        cache.onDealCreated(new DealCreatedEvent(deal(11, 5)));
+
+        assertEquals(List.of(11L, 3L, 2L), ids(cache.firstPage(0, 3).orElseThrow()));
+        assertEquals(11L, cache.totalCount().getAsLong());
+    }
+
+    @Test
+    void testOnDealCreated_BackDatedDealIsOrderedByTimestamp() {
+        when(loader.load(3)).thenReturn(window(10, deal(3, 0), deal(2, -10), deal(1, -20)));
+        cache.firstPage(0, 3);
+
+        cache.onDealCreated(new DealCreatedEvent(deal(11, -5)));
+        cache.onDealCreated(new DealCreatedEvent(deal(12, -60)));
+
+        assertEquals(List.of(3L, 11L, 2L), ids(cache.firstPage(0, 3).orElseThrow()));
+        assertEquals(12L, cache.totalCount().getAsLong());
+    }
+
+    @Test
+    void testOnDealCreated_AlreadyLoadedDealIsIgnored() {
+        FxDealResponse loaded = deal(3, 0);
+        when(loader.load(3)).thenReturn(window(10, loaded, deal(2, -1), deal(1, -2)));
+        cache.firstPage(0, 3);
+
+        cache.onDealCreated(new DealCreatedEvent(deal(3, 0)));
+
+        assertEquals(List.of(3L, 2L, 1L), ids(cache.firstPage(0, 3).orElseThrow()));
+        assertEquals(10L, cache.totalCount().getAsLong());
+    }
+
+    @Test
+    void testOnDealCreated_UnknownOldDealMakesCountInexact() {
+        when(loader.load(3)).thenReturn(window(10, deal(9, 0), deal(8, -1), deal(7, -2)));
+        cache.firstPage(0, 3);
+
+        // id below the loaded maximum and older than the window: may or may not be counted
+        cache.onDealCreated(new DealCreatedEvent(deal(4, -30)));
+
+        assertTrue(cache.totalCount().isEmpty());
+        assertEquals(List.of(9L, 8L, 7L), ids(cache.firstPage(0, 3).orElseThrow()));
+    }
+
+    @Test
+    void testOnDealCreated_DuringRebuildIsAppliedAfterLoad() {
+        when(loader.load(3)).thenAnswer(invocation -> {
+            cache.onDealCreated(new DealCreatedEvent(deal(11, 5)));
+            return window(10, deal(3, 0), deal(2, -1), deal(1, -2));
+        });
+
+        List<FxDealResponse> page = cache.firstPage(0, 3).orElseThrow();
+
+        assertEquals(List.of(11L, 3L, 2L), ids(page));
+        assertEquals(11L, cache.totalCount().getAsLong());
+    }
+
+    @Test
+    void testInvalidate_ReloadsOnNextRead() {
+        when(loader.load(3)).thenReturn(window(1, deal(1, 0)), window(2, deal(2, 1), deal(1, 0)));
+        cache.firstPage(0, 3);
+
+        cache.invalidate();
+
+        assertEquals(List.of(2L, 1L), ids(cache.firstPage(0, 3).orElseThrow()));
+        verify(loader, times(2)).load(anyInt());
+    }
+
+    @Test
+    void testFirstPage_LoadFailureFallsBackToDatabase() {
+        when(loader.load(3)).thenThrow(new IllegalStateException("database unavailable"));
+
+        assertTrue(cache.firstPage(0, 3).isEmpty());
+        assertTrue(cache.totalCount().isEmpty());
+    }
+
+    private static LatestDealsCache.Window window(long totalCount, FxDealResponse... deals) {
+        long maxId = 0;
+        for (FxDealResponse deal : deals) {
+            maxId = Math.max(maxId, deal.getId());
+        }
+        return new LatestDealsCache.Window(deals, totalCount, true, Math.max(maxId, totalCount), System.nanoTime());
+    }
+
+    private static FxDealResponse deal(long id, int minutesFromNow) {
+        return new FxDealResponse(id, "DEAL" + id, "USD", "EUR", NOW.plusMinutes(minutesFromNow),
+                                  new BigDecimal("1000.50"), NOW);
+    }
+
+    private static List<Long> ids(List<FxDealResponse> deals) {
+        return deals.stream().map(FxDealResponse::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,97 @@
+package com.bloomberg.fxdeals.cache;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import com.bloomberg.fxdeals.repository.FxDealRepository;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import com.bloomberg.fxdeals.repository.Repositories;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatestDealsLoader, with two H2 databases standing in for the primary
+ * and a replica that is one deal behind.
+ */
+class LatestDealsLoaderTest {
+
+    private SessionFactory primary;
+    private SessionFactory replica;
+    private ReplicaRouter router;
+    private LatestDealsLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        FxDealRepository repository = Repositories.replicated(primary.createEntityManager(),
+                                                              replica.createEntityManager());
+        router = Repositories.replicaRouter(repository);
+
+        loader = new LatestDealsLoader();
+        loader.repository = repository;
+        loader.mapper = new FxDealMapper();
+        loader.replicaRouter = router;
+
+        insert(primary, "DEAL001");
+        insert(replica, "DEAL001");
+        insert(primary, "DEAL002");
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void testLoad_ReadsPrimaryInsideReplicaRead() throws Exception {
+        LatestDealsCache.Window window = router.read(() -> loader.load(10));
+
+        assertEquals(2L, window.maxLoadedId);
+        assertEquals(2L, window.totalCount);
+        assertEquals(List.of("DEAL002", "DEAL001"), uniqueIds(window));
+        assertEquals(1, router.getReplicaReads());
+    }
+
+    @Test
+    void testLoad_EnclosingReadStaysOnReplica() throws Exception {
+        long[] counts = router.read(() -> {
+            long before = loader.repository.count();
+            loader.load(10);
+            return new long[] {before, loader.repository.count()};
+        });
+
+        assertArrayEquals(new long[] {1L, 1L}, counts);
+    }
+
+    private static List<String> uniqueIds(LatestDealsCache.Window window) {
+        return Arrays.stream(window.deals).map(FxDealResponse::getDealUniqueId).toList();
+    }
+
+    private static SessionFactory database(String name) {
+        return new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:" + name + System.nanoTime())
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+    }
+
+    private static void insert(SessionFactory database, String uniqueId) {
+        FxDeal deal = new FxDeal(uniqueId, "USD", "EUR", LocalDateTime.now(), new BigDecimal("1000.50"));
+        database.inTransaction(session -> session.persist(deal));
+    }
+}
@@ -0,0 +1,106 @@
+package com.bloomberg.fxdeals.concurrent;
+
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.exception.DealNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DealExecutor.
+ */
+class DealExecutorTest {
+
+    private static final int MAX_DB_CALLS = 5;
+
+    private DealExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new DealExecutor();
+        executor.start(Executors.newCachedThreadPool(), MAX_DB_CALLS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void testSubmit_ReturnsResult() {
+        String result = executor.submit(() -> "DEAL001").toCompletableFuture().join();
+
+        assertEquals("DEAL001", result);
+    }
+
+    @Test
+    void testSubmit_PropagatesException() {
+        CompletableFuture<Object> future = executor.submit(() -> {
+            throw new DealNotFoundException(1L);
+        }).toCompletableFuture();
+
+        CompletionException thrown = assertThrows(CompletionException.class, future::join);
+        assertInstanceOf(DealNotFoundException.class, thrown.getCause());
+        assertEquals(0, executor.getActiveCalls());
+    }
+
+    @Test
+    void testSubmit_CapsConcurrentCallsWithoutBlockingCaller() throws Exception {
+        int tasks = 200;
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        long submitStart = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            futures.add(executor.submit(() -> {
+                int current = inFlight.incrementAndGet();
+                maxInFlight.accumulateAndGet(current, Math::max);
+                Thread.sleep(5);
+                inFlight.decrementAndGet();
+                return current;
+            }).toCompletableFuture());
+        }
+        long submitMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitStart);
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        // 200 tasks of 5 ms each would take a second if the caller blocked on them
+        assertTrue(submitMillis < 500, "submission blocked the caller for " + submitMillis + " ms");
+        assertEquals(MAX_DB_CALLS, maxInFlight.get());
+        assertEquals(0, executor.getActiveCalls());
+    }
+
+    @Test
+    void testContinuationsIn_RunOnTheExecutorInTheGivenContextWithoutAPermit() throws Exception {
+        RequestContext pollContext = RequestContext.forClient("consumer-1");
+        RequestContext committingContext = RequestContext.forClient("producer-1");
+        CompletableFuture<Object[]> seen = new CompletableFuture<>();
+        CompletableFuture<Boolean> changed = new CompletableFuture<>();
+        changed.thenAcceptAsync(ignored -> seen.complete(new Object[] {
+            Thread.currentThread(), RequestContext.current(), executor.getActiveCalls()
+        }), executor.continuationsIn(pollContext));
+
+        RequestContext.bind(committingContext);
+        try {
+            changed.complete(Boolean.TRUE);
+        } finally {
+            RequestContext.clear();
+        }
+
+        Object[] observed = seen.get(5, TimeUnit.SECONDS);
+        assertNotSame(Thread.currentThread(), observed[0]);
+        assertSame(pollContext, observed[1]);
+        assertEquals(0, observed[2]);
+    }
+}
@@ -0,0 +1,117 @@
+package com.bloomberg.fxdeals.concurrent;
+
+import com.bloomberg.fxdeals.exception.DealNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SingleFlight.
+ */
+class SingleFlightTest {
+
+    private static final int CALLERS = 300;
+
+    @Test
+    void testExecute_SingleCallerRunsLoader() {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+
+        assertEquals("value", flight.execute("key", () -> "value"));
+        assertEquals(0, flight.getCoalescedCount());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void testExecute_ConcurrentCallersShareOneLoad() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runConcurrently(flight, () -> {
+            loads.incrementAndGet();
+            await(release);
+            return "DEAL001";
+        }, release);
+
+        for (Future<String> result : results) {
+            assertEquals("DEAL001", result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(CALLERS - 1, flight.getCoalescedCount());
+        assertEquals(0, flight.getInFlightCount());
+    }
+
+    @Test
+    void testExecute_FailureIsPropagatedToAllCallersAndNotRetained() throws Exception {
+        SingleFlight<String, String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = runConcurrently(flight, () -> {
+            loads.incrementAndGet();
+            await(release);
+            throw new DealNotFoundException(1L);
+        }, release);
+
+        for (Future<String> result : results) {
+            Exception thrown = assertThrows(Exception.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(DealNotFoundException.class, thrown.getCause());
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.getInFlightCount());
+
+        // the failure is not cached: the next call loads again
+        assertEquals("DEAL001", flight.execute("key", () -> "DEAL001"));
+    }
+
+    private static List<Future<String>> runConcurrently(SingleFlight<String, String> flight,
+                                                        Supplier<String> loader,
+                                                        CountDownLatch release) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        CountDownLatch started = new CountDownLatch(CALLERS);
+        List<Future<String>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < CALLERS; i++) {
+                results.add(pool.submit(() -> {
+                    started.countDown();
+                    return flight.execute("key", loader);
+                }));
+            }
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            // give every caller time to join the in-flight load before it completes
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (flight.getCoalescedCount() < CALLERS - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (Future<String> result : results) {
+                try {
+                    result.get(10, TimeUnit.SECONDS);
+                } catch (Exception ignored) {
+                    // inspected by the caller
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
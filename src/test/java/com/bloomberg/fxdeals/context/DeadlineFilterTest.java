@@ -0,0 +1,150 @@
+package com.bloomberg.fxdeals.context;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import org.jboss.resteasy.mock.MockDispatcherFactory;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.core.SynchronousDispatcher;
+import org.jboss.resteasy.core.SynchronousExecutionContext;
+import org.jboss.resteasy.spi.Dispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.security.Principal;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for DeadlineFilter.
+ */
+class DeadlineFilterTest {
+
+    private static final Set<String> PROXIES = Set.of("10.0.0.1", "10.0.0.2");
+
+    private final ExecutorService resumer = Executors.newSingleThreadExecutor();
+    private final RequestContext resumerContext = RequestContext.forClient("resumer");
+    private Dispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        resumer.submit(() -> RequestContext.bind(resumerContext)).get();
+        DeadlineFilter filter = new DeadlineFilter();
+        filter.stats = new LoadSheddingStats();
+        filter.config = new FxDealsConfig();
+        dispatcher = MockDispatcherFactory.createDispatcher();
+        dispatcher.getRegistry().addSingletonResource(new Resource(resumer));
+        dispatcher.getProviderFactory().registerProviderInstance(filter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        resumer.shutdownNow();
+        RequestContext.clear();
+    }
+
+    @Test
+    void testSyncRequest_ContextIsClearedAfterTheResponse() throws Exception {
+        MockHttpResponse response = dispatch("/context/sync");
+
+        assertEquals(200, response.getStatus());
+        assertNull(RequestContext.current());
+    }
+
+    @Test
+    void testAsyncRequest_ResumingThreadKeepsItsOwnContext() throws Exception {
+        MockHttpResponse response = dispatch("/context/async");
+
+        assertEquals(200, response.getStatus());
+        assertSame(resumerContext, resumer.submit(RequestContext::current).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testAsyncRequest_CleanupFilterClearsTheDispatchingThread() throws Exception {
+        RequestContext[] duringDispatch = new RequestContext[1];
+        new RequestContextCleanupFilter().doFilter(mock(ServletRequest.class), mock(ServletResponse.class),
+            (request, response) -> {
+                dispatch("/context/async");
+                duringDispatch[0] = RequestContext.current();
+            });
+
+        assertNotNull(duringDispatch[0], "the response filter ran on the resuming thread");
+        assertNull(RequestContext.current());
+    }
+
+    @Test
+    void testClientKey_PrincipalWins() {
+        Principal principal = () -> "alice";
+
+        assertEquals("user:alice", DeadlineFilter.clientKey(principal, "192.0.2.7", "spoofed", null, PROXIES));
+    }
+
+    @Test
+    void testClientKey_HeadersFromUntrustedPeersAreIgnored() {
+        assertEquals("192.0.2.7", DeadlineFilter.clientKey(null, "192.0.2.7", "fresh-id", "198.51.100.1", PROXIES));
+        assertEquals("192.0.2.7", DeadlineFilter.clientKey(null, "192.0.2.7", "other-id", null, Set.of()));
+    }
+
+    @Test
+    void testClientKey_TrustedProxyNamesItsClient() {
+        assertEquals("client:gateway-user", DeadlineFilter.clientKey(null, "10.0.0.1", " gateway-user ", null, PROXIES));
+    }
+
+    @Test
+    void testClientKey_ForwardedForIsReadFromTheRightPastTrustedProxies() {
+        assertEquals("198.51.100.9",
+                     DeadlineFilter.clientKey(null, "10.0.0.1", null, "203.0.113.5, 198.51.100.9, 10.0.0.2", PROXIES));
+        assertEquals("10.0.0.1", DeadlineFilter.clientKey(null, "10.0.0.1", null, "10.0.0.2", PROXIES));
+    }
+
+    @Test
+    void testClientKey_WithoutAnAddress() {
+        assertEquals("anonymous", DeadlineFilter.clientKey(null, null, "id", null, PROXIES));
+    }
+
+    private MockHttpResponse dispatch(String path) {
+        try {
+            MockHttpRequest request = MockHttpRequest.get(path);
+            MockHttpResponse response = new MockHttpResponse();
+            request.setAsynchronousContext(
+                new SynchronousExecutionContext((SynchronousDispatcher) dispatcher, request, response));
+            dispatcher.invoke(request, response);
+            return response;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Path("/context")
+    public static class Resource {
+
+        private final ExecutorService resumer;
+
+        public Resource(ExecutorService resumer) {
+            this.resumer = resumer;
+        }
+
+        @GET
+        @Path("/sync")
+        public String sync() {
+            return "done";
+        }
+
+        @GET
+        @Path("/async")
+        public void async(@Suspended AsyncResponse response) {
+            resumer.submit(() -> response.resume("done"));
+        }
+    }
+}
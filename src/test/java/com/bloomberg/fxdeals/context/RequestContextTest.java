@@ -0,0 +1,97 @@
+package com.bloomberg.fxdeals.context;
+
+import com.bloomberg.fxdeals.exception.DeadlineExceededException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RequestContext.
+ */
+class RequestContextTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void testCheckDeadline_NoContext() {
+        assertDoesNotThrow(() -> RequestContext.checkDeadline("save"));
+        assertEquals(-1, RequestContext.remainingMillis());
+    }
+
+    @Test
+    void testCheckDeadline_Expired() {
+        RequestContext.bind(RequestContext.withTimeout(-1));
+
+        DeadlineExceededException thrown = assertThrows(DeadlineExceededException.class,
+            () -> RequestContext.checkDeadline("save"));
+        assertTrue(thrown.getMessage().contains("save"));
+        assertEquals(0, RequestContext.remainingMillis());
+    }
+
+    @Test
+    void testRemainingMillis_WithinBudget() {
+        RequestContext.bind(RequestContext.withTimeout(TimeUnit.SECONDS.toNanos(2)));
+
+        long remaining = RequestContext.remainingMillis();
+
+        assertTrue(remaining > 1000 && remaining <= 2000, "remaining " + remaining);
+    }
+
+    @Test
+    void testPropagate_BindsContextOnOtherThread() throws Exception {
+        RequestContext context = RequestContext.withTimeout(TimeUnit.SECONDS.toNanos(2));
+        RequestContext.bind(context);
+        Callable<RequestContext> task = RequestContext.propagate(RequestContext::current);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            assertSame(context, pool.submit(task).get());
+            assertNull(pool.submit(RequestContext::current).get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testForClient_HasNoDeadline() {
+        RequestContext.bind(RequestContext.forClient("client-1"));
+
+        assertEquals("client-1", RequestContext.currentClientKey());
+        assertFalse(RequestContext.current().hasDeadline());
+        assertEquals(-1, RequestContext.remainingMillis());
+        assertDoesNotThrow(() -> RequestContext.checkDeadline("save"));
+    }
+
+    @Test
+    void testWithDeadline_KeepsClientKey() {
+        RequestContext context = RequestContext.forClient("client-1").withDeadline(-1);
+
+        assertEquals("client-1", context.getClientKey());
+        assertTrue(context.isExpired());
+    }
+
+    @Test
+    void testIsWarmUp_OnlyForWarmUpContext() {
+        assertFalse(RequestContext.isWarmUp());
+        RequestContext.bind(RequestContext.forClient("client-1"));
+        assertFalse(RequestContext.isWarmUp());
+
+        RequestContext.bind(RequestContext.forWarmUp().withDeadline(TimeUnit.SECONDS.toNanos(1)));
+
+        assertTrue(RequestContext.isWarmUp());
+    }
+
+    @Test
+    void testCurrentClientKey_NoContext() {
+        assertNull(RequestContext.currentClientKey());
+    }
+}
@@ -0,0 +1,58 @@
+package com.bloomberg.fxdeals.context;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RequestTiming.
+ */
+class RequestTimingTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestTiming.setEnabled(false);
+        RequestContext.clear();
+    }
+
+    @Test
+    void testToServerTiming_ListsRecordedPhasesInOrderAndTotal() {
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        timing.add(RequestTiming.Phase.DB_WRITE, 3_100_000);
+        timing.add(RequestTiming.Phase.VALIDATE, 42_000);
+        timing.add(RequestTiming.Phase.DB_WRITE, 400_000);
+
+        assertEquals("validate;dur=0.042, db-write;dur=3.500, total;dur=4.000",
+                     timing.toServerTiming(4_000_000));
+        assertEquals("total_ms=4.000 validate_ms=0.042 db-write_ms=3.500", timing.toLogFields(4_000_000));
+    }
+
+    @Test
+    void testRecord_AddsToTimingOfBoundContext() {
+        RequestTiming.setEnabled(true);
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        RequestContext.bind(RequestContext.forClient("client-1").withTiming(timing)
+                                .withDeadline(TimeUnit.SECONDS.toNanos(5)));
+
+        RequestTiming.record(RequestTiming.Phase.DEDUP, 1_000);
+        RequestTiming.stop(RequestTiming.Phase.DEDUP, RequestTiming.start());
+
+        assertSame(timing, RequestTiming.current());
+        assertTrue(timing.getPhaseNanos(RequestTiming.Phase.DEDUP) >= 1_000);
+    }
+
+    @Test
+    void testCurrent_NullWhileDisabled() {
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        RequestContext.bind(RequestContext.forClient("client-1").withTiming(timing));
+
+        assertNull(RequestTiming.current());
+        assertEquals(RequestTiming.NOT_TRACED, RequestTiming.start());
+        RequestTiming.record(RequestTiming.Phase.DEDUP, 1_000);
+        assertEquals(0, timing.getPhaseNanos(RequestTiming.Phase.DEDUP));
+        assertEquals("total;dur=0.000", timing.toServerTiming(0));
+    }
+}
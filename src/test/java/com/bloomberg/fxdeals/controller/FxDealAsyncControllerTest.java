@@ -0,0 +1,148 @@
+package com.bloomberg.fxdeals.controller;
+
+import com.bloomberg.fxdeals.concurrent.DealExecutor;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.exception.DeadlineExceededException;
+import com.bloomberg.fxdeals.service.FxDealService;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.TimeoutHandler;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for FxDealAsyncController.
+ */
+@ExtendWith(MockitoExtension.class)
+class FxDealAsyncControllerTest {
+
+    @Mock
+    private FxDealService dealService;
+
+    @Mock
+    private DealExecutor executor;
+
+    @Mock
+    private FxDealsConfig config;
+
+    @Mock
+    private AsyncResponse asyncResponse;
+
+    @InjectMocks
+    private FxDealAsyncController controller;
+
+    private final AtomicReference<Callable<Object>> submitted = new AtomicReference<>();
+    private final AtomicReference<RequestContext> submittedContext = new AtomicReference<>();
+    private FxDealRequest request;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(config.getLong(eq(FxDealAsyncController.TIMEOUT_PROPERTY), anyLong())).thenReturn(1000L);
+        when(executor.submit(any())).thenAnswer(invocation -> {
+            submitted.set(invocation.getArgument(0));
+            submittedContext.set(RequestContext.current());
+            return new CompletableFuture<>();
+        });
+        request = new FxDealRequest("DEAL001", "USD", "EUR", LocalDateTime.now(), new BigDecimal("1000.50"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+    }
+
+    @Test
+    void testCall_RunsWithTheAsyncTimeoutAsDeadline() {
+        RequestContext.bind(RequestContext.forClient("client-1"));
+
+        controller.createDeal(request, asyncResponse);
+
+        RequestContext context = submittedContext.get();
+        assertEquals("client-1", context.getClientKey());
+        assertTrue(context.hasDeadline());
+        assertTrue(context.remainingNanos() <= TimeUnit.SECONDS.toNanos(1));
+        assertEquals("client-1", RequestContext.current().getClientKey());
+        assertFalse(RequestContext.current().hasDeadline());
+    }
+
+    @Test
+    void testCall_KeepsAnEarlierClientDeadline() {
+        RequestContext.bind(RequestContext.forClient("client-1").withDeadline(TimeUnit.MILLISECONDS.toNanos(100)));
+
+        controller.getDealById(1L, asyncResponse);
+
+        assertTrue(submittedContext.get().remainingNanos() <= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void testTimeout_BeforeStartCancelsTheCallWithRetryableStatus() {
+        controller.createDeal(request, asyncResponse);
+
+        assertEquals(503, timeOut().getStatus());
+        assertThrows(DeadlineExceededException.class, () -> submitted.get().call());
+        verifyNoInteractions(dealService);
+    }
+
+    @Test
+    void testTimeout_WhileCreatingReportsUnknownOutcome() throws Exception {
+        AtomicReference<Response> onTimeout = new AtomicReference<>();
+        when(dealService.createDeal(any())).thenAnswer(invocation -> {
+            onTimeout.set(timeOut());
+            return new FxDealResponse(1L, "DEAL001", "USD", "EUR", request.getDealTimestamp(),
+                                      request.getDealAmount(), LocalDateTime.now());
+        });
+        controller.createDeal(request, asyncResponse);
+
+        submitted.get().call();
+
+        assertEquals(202, onTimeout.get().getStatus());
+        assertEquals("/api/async/fx-deals/unique/DEAL001", onTimeout.get().getLocation().toString());
+    }
+
+    @Test
+    void testTimeout_WhileReadingIsRetryable() throws Exception {
+        AtomicReference<Response> onTimeout = new AtomicReference<>();
+        when(dealService.getDealById(1L)).thenAnswer(invocation -> {
+            onTimeout.set(timeOut());
+            return null;
+        });
+        controller.getDealById(1L, asyncResponse);
+
+        submitted.get().call();
+
+        assertEquals(503, onTimeout.get().getStatus());
+    }
+
+    private Response timeOut() {
+        ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(asyncResponse).setTimeoutHandler(handler.capture());
+        AsyncResponse timedOut = mock(AsyncResponse.class);
+        handler.getValue().handleTimeout(timedOut);
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(timedOut).resume(response.capture());
+        return response.getValue();
+    }
+}
@@ -1,20 +1,32 @@
 package com.bloomberg.fxdeals.controller;
 
+import com.bloomberg.fxdeals.concurrent.DealExecutor;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.dto.DealOutcome;
 import com.bloomberg.fxdeals.dto.FxDealRequest;
 import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.service.BatchDealProcessor;
 import com.bloomberg.fxdeals.service.FxDealService;
+import com.bloomberg.fxdeals.startup.StartupWarmUp;
+import com.bloomberg.fxdeals.stream.ChangeFeed;
+import jakarta.ws.rs.container.AsyncResponse;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,6 +42,21 @@ class FxDealControllerTest {
     @Mock
     private FxDealService dealService;
 
+    @Mock
+    private BatchDealProcessor batchProcessor;
+
+    @Mock
+    private StartupWarmUp warmUp;
+
+    @Mock
+    private ChangeFeed changeFeed;
+
+    @Mock
+    private DealExecutor executor;
+
+    @Mock
+    private AsyncResponse asyncResponse;
+
     @InjectMocks
     private FxDealController controller;
 
@@ -57,6 +84,32 @@ class FxDealControllerTest {
         );
     }
 
+    @Test
+    void testGetChanges_WaitEndsOnTheDealExecutorInTheRequestContext() {
+        RequestContext pollContext = RequestContext.forClient("consumer-1");
+        CompletableFuture<Boolean> changed = new CompletableFuture<>();
+        List<Runnable> continuations = new ArrayList<>();
+        when(changeFeed.awaitChange(5L)).thenReturn(changed);
+        doReturn(CompletableFuture.completedFuture(List.of())).when(executor).submit(any());
+        when(executor.continuationsIn(pollContext)).thenReturn(continuations::add);
+
+        RequestContext.bind(pollContext);
+        try {
+            controller.getChanges(5L, 10, 10000L, asyncResponse);
+        } finally {
+            RequestContext.clear();
+        }
+        changed.complete(Boolean.FALSE);
+
+        verify(asyncResponse, never()).resume(any(Object.class));
+        assertEquals(1, continuations.size());
+        continuations.get(0).run();
+        ArgumentCaptor<Response> resumed = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(resumed.capture());
+        assertEquals(200, resumed.getValue().getStatus());
+        assertEquals(5L, resumed.getValue().getHeaders().getFirst("X-Next-Since"));
+    }
+
     @Test
     void testCreateDeal_Success() {
         when(dealService.createDeal(any(FxDealRequest.class))).thenReturn(response);
@@ -68,6 +121,17 @@ class FxDealControllerTest {
         verify(dealService, times(1)).createDeal(any(FxDealRequest.class));
     }
 
+    @Test
+    void testCreateDeals_ReturnsOutcomes() {
+        List<DealOutcome> outcomes = List.of(DealOutcome.created(response), DealOutcome.duplicate("DEAL001"));
+        when(batchProcessor.process(List.of(request, request))).thenReturn(outcomes);
+
+        Response result = controller.createDeals(List.of(request, request));
+
+        assertEquals(Response.Status.OK.getStatusCode(), result.getStatus());
+        assertSame(outcomes, result.getEntity());
+    }
+
     @Test
     void testGetDealById_Success() {
         when(dealService.getDealById(anyLong())).thenReturn(response);
@@ -119,6 +183,19 @@ class FxDealControllerTest {
         verify(dealService, times(1)).getDeals(0, 100);
     }
 
+    @Test
+    void testGetSnapshot_StreamsUpToWatermark() throws Exception {
+        when(dealService.snapshotWatermark()).thenReturn(42L);
+
+        Response result = controller.getSnapshot(10L);
+
+        assertEquals(Response.Status.OK.getStatusCode(), result.getStatus());
+        assertEquals(42L, result.getHeaders().getFirst("X-Snapshot-Watermark"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingOutput) result.getEntity()).write(out);
+        verify(dealService).exportSnapshot(10L, 42L, out);
+    }
+
     @Test
     void testHealth() {
         Response result = controller.health();
@@ -127,4 +204,24 @@ class FxDealControllerTest {
         assertEquals(Response.Status.OK.getStatusCode(), result.getStatus());
         assertEquals("FX Deals API is running", result.getEntity());
     }
+
+    @Test
+    void testReady_UnavailableWhileWarmingUp() {
+        when(warmUp.isReady()).thenReturn(false);
+
+        Response result = controller.ready();
+
+        assertEquals(Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), result.getStatus());
+        assertEquals("FX Deals API is warming up", result.getEntity());
+    }
+
+    @Test
+    void testReady_OkAfterWarmUp() {
+        when(warmUp.isReady()).thenReturn(true);
+
+        Response result = controller.ready();
+
+        assertEquals(Response.Status.OK.getStatusCode(), result.getStatus());
+        assertEquals("FX Deals API is ready", result.getEntity());
+    }
 }
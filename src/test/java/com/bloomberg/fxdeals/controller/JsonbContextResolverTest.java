@@ -0,0 +1,39 @@
+package com.bloomberg.fxdeals.controller;
+
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import jakarta.json.bind.Jsonb;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JsonbContextResolver.
+ */
+class JsonbContextResolverTest {
+
+    private final JsonbContextResolver resolver = new JsonbContextResolver();
+
+    @Test
+    void testGetContext_SharesOneInstance() {
+        assertSame(resolver.getContext(FxDealRequest.class), resolver.getContext(FxDealResponse.class));
+        assertSame(resolver.getContext(FxDealRequest.class), new JsonbContextResolver().getContext(FxDealRequest.class));
+    }
+
+    @Test
+    void testGetContext_RoundTripsDeal() {
+        Jsonb jsonb = resolver.getContext(FxDealResponse.class);
+        LocalDateTime timestamp = LocalDateTime.of(2024, 1, 15, 10, 30);
+        FxDealResponse deal = new FxDealResponse(1L, "DEAL001", "USD", "EUR", timestamp,
+                                                 new BigDecimal("1000.50"), timestamp.plusSeconds(1));
+
+        FxDealResponse copy = jsonb.fromJson(jsonb.toJson(deal), FxDealResponse.class);
+
+        assertEquals("DEAL001", copy.getDealUniqueId());
+        assertEquals(timestamp, copy.getDealTimestamp());
+        assertEquals(new BigDecimal("1000.50"), copy.getDealAmount());
+    }
+}
@@ -0,0 +1,145 @@
+package com.bloomberg.fxdeals.dedup;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the cost of one near-duplicate lookup plus one insert, the work added to
+ * every create, with about 1,000,000 deals in the window and 1% resends, from one thread
+ * and from several threads sharing the index. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class NearDuplicateIndexBenchmark {
+
+    private static final int DEALS = 1_000_000;
+    private static final int THREADS = 4;
+    private static final int LOOKUPS_PER_RECORD = 4;
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP", "CHF", "AUD", "CAD", "NZD"};
+
+    @Test
+    void benchmarkCreatePath() {
+        FxDealResponse[] deals = deals(DEALS);
+        long windowMillis = 600_000;
+
+        for (int round = 0; round < 3; round++) {
+            NearDuplicateIndex index = new NearDuplicateIndex();
+            index.start(NearDuplicateIndex.Mode.FLAG, 1000, windowMillis, 2 * DEALS);
+            long startMillis = 1_700_000_000_000L;
+            long matches = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < DEALS; i++) {
+                // the deals arrive evenly over one window
+                long now = startMillis + i * windowMillis / DEALS;
+                FxDealResponse deal = deals[i];
+                if (index.findMatch(deal.getFromCurrencyIso(), deal.getToCurrencyIso(),
+                                    deal.getDealTimestamp(), deal.getDealAmount(), now).isPresent()) {
+                    matches++;
+                }
+                index.record(deal, now);
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Round %d: %.0f ns per lookup and insert, %,d matches%n",
+                              round, elapsed / (double) DEALS, matches);
+            assertEquals(0, index.getSkippedCount());
+            assertTrue(matches > DEALS / 200);
+        }
+    }
+
+    /**
+     * Threads that each look a deal up several times and record it, the lookups coming
+     * from creates that are rejected or still in flight. Deal times are current, so all
+     * threads work on the same one or two tables.
+     */
+    @Test
+    void benchmarkConcurrentCreatePath() throws Exception {
+        FxDealResponse[] deals = deals(DEALS);
+        long windowMillis = 600_000;
+
+        for (int round = 0; round < 3; round++) {
+            NearDuplicateIndex index = new NearDuplicateIndex();
+            index.start(NearDuplicateIndex.Mode.FLAG, 1000, windowMillis, 2 * DEALS);
+            long startMillis = 1_700_000_000_000L;
+            AtomicInteger next = new AtomicInteger();
+            LongAdder matches = new LongAdder();
+            CountDownLatch ready = new CountDownLatch(THREADS);
+            CountDownLatch go = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                Thread thread = new Thread(() -> {
+                    ready.countDown();
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = next.getAndIncrement(); i < DEALS; i = next.getAndIncrement()) {
+                        long now = startMillis + i * windowMillis / DEALS;
+                        FxDealResponse deal = deals[i];
+                        for (int lookup = 0; lookup < LOOKUPS_PER_RECORD; lookup++) {
+                            if (index.findMatch(deal.getFromCurrencyIso(), deal.getToCurrencyIso(),
+                                                deal.getDealTimestamp(), deal.getDealAmount(), now).isPresent()) {
+                                matches.increment();
+                            }
+                        }
+                        index.record(deal, now);
+                    }
+                });
+                thread.start();
+                threads.add(thread);
+            }
+            ready.await();
+            long start = System.nanoTime();
+            go.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("Round %d, %d threads: %.0f ns per %d lookups and insert, %,d matching lookups%n",
+                              round, THREADS, elapsed / (double) DEALS, LOOKUPS_PER_RECORD, matches.sum());
+            assertEquals(0, index.getSkippedCount());
+            assertEquals(DEALS, index.getIndexedDealCount());
+        }
+    }
+
+    private static FxDealResponse[] deals(int count) {
+        Random random = new Random(42);
+        LocalDateTime base = LocalDateTime.of(2024, 1, 15, 9, 0);
+        FxDealResponse[] deals = new FxDealResponse[count];
+        for (int i = 0; i < count; i++) {
+            if (i > 0 && random.nextInt(100) == 0) {
+                FxDealResponse original = deals[i - 1 - random.nextInt(Math.min(i, 1000))];
+                deals[i] = new FxDealResponse((long) i, "RESEND-" + i, original.getFromCurrencyIso(),
+                                              original.getToCurrencyIso(), original.getDealTimestamp().plusNanos(200_000_000),
+                                              original.getDealAmount(), null);
+                continue;
+            }
+            String from = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            String to = CURRENCIES[(random.nextInt(CURRENCIES.length - 1) + 1 + indexOf(from)) % CURRENCIES.length];
+            deals[i] = new FxDealResponse((long) i, "DEAL-" + i, from, to,
+                                          base.plusNanos(i * 600_000_000L),
+                                          BigDecimal.valueOf(100_000 + random.nextInt(100_000_000), 2), null);
+        }
+        return deals;
+    }
+
+    private static int indexOf(String currency) {
+        for (int i = 0; i < CURRENCIES.length; i++) {
+            if (CURRENCIES[i].equals(currency)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException(currency);
+    }
+}
@@ -0,0 +1,155 @@
+package com.bloomberg.fxdeals.dedup;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for NearDuplicateIndex. The test index uses a 1 second tolerance and an
+ * 80 second window, so deal time is bucketed by 10 seconds.
+ */
+class NearDuplicateIndexTest {
+
+    private static final LocalDateTime TRADE_TIME = LocalDateTime.of(2024, 1, 15, 10, 30, 0);
+    private static final long NOW = 1_700_000_000_000L;
+
+    private NearDuplicateIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NearDuplicateIndex();
+        index.start(NearDuplicateIndex.Mode.FLAG, 1000, 80_000, 1000);
+    }
+
+    @Test
+    void testFindMatch_SamePairAndAmountWithinTolerance() {
+        index.record(deal(1, "USD", "EUR", TRADE_TIME, "1000.50"), NOW);
+
+        assertEquals(OptionalLong.of(1), find("USD", "EUR", TRADE_TIME.plusNanos(999_000_000), "1000.5", NOW));
+        assertEquals(OptionalLong.of(1), find("USD", "EUR", TRADE_TIME.minusSeconds(1), "1000.500", NOW));
+        assertEquals(2, index.getMatchCount());
+    }
+
+    @Test
+    void testFindMatch_NoMatchOnDifferentContentOrOutsideTolerance() {
+        index.record(deal(1, "USD", "EUR", TRADE_TIME, "1000.50"), NOW);
+
+        assertFalse(find("USD", "EUR", TRADE_TIME.plusNanos(1_001_000_000), "1000.50", NOW).isPresent());
+        assertFalse(find("USD", "EUR", TRADE_TIME.minusNanos(1_001_000_000), "1000.50", NOW).isPresent());
+        assertFalse(find("USD", "GBP", TRADE_TIME, "1000.50", NOW).isPresent());
+        assertFalse(find("EUR", "USD", TRADE_TIME, "1000.50", NOW).isPresent());
+        assertFalse(find("USD", "EUR", TRADE_TIME, "1000.51", NOW).isPresent());
+        assertEquals(0, index.getMatchCount());
+    }
+
+    @Test
+    void testFindMatch_SameContentAtDifferentTimesKeptApart() {
+        for (int i = 0; i < 100; i++) {
+            index.record(deal(i + 1, "USD", "EUR", TRADE_TIME.plusSeconds(5L * i), "10.00"), NOW);
+        }
+
+        assertEquals(OptionalLong.of(51), find("USD", "EUR", TRADE_TIME.plusSeconds(250).plusNanos(500_000_000),
+                                               "10", NOW));
+        assertFalse(find("USD", "EUR", TRADE_TIME.plusSeconds(252), "10", NOW).isPresent());
+    }
+
+    @Test
+    void testFindMatch_ExpiresBucketsNotWrittenWithinWindow() {
+        index.record(deal(1, "USD", "EUR", TRADE_TIME, "1000.50"), NOW);
+
+        assertEquals(OptionalLong.of(1), find("USD", "EUR", TRADE_TIME, "1000.50", NOW + 80_000));
+        assertFalse(find("USD", "EUR", TRADE_TIME, "1000.50", NOW + 90_000).isPresent());
+
+        // the next write drops the expired table and starts a new one for the same deal time
+        index.record(deal(3, "GBP", "JPY", TRADE_TIME, "5.00"), NOW + 90_000);
+        assertFalse(find("USD", "EUR", TRADE_TIME, "1000.50", NOW + 90_000).isPresent());
+        assertEquals(OptionalLong.of(3), find("GBP", "JPY", TRADE_TIME, "5", NOW + 90_000));
+    }
+
+    @Test
+    void testRecord_StopsIndexingAtMaxDeals() {
+        index.start(NearDuplicateIndex.Mode.FLAG, 1000, 80_000, 2);
+        for (int i = 0; i < 5; i++) {
+            index.record(deal(i + 1, "USD", "EUR", TRADE_TIME.plusMinutes(i), "10.00"), NOW);
+        }
+
+        assertEquals(3, index.getSkippedCount());
+        assertEquals(2, index.getIndexedDealCount());
+        assertEquals(OptionalLong.of(2), find("USD", "EUR", TRADE_TIME.plusMinutes(1), "10.00", NOW));
+        assertFalse(find("USD", "EUR", TRADE_TIME.plusMinutes(2), "10.00", NOW).isPresent());
+    }
+
+    @Test
+    void testRecord_ExpiredTablesFreeCapacity() {
+        index.start(NearDuplicateIndex.Mode.FLAG, 1000, 80_000, 1);
+        index.record(deal(1, "USD", "EUR", TRADE_TIME, "10.00"), NOW);
+        index.record(deal(2, "USD", "EUR", TRADE_TIME.plusMinutes(5), "10.00"), NOW);
+        assertEquals(1, index.getSkippedCount());
+
+        index.record(deal(3, "USD", "EUR", TRADE_TIME.plusMinutes(5), "10.00"), NOW + 90_000);
+
+        assertEquals(1, index.getIndexedDealCount());
+        assertEquals(OptionalLong.of(3), find("USD", "EUR", TRADE_TIME.plusMinutes(5), "10.00", NOW + 90_000));
+    }
+
+    @Test
+    void testRecord_ConcurrentWithExpiryKeepsCountExact() throws Exception {
+        index.start(NearDuplicateIndex.Mode.FLAG, 1000, 80_000, 1_000_000);
+        int threads = 4;
+        int dealsPerThread = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread recorder = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < dealsPerThread; i++) {
+                    // the clock moves 20 ms per deal, so the sweep keeps closing tables being written to
+                    long id = (long) thread * dealsPerThread + i;
+                    index.record(deal(id, "USD", "EUR", TRADE_TIME.plusSeconds(i % 20 * 10), "10.00"), NOW + i * 20L);
+                    index.findMatch("USD", "EUR", TRADE_TIME, new BigDecimal("10.00"), NOW + i * 20L);
+                }
+            });
+            recorder.start();
+            recorders.add(recorder);
+        }
+        start.countDown();
+        for (Thread recorder : recorders) {
+            recorder.join();
+        }
+
+        // far enough ahead that every table expires
+        index.record(deal(-1, "USD", "EUR", TRADE_TIME, "10.00"), NOW + 100L * dealsPerThread);
+
+        assertEquals(1, index.getIndexedDealCount());
+    }
+
+    @Test
+    void testOff_NeitherRecordsNorMatches() {
+        index.start(NearDuplicateIndex.Mode.OFF, 1000, 80_000, 1000);
+        index.record(deal(1, "USD", "EUR", TRADE_TIME, "1000.50"), NOW);
+
+        assertFalse(find("USD", "EUR", TRADE_TIME, "1000.50", NOW).isPresent());
+    }
+
+    private OptionalLong find(String from, String to, LocalDateTime timestamp, String amount, long now) {
+        return index.findMatch(from, to, timestamp, new BigDecimal(amount), now);
+    }
+
+    private static FxDealResponse deal(long id, String from, String to, LocalDateTime timestamp, String amount) {
+        return new FxDealResponse(id, "DEAL" + id, from, to, timestamp, new BigDecimal(amount), timestamp);
+    }
+}
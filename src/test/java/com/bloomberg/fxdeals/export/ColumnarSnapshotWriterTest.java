@@ -0,0 +1,145 @@
+package com.bloomberg.fxdeals.export;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ColumnarSnapshotWriter and ColumnarSnapshotReader.
+ */
+class ColumnarSnapshotWriterTest {
+
+    @Test
+    void testRoundTripAcrossRowGroups() throws IOException {
+        List<FxDeal> deals = deals(2500, 1);
+
+        byte[] file = write(deals, 100, 2600, 1000);
+
+        try (ColumnarSnapshotReader reader = reader(file)) {
+            assertEquals(100, reader.getSinceId());
+            assertEquals(2600, reader.getWatermark());
+            assertEquals(List.of("id", "deal_unique_id", "from_currency_iso", "to_currency_iso",
+                                 "deal_timestamp", "deal_amount", "created_at"), reader.getColumnNames());
+            assertEquals(deals.size(), readAll(reader, deals));
+        }
+    }
+
+    @Test
+    void testIdsAndTimestampsOutOfOrderRoundTrip() throws IOException {
+        List<FxDeal> deals = new ArrayList<>(deals(10, 500));
+        deals.addAll(deals(10, 3));
+        deals.get(4).setDealTimestamp(LocalDateTime.of(1999, 12, 31, 23, 59, 59, 999_999_000));
+        deals.get(5).setDealAmount(new BigDecimal("-42.5"));
+        deals.get(6).setCreatedAt(null);
+
+        try (ColumnarSnapshotReader reader = reader(write(deals, 0, 600, 7))) {
+            FxDeal withoutCreatedAt = null;
+            for (int i = 0; i < deals.size(); i++) {
+                FxDeal actual = reader.next();
+                if (i == 6) {
+                    withoutCreatedAt = actual;
+                    continue;
+                }
+                assertDealEquals(deals.get(i), actual);
+            }
+            assertNull(reader.next());
+            // a missing created_at is written as the deal timestamp
+            assertEquals(deals.get(6).getDealTimestamp(), withoutCreatedAt.getCreatedAt());
+        }
+    }
+
+    @Test
+    void testEmptySnapshotHasHeaderAndNoRows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(out, 7, 7);
+        writer.finish();
+
+        try (ColumnarSnapshotReader reader = reader(out.toByteArray())) {
+            assertEquals(7, reader.getWatermark());
+            assertNull(reader.next());
+        }
+        assertEquals(0, writer.getRowCount());
+    }
+
+    @Test
+    void testAmountsWithMoreThanTwoDecimalsAreRejected() throws IOException {
+        FxDeal deal = deals(1, 1).get(0);
+        deal.setDealAmount(new BigDecimal("1.005"));
+        ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(new ByteArrayOutputStream(), 0, 1);
+
+        assertThrows(ArithmeticException.class, () -> writer.write(deal));
+    }
+
+    @Test
+    void testColumnEncodingIsCompact() throws IOException {
+        byte[] file = write(deals(10_000, 1), 0, 10_000, ColumnarSnapshotWriter.DEFAULT_ROW_GROUP_SIZE);
+
+        // unique IDs dominate; every other column compresses to well under a byte per deal
+        assertTrue(file.length < 10_000 * 6, "snapshot is " + file.length + " bytes");
+    }
+
+    @Test
+    void testFileWithoutMagicIsRejected() {
+        assertThrows(IOException.class, () -> reader("PARQUET1".getBytes()));
+    }
+
+    static List<FxDeal> deals(int count, long firstId) {
+        LocalDateTime base = LocalDateTime.of(2024, 5, 2, 8, 15, 30, 250_000_000);
+        String[] currencies = {"EUR", "JPY", "GBP", "CHF"};
+        List<FxDeal> deals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long id = firstId + i;
+            FxDeal deal = new FxDeal("DEAL" + id, "USD", currencies[i % currencies.length],
+                                     base.plusSeconds(i * 7L).plusNanos(i % 1000 * 1000L),
+                                     new BigDecimal("1000.50").add(BigDecimal.valueOf(i)));
+            deal.setId(id);
+            deal.setCreatedAt(base.plusSeconds(i * 7L + 1));
+            deals.add(deal);
+        }
+        return deals;
+    }
+
+    static byte[] write(List<FxDeal> deals, long sinceId, long watermark, int rowGroupSize) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(out, sinceId, watermark, rowGroupSize);
+        for (FxDeal deal : deals) {
+            writer.write(deal);
+        }
+        writer.finish();
+        assertEquals(deals.size(), writer.getRowCount());
+        assertEquals(out.size(), writer.getBytesWritten());
+        return out.toByteArray();
+    }
+
+    private static ColumnarSnapshotReader reader(byte[] file) throws IOException {
+        return new ColumnarSnapshotReader(new ByteArrayInputStream(file));
+    }
+
+    private static int readAll(ColumnarSnapshotReader reader, List<FxDeal> expected) throws IOException {
+        int count = 0;
+        FxDeal deal;
+        while ((deal = reader.next()) != null) {
+            assertDealEquals(expected.get(count++), deal);
+        }
+        return count;
+    }
+
+    private static void assertDealEquals(FxDeal expected, FxDeal actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getDealUniqueId(), actual.getDealUniqueId());
+        assertEquals(expected.getFromCurrencyIso(), actual.getFromCurrencyIso());
+        assertEquals(expected.getToCurrencyIso(), actual.getToCurrencyIso());
+        assertEquals(expected.getDealTimestamp(), actual.getDealTimestamp());
+        assertEquals(0, expected.getDealAmount().compareTo(actual.getDealAmount()));
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+    }
+}
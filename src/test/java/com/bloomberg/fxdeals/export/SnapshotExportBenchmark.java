@@ -0,0 +1,99 @@
+package com.bloomberg.fxdeals.export;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures columnar snapshot export throughput and size over 1,000,000 deals, against
+ * the JSON the /changes endpoint would return for the same deals. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class SnapshotExportBenchmark {
+
+    private static final int DEALS = 1_000_000;
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP", "CHF", "AUD", "CAD", "NZD"};
+
+    @Test
+    void benchmarkExport() throws Exception {
+        List<FxDeal> deals = deals(DEALS);
+
+        // warm-up
+        export(deals, OutputStream.nullOutputStream());
+        export(deals, OutputStream.nullOutputStream());
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(32 << 20);
+        long start = System.nanoTime();
+        export(deals, file);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Columnar export: %,d deals in %.2f s, %,.0f deals/s, %,d bytes (%.1f bytes per deal)%n",
+                          DEALS, seconds, DEALS / seconds, file.size(), file.size() / (double) DEALS);
+
+        long readStart = System.nanoTime();
+        long read = 0;
+        try (ColumnarSnapshotReader reader =
+                 new ColumnarSnapshotReader(new ByteArrayInputStream(file.toByteArray()))) {
+            while (reader.next() != null) {
+                read++;
+            }
+        }
+        System.out.printf("Columnar read: %,.0f deals/s%n", read / ((System.nanoTime() - readStart) / 1e9));
+        assertEquals(DEALS, read);
+
+        long jsonBytes;
+        try (Jsonb jsonb = JsonbBuilder.create()) {
+            jsonBytes = jsonb.toJson(deals.subList(0, 100_000)).getBytes(StandardCharsets.UTF_8).length * 10L;
+        }
+        System.out.printf("JSON: ~%,d bytes (%.1f bytes per deal), %.1fx the columnar file%n",
+                          jsonBytes, jsonBytes / (double) DEALS, jsonBytes / (double) file.size());
+    }
+
+    private static void export(List<FxDeal> deals, OutputStream out) throws IOException {
+        ColumnarSnapshotWriter writer = new ColumnarSnapshotWriter(out, 0, DEALS);
+        for (FxDeal deal : deals) {
+            writer.write(deal);
+        }
+        writer.finish();
+    }
+
+    private static List<FxDeal> deals(int count) {
+        LocalDateTime base = LocalDateTime.of(2024, 1, 2, 0, 0);
+        Random random = new Random(42);
+        List<FxDeal> deals = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String from = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            String to = CURRENCIES[(indexOf(from) + 1 + random.nextInt(CURRENCIES.length - 1)) % CURRENCIES.length];
+            LocalDateTime timestamp = base.plusNanos((long) i * 31_000_000L + random.nextInt(1_000_000) * 1000L);
+            FxDeal deal = new FxDeal("FX-" + (100_000_000 + i), from, to, timestamp,
+                                     BigDecimal.valueOf(random.nextInt(100_000_000), 2));
+            deal.setId(i + 1L);
+            deal.setCreatedAt(timestamp.plusNanos(random.nextInt(50_000) * 1000L));
+            deals.add(deal);
+        }
+        return deals;
+    }
+
+    private static int indexOf(String currency) {
+        for (int i = 0; i < CURRENCIES.length; i++) {
+            if (CURRENCIES[i].equals(currency)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,89 @@
+package com.bloomberg.fxdeals.export;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.service.FxDealService;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for SnapshotJob.
+ */
+@ExtendWith(MockitoExtension.class)
+class SnapshotJobTest {
+
+    @Mock
+    private FxDealsConfig config;
+
+    @Mock
+    private FxDealService dealService;
+
+    @Mock
+    private ShardedDealStore shards;
+
+    @InjectMocks
+    private SnapshotJob job;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testEachSnapshotStartsAtPreviousWatermark() throws IOException {
+        when(dealService.snapshotWatermark()).thenReturn(100L, 250L);
+
+        Path first = job.snapshot(directory);
+        Path second = job.snapshot(directory);
+
+        assertEquals("deals-0-100.fxcol", first.getFileName().toString());
+        assertEquals("deals-100-250.fxcol", second.getFileName().toString());
+        verify(dealService).exportSnapshot(eq(0L), eq(100L), any(OutputStream.class));
+        verify(dealService).exportSnapshot(eq(100L), eq(250L), any(OutputStream.class));
+        assertEquals(250, SnapshotJob.lastWatermark(directory));
+    }
+
+    @Test
+    void testNothingNewWritesNoFile() throws IOException {
+        Files.createFile(directory.resolve("deals-0-100.fxcol"));
+        when(dealService.snapshotWatermark()).thenReturn(100L);
+
+        assertNull(job.snapshot(directory));
+        verify(dealService, never()).exportSnapshot(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void testFailedExportLeavesNoFile() throws IOException {
+        when(dealService.snapshotWatermark()).thenReturn(100L);
+        when(dealService.exportSnapshot(anyLong(), anyLong(), any())).thenThrow(new IOException("disk full"));
+
+        assertThrows(IOException.class, () -> job.snapshot(directory));
+        try (var files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void testStartup_RefusesShardedStorage() {
+        when(config.getBoolean(SnapshotJob.ENABLED_PROPERTY, false)).thenReturn(true);
+        when(shards.isEnabled()).thenReturn(true);
+
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> job.onStartup(new Object()));
+
+        assertTrue(error.getMessage().startsWith(SnapshotJob.ENABLED_PROPERTY + " cannot be combined with "
+                                                 + ShardedDealStore.ENABLED_PROPERTY), error.getMessage());
+    }
+}
@@ -0,0 +1,79 @@
+package com.bloomberg.fxdeals.gateway;
+
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DealFrameCodec.
+ */
+class DealFrameCodecTest {
+
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123_000_000);
+
+    @Test
+    void testDealRoundTrip() {
+        FxDealRequest request = new FxDealRequest("DEAL-é01", "USD", "EUR", TIMESTAMP, new BigDecimal("1000.50"));
+        ByteBuffer frame = ByteBuffer.allocate(DealFrameCodec.dealFrameSize(request));
+        DealFrameCodec.encodeDeal(frame, 42L, request);
+        assertFalse(frame.hasRemaining());
+
+        frame.flip();
+        assertEquals(frame.remaining() - 4, frame.getInt());
+        DealFrameCodec.DecodedDeal decoded = DealFrameCodec.decodeDeal(frame);
+
+        assertEquals(42L, decoded.correlationId);
+        assertNull(decoded.error);
+        assertEquals("DEAL-é01", decoded.request.getDealUniqueId());
+        assertEquals("USD", decoded.request.getFromCurrencyIso());
+        assertEquals("EUR", decoded.request.getToCurrencyIso());
+        assertEquals(TIMESTAMP, decoded.request.getDealTimestamp());
+        assertEquals(new BigDecimal("1000.50"), decoded.request.getDealAmount());
+    }
+
+    @Test
+    void testTruncatedDealKeepsCorrelationId() {
+        ByteBuffer body = ByteBuffer.allocate(12);
+        body.putLong(7L).putShort((short) 50).put((byte) 'A').put((byte) 'B');
+        body.flip();
+
+        DealFrameCodec.DecodedDeal decoded = DealFrameCodec.decodeDeal(body);
+
+        assertEquals(7L, decoded.correlationId);
+        assertNull(decoded.request);
+        assertEquals("Truncated deal frame", decoded.error);
+    }
+
+    @Test
+    void testAckRoundTrip() {
+        FxDealResponse deal = new FxDealResponse(99L, "DEAL001", "USD", "EUR", TIMESTAMP, BigDecimal.TEN, TIMESTAMP);
+        DealOutcome[] outcomes = {DealOutcome.created(deal), DealOutcome.duplicate("DEAL001")};
+        ByteBuffer frames = ByteBuffer.allocate(
+            DealFrameCodec.ackFrameSize(outcomes[0]) + DealFrameCodec.ackFrameSize(outcomes[1]));
+        DealFrameCodec.encodeAck(frames, 1L, outcomes[0]);
+        DealFrameCodec.encodeAck(frames, 2L, outcomes[1]);
+        frames.flip();
+
+        frames.getInt();
+        DealFrameCodec.Ack created = DealFrameCodec.decodeAck(frames);
+        frames.getInt();
+        DealFrameCodec.Ack duplicate = DealFrameCodec.decodeAck(frames);
+
+        assertEquals(1L, created.getCorrelationId());
+        assertEquals(DealOutcome.Status.CREATED, created.getStatus());
+        assertEquals(99L, created.getDealId());
+        assertEquals("", created.getMessage());
+        assertEquals(2L, duplicate.getCorrelationId());
+        assertEquals(DealOutcome.Status.DUPLICATE, duplicate.getStatus());
+        assertEquals(0L, duplicate.getDealId());
+        assertEquals("FX Deal with unique ID 'DEAL001' already exists", duplicate.getMessage());
+        assertFalse(frames.hasRemaining());
+    }
+}
@@ -0,0 +1,170 @@
+package com.bloomberg.fxdeals.gateway;
+
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.service.FxDealService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for DealGateway, over loopback with a mocked service.
+ */
+class DealGatewayTest {
+
+    private final AtomicLong ids = new AtomicLong();
+    private FxDealService dealService;
+    private DealGateway gateway;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dealService = mock(FxDealService.class);
+        when(dealService.createDeals(anyList())).thenAnswer(invocation -> {
+            List<FxDealRequest> requests = invocation.getArgument(0);
+            List<DealOutcome> outcomes = new ArrayList<>();
+            for (FxDealRequest request : requests) {
+                outcomes.add(outcome(request));
+            }
+            return outcomes;
+        });
+
+        gateway = new DealGateway();
+        gateway.dealService = dealService;
+        address = gateway.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 64,
+                                Executors.newFixedThreadPool(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        gateway.stop();
+    }
+
+    @Test
+    void testPipelinedFramesAreAckedInOrder() throws IOException {
+        int frames = 500;
+        try (DealGatewayClient client = client()) {
+            for (int i = 0; i < frames; i++) {
+                String uniqueId = i % 10 == 3 ? "DUP" + i : i % 10 == 7 ? "BAD" + i : "DEAL" + i;
+                client.send(1000 + i, request(uniqueId));
+            }
+            client.flush();
+
+            for (int i = 0; i < frames; i++) {
+                DealFrameCodec.Ack ack = client.readAck();
+                assertEquals(1000 + i, ack.getCorrelationId());
+                DealOutcome.Status expected = i % 10 == 3 ? DealOutcome.Status.DUPLICATE
+                    : i % 10 == 7 ? DealOutcome.Status.INVALID : DealOutcome.Status.CREATED;
+                assertEquals(expected, ack.getStatus());
+                assertEquals(expected == DealOutcome.Status.CREATED, ack.getDealId() > 0);
+            }
+        }
+        assertEquals(frames, gateway.getFramesReceived());
+        assertTrue(gateway.getBatchCount() >= frames / 64);
+        verify(dealService, never()).createDeal(any());
+    }
+
+    @Test
+    void testMalformedFrameIsAckedInvalid() throws IOException {
+        ByteBuffer frame = ByteBuffer.allocate(4 + 11);
+        frame.putInt(11).putLong(5L).putShort((short) 40).put((byte) 'X');
+
+        try (DealGatewayClient client = client()) {
+            client.sendRaw(frame.array());
+            client.send(6L, request("DEAL6"));
+            client.flush();
+
+            DealFrameCodec.Ack malformed = client.readAck();
+            assertEquals(5L, malformed.getCorrelationId());
+            assertEquals(DealOutcome.Status.INVALID, malformed.getStatus());
+            assertEquals("Truncated deal frame", malformed.getMessage());
+            assertEquals(DealOutcome.Status.CREATED, client.readAck().getStatus());
+        }
+    }
+
+    @Test
+    void testFailedBatchFallsBackToSingleCreates() throws IOException {
+        when(dealService.createDeals(anyList())).thenThrow(new IllegalStateException("unique key violation"));
+        when(dealService.createDeal(any())).thenAnswer(invocation -> {
+            FxDealRequest request = invocation.getArgument(0);
+            if (request.getDealUniqueId().startsWith("DUP")) {
+                throw new DuplicateDealException(request.getDealUniqueId());
+            }
+            return response(request);
+        });
+
+        try (DealGatewayClient client = client()) {
+            client.send(1L, request("DEAL1"));
+            client.send(2L, request("DUP2"));
+            client.flush();
+
+            assertEquals(DealOutcome.Status.CREATED, client.readAck().getStatus());
+            DealFrameCodec.Ack duplicate = client.readAck();
+            assertEquals(2L, duplicate.getCorrelationId());
+            assertEquals(DealOutcome.Status.DUPLICATE, duplicate.getStatus());
+        }
+    }
+
+    @Test
+    void testOversizedFrameClosesConnection() throws IOException {
+        try (DealGatewayClient client = client()) {
+            client.sendRaw(ByteBuffer.allocate(4).putInt(DealFrameCodec.MAX_FRAME_LENGTH + 1).array());
+            client.flush();
+
+            assertThrows(IOException.class, client::readAck);
+        }
+    }
+
+    @Test
+    void testLoadGeneratorReportsThroughputAndLatency() throws Exception {
+        DealLoadGenerator.Report report = new DealLoadGenerator(
+            address.getHostString(), address.getPort(), 2000, 2, 128).run();
+
+        assertEquals(2000, report.getCount(DealOutcome.Status.CREATED));
+        assertTrue(report.getDealsPerSecond() > 0);
+        assertTrue(report.getLatencyMicros(50) <= report.getLatencyMicros(99));
+    }
+
+    private DealGatewayClient client() throws IOException {
+        return new DealGatewayClient(address.getHostString(), address.getPort());
+    }
+
+    private DealOutcome outcome(FxDealRequest request) {
+        if (request.getDealUniqueId().startsWith("DUP")) {
+            return DealOutcome.duplicate(request.getDealUniqueId());
+        }
+        if (request.getDealUniqueId().startsWith("BAD")) {
+            return DealOutcome.invalid("From Currency and To Currency must be different");
+        }
+        return DealOutcome.created(response(request));
+    }
+
+    private FxDealResponse response(FxDealRequest request) {
+        return new FxDealResponse(ids.incrementAndGet(), request.getDealUniqueId(), request.getFromCurrencyIso(),
+                                  request.getToCurrencyIso(), request.getDealTimestamp(), request.getDealAmount(),
+                                  LocalDateTime.now());
+    }
+
+    private static FxDealRequest request(String uniqueId) {
+        return new FxDealRequest(uniqueId, "USD", "EUR", LocalDateTime.now().minusMinutes(1),
+                                 new BigDecimal("1000.50"));
+    }
+}
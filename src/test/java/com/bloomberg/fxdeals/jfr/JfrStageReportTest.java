@@ -0,0 +1,75 @@
+package com.bloomberg.fxdeals.jfr;
+
+import jdk.jfr.Recording;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JfrStageReport.
+ */
+class JfrStageReportTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRead_SummarisesIngestStagesAndQueries() throws Exception {
+        Path file = tempDir.resolve("deals.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(DealIngestEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(RepositoryQueryEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            for (int i = 1; i <= 100; i++) {
+                DealIngestEvent event = new DealIngestEvent();
+                event.begin();
+                event.setDealUniqueId("DEAL" + i);
+                event.setOutcome(i % 10 == 0 ? "DUPLICATE" : "CREATED");
+                event.setValidate(i * 1_000L);
+                event.setSave(i % 10 == 0 ? 0 : i * 1_000_000L);
+                event.commit();
+            }
+            RepositoryQueryEvent query = new RepositoryQueryEvent();
+            query.begin();
+            query.setQuery("findById");
+            query.setRows(1);
+            query.commit();
+            recording.stop();
+            recording.dump(file);
+        }
+
+        JfrStageReport report = JfrStageReport.read(file);
+
+        assertEquals(100, report.get("ingest total").count());
+        assertEquals(100, report.get("ingest validate").count());
+        assertEquals(50_000, report.get("ingest validate").percentile(50));
+        assertEquals(99_000, report.get("ingest validate").percentile(99));
+        assertEquals(100_000, report.get("ingest validate").percentile(100));
+        assertEquals(90, report.get("ingest save").count());
+        assertNull(report.get("ingest map"));
+        assertEquals(1, report.get("query findById").count());
+        assertEquals(Map.of("CREATED", 90L, "DUPLICATE", 10L), report.getOutcomes());
+        String formatted = report.format();
+        assertTrue(formatted.contains("ingest save"), formatted);
+        assertTrue(formatted.contains("ingest outcomes: {CREATED=90, DUPLICATE=10}"), formatted);
+    }
+
+    @Test
+    void testPercentile_NearestRank() {
+        JfrStageReport.Samples samples = new JfrStageReport.Samples();
+        assertEquals(0, samples.percentile(50));
+        for (long nanos : new long[] {40, 10, 30, 20}) {
+            samples.add(Duration.ofNanos(nanos));
+        }
+
+        assertEquals(10, samples.percentile(25));
+        assertEquals(20, samples.percentile(50));
+        assertEquals(30, samples.percentile(51));
+        assertEquals(40, samples.percentile(100));
+    }
+}
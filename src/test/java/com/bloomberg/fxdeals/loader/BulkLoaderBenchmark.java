@@ -0,0 +1,113 @@
+package com.bloomberg.fxdeals.loader;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loads a generated multi-gigabyte deal file into a file-backed H2 database and reports
+ * throughput. Size defaults to 2048 MB; override with -Dloader.benchmark.mb. About 1% of
+ * rows are invalid and 1% repeat an earlier unique ID. Writer connections default to 1,
+ * because H2 serialises writers on one table; override with
+ * -Dloader.benchmark.connections. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class BulkLoaderBenchmark {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP", "CHF", "AUD", "CAD", "NZD"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void benchmarkLoad() throws Exception {
+        long targetBytes = Long.getLong("loader.benchmark.mb", 2048) << 20;
+        Path input = directory.resolve("deals.csv");
+        long[] expected = generate(input, targetBytes);
+        System.out.printf("Generated %,d bytes, %,d rows%n", Files.size(input), expected[0]);
+
+        String url = "jdbc:h2:file:" + directory.resolve("db") + ";MODE=MySQL";
+        int connectionCount = Integer.getInteger("loader.benchmark.connections", 1);
+        List<Connection> connections = new ArrayList<>();
+        try (ValidatorFactory validation = Validation.buildDefaultValidatorFactory()) {
+            for (int i = 0; i < connectionCount; i++) {
+                connections.add(DriverManager.getConnection(url));
+            }
+            BulkLoaderTest.createTable(connections.get(0));
+            int parsers = Runtime.getRuntime().availableProcessors();
+            BulkLoader loader = new BulkLoader(connections, parsers, 1000, 64L << 20, validation.getValidator());
+
+            LoadReport report = loader.load(input, directory.resolve("rejects.tsv"));
+
+            System.out.printf("%d parsers, %d connections: %s%n", parsers, connectionCount, report);
+            assertEquals(expected[0], report.getRows());
+            assertEquals(expected[1], report.getInvalid());
+            assertEquals(expected[2], report.getDuplicates());
+            try (Statement statement = connections.get(0).createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM fx_deals")) {
+                resultSet.next();
+                assertEquals(report.getInserted(), resultSet.getLong(1));
+            }
+        } finally {
+            for (Connection connection : connections) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * @return rows, invalid rows and duplicate rows written
+     */
+    private static long[] generate(Path file, long targetBytes) throws IOException {
+        long rows = 0;
+        long invalid = 0;
+        long duplicates = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("dealUniqueId,fromCurrencyIso,toCurrencyIso,dealTimestamp,dealAmount\n");
+            long written = 0;
+            StringBuilder line = new StringBuilder(96);
+            while (written < targetBytes) {
+                rows++;
+                line.setLength(0);
+                long n = rows;
+                String id = n % 100 == 50 ? "HIST-" + (n - 7) : "HIST-" + n;
+                String from = CURRENCIES[(int) (n % CURRENCIES.length)];
+                String to = CURRENCIES[(int) ((n / 8 + 1 + n) % CURRENCIES.length)];
+                if (n % 100 == 25) {
+                    to = from;
+                    invalid++;
+                } else if (from.equals(to)) {
+                    to = CURRENCIES[(int) ((n + 1) % CURRENCIES.length)];
+                }
+                if (n % 100 == 50) {
+                    duplicates++;
+                }
+                line.append(id).append(',').append(from).append(',').append(to)
+                    .append(",2019-").append(String.format("%02d", n % 12 + 1)).append('-')
+                    .append(String.format("%02d", n % 28 + 1)).append('T')
+                    .append(String.format("%02d:%02d:%02d", n % 24, n % 60, n / 7 % 60))
+                    .append(',').append(n % 10_000_000 + 1).append('.').append(String.format("%02d", n % 100))
+                    .append('\n');
+                out.append(line);
+                written += line.length();
+            }
+        }
+        return new long[] {rows, invalid, duplicates};
+    }
+}
@@ -0,0 +1,293 @@
+package com.bloomberg.fxdeals.loader;
+
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BulkLoader.
+ */
+class BulkLoaderTest {
+
+    private static ValidatorFactory validation;
+    private static Validator validator;
+
+    @TempDir
+    Path directory;
+
+    private final List<Connection> connections = new ArrayList<>();
+
+    @BeforeAll
+    static void setUpValidator() {
+        validation = Validation.buildDefaultValidatorFactory();
+        validator = validation.getValidator();
+    }
+
+    @AfterAll
+    static void closeValidator() {
+        validation.close();
+    }
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        String url = "jdbc:h2:mem:loader" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        for (int i = 0; i < 3; i++) {
+            connections.add(DriverManager.getConnection(url));
+        }
+        createTable(connections.get(0));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Test
+    void testEveryLineIsLoadedOnceAcrossChunkBoundaries() throws Exception {
+        Path input = write(generate(1, 500, "\n"));
+
+        // chunks far smaller than a line force every boundary case
+        LoadReport report = loader(7, 4, 3, 64).load(input, directory.resolve("rejects.tsv"));
+
+        assertEquals(500, report.getRows());
+        assertEquals(500, report.getInserted());
+        assertEquals(0, report.getInvalid() + report.getDuplicates());
+        assertEquals(500, count("SELECT COUNT(*) FROM fx_deals"));
+        assertEquals(500, count("SELECT COUNT(DISTINCT deal_unique_id) FROM fx_deals"));
+        assertEquals(0, Files.size(directory.resolve("rejects.tsv")));
+    }
+
+    @Test
+    void testHeaderAndWindowsLineEndingsAreHandled() throws Exception {
+        Path input = write("dealUniqueId,fromCurrencyIso,toCurrencyIso,dealTimestamp,dealAmount\r\n"
+                           + generate(1, 20, "\r\n"));
+
+        LoadReport report = loader(2, 2, 5, 1 << 20).load(input, directory.resolve("rejects.tsv"));
+
+        assertEquals(20, report.getInserted());
+        assertEquals(1, count("SELECT COUNT(*) FROM fx_deals WHERE deal_unique_id = 'FX-20'"
+                              + " AND to_currency_iso = 'GBP' AND deal_amount = 120.50"));
+    }
+
+    @Test
+    void testInvalidRowsAreRejectedWithReason() throws Exception {
+        Path input = write(generate(1, 3, "\n")
+                           + "FX-BAD1,USD,USD,2024-01-15T10:30:00,100.00\n"
+                           + "FX-BAD2,USD,EUR,not-a-date,100.00\n"
+                           + "FX-BAD3,USD,EUR,2024-01-15T10:30:00,-5\n"
+                           + "FX-BAD4,USD,EUR,2024-01-15T10:30:00\n"
+                           + ",USD,EUR,2024-01-15T10:30:00,1.00\n"
+                           + "\n");
+        Path rejects = directory.resolve("rejects.tsv");
+
+        LoadReport report = loader(1, 1, 10, 1 << 20).load(input, rejects);
+
+        assertEquals(8, report.getRows());
+        assertEquals(3, report.getInserted());
+        assertEquals(5, report.getInvalid());
+        String rejected = Files.readString(rejects);
+        assertTrue(rejected.contains("From Currency and To Currency must be different\tFX-BAD1"), rejected);
+        assertTrue(rejected.contains("Invalid deal timestamp: not-a-date"), rejected);
+        assertTrue(rejected.contains("Deal amount must be greater than zero"), rejected);
+        assertTrue(rejected.contains("Expected 5 comma-separated fields"), rejected);
+        assertTrue(rejected.contains("Deal Unique ID is required"), rejected);
+    }
+
+    @Test
+    void testDuplicatesInFileAndDatabaseAreRejected() throws Exception {
+        try (Statement statement = connections.get(0).createStatement()) {
+            statement.execute("INSERT INTO fx_deals (deal_unique_id, from_currency_iso, to_currency_iso, "
+                              + "deal_timestamp, deal_amount, created_at) "
+                              + "VALUES ('FX-2', 'USD', 'JPY', '2024-01-01 00:00:00', 1.00, '2024-01-01 00:00:00')");
+        }
+        Path input = write(generate(1, 10, "\n") + generate(5, 3, "\n"));
+        Path rejects = directory.resolve("rejects.tsv");
+
+        LoadReport report = loader(3, 2, 4, 100).load(input, rejects);
+
+        assertEquals(13, report.getRows());
+        assertEquals(9, report.getInserted());
+        assertEquals(4, report.getDuplicates());
+        assertEquals(10, count("SELECT COUNT(*) FROM fx_deals"));
+        assertEquals("JPY", string("SELECT to_currency_iso FROM fx_deals WHERE deal_unique_id = 'FX-2'"));
+        assertEquals(4, Files.readAllLines(rejects).size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testArchivedDealsAreRejectedAsDuplicates() throws Exception {
+        DealArchive archive = mock(DealArchive.class);
+        when(archive.findExistingDealUniqueIds(any())).thenAnswer(invocation -> {
+            Set<String> archived = new HashSet<>((Collection<String>) invocation.getArgument(0));
+            archived.retainAll(Set.of("FX-3", "FX-7"));
+            return archived;
+        });
+        Path input = write(generate(1, 10, "\n"));
+        Path rejects = directory.resolve("rejects.tsv");
+
+        LoadReport report = new BulkLoader(connections.subList(0, 2), 2, 4, 100, validator, archive)
+            .load(input, rejects);
+
+        assertEquals(8, report.getInserted());
+        assertEquals(2, report.getDuplicates());
+        assertEquals(0, count("SELECT COUNT(*) FROM fx_deals WHERE deal_unique_id IN ('FX-3', 'FX-7')"));
+        String rejected = Files.readString(rejects);
+        assertTrue(rejected.contains("Deal already archived\tFX-3"), rejected);
+        assertTrue(rejected.contains("Deal already archived\tFX-7"), rejected);
+    }
+
+    @Test
+    void testUnsupportedConfiguration_RefusesShardsAndArchiveWithoutDirectory() {
+        FxDealsConfig config = mock(FxDealsConfig.class);
+        when(config.getBoolean(any(), eq(false))).thenReturn(false);
+        when(config.getString(any(), any())).thenReturn("");
+        assertNull(BulkLoader.unsupportedConfiguration(config));
+
+        when(config.getBoolean(DealArchive.ENABLED_PROPERTY, false)).thenReturn(true);
+        assertTrue(BulkLoader.unsupportedConfiguration(config).contains(DealArchive.DIR_PROPERTY));
+
+        when(config.getString(DealArchive.DIR_PROPERTY, "")).thenReturn("/var/lib/fxdeals/archive");
+        assertNull(BulkLoader.unsupportedConfiguration(config));
+
+        when(config.getBoolean(ShardedDealStore.ENABLED_PROPERTY, false)).thenReturn(true);
+        assertTrue(BulkLoader.unsupportedConfiguration(config).contains(ShardedDealStore.ENABLED_PROPERTY));
+    }
+
+    @Test
+    void testOverlongLineIsRejectedAndLoadContinues() throws Exception {
+        String overlong = "FX-LONG," + "X".repeat(DealCsvParser.MAX_LINE_BYTES * 2) + "\n";
+        Path input = write(generate(1, 50, "\n") + overlong + generate(51, 50, "\n"));
+        Path rejects = directory.resolve("rejects.tsv");
+
+        LoadReport report = loader(2, 2, 16, 4096).load(input, rejects);
+
+        assertEquals(100, report.getInserted());
+        assertEquals(1, report.getInvalid());
+        assertTrue(Files.readString(rejects).contains("Line is longer than"));
+    }
+
+    @Test
+    void testWriterFailureIsReported() throws Exception {
+        try (Statement statement = connections.get(0).createStatement()) {
+            statement.execute("DROP TABLE fx_deals");
+        }
+        Path input = write(generate(1, 10, "\n"));
+
+        assertThrows(SQLException.class, () -> loader(2, 2, 3, 100).load(input, directory.resolve("rejects.tsv")));
+    }
+
+    @Test
+    void testWriterWhoseConnectionFailsStillDrainsItsQueue() throws Exception {
+        Connection failing = mock(Connection.class);
+        doThrow(new SQLException("Connection is broken", "08003")).when(failing).setAutoCommit(false);
+        BulkLoader loader = new BulkLoader(List.of(failing, connections.get(0)), 2, 2, 256, validator);
+        // far more batches than the queues hold, so a writer that stopped taking would block the parsers
+        Path input = write(generate(1, 400, "\n"));
+
+        SQLException failure = assertTimeoutPreemptively(Duration.ofSeconds(30), () ->
+            assertThrows(SQLException.class, () -> loader.load(input, directory.resolve("rejects.tsv"))));
+
+        assertEquals("Connection is broken", failure.getMessage());
+    }
+
+    @Test
+    void testRejectsFileFailureInWriterStopsTheLoad() throws Exception {
+        Path full = Path.of("/dev/full");
+        assumeTrue(Files.isWritable(full), "needs /dev/full");
+        // every row repeats within its batch, so the writers report duplicates until the rejects file fails
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            csv.append(generate(i, 1, "\n").repeat(2));
+        }
+        Path input = write(csv.toString());
+
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () ->
+            assertThrows(IOException.class, () -> loader(2, 2, 8, 1024).load(input, full)));
+    }
+
+    static String generate(int first, int count, String lineEnding) {
+        String[] targets = {"EUR", "JPY", "GBP"};
+        StringBuilder csv = new StringBuilder();
+        for (int i = first; i < first + count; i++) {
+            csv.append("FX-").append(i).append(",USD,").append(targets[i % targets.length])
+               .append(",2024-01-15T10:30:").append(String.format("%02d", i % 60))
+               .append(',').append(100 + i).append(".50").append(lineEnding);
+        }
+        return csv.toString();
+    }
+
+    /**
+     * Ids come from a sequence rather than AUTO_INCREMENT: H2 can hand out an identity
+     * value twice when concurrent inserts roll back, which MySQL does not.
+     */
+    static void createTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE SEQUENCE fx_deal_ids");
+            statement.execute("CREATE TABLE fx_deals ("
+                + "id BIGINT DEFAULT NEXT VALUE FOR fx_deal_ids PRIMARY KEY, "
+                + "deal_unique_id VARCHAR(100) NOT NULL UNIQUE, "
+                + "from_currency_iso VARCHAR(3) NOT NULL, "
+                + "to_currency_iso VARCHAR(3) NOT NULL, "
+                + "deal_timestamp DATETIME(6) NOT NULL, "
+                + "deal_amount DECIMAL(19,2) NOT NULL, "
+                + "created_at DATETIME(6) NOT NULL, "
+                + "updated_at DATETIME(6))");
+        }
+    }
+
+    private BulkLoader loader(int connectionCount, int parsers, int batchSize, long chunkBytes) {
+        return new BulkLoader(connections.subList(0, Math.min(connectionCount, connections.size())),
+                              parsers, batchSize, chunkBytes, validator);
+    }
+
+    private Path write(String content) throws IOException {
+        return Files.writeString(directory.resolve("deals.csv"), content, StandardCharsets.UTF_8);
+    }
+
+    private long count(String sql) throws SQLException {
+        try (Statement statement = connections.get(0).createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private String string(String sql) throws SQLException {
+        try (Statement statement = connections.get(0).createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+}
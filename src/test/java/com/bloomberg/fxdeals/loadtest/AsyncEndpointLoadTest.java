@@ -0,0 +1,426 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.bloomberg.fxdeals.concurrent.DealExecutor;
+import com.bloomberg.fxdeals.concurrent.Threads;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.controller.FxDealAsyncController;
+import com.bloomberg.fxdeals.controller.FxDealController;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.service.FxDealService;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.TimeoutHandler;
+import jakarta.ws.rs.core.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the synchronous and asynchronous lookup endpoints while the database is slow.
+ *
+ * A fixed pool of loadtest.async.workers threads (16) stands in for WildFly's HTTP
+ * worker threads. FxDealController and FxDealAsyncController are called on it with a
+ * service whose lookups hold one of loadtest.async.pool-size connections (25) for
+ * loadtest.async.db-ms (20). loadtest.async.clients clients (200) send lookups back to
+ * back, while a probe submits a no-op health check to the worker pool every 20 ms.
+ *
+ * Each mode reports throughput, request latency percentiles, the mean number of
+ * requests in progress past the worker queue, and health check latency. The
+ * asynchronous modes run DealExecutor on platform threads and, on Java 21 or later, on
+ * virtual threads. The test fails on any error response, or when an asynchronous mode
+ * does not keep more requests in progress and answer health checks faster than the
+ * synchronous one. Settings loadtest.async.warmup-seconds (2) and
+ * loadtest.async.seconds (10) set the run time per mode. Run with -Ploadtest.
+ */
+@Tag("loadtest")
+class AsyncEndpointLoadTest {
+
+    private static final String[] QUIET_LOGGERS = {"com.bloomberg.fxdeals"};
+    private static final long PROBE_INTERVAL_MILLIS = 20;
+    private static final FxDealResponse DEAL = new FxDealResponse(1L, "DEAL001", "USD", "EUR",
+                                                                  LocalDateTime.of(2024, 1, 15, 9, 30),
+                                                                  new BigDecimal("1000.50"),
+                                                                  LocalDateTime.of(2024, 1, 15, 9, 30));
+
+    private final Map<Logger, Level> logLevels = new HashMap<>();
+
+    @BeforeEach
+    void quietLogging() {
+        for (String name : QUIET_LOGGERS) {
+            Logger logger = (Logger) LoggerFactory.getLogger(name);
+            logLevels.put(logger, logger.getLevel());
+            logger.setLevel(Level.WARN);
+        }
+    }
+
+    @AfterEach
+    void restoreLogging() {
+        logLevels.forEach(Logger::setLevel);
+    }
+
+    @Test
+    void loadTest() throws Exception {
+        Settings settings = new Settings();
+        System.out.printf("Java %d, %d clients, %d workers, %d connections, %d ms per lookup, %d s after %d s warm-up%n",
+                          Runtime.version().feature(), settings.clients, settings.workers, settings.poolSize,
+                          settings.dbMillis, TimeUnit.NANOSECONDS.toSeconds(settings.runNanos),
+                          TimeUnit.NANOSECONDS.toSeconds(settings.warmupNanos));
+
+        Run sync = run("sync", settings, null);
+        Run platform = run("async-platform", settings, "platform");
+        Run virtual = Runtime.version().feature() >= 21 ? run("async-virtual", settings, "virtual") : null;
+        if (virtual == null) {
+            System.out.println("async-virtual: skipped, virtual threads need Java 21 (-Pjava21 on a JDK 21)");
+        }
+
+        for (Run async : virtual != null ? List.of(platform, virtual) : List.of(platform)) {
+            assertTrue(async.meanInProgress > sync.meanInProgress,
+                       async.mode + " keeps no more requests in progress than sync");
+            assertTrue(async.health.percentile(99) < sync.health.percentile(99),
+                       async.mode + " answers health checks no faster than sync");
+        }
+    }
+
+    private static Run run(String mode, Settings settings, String executorMode) throws Exception {
+        Semaphore connections = new Semaphore(settings.poolSize, true);
+        SlowService service = new SlowService(connections, settings.dbMillis);
+        ExecutorService workers = Executors.newFixedThreadPool(settings.workers, Threads.daemonThreadFactory("worker"));
+        ExecutorService clients = Executors.newFixedThreadPool(settings.clients, Threads.daemonThreadFactory("client"));
+        DealExecutor executor = null;
+        AtomicInteger inProgress = new AtomicInteger();
+        try {
+            Endpoint endpoint;
+            if (executorMode == null) {
+                FxDealController controller = new FxDealController();
+                set(controller, "dealService", service);
+                endpoint = id -> {
+                    CompletableFuture<Object> response = new CompletableFuture<>();
+                    workers.execute(() -> {
+                        inProgress.incrementAndGet();
+                        try {
+                            response.complete(controller.getDealById(id));
+                        } catch (RuntimeException e) {
+                            response.complete(e);
+                        } finally {
+                            inProgress.decrementAndGet();
+                        }
+                    });
+                    return response;
+                };
+            } else {
+                executor = dealExecutor(executorMode, settings.poolSize);
+                FxDealAsyncController controller = new FxDealAsyncController();
+                set(controller, "dealService", service);
+                set(controller, "executor", executor);
+                set(controller, "config", new FxDealsConfig());
+                endpoint = id -> {
+                    CompletableFuture<Object> response = new CompletableFuture<>();
+                    workers.execute(() -> {
+                        inProgress.incrementAndGet();
+                        response.whenComplete((result, error) -> inProgress.decrementAndGet());
+                        try {
+                            controller.getDealById(id, new FutureAsyncResponse(response));
+                        } catch (RuntimeException e) {
+                            response.complete(e);
+                        }
+                    });
+                    return response;
+                };
+            }
+
+            long measureStart = System.nanoTime() + settings.warmupNanos;
+            long end = measureStart + settings.runNanos;
+            List<Future<Client>> futures = new ArrayList<>();
+            for (int i = 0; i < settings.clients; i++) {
+                futures.add(clients.submit(new Client(endpoint, measureStart, end)));
+            }
+            Run run = new Run(mode, settings.runNanos);
+            run.probe(workers, inProgress, measureStart, end);
+            for (Future<Client> future : futures) {
+                Client client = future.get();
+                run.requests.addAll(client.latencies);
+                run.errors += client.errors;
+            }
+            System.out.println(run.format());
+            assertEquals(0, run.errors, mode + " requests answered with an error");
+            return run;
+        } finally {
+            clients.shutdownNow();
+            workers.shutdownNow();
+            if (executor != null) {
+                invoke(executor, "shutdown");
+            }
+        }
+    }
+
+    private static DealExecutor dealExecutor(String mode, int poolSize) throws Exception {
+        DealExecutor executor = new DealExecutor();
+        Map<String, String> settings = Map.of(DealExecutor.EXECUTOR_PROPERTY, mode,
+                                              DealExecutor.POOL_SIZE_PROPERTY, Integer.toString(poolSize));
+        set(executor, "config", new FxDealsConfig() {
+            @Override
+            public String getString(String key, String defaultValue) {
+                return settings.getOrDefault(key, defaultValue);
+            }
+        });
+        invoke(executor, "init");
+        return executor;
+    }
+
+    private static void set(Object bean, String name, Object value) throws ReflectiveOperationException {
+        Field field = bean.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(bean, value);
+    }
+
+    private static void invoke(Object bean, String name) throws ReflectiveOperationException {
+        Method method = bean.getClass().getDeclaredMethod(name);
+        method.setAccessible(true);
+        method.invoke(bean);
+    }
+
+    /**
+     * One lookup through a controller, completing with its Response or the exception it
+     * threw.
+     */
+    private interface Endpoint {
+        CompletableFuture<Object> lookup(long id);
+    }
+
+    /**
+     * Run settings, from loadtest.async.* system properties.
+     */
+    private static final class Settings {
+        final int clients = Integer.getInteger("loadtest.async.clients", 200);
+        final int workers = Integer.getInteger("loadtest.async.workers", 16);
+        final int poolSize = Integer.getInteger("loadtest.async.pool-size", 25);
+        final long dbMillis = Long.getLong("loadtest.async.db-ms", 20);
+        final long warmupNanos = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.async.warmup-seconds", 2));
+        final long runNanos = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.async.seconds", 10));
+    }
+
+    /**
+     * A service whose lookups take a database connection for a fixed time.
+     */
+    private static final class SlowService extends FxDealService {
+
+        private final Semaphore connections;
+        private final long dbMillis;
+
+        SlowService(Semaphore connections, long dbMillis) {
+            this.connections = connections;
+            this.dbMillis = dbMillis;
+        }
+
+        @Override
+        public FxDealResponse getDealById(Long id) {
+            try {
+                connections.acquire();
+                try {
+                    Thread.sleep(dbMillis);
+                } finally {
+                    connections.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting for the database", e);
+            }
+            return DEAL;
+        }
+    }
+
+    /**
+     * One client: sends lookups back to back, recording those started after the warm-up.
+     */
+    private static final class Client implements Callable<Client> {
+
+        private final Endpoint endpoint;
+        private final long measureStart;
+        private final long end;
+        private final LatencySamples latencies = new LatencySamples();
+        private long errors;
+
+        Client(Endpoint endpoint, long measureStart, long end) {
+            this.endpoint = endpoint;
+            this.measureStart = measureStart;
+            this.end = end;
+        }
+
+        @Override
+        public Client call() throws Exception {
+            try {
+                for (long start = System.nanoTime(); start < end; start = System.nanoTime()) {
+                    Object response = endpoint.lookup(1L).get();
+                    if (start >= measureStart) {
+                        latencies.record(System.nanoTime() - start);
+                        if (!(response instanceof Response) || ((Response) response).getStatus() != 200) {
+                            errors++;
+                        }
+                    }
+                }
+            } finally {
+                RequestContext.clear();
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Results of one mode.
+     */
+    private static final class Run {
+
+        final String mode;
+        final long durationNanos;
+        final LatencySamples requests = new LatencySamples();
+        final LatencySamples health = new LatencySamples();
+        long errors;
+        double meanInProgress;
+
+        Run(String mode, long durationNanos) {
+            this.mode = mode;
+            this.durationNanos = durationNanos;
+        }
+
+        /**
+         * Until end, every PROBE_INTERVAL_MILLIS samples the requests in progress and
+         * times a no-op task through the worker pool.
+         */
+        void probe(ExecutorService workers, AtomicInteger inProgress, long measureStart, long end) throws Exception {
+            long samples = 0;
+            long total = 0;
+            while (System.nanoTime() < end) {
+                TimeUnit.MILLISECONDS.sleep(PROBE_INTERVAL_MILLIS);
+                long start = System.nanoTime();
+                if (start < measureStart || start >= end) {
+                    continue;
+                }
+                total += inProgress.get();
+                samples++;
+                workers.submit(() -> { }).get();
+                health.record(System.nanoTime() - start);
+            }
+            meanInProgress = samples == 0 ? 0 : (double) total / samples;
+        }
+
+        String format() {
+            return String.format(Locale.ROOT,
+                "%-15s %8.1f req/s  p50 %7.1f  p99 %7.1f  p999 %7.1f ms  in progress %6.1f  health p50 %7.1f  p99 %7.1f ms",
+                mode, requests.count() * 1e9 / durationNanos, millis(requests.percentile(50)),
+                millis(requests.percentile(99)), millis(requests.percentile(99.9)), meanInProgress,
+                millis(health.percentile(50)), millis(health.percentile(99)));
+        }
+
+        private static double millis(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+
+    /**
+     * The parts of AsyncResponse FxDealAsyncController uses, completing a future on
+     * resume. Timeouts are not scheduled; the run is shorter than fxdeals.async.timeout-ms.
+     */
+    private static final class FutureAsyncResponse implements AsyncResponse {
+
+        private final CompletableFuture<Object> response;
+
+        FutureAsyncResponse(CompletableFuture<Object> response) {
+            this.response = response;
+        }
+
+        @Override
+        public boolean resume(Object value) {
+            return response.complete(value);
+        }
+
+        @Override
+        public boolean resume(Throwable error) {
+            return response.complete(error);
+        }
+
+        @Override
+        public boolean cancel() {
+            return response.complete(null);
+        }
+
+        @Override
+        public boolean cancel(int retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean cancel(Date retryAfter) {
+            return cancel();
+        }
+
+        @Override
+        public boolean isSuspended() {
+            return !response.isDone();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return response.isDone();
+        }
+
+        @Override
+        public boolean setTimeout(long time, TimeUnit unit) {
+            return true;
+        }
+
+        @Override
+        public void setTimeoutHandler(TimeoutHandler handler) {
+        }
+
+        @Override
+        public Collection<Class<?>> register(Class<?> callback) {
+            return List.of();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Class<?> callback, Class<?>... callbacks) {
+            return Map.of();
+        }
+
+        @Override
+        public Collection<Class<?>> register(Object callback) {
+            return List.of();
+        }
+
+        @Override
+        public Map<Class<?>, Collection<Class<?>>> register(Object callback, Object... callbacks) {
+            return Map.of();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import com.bloomberg.fxdeals.startup.SchemaMigrator;
+import com.bloomberg.fxdeals.startup.StartupWarmUp;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures cold starts of the in-process API ({@link ColdStartProbe}), each in a fresh
+ * JVM on a fresh copy of a file-backed H2 database built by SchemaMigrator:
+ *
+ * <ul>
+ *   <li>update: hbm2ddl update, as persistence.xml by default</li>
+ *   <li>validate: hbm2ddl validate against the migrated schema</li>
+ *   <li>validate+cds: as validate, with an AppCDS archive written by a training run</li>
+ *   <li>validate+cds+warmup: as validate+cds, with StartupWarmUp run before the first request</li>
+ * </ul>
+ *
+ * Reports, from process start, when the first create was answered and when a window's
+ * throughput first reached 90% of the steady rate, the mean of the last third of the
+ * run, and how long the first create itself took. Responses with an unexpected status
+ * are printed by the probe and counted over all starts of a mode. Figures are medians over coldstart.runs (3) starts. Other settings:
+ * coldstart.clients (4), coldstart.seconds of load (20), coldstart.preload (10000
+ * deals) and coldstart.warmup-iterations (the application's default). AppCDS only archives classes from jar files, so the class directories are
+ * jarred first. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class ColdStartBenchmark {
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP", "CHF", "AUD", "CAD", "NZD"};
+    private static final String DATABASE = "fxdeals";
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void benchmarkColdStart() throws Exception {
+        int runs = Integer.getInteger("coldstart.runs", 3);
+        int clients = Integer.getInteger("coldstart.clients", 4);
+        int seconds = Integer.getInteger("coldstart.seconds", 20);
+        int preload = Integer.getInteger("coldstart.preload", 10_000);
+
+        String classpath = jarredClasspath();
+        Path template = directory.resolve("template");
+        createDatabase(template, preload);
+
+        Path archive = directory.resolve("coldstart.jsa");
+        start(classpath, List.of("-XX:ArchiveClassesAtExit=" + archive), template, "validate", true, clients, 2, preload);
+        assertTrue(Files.exists(archive), "training run wrote no CDS archive");
+        List<String> withArchive = List.of("-XX:SharedArchiveFile=" + archive, "-Xshare:on");
+
+        System.out.printf("%d clients, %d s of load, %d deals, median of %d starts; times from process start%n",
+                          clients, seconds, preload, runs);
+        System.out.printf("%-22s %14s %14s %14s %14s %14s %8s%n",
+                          "mode", "first create", "its latency", "90% of peak", "steady req/s", "warm-up", "errors");
+        for (Object[] mode : new Object[][] {
+                {"update", List.of(), "update", false},
+                {"validate", List.of(), "validate", false},
+                {"validate+cds", withArchive, "validate", false},
+                {"validate+cds+warmup", withArchive, "validate", true}}) {
+            List<Start> starts = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                @SuppressWarnings("unchecked")
+                List<String> options = (List<String>) mode[1];
+                starts.add(start(classpath, options, template, (String) mode[2], (Boolean) mode[3],
+                                 clients, seconds, preload));
+            }
+            System.out.printf(Locale.ROOT, "%-22s %11d ms %11d ms %11d ms %14.0f %11d ms %8d%n", mode[0],
+                              (long) median(starts, start -> start.firstMillis),
+                              (long) median(starts, start -> start.firstLatencyMillis),
+                              (long) median(starts, start -> start.peakMillis),
+                              median(starts, start -> start.steadyPerSecond),
+                              (long) median(starts, start -> start.warmUpMillis),
+                              starts.stream().mapToLong(start -> start.errors).sum());
+        }
+    }
+
+    /**
+     * Starts a probe JVM on a copy of the template database and waits for its result.
+     */
+    private Start start(String classpath, List<String> options, Path template, String schemaMode, boolean warmUp,
+                        int clients, int seconds, int preload) throws IOException, InterruptedException {
+        Path run = Files.createTempDirectory(directory, "run");
+        Files.copy(template.resolve(DATABASE + ".mv.db"), run.resolve(DATABASE + ".mv.db"));
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-Xmx512m");
+        String iterations = System.getProperty("coldstart.warmup-iterations");
+        if (iterations != null) {
+            command.add("-D" + StartupWarmUp.ITERATIONS_PROPERTY + "=" + iterations);
+        }
+        command.addAll(options);
+        command.addAll(List.of("-cp", classpath, ColdStartProbe.class.getName(), url(run), schemaMode,
+                               Boolean.toString(warmUp), Integer.toString(clients), Integer.toString(seconds),
+                               Integer.toString(preload)));
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        long firstNanos = -1;
+        String result = null;
+        List<String> output = new ArrayList<>();
+        try (BufferedReader lines = new BufferedReader(
+                 new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+                if (line.equals("first")) {
+                    firstNanos = System.nanoTime() - launched;
+                } else if (line.startsWith("result ")) {
+                    result = line;
+                } else {
+                    output.add(line);
+                }
+            }
+        }
+        int exit = process.waitFor();
+        assertTrue(exit == 0 && result != null && firstNanos >= 0,
+                   "probe failed with exit code " + exit + ":\n" + String.join("\n", output));
+        output.stream().filter(line -> line.contains(" answered ")).forEach(System.out::println);
+        return Start.parse(result, TimeUnit.NANOSECONDS.toMillis(firstNanos));
+    }
+
+    private static void createDatabase(Path location, int deals) throws Exception {
+        try (Connection connection = DriverManager.getConnection(url(location), "sa", "")) {
+            new SchemaMigrator().migrate(connection);
+            connection.setAutoCommit(false);
+            try (PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO fx_deals (deal_unique_id, from_currency_iso, to_currency_iso, deal_timestamp,"
+                     + " deal_amount, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                LocalDateTime base = LocalDateTime.of(2024, 1, 15, 9, 30);
+                Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+                for (int i = 0; i < deals; i++) {
+                    insert.setString(1, "PRELOAD-" + i);
+                    insert.setString(2, CURRENCIES[i % CURRENCIES.length]);
+                    insert.setString(3, CURRENCIES[(i + 1) % CURRENCIES.length]);
+                    insert.setTimestamp(4, Timestamp.valueOf(base.plusSeconds(i)));
+                    insert.setBigDecimal(5, BigDecimal.valueOf(100_000 + i * 37L, 2));
+                    insert.setTimestamp(6, now);
+                    insert.setTimestamp(7, now);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private static String url(Path location) {
+        return "jdbc:h2:file:" + location.resolve(DATABASE) + ";MODE=MySQL";
+    }
+
+    /**
+     * The test class path with each class directory replaced by a jar of its contents.
+     */
+    private String jarredClasspath() throws IOException {
+        String classpath = System.getProperty("surefire.test.class.path", System.getProperty("java.class.path"));
+        List<String> entries = new ArrayList<>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            Path path = Paths.get(entry);
+            if (Files.isDirectory(path)) {
+                Path jar = directory.resolve("classpath-" + entries.size() + ".jar");
+                jar(path, jar);
+                entries.add(jar.toString());
+            } else if (!entry.isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static void jar(Path classes, Path jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(classes)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+                out.putNextEntry(new JarEntry(classes.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+
+    private static double median(List<Start> starts, ToDoubleFunction<Start> metric) {
+        double[] values = starts.stream().mapToDouble(metric).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    /**
+     * One probe run, with times in milliseconds from process start.
+     */
+    private static final class Start {
+        final long firstMillis;
+        final long firstLatencyMillis;
+        final long peakMillis;
+        final long warmUpMillis;
+        final double steadyPerSecond;
+        final long errors;
+
+        private Start(long firstMillis, long firstLatencyMillis, long peakMillis, long warmUpMillis,
+                      double steadyPerSecond, long errors) {
+            this.firstMillis = firstMillis;
+            this.firstLatencyMillis = firstLatencyMillis;
+            this.peakMillis = peakMillis;
+            this.warmUpMillis = warmUpMillis;
+            this.steadyPerSecond = steadyPerSecond;
+            this.errors = errors;
+        }
+
+        static Start parse(String result, long firstMillis) {
+            Map<String, String> values = new HashMap<>();
+            for (String pair : result.substring("result ".length()).split(" ")) {
+                int separator = pair.indexOf('=');
+                values.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+            long[] counts = Arrays.stream(values.get("counts").split(",")).mapToLong(Long::parseLong).toArray();
+            long window = Long.parseLong(values.get("window"));
+            int tail = Math.max(1, counts.length / 3);
+            double steady = Arrays.stream(counts, counts.length - tail, counts.length).average().orElse(0);
+            int peak = 0;
+            while (peak < counts.length - 1 && counts[peak] < 0.9 * steady) {
+                peak++;
+            }
+            // uptime and process time differ by the JVM's own launch; the first create is seen in both
+            long offset = firstMillis - Long.parseLong(values.get("first"));
+            long peakMillis = Long.parseLong(values.get("load")) + (peak + 1) * window + offset;
+            long ready = Long.parseLong(values.get("ready"));
+            long warmUpMillis = ready - Long.parseLong(values.get("boot"));
+            return new Start(firstMillis, Long.parseLong(values.get("first")) - ready, peakMillis, warmUpMillis,
+                             steady * 1000 / window, Long.parseLong(values.get("errors")));
+        }
+    }
+}
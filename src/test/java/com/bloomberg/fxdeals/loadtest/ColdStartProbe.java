@@ -0,0 +1,143 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.startup.StartupWarmUp;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * One cold start of the in-process API, run in a JVM of its own by
+ * {@link ColdStartBenchmark}: builds Hibernate on an existing H2 database, optionally
+ * runs {@link StartupWarmUp}, sends one create, and then has several clients alternate
+ * creates and page reads, counting the requests completed in each window of
+ * {@value #WINDOW_MS} ms.
+ *
+ * Arguments: database URL, hbm2ddl mode, warm-up (true or false), clients, seconds of
+ * load, deals in the database. Prints "first" as soon as the first create is answered,
+ * then one "result" line of key=value pairs; times are JVM uptime in milliseconds.
+ */
+final class ColdStartProbe {
+
+    static final long WINDOW_MS = 250;
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP", "CHF", "AUD", "CAD", "NZD"};
+    private static final LocalDateTime BASE_TIMESTAMP = LocalDateTime.of(2024, 1, 15, 9, 30);
+    private static final int PAGE_SIZE = 20;
+
+    private ColdStartProbe() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (String name : new String[] {"com.bloomberg.fxdeals", "org.hibernate"}) {
+            ((Logger) LoggerFactory.getLogger(name)).setLevel(Level.WARN);
+        }
+        String url = args[0];
+        String schemaMode = args[1];
+        boolean warmUp = Boolean.parseBoolean(args[2]);
+        int clients = Integer.parseInt(args[3]);
+        long seconds = Long.parseLong(args[4]);
+        int deals = Integer.parseInt(args[5]);
+
+        try (InProcessApi api = new InProcessApi(clients + 1, url, schemaMode)) {
+            long boot = uptime();
+            if (warmUp) {
+                api.bean(StartupWarmUp.class).run();
+            }
+            long ready = uptime();
+            int status = api.send(post("FIRST", 9, 0).header(RequestContext.CLIENT_ID_HEADER, "coldstart")
+                                      .accept(MediaType.APPLICATION_JSON)).getStatus();
+            long first = uptime();
+            System.out.println("first");
+            if (status != 201) {
+                throw new IllegalStateException("First create answered " + status);
+            }
+
+            int windows = (int) (TimeUnit.SECONDS.toMillis(seconds) / WINDOW_MS);
+            AtomicLongArray counts = new AtomicLongArray(windows);
+            AtomicLong errors = new AtomicLong();
+            long load = uptime();
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int i = 0; i < clients; i++) {
+                    int client = i;
+                    futures.add(pool.submit(() -> drive(api, client, deals, load, counts, errors)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+            System.out.printf(Locale.ROOT, "result boot=%d ready=%d first=%d load=%d window=%d errors=%d counts=%s%n",
+                              boot, ready, first, load, WINDOW_MS, errors.get(),
+                              IntStream.range(0, windows).mapToObj(i -> Long.toString(counts.get(i)))
+                                  .collect(Collectors.joining(",")));
+        }
+    }
+
+    private static Void drive(InProcessApi api, int client, int deals, long load,
+                              AtomicLongArray counts, AtomicLong errors) throws URISyntaxException {
+        Random random = new Random(client);
+        try {
+            for (int sequence = 0; ; sequence++) {
+                boolean create = sequence % 2 == 0;
+                MockHttpRequest request = create
+                    ? post("COLD-" + client + "-" + sequence, client, sequence)
+                    : MockHttpRequest.get(String.format(Locale.ROOT, "/api/fx-deals?offset=%d&limit=%d",
+                                                        random.nextInt(Math.max(1, deals / PAGE_SIZE)) * PAGE_SIZE,
+                                                        PAGE_SIZE));
+                MockHttpResponse response = api.send(request.header(RequestContext.CLIENT_ID_HEADER, "coldstart-" + client)
+                                                         .accept(MediaType.APPLICATION_JSON));
+                if (response.getStatus() != (create ? 201 : 200)) {
+                    errors.incrementAndGet();
+                    System.out.println(request.getHttpMethod() + " " + request.getUri().getRequestUri() + " answered "
+                                       + response.getStatus() + ": " + new String(response.getOutput(), StandardCharsets.UTF_8));
+                }
+                int window = (int) ((uptime() - load) / WINDOW_MS);
+                if (window >= counts.length()) {
+                    return null;
+                }
+                counts.incrementAndGet(window);
+            }
+        } finally {
+            RequestContext.clear();
+        }
+    }
+
+    private static MockHttpRequest post(String uniqueId, int client, int sequence) throws URISyntaxException {
+        String body = String.format(Locale.ROOT,
+            "{\"dealUniqueId\":\"%s\",\"fromCurrencyIso\":\"%s\",\"toCurrencyIso\":\"%s\","
+                + "\"dealTimestamp\":\"%s\",\"dealAmount\":%d.%02d}",
+            uniqueId, CURRENCIES[sequence % CURRENCIES.length], CURRENCIES[(sequence + 3) % CURRENCIES.length],
+            BASE_TIMESTAMP.minusSeconds(sequence), 1000 + client * 100_000 + sequence, sequence % 100);
+        return MockHttpRequest.post("/api/fx-deals")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long uptime() {
+        return ManagementFactory.getRuntimeMXBean().getUptime();
+    }
+}
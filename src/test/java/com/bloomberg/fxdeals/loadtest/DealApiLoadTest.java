@@ -0,0 +1,254 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.loadtest.LoadMix.Operation;
+import jakarta.ws.rs.core.MediaType;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the deal API in-process ({@link InProcessApi}) from many concurrent clients
+ * with a mix of creates, duplicate creates, point lookups and paged listings, reports
+ * throughput and p50/p99/p999 latency per operation, and fails when any throughput is
+ * more than loadtest.max-regression-percent below the checked-in baseline.
+ *
+ * Settings are system properties: loadtest.clients (16), loadtest.preload (10000 deals),
+ * loadtest.warmup-seconds (5), loadtest.seconds (20), loadtest.mix
+ * ("create=30,duplicate=10,lookup=45,page=15"), loadtest.page-size (20),
+ * loadtest.max-regression-percent (20) and loadtest.baseline (a properties file;
+ * "none" skips the comparison). Results are written to target/loadtest-result.properties
+ * in the baseline's format. Application and SQL logging is raised to WARN for the run,
+ * so that the figures describe request handling rather than console output. Run with
+ * -Ploadtest.
+ */
+@Tag("loadtest")
+class DealApiLoadTest {
+
+    private static final String DEFAULT_BASELINE = "/loadtest/baseline.properties";
+    private static final String[] CURRENCIES = {"USD", "EUR", "JPY", "GBP", "CHF", "AUD", "CAD", "NZD"};
+    private static final LocalDateTime BASE_TIMESTAMP = LocalDateTime.of(2024, 1, 15, 9, 30);
+    private static final String[] QUIET_LOGGERS = {"com.bloomberg.fxdeals", "org.hibernate"};
+
+    private final Map<Logger, Level> logLevels = new HashMap<>();
+
+    @BeforeEach
+    void quietLogging() {
+        for (String name : QUIET_LOGGERS) {
+            Logger logger = (Logger) LoggerFactory.getLogger(name);
+            logLevels.put(logger, logger.getLevel());
+            logger.setLevel(Level.WARN);
+        }
+    }
+
+    @AfterEach
+    void restoreLogging() {
+        logLevels.forEach(Logger::setLevel);
+    }
+
+    @Test
+    void loadTest() throws Exception {
+        int clients = Integer.getInteger("loadtest.clients", 16);
+        int preload = Integer.getInteger("loadtest.preload", 10_000);
+        long warmupNanos = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.warmup-seconds", 5));
+        long runNanos = TimeUnit.SECONDS.toNanos(Long.getLong("loadtest.seconds", 20));
+        LoadMix mix = LoadMix.parse(System.getProperty("loadtest.mix", "create=30,duplicate=10,lookup=45,page=15"));
+        int pageSize = Integer.getInteger("loadtest.page-size", 20);
+        double maxRegressionPercent = Double.parseDouble(System.getProperty("loadtest.max-regression-percent", "20"));
+
+        try (InProcessApi api = new InProcessApi(clients + 1)) {
+            api.inTransaction(entityManager -> {
+                for (int i = 0; i < preload; i++) {
+                    entityManager.persist(deal(i));
+                }
+            });
+
+            ExecutorService pool = Executors.newFixedThreadPool(clients);
+            List<Future<Client>> futures = new ArrayList<>();
+            long measureStart = System.nanoTime() + warmupNanos;
+            long end = measureStart + runNanos;
+            try {
+                for (int i = 0; i < clients; i++) {
+                    futures.add(pool.submit(new Client(i, api, mix, preload, pageSize, measureStart, end)));
+                }
+                LoadTestResult result = new LoadTestResult(runNanos);
+                for (Future<Client> future : futures) {
+                    future.get().addTo(result);
+                }
+
+                System.out.printf("%d clients, %d preloaded deals, %d s after %d s warm-up, mix %s%n%s",
+                                  clients, preload, TimeUnit.NANOSECONDS.toSeconds(runNanos),
+                                  TimeUnit.NANOSECONDS.toSeconds(warmupNanos),
+                                  System.getProperty("loadtest.mix", "create=30,duplicate=10,lookup=45,page=15"),
+                                  result.format());
+                Path output = Paths.get("target", "loadtest-result.properties");
+                Files.createDirectories(output.getParent());
+                Files.writeString(output, result.toProperties(), StandardCharsets.UTF_8);
+
+                assertEquals(0, result.getErrors(), "requests answered with an unexpected status");
+                Properties baseline = baseline();
+                if (baseline != null) {
+                    List<String> regressions = LoadTestResult.regressions(baseline, result.toMap(), maxRegressionPercent);
+                    assertTrue(regressions.isEmpty(), "Throughput regressions:\n" + String.join("\n", regressions));
+                }
+            } finally {
+                pool.shutdownNow();
+                pool.awaitTermination(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private static Properties baseline() throws IOException {
+        String location = System.getProperty("loadtest.baseline");
+        if ("none".equals(location)) {
+            return null;
+        }
+        Properties baseline = new Properties();
+        try (InputStream in = location != null
+                ? Files.newInputStream(Paths.get(location))
+                : DealApiLoadTest.class.getResourceAsStream(DEFAULT_BASELINE)) {
+            assertNotNull(in, "Missing load test baseline " + DEFAULT_BASELINE);
+            baseline.load(in);
+        }
+        return baseline;
+    }
+
+    private static FxDeal deal(int i) {
+        return new FxDeal(preloadedId(i), CURRENCIES[i % CURRENCIES.length], CURRENCIES[(i + 1) % CURRENCIES.length],
+                          BASE_TIMESTAMP.plusSeconds(i), BigDecimal.valueOf(100_000 + i * 37L, 2));
+    }
+
+    private static String preloadedId(int i) {
+        return "PRELOAD-" + i;
+    }
+
+    /**
+     * One client: issues requests back to back, recording those started after the
+     * warm-up.
+     */
+    private static final class Client implements Callable<Client> {
+
+        private final int index;
+        private final InProcessApi api;
+        private final LoadMix mix;
+        private final int preload;
+        private final int pageSize;
+        private final long measureStart;
+        private final long end;
+        private final Random random;
+        private final Map<Operation, LatencySamples> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+        private int created;
+
+        Client(int index, InProcessApi api, LoadMix mix, int preload, int pageSize, long measureStart, long end) {
+            this.index = index;
+            this.api = api;
+            this.mix = mix;
+            this.preload = preload;
+            this.pageSize = pageSize;
+            this.measureStart = measureStart;
+            this.end = end;
+            this.random = new Random(index);
+        }
+
+        @Override
+        public Client call() throws Exception {
+            try {
+                for (long start = System.nanoTime(); start < end; start = System.nanoTime()) {
+                    Operation operation = mix.pick(random.nextInt(mix.totalWeight()));
+                    MockHttpRequest request = request(operation);
+                    int status;
+                    try {
+                        MockHttpResponse response = api.send(request);
+                        status = response.getStatus();
+                    } catch (RuntimeException e) {
+                        status = -1;
+                    }
+                    long latency = System.nanoTime() - start;
+                    if (start >= measureStart) {
+                        latencies.computeIfAbsent(operation, ignored -> new LatencySamples()).record(latency);
+                        if (status != operation.expectedStatus) {
+                            errors.merge(operation, 1L, Long::sum);
+                        }
+                    }
+                }
+            } finally {
+                RequestContext.clear();
+            }
+            return this;
+        }
+
+        void addTo(LoadTestResult result) {
+            for (Map.Entry<Operation, LatencySamples> entry : latencies.entrySet()) {
+                result.add(entry.getKey(), entry.getValue(), errors.getOrDefault(entry.getKey(), 0L));
+            }
+        }
+
+        private MockHttpRequest request(Operation operation) throws URISyntaxException {
+            MockHttpRequest request;
+            switch (operation) {
+                case CREATE:
+                    request = post("LOAD-" + index + "-" + created, created++);
+                    break;
+                case DUPLICATE:
+                    request = post(preloadedId(random.nextInt(preload)), random.nextInt(preload));
+                    break;
+                case LOOKUP:
+                    request = MockHttpRequest.get("/api/fx-deals/" + (1 + random.nextInt(preload)));
+                    break;
+                case PAGE:
+                    int pages = Math.max(1, preload / pageSize);
+                    request = MockHttpRequest.get(String.format(Locale.ROOT, "/api/fx-deals?offset=%d&limit=%d",
+                                                                random.nextInt(pages) * pageSize, pageSize));
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown operation " + operation);
+            }
+            return request.header(RequestContext.CLIENT_ID_HEADER, "loadtest-" + index)
+                .accept(MediaType.APPLICATION_JSON);
+        }
+
+        private MockHttpRequest post(String uniqueId, int sequence) throws URISyntaxException {
+            String body = String.format(Locale.ROOT,
+                "{\"dealUniqueId\":\"%s\",\"fromCurrencyIso\":\"%s\",\"toCurrencyIso\":\"%s\","
+                    + "\"dealTimestamp\":\"%s\",\"dealAmount\":%d.%02d}",
+                uniqueId, CURRENCIES[sequence % CURRENCIES.length], CURRENCIES[(sequence + 3) % CURRENCIES.length],
+                BASE_TIMESTAMP.minusSeconds(sequence), 1000 + index * 100_000 + sequence, sequence % 100);
+            return MockHttpRequest.post("/api/fx-deals")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.cache.LatestDealsCache;
+import com.bloomberg.fxdeals.cache.LatestDealsLoader;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.DeadlineFilter;
+import com.bloomberg.fxdeals.context.LoadSheddingStats;
+import com.bloomberg.fxdeals.context.RequestTimingFilter;
+import com.bloomberg.fxdeals.controller.FxDealController;
+import com.bloomberg.fxdeals.controller.JsonbContextResolver;
+import com.bloomberg.fxdeals.dedup.NearDuplicateIndex;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import com.bloomberg.fxdeals.exception.DeadlineExceededExceptionMapper;
+import com.bloomberg.fxdeals.exception.DealNotFoundExceptionMapper;
+import com.bloomberg.fxdeals.exception.DuplicateDealExceptionMapper;
+import com.bloomberg.fxdeals.exception.IdCursorUnsupportedExceptionMapper;
+import com.bloomberg.fxdeals.exception.GenericExceptionMapper;
+import com.bloomberg.fxdeals.exception.NearDuplicateDealExceptionMapper;
+import com.bloomberg.fxdeals.exception.ValidationExceptionMapper;
+import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import com.bloomberg.fxdeals.metrics.MetricsFilter;
+import com.bloomberg.fxdeals.repository.FxDealRepository;
+import com.bloomberg.fxdeals.repository.JdbcDealWriter;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import com.bloomberg.fxdeals.service.FxDealService;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import com.bloomberg.fxdeals.startup.StartupWarmUp;
+import com.bloomberg.fxdeals.stream.ChangeFeed;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.NotificationOptions;
+import jakarta.enterprise.util.TypeLiteral;
+import jakarta.inject.Inject;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.PersistenceContext;
+import jakarta.transaction.Status;
+import jakarta.transaction.UserTransaction;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.jboss.resteasy.mock.MockDispatcherFactory;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.Dispatcher;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+/**
+ * The deal API in-process: FxDealController, FxDealService and FxDealRepository on a
+ * RESTEasy mock dispatcher, backed by an in-memory H2 database in MySQL mode.
+ *
+ * Stands in for the container where the load test needs it: beans are wired by field
+ * type, each request runs in its own transaction on a per-thread EntityManager and is
+ * rolled back on an error status, and DealCreatedEvent observers are notified after a
+ * successful commit. A UserTransaction on the same EntityManager is injected for
+ * StartupWarmUp, which is wired but only runs when called. The request filters for deadlines, timing and metrics are
+ * registered; admission control is not, so that the test measures the service rather
+ * than the rate limits.
+ */
+final class InProcessApi implements AutoCloseable {
+
+    private final SessionFactory database;
+    private final ValidatorFactory validation;
+    private final Dispatcher dispatcher;
+    private final ThreadLocal<EntityManager> entityManagers = new ThreadLocal<>();
+    private final ThreadLocal<List<DealCreatedEvent>> committedEvents = ThreadLocal.withInitial(ArrayList::new);
+    private final List<EntityManager> opened = new ArrayList<>();
+    private final List<Consumer<DealCreatedEvent>> observers = new ArrayList<>();
+    private final List<Object> beans = new ArrayList<>();
+
+    InProcessApi(int connections) {
+        this(connections, "jdbc:h2:mem:loadtest" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "create-drop");
+    }
+
+    /**
+     * The API on the given H2 database, with Hibernate's hbm2ddl.auto set to schemaMode.
+     */
+    InProcessApi(int connections, String url, String schemaMode) {
+        database = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url", url)
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.connection.pool_size", Integer.toString(connections))
+            .setProperty("hibernate.hbm2ddl.auto", schemaMode)
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        validation = Validation.buildDefaultValidatorFactory();
+
+        beans.add(new FxDealsConfig());
+        beans.add(validation.getValidator());
+        beans.add(new DealEvents());
+        FxDealRepository repository = new FxDealRepository();
+        beans.add(repository);
+        beans.add(new FxDealMapper());
+        beans.add(new ShardedDealStore());
+        beans.add(new DealArchive());
+        beans.add(new JdbcDealWriter());
+        beans.add(new ReplicaRouter());
+        beans.add(new ChangeFeed());
+        LatestDealsCache latestDeals = new LatestDealsCache();
+        beans.add(latestDeals);
+        beans.add(new LatestDealsLoader());
+        NearDuplicateIndex nearDuplicates = new NearDuplicateIndex();
+        beans.add(nearDuplicates);
+        beans.add(new LoadSheddingStats());
+        beans.add(new FxDealService());
+        FxDealController controller = new FxDealController();
+        beans.add(controller);
+        DeadlineFilter deadlineFilter = new DeadlineFilter();
+        beans.add(deadlineFilter);
+        RequestTimingFilter timingFilter = new RequestTimingFilter();
+        beans.add(timingFilter);
+        beans.add(new LocalTransaction());
+        beans.add(new StartupWarmUp());
+
+        EntityManager entityManager = threadConfinedEntityManager();
+        for (Object bean : beans) {
+            inject(bean, beans, entityManager);
+        }
+        for (Object bean : beans) {
+            postConstruct(bean);
+        }
+        observers.add(observer(latestDeals));
+        observers.add(observer(nearDuplicates));
+
+        dispatcher = MockDispatcherFactory.createDispatcher();
+        dispatcher.getRegistry().addSingletonResource(controller);
+        for (Object provider : List.of(new JsonbContextResolver(), deadlineFilter, timingFilter, new MetricsFilter(),
+                                       new DuplicateDealExceptionMapper(), new NearDuplicateDealExceptionMapper(),
+                                       new IdCursorUnsupportedExceptionMapper(),
+                                       new DealNotFoundExceptionMapper(), new ValidationExceptionMapper(),
+                                       new DeadlineExceededExceptionMapper(), new GenericExceptionMapper())) {
+            dispatcher.getProviderFactory().registerProviderInstance(provider);
+        }
+    }
+
+    /**
+     * The wired bean of the given type.
+     */
+    <T> T bean(Class<T> type) {
+        return beans.stream().filter(type::isInstance).map(type::cast).findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("No bean of type " + type.getName()));
+    }
+
+    /**
+     * Runs the callback in one transaction on this thread's EntityManager.
+     */
+    void inTransaction(Consumer<EntityManager> work) {
+        EntityManager entityManager = currentEntityManager();
+        entityManager.getTransaction().begin();
+        try {
+            work.accept(entityManager);
+            entityManager.getTransaction().commit();
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Dispatches a request in its own transaction, committed unless the response status
+     * is 400 or above.
+     */
+    MockHttpResponse send(MockHttpRequest request) {
+        MockHttpResponse response = new MockHttpResponse();
+        EntityManager entityManager = currentEntityManager();
+        EntityTransaction transaction = entityManager.getTransaction();
+        List<DealCreatedEvent> events = committedEvents.get();
+        events.clear();
+        transaction.begin();
+        try {
+            dispatcher.invoke(request, response);
+        } finally {
+            if (response.getStatus() < 400 && !transaction.getRollbackOnly()) {
+                transaction.commit();
+                for (DealCreatedEvent event : events) {
+                    for (Consumer<DealCreatedEvent> observer : observers) {
+                        observer.accept(event);
+                    }
+                }
+            } else {
+                transaction.rollback();
+            }
+            events.clear();
+            entityManager.clear();
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        synchronized (opened) {
+            opened.forEach(EntityManager::close);
+        }
+        validation.close();
+        database.close();
+    }
+
+    private EntityManager currentEntityManager() {
+        EntityManager entityManager = entityManagers.get();
+        if (entityManager == null) {
+            entityManager = database.createEntityManager();
+            entityManagers.set(entityManager);
+            synchronized (opened) {
+                opened.add(entityManager);
+            }
+        }
+        return entityManager;
+    }
+
+    /**
+     * An EntityManager that delegates to the calling thread's own, like the container's
+     * transaction-scoped persistence context.
+     */
+    private EntityManager threadConfinedEntityManager() {
+        return (EntityManager) Proxy.newProxyInstance(
+            EntityManager.class.getClassLoader(), new Class<?>[] {EntityManager.class},
+            (proxy, method, args) -> {
+                try {
+                    return method.invoke(currentEntityManager(), args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            });
+    }
+
+    private static void inject(Object bean, List<Object> beans, EntityManager entityManager) {
+        for (Class<?> type = bean.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                Object value = null;
+                if (field.isAnnotationPresent(PersistenceContext.class)) {
+                    value = entityManager;
+                } else if (field.isAnnotationPresent(Inject.class) || field.isAnnotationPresent(Resource.class)) {
+                    value = beans.stream().filter(field.getType()::isInstance).findFirst().orElse(null);
+                }
+                if (value != null) {
+                    field.setAccessible(true);
+                    try {
+                        field.set(bean, value);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException("Cannot inject " + field, e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void postConstruct(Object bean) {
+        for (Method method : bean.getClass().getDeclaredMethods()) {
+            if (method.isAnnotationPresent(PostConstruct.class)) {
+                method.setAccessible(true);
+                try {
+                    method.invoke(bean);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Cannot initialise " + bean.getClass().getSimpleName(), e);
+                }
+            }
+        }
+    }
+
+    private static Consumer<DealCreatedEvent> observer(Object bean) {
+        try {
+            Method method = bean.getClass().getDeclaredMethod("onDealCreated", DealCreatedEvent.class);
+            method.setAccessible(true);
+            return event -> {
+                try {
+                    method.invoke(bean, event);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Bean-managed transactions on the calling thread's EntityManager. Events fired in a
+     * transaction are delivered on commit, as for a request, and discarded on rollback.
+     */
+    private final class LocalTransaction implements UserTransaction {
+
+        @Override
+        public void begin() {
+            committedEvents.get().clear();
+            currentEntityManager().getTransaction().begin();
+        }
+
+        @Override
+        public void commit() {
+            currentEntityManager().getTransaction().commit();
+            List<DealCreatedEvent> events = committedEvents.get();
+            for (DealCreatedEvent event : events) {
+                for (Consumer<DealCreatedEvent> observer : observers) {
+                    observer.accept(event);
+                }
+            }
+            events.clear();
+            currentEntityManager().clear();
+        }
+
+        @Override
+        public void rollback() {
+            currentEntityManager().getTransaction().rollback();
+            committedEvents.get().clear();
+            currentEntityManager().clear();
+        }
+
+        @Override
+        public void setRollbackOnly() {
+            currentEntityManager().getTransaction().setRollbackOnly();
+        }
+
+        @Override
+        public int getStatus() {
+            EntityTransaction transaction = currentEntityManager().getTransaction();
+            if (!transaction.isActive()) {
+                return Status.STATUS_NO_TRANSACTION;
+            }
+            return transaction.getRollbackOnly() ? Status.STATUS_MARKED_ROLLBACK : Status.STATUS_ACTIVE;
+        }
+
+        @Override
+        public void setTransactionTimeout(int seconds) {
+        }
+    }
+
+    /**
+     * Collects fired events for delivery once the request's transaction has committed.
+     */
+    private final class DealEvents implements Event<DealCreatedEvent> {
+
+        @Override
+        public void fire(DealCreatedEvent event) {
+            committedEvents.get().add(event);
+        }
+
+        @Override
+        public <U extends DealCreatedEvent> CompletionStage<U> fireAsync(U event) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends DealCreatedEvent> CompletionStage<U> fireAsync(U event, NotificationOptions options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Event<DealCreatedEvent> select(Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends DealCreatedEvent> Event<U> select(Class<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <U extends DealCreatedEvent> Event<U> select(TypeLiteral<U> subtype, Annotation... qualifiers) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
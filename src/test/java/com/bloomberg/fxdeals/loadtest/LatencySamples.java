@@ -0,0 +1,52 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Every latency recorded by one client for one operation, for exact percentiles. Not
+ * thread-safe: each client keeps its own and they are merged once the run is over.
+ */
+final class LatencySamples {
+
+    private long[] nanos = new long[1024];
+    private int size;
+    private boolean sorted;
+
+    void record(long latencyNanos) {
+        if (size == nanos.length) {
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        nanos[size++] = latencyNanos;
+        sorted = false;
+    }
+
+    void addAll(LatencySamples other) {
+        if (size + other.size > nanos.length) {
+            nanos = Arrays.copyOf(nanos, Math.max(size + other.size, size * 2));
+        }
+        System.arraycopy(other.nanos, 0, nanos, size, other.size);
+        size += other.size;
+        sorted = false;
+    }
+
+    int count() {
+        return size;
+    }
+
+    /**
+     * Nearest-rank percentile: the smallest sample with at least p% of samples at or
+     * below it, or 0 without samples.
+     */
+    long percentile(double p) {
+        if (size == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(nanos, 0, size);
+            sorted = true;
+        }
+        // the epsilon keeps 99.9% of 1000 samples at rank 999 despite rounding
+        int rank = (int) Math.ceil(p / 100 * size - 1e-9);
+        return nanos[Math.max(0, Math.min(size, rank) - 1)];
+    }
+}
@@ -0,0 +1,84 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Relative weights of the operations a load test client issues, written as
+ * "create=30,duplicate=10,lookup=45,page=15". Operations left out have weight zero.
+ */
+final class LoadMix {
+
+    enum Operation {
+        /** POST /api/fx-deals with a new unique ID; expects 201. */
+        CREATE(201),
+        /** POST /api/fx-deals with a unique ID that already exists; expects 409. */
+        DUPLICATE(409),
+        /** GET /api/fx-deals/{id} for an existing deal; expects 200. */
+        LOOKUP(200),
+        /** GET /api/fx-deals with a random offset; expects 200. */
+        PAGE(200);
+
+        final int expectedStatus;
+
+        Operation(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+
+        String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    private LoadMix(Map<Operation, Integer> weights) {
+        operations = weights.keySet().toArray(new Operation[0]);
+        cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    static LoadMix parse(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected operation=weight but got '" + entry.trim() + "'");
+            }
+            Operation operation = Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Negative weight for " + operation.key());
+            }
+            if (weight > 0) {
+                weights.put(operation, weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Load mix '" + mix + "' has no operation with a positive weight");
+        }
+        return new LoadMix(weights);
+    }
+
+    /**
+     * The operation for a uniformly drawn value in [0, {@link #totalWeight()}).
+     */
+    Operation pick(int draw) {
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalArgumentException("Draw " + draw + " is not below the total weight " + totalWeight());
+    }
+
+    int totalWeight() {
+        return cumulativeWeights[cumulativeWeights.length - 1];
+    }
+}
@@ -0,0 +1,116 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import com.bloomberg.fxdeals.loadtest.LoadMix.Operation;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Throughput and latency percentiles of one load test run, per operation and overall,
+ * and the comparison against a baseline run.
+ *
+ * Results are flat keys such as "create.throughput" (operations per second) and
+ * "create.p99.ms", so a run can be saved as a properties file and checked in as the next
+ * baseline.
+ */
+final class LoadTestResult {
+
+    static final String TOTAL = "total";
+    static final String THROUGHPUT_SUFFIX = ".throughput";
+
+    private final long durationNanos;
+    private final Map<Operation, LatencySamples> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, Long> errors = new EnumMap<>(Operation.class);
+    private final LatencySamples total = new LatencySamples();
+    private long totalErrors;
+
+    LoadTestResult(long durationNanos) {
+        this.durationNanos = durationNanos;
+    }
+
+    void add(Operation operation, LatencySamples samples, long errorCount) {
+        latencies.computeIfAbsent(operation, ignored -> new LatencySamples()).addAll(samples);
+        errors.merge(operation, errorCount, Long::sum);
+        total.addAll(samples);
+        totalErrors += errorCount;
+    }
+
+    long getErrors() {
+        return totalErrors;
+    }
+
+    /**
+     * Results keyed by operation and metric, in key order.
+     */
+    Map<String, Double> toMap() {
+        Map<String, Double> values = new TreeMap<>();
+        for (Map.Entry<Operation, LatencySamples> entry : latencies.entrySet()) {
+            put(values, entry.getKey().key(), entry.getValue(), errors.get(entry.getKey()));
+        }
+        put(values, TOTAL, total, totalErrors);
+        return values;
+    }
+
+    String toProperties() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Double> entry : toMap().entrySet()) {
+            out.append(entry.getKey()).append('=')
+                .append(String.format(Locale.ROOT, "%.3f", entry.getValue())).append('\n');
+        }
+        return out.toString();
+    }
+
+    String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-10s %10s %8s %12s %10s %10s %10s%n",
+                                 "operation", "requests", "errors", "requests/s", "p50 ms", "p99 ms", "p999 ms"));
+        for (Map.Entry<Operation, LatencySamples> entry : latencies.entrySet()) {
+            formatRow(out, entry.getKey().key(), entry.getValue(), errors.get(entry.getKey()));
+        }
+        formatRow(out, TOTAL, total, totalErrors);
+        return out.toString();
+    }
+
+    /**
+     * Every throughput in the baseline that the current run fell more than
+     * maxDropPercent below, described for the build log. Operations missing from either
+     * side are not compared.
+     */
+    static List<String> regressions(Properties baseline, Map<String, Double> current, double maxDropPercent) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(baseline.stringPropertyNames())) {
+            if (!key.endsWith(THROUGHPUT_SUFFIX) || !current.containsKey(key)) {
+                continue;
+            }
+            double expected = Double.parseDouble(baseline.getProperty(key));
+            double actual = current.get(key);
+            double floor = expected * (1 - maxDropPercent / 100);
+            if (actual < floor) {
+                regressions.add(String.format(Locale.ROOT, "%s %.1f/s is %.1f%% below the baseline %.1f/s",
+                                              key, actual, 100 * (1 - actual / expected), expected));
+            }
+        }
+        return regressions;
+    }
+
+    private void put(Map<String, Double> values, String prefix, LatencySamples samples, long errorCount) {
+        values.put(prefix + THROUGHPUT_SUFFIX, samples.count() * 1e9 / durationNanos);
+        values.put(prefix + ".p50.ms", samples.percentile(50) / 1e6);
+        values.put(prefix + ".p99.ms", samples.percentile(99) / 1e6);
+        values.put(prefix + ".p999.ms", samples.percentile(99.9) / 1e6);
+        values.put(prefix + ".errors", (double) errorCount);
+    }
+
+    private void formatRow(StringBuilder out, String name, LatencySamples samples, long errorCount) {
+        out.append(String.format(Locale.ROOT, "%-10s %10d %8d %12.1f %10.3f %10.3f %10.3f%n",
+                                 name, samples.count(), errorCount, samples.count() * 1e9 / durationNanos,
+                                 samples.percentile(50) / 1e6, samples.percentile(99) / 1e6,
+                                 samples.percentile(99.9) / 1e6));
+    }
+}
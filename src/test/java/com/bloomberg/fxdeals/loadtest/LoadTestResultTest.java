@@ -0,0 +1,74 @@
+package com.bloomberg.fxdeals.loadtest;
+
+import com.bloomberg.fxdeals.loadtest.LoadMix.Operation;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoadTestResult, LoadMix and LatencySamples.
+ */
+class LoadTestResultTest {
+
+    @Test
+    void testToMap_ThroughputAndPercentiles() {
+        LatencySamples lookups = new LatencySamples();
+        for (int i = 1; i <= 1000; i++) {
+            lookups.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+        LoadTestResult result = new LoadTestResult(TimeUnit.SECONDS.toNanos(10));
+        result.add(Operation.LOOKUP, lookups, 2);
+
+        Map<String, Double> values = result.toMap();
+
+        assertEquals(100.0, values.get("lookup.throughput"), 1e-9);
+        assertEquals(500.0, values.get("lookup.p50.ms"), 1e-9);
+        assertEquals(990.0, values.get("lookup.p99.ms"), 1e-9);
+        assertEquals(999.0, values.get("lookup.p999.ms"), 1e-9);
+        assertEquals(2.0, values.get("lookup.errors"), 1e-9);
+        assertEquals(100.0, values.get("total.throughput"), 1e-9);
+        assertEquals(2, result.getErrors());
+        assertTrue(result.toProperties().contains("lookup.throughput=100.000\n"));
+    }
+
+    @Test
+    void testRegressions_FlagsOnlyDropsBeyondTolerance() {
+        Properties baseline = new Properties();
+        baseline.setProperty("create.throughput", "100");
+        baseline.setProperty("lookup.throughput", "200");
+        baseline.setProperty("page.throughput", "50");
+        baseline.setProperty("lookup.p99.ms", "1");
+
+        List<String> regressions = LoadTestResult.regressions(baseline, Map.of(
+            "create.throughput", 81.0,
+            "lookup.throughput", 150.0,
+            "lookup.p99.ms", 100.0), 20);
+
+        assertEquals(1, regressions.size());
+        assertTrue(regressions.get(0).startsWith("lookup.throughput 150.0/s is 25.0% below"));
+    }
+
+    @Test
+    void testLoadMix_PicksByWeight() {
+        LoadMix mix = LoadMix.parse("create=3, lookup=1, page=0");
+
+        assertEquals(4, mix.totalWeight());
+        assertEquals(Operation.CREATE, mix.pick(0));
+        assertEquals(Operation.CREATE, mix.pick(2));
+        assertEquals(Operation.LOOKUP, mix.pick(3));
+        assertThrows(IllegalArgumentException.class, () -> mix.pick(4));
+    }
+
+    @Test
+    void testLoadMix_RejectsMalformedMix() {
+        assertThrows(IllegalArgumentException.class, () -> LoadMix.parse("create"));
+        assertThrows(IllegalArgumentException.class, () -> LoadMix.parse("create=-1"));
+        assertThrows(IllegalArgumentException.class, () -> LoadMix.parse("page=0"));
+        assertThrows(IllegalArgumentException.class, () -> LoadMix.parse("delete=1"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.bloomberg.fxdeals.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for EventRing.
+ */
+class EventRingTest {
+
+    @Test
+    void testCapacity_RoundedUpToPowerOfTwo() {
+        assertEquals(8, new EventRing<String>(5).capacity());
+        assertEquals(8, new EventRing<String>(8).capacity());
+        assertThrows(IllegalArgumentException.class, () -> new EventRing<String>(1));
+    }
+
+    @Test
+    void testOfferAndPoll_FirstInFirstOut() {
+        EventRing<String> ring = new EventRing<>(4);
+
+        assertTrue(ring.isEmpty());
+        assertNull(ring.poll());
+        ring.offer("a");
+        ring.offer("b");
+
+        assertFalse(ring.isEmpty());
+        assertEquals("a", ring.poll());
+        assertEquals("b", ring.poll());
+        assertNull(ring.poll());
+    }
+
+    @Test
+    void testOffer_FullRingRejectsUntilPolled() {
+        EventRing<Integer> ring = new EventRing<>(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+
+        assertFalse(ring.offer(4));
+        assertEquals(0, ring.poll());
+        assertTrue(ring.offer(4));
+        assertFalse(ring.offer(5));
+    }
+
+    @Test
+    void testOffer_WrapsAroundManyLaps() {
+        EventRing<Integer> ring = new EventRing<>(2);
+
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(ring.offer(i));
+            assertEquals(i, ring.poll());
+        }
+    }
+
+    @Test
+    void testConcurrentProducers_EveryAcceptedElementPolledOnce() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        EventRing<Integer> ring = new EventRing<>(64);
+        AtomicInteger accepted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    if (ring.offer(base + i)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        Set<Integer> polled = new HashSet<>();
+        int[] lastByProducer = new int[producers];
+        Arrays.fill(lastByProducer, -1);
+        start.countDown();
+        while (threads.stream().anyMatch(Thread::isAlive) || !ring.isEmpty()) {
+            Integer element = ring.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertTrue(polled.add(element), "polled twice: " + element);
+            // each producer's elements come out in the order it offered them
+            int producer = element / perProducer;
+            assertTrue(element > lastByProducer[producer]);
+            lastByProducer[producer] = element;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(accepted.get(), polled.size());
+    }
+}
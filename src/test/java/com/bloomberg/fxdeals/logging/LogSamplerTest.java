@@ -0,0 +1,116 @@
+package com.bloomberg.fxdeals.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import com.bloomberg.fxdeals.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LogSampler.
+ */
+class LogSamplerTest {
+
+    private static final String SERVICE = "com.bloomberg.fxdeals.service.FxDealService";
+
+    private LoggerContext context;
+    private ListAppender<ILoggingEvent> appender;
+    private LogSampler sampler;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        appender = new ListAppender<>();
+        appender.setContext(context);
+        appender.start();
+        Logger root = context.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+
+        sampler = new LogSampler();
+        sampler.setContext(context);
+        sampler.addSample(SERVICE + "=3");
+        sampler.start();
+        context.addTurboFilter(sampler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.stop();
+    }
+
+    @Test
+    void testSample_FirstAndEveryNthCallPerCallSite() {
+        Logger service = context.getLogger(SERVICE);
+        long sampledOut = Metrics.LOG_EVENTS_SAMPLED_OUT.get();
+
+        for (int i = 0; i < 7; i++) {
+            service.info("Successfully created FX deal {}", i);
+            service.info("Processing FX deal {}", i);
+        }
+
+        assertEquals(List.of("Successfully created FX deal 0", "Processing FX deal 0",
+                             "Successfully created FX deal 3", "Processing FX deal 3",
+                             "Successfully created FX deal 6", "Processing FX deal 6"), messages());
+        assertEquals(8, Metrics.LOG_EVENTS_SAMPLED_OUT.get() - sampledOut);
+    }
+
+    @Test
+    void testSample_WarningsErrorsAndExceptionsAlwaysPass() {
+        Logger service = context.getLogger(SERVICE);
+
+        for (int i = 0; i < 3; i++) {
+            service.warn("Duplicate FX deal {}", i);
+            service.error("Validation failed {}", i);
+            service.info("Save failed", new IllegalStateException());
+        }
+
+        assertEquals(9, appender.list.size());
+    }
+
+    @Test
+    void testSample_OtherLoggersAndDisabledLevelsUntouched() {
+        Logger controller = context.getLogger("com.bloomberg.fxdeals.controller.FxDealController");
+        Logger service = context.getLogger(SERVICE);
+        long sampledOut = Metrics.LOG_EVENTS_SAMPLED_OUT.get();
+
+        for (int i = 0; i < 3; i++) {
+            controller.info("Received request {}", i);
+            service.debug("Validation successful {}", i);
+        }
+
+        assertEquals(3, appender.list.size());
+        assertEquals(0, Metrics.LOG_EVENTS_SAMPLED_OUT.get() - sampledOut);
+    }
+
+    @Test
+    void testAddSample_InvalidRulesIgnored() {
+        LogSampler invalid = new LogSampler();
+        invalid.setContext(context);
+
+        invalid.addSample("no-rate");
+        invalid.addSample(SERVICE + "=0");
+        invalid.addSample(SERVICE + "=many");
+
+        Logger service = context.getLogger(SERVICE);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(FilterReply.NEUTRAL,
+                         invalid.decide(null, service, Level.INFO, "created {}", null, null));
+        }
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+}
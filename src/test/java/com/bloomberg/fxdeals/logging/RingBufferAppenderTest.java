@@ -0,0 +1,156 @@
+package com.bloomberg.fxdeals.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.AppenderBase;
+import ch.qos.logback.core.read.ListAppender;
+import ch.qos.logback.core.spi.FilterReply;
+import com.bloomberg.fxdeals.metrics.Metrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RingBufferAppender.
+ */
+class RingBufferAppenderTest {
+
+    private LoggerContext context;
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        context = new LoggerContext();
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        logger = context.getLogger("com.bloomberg.fxdeals.test");
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.stop();
+    }
+
+    @Test
+    void testAppend_WritesInOrderOnWriterThread() {
+        ListAppender<ILoggingEvent> target = started(new ListAppender<>());
+        RingBufferAppender ring = ring(8, target);
+        long written = Metrics.LOG_EVENTS_WRITTEN.get();
+
+        for (int i = 0; i < 3; i++) {
+            logger.info("deal {}", i);
+        }
+        ring.stop();
+
+        List<ILoggingEvent> events = target.list;
+        assertEquals(List.of("deal 0", "deal 1", "deal 2"),
+                     events.stream().map(ILoggingEvent::getFormattedMessage).toList());
+        // captured at the logging call, not on the writer thread
+        assertEquals(Thread.currentThread().getName(), events.get(0).getThreadName());
+        assertEquals(3, Metrics.LOG_EVENTS_WRITTEN.get() - written);
+        assertFalse(target.isStarted());
+    }
+
+    @Test
+    void testAppend_FullRingDropsAndCountsWithoutBlocking() throws Exception {
+        BlockingAppender target = started(new BlockingAppender());
+        RingBufferAppender ring = ring(2, target);
+        long dropped = Metrics.LOG_EVENTS_DROPPED.get();
+
+        logger.info("taken by the writer");
+        assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            logger.info("queued or dropped {}", i);
+        }
+        target.release.countDown();
+        ring.stop();
+
+        assertEquals(3, Metrics.LOG_EVENTS_DROPPED.get() - dropped);
+        assertEquals(List.of("taken by the writer", "queued or dropped 0", "queued or dropped 1"), target.messages);
+    }
+
+    @Test
+    void testStart_WithoutAppenderDoesNotStart() {
+        RingBufferAppender ring = new RingBufferAppender();
+        ring.setContext(context);
+        ring.setName("ASYNC");
+
+        ring.start();
+
+        assertFalse(ring.isStarted());
+    }
+
+    @Test
+    void testLogbackAsyncXml_WiresRingBufferAndSampler() throws Exception {
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        context.putProperty("fxdeals.log.dir", "target/test-logs");
+        configurator.doConfigure(getClass().getClassLoader().getResource("logback-async.xml"));
+
+        Logger application = context.getLogger("com.bloomberg.fxdeals");
+        RingBufferAppender ring = (RingBufferAppender) application.getAppender("ASYNC");
+        assertTrue(ring.isStarted());
+        assertEquals(8192, ring.getCapacity());
+        assertNotNull(ring.getAppender("CONSOLE"));
+        assertNotNull(ring.getAppender("FILE"));
+        assertEquals(Level.INFO, application.getLevel());
+
+        LogSampler sampler = (LogSampler) context.getTurboFilterList().get(0);
+        Logger service = context.getLogger("com.bloomberg.fxdeals.service.FxDealService");
+        assertEquals(FilterReply.NEUTRAL, sampler.decide(null, service, Level.INFO, "created {}", null, null));
+        assertEquals(FilterReply.DENY, sampler.decide(null, service, Level.INFO, "created {}", null, null));
+    }
+
+    private RingBufferAppender ring(int capacity, Appender<ILoggingEvent> target) {
+        RingBufferAppender ring = new RingBufferAppender();
+        ring.setContext(context);
+        ring.setName("ASYNC");
+        ring.setCapacity(capacity);
+        ring.setShutdownTimeoutMillis(5000);
+        ring.addAppender(target);
+        ring.start();
+        assertTrue(ring.isStarted());
+        logger.addAppender(ring);
+        return ring;
+    }
+
+    private <T extends Appender<ILoggingEvent>> T started(T appender) {
+        appender.setContext(context);
+        appender.setName("TARGET");
+        appender.start();
+        return appender;
+    }
+
+    /**
+     * Holds the writer thread in its first append until released.
+     */
+    private static final class BlockingAppender extends AppenderBase<ILoggingEvent> {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            messages.add(event.getFormattedMessage());
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
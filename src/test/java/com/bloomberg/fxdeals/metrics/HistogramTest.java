@@ -0,0 +1,75 @@
+package com.bloomberg.fxdeals.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Histogram.
+ */
+class HistogramTest {
+
+    @Test
+    void testBucketIndex_UpperBoundsAreInclusive() {
+        assertEquals(0, Histogram.bucketIndex(0));
+        assertEquals(0, Histogram.bucketIndex(1024));
+        assertEquals(1, Histogram.bucketIndex(1025));
+        assertEquals(1, Histogram.bucketIndex(1152));
+        assertEquals(2, Histogram.bucketIndex(1153));
+        assertEquals(8, Histogram.bucketIndex(2048));
+        assertEquals(9, Histogram.bucketIndex(2049));
+        assertEquals(Histogram.BUCKETS - 2, Histogram.bucketIndex(1L << Histogram.MAX_SHIFT));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketIndex((1L << Histogram.MAX_SHIFT) + 1));
+        assertEquals(Histogram.BUCKETS - 1, Histogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testUpperBounds_MatchBucketIndexWithinOneEighth() {
+        assertEquals(1024, Histogram.upperBoundNanos(0));
+        assertEquals(1L << Histogram.MAX_SHIFT, Histogram.upperBoundNanos(Histogram.BUCKETS - 2));
+        for (int index = 1; index < Histogram.BUCKETS - 1; index++) {
+            long upper = Histogram.upperBoundNanos(index);
+            long lower = Histogram.upperBoundNanos(index - 1);
+            assertEquals(index, Histogram.bucketIndex(upper));
+            assertEquals(index, Histogram.bucketIndex(lower + 1));
+            assertTrue((upper - lower) * 8 <= lower, "bucket " + index + " is wider than 1/8 of its values");
+        }
+    }
+
+    @Test
+    void testRecord_CountsAndSums() {
+        Histogram histogram = new Histogram();
+
+        histogram.record(500);
+        histogram.record(3_000);
+        histogram.record(3_050);
+        histogram.record(-5);
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(6_550, histogram.getSumNanos());
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(2, histogram.getBucketCount(Histogram.bucketIndex(3072)));
+        assertEquals(0, histogram.getBucketCount(Histogram.bucketIndex(3073)));
+    }
+
+    @Test
+    void testRecord_DoesNotAllocate() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Histogram histogram = new Histogram();
+        for (int i = 0; i < 100_000; i++) {
+            histogram.record(i);
+        }
+        long threadId = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 1_000_000; i++) {
+            histogram.record(i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(allocated < 1024, "allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,61 @@
+package com.bloomberg.fxdeals.metrics;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Measures the cost of recording into one shared histogram from 1 and from 64 threads,
+ * as wall time divided by the total number of records. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class MetricsContentionBenchmark {
+
+    private static final int RECORDS_PER_THREAD = 2_000_000;
+    private static final int ROUNDS = 3;
+
+    @Test
+    void benchmarkSharedHistogram() throws InterruptedException {
+        for (int threads : new int[] {1, 64}) {
+            for (int round = 0; round < ROUNDS; round++) {
+                Histogram histogram = new Histogram();
+                double nanos = run(histogram, threads);
+                assertEquals((long) threads * RECORDS_PER_THREAD, histogram.getCount());
+                System.out.printf("%d threads on %d cores, round %d: %.1f ns per record%n",
+                                  threads, Runtime.getRuntime().availableProcessors(), round,
+                                  nanos / ((double) threads * RECORDS_PER_THREAD));
+            }
+        }
+    }
+
+    private static double run(Histogram histogram, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    histogram.record(i & 0xFFFFF);
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - begin;
+    }
+}
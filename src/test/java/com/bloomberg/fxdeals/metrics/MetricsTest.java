@@ -0,0 +1,75 @@
+package com.bloomberg.fxdeals.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for Metrics.
+ */
+class MetricsTest {
+
+    @Test
+    void testScrape_WritesCumulativeBucketsSumAndCount() {
+        Histogram histogram = Metrics.REPOSITORY_CALLS.labels("scrapeTest");
+        histogram.record(1_000);
+        histogram.record(1_500_000);
+
+        List<String> lines = lines("fxdeals_repository_duration_seconds", "method=\"scrapeTest\"");
+
+        assertEquals(Histogram.BUCKETS + 2, lines.size());
+        assertEquals("fxdeals_repository_duration_seconds_bucket{method=\"scrapeTest\",le=\"0.000001024\"} 1",
+                     lines.get(0));
+        assertTrue(lines.contains(
+            "fxdeals_repository_duration_seconds_bucket{method=\"scrapeTest\",le=\"0.001048576\"} 1"));
+        assertTrue(lines.contains(
+            "fxdeals_repository_duration_seconds_bucket{method=\"scrapeTest\",le=\"0.001441792\"} 1"));
+        assertTrue(lines.contains(
+            "fxdeals_repository_duration_seconds_bucket{method=\"scrapeTest\",le=\"0.001572864\"} 2"));
+        assertTrue(lines.contains(
+            "fxdeals_repository_duration_seconds_bucket{method=\"scrapeTest\",le=\"0.002097152\"} 2"));
+        assertEquals("fxdeals_repository_duration_seconds_bucket{method=\"scrapeTest\",le=\"+Inf\"} 2",
+                     lines.get(Histogram.BUCKETS - 1));
+        assertEquals("fxdeals_repository_duration_seconds_sum{method=\"scrapeTest\"} 0.001501",
+                     lines.get(Histogram.BUCKETS));
+        assertEquals("fxdeals_repository_duration_seconds_count{method=\"scrapeTest\"} 2",
+                     lines.get(Histogram.BUCKETS + 1));
+    }
+
+    @Test
+    void testScrape_WritesHelpAndTypeOncePerFamily() {
+        Metrics.DEALS_CREATED.increment();
+
+        String scrape = Metrics.scrape();
+
+        assertEquals(1, count(scrape, "# TYPE fxdeals_deals_total counter\n"));
+        assertEquals(1, count(scrape, "# TYPE fxdeals_create_stage_duration_seconds histogram\n"));
+        assertTrue(scrape.contains("\nfxdeals_deals_total{outcome=\"created\"} "));
+        assertTrue(scrape.contains("\nfxdeals_db_permit_wait_seconds_bucket{le=\"+Inf\"} "));
+        assertTrue(scrape.contains("\nfxdeals_db_permit_wait_seconds_count "));
+    }
+
+    @Test
+    void testLabels_ReturnsSameMetricForSameValue() {
+        assertSame(Metrics.HTTP_REQUESTS.labels("createDeal"), Metrics.HTTP_REQUESTS.labels("createDeal"));
+        assertNotSame(Metrics.HTTP_REQUESTS.labels("createDeal"), Metrics.HTTP_REQUESTS.labels("getDealById"));
+    }
+
+    private static List<String> lines(String name, String labels) {
+        return Arrays.stream(Metrics.scrape().split("\n"))
+            .filter(line -> line.startsWith(name) && line.contains(labels))
+            .collect(Collectors.toList());
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int at = text.indexOf(part); at >= 0; at = text.indexOf(part, at + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,151 @@
+package com.bloomberg.fxdeals.metrics;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OrmStatistics.
+ */
+class OrmStatisticsTest {
+
+    private SessionFactory database;
+    private FxDealsConfig config;
+    private OrmStatistics ormStatistics;
+
+    @BeforeEach
+    void setUp() {
+        database = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:orm-stats" + System.nanoTime())
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        config = new FxDealsConfig();
+        ormStatistics = new OrmStatistics();
+        ormStatistics.config = config;
+        ormStatistics.primary = database;
+        ormStatistics.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(OrmStatistics.ENABLED_PROPERTY);
+        System.clearProperty(OrmStatistics.SLOW_QUERY_PROPERTY);
+        database.close();
+    }
+
+    @Test
+    void testDisabled_CollectsNothing() {
+        insertAndQuery();
+        ormStatistics.record("findAll", new Object[] {0, 20}, Long.MAX_VALUE, List.of());
+
+        Map<String, Object> snapshot = ormStatistics.snapshot();
+
+        assertFalse(ormStatistics.isEnabled());
+        assertFalse(database.getStatistics().isStatisticsEnabled());
+        assertEquals(0L, unit(snapshot).get("entityInserts"));
+        assertEquals(List.of(), snapshot.get("slowQueries"));
+    }
+
+    @Test
+    void testEnabledByReload_CountsInsertsAndQueries() {
+        enable("0");
+
+        insertAndQuery();
+
+        Map<String, Object> unit = unit(ormStatistics.snapshot());
+        assertEquals(1L, unit.get("entityInserts"));
+        assertEquals(1L, unit.get("queryExecutions"));
+        Map<?, ?> queries = (Map<?, ?>) unit.get("queries");
+        Map<?, ?> query = (Map<?, ?>) queries.get("SELECT f FROM FxDeal f WHERE f.dealUniqueId = :dealUniqueId");
+        assertEquals(1L, query.get("executions"));
+        assertEquals(1L, query.get("rows"));
+        Map<?, ?> entity = (Map<?, ?>) ((Map<?, ?>) unit.get("entities")).get(FxDeal.class.getName());
+        assertEquals(1L, entity.get("inserts"));
+        assertEquals(Map.of("enabled", false), unit.get("secondLevelCache"));
+    }
+
+    @Test
+    void testDisabledByReload_StopsCounting() {
+        enable("0");
+        System.setProperty(OrmStatistics.ENABLED_PROPERTY, "false");
+        config.reload();
+        assertFalse(ormStatistics.isEnabled());
+
+        insertAndQuery();
+
+        assertFalse(database.getStatistics().isStatisticsEnabled());
+        assertEquals(0L, unit(ormStatistics.snapshot()).get("entityInserts"));
+    }
+
+    @Test
+    void testRecord_KeepsOnlyCallsAboveThreshold() {
+        enable("5");
+
+        ormStatistics.record("findById", new Object[] {1L}, 4_999_999, null);
+        ormStatistics.record("findExistingDealUniqueIds", new Object[] {List.of("A", "B")}, 5_000_000, Set.of("A"));
+
+        List<?> slowQueries = (List<?>) ormStatistics.snapshot().get("slowQueries");
+        assertEquals(1, slowQueries.size());
+        Map<?, ?> entry = (Map<?, ?>) slowQueries.get(0);
+        assertEquals("findExistingDealUniqueIds", entry.get("query"));
+        assertEquals(List.of("List<String>[2]"), entry.get("parameters"));
+        assertEquals(1L, entry.get("rows"));
+    }
+
+    @Test
+    void testReset_ClearsCountsAndSlowQueries() {
+        enable("0");
+        insertAndQuery();
+        ormStatistics.record("findAll", new Object[0], 1, List.of());
+
+        ormStatistics.reset();
+
+        Map<String, Object> snapshot = ormStatistics.snapshot();
+        assertEquals(0L, unit(snapshot).get("entityInserts"));
+        assertEquals(List.of(), snapshot.get("slowQueries"));
+    }
+
+    @Test
+    void testSnapshot_ReportsPoolOutsideWildFlyAsNotReachable() {
+        Map<?, ?> pools = (Map<?, ?>) ormStatistics.snapshot().get("pools");
+
+        assertEquals(Map.of("reachable", false), pools.get("FxDealsDS"));
+    }
+
+    private void enable(String slowQueryMillis) {
+        System.setProperty(OrmStatistics.ENABLED_PROPERTY, "true");
+        System.setProperty(OrmStatistics.SLOW_QUERY_PROPERTY, slowQueryMillis);
+        config.reload();
+        assertTrue(ormStatistics.isEnabled());
+    }
+
+    private void insertAndQuery() {
+        database.inTransaction(session -> session.persist(
+            new FxDeal("DEAL001", "USD", "EUR", LocalDateTime.now(), new BigDecimal("1000.50"))));
+        database.inTransaction(session -> session
+            .createQuery("SELECT f FROM FxDeal f WHERE f.dealUniqueId = :dealUniqueId", FxDeal.class)
+            .setParameter("dealUniqueId", "DEAL001")
+            .getResultList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> unit(Map<String, Object> snapshot) {
+        return (Map<String, Object>) ((Map<?, ?>) snapshot.get("persistenceUnits")).get("fxdealsPU");
+    }
+}
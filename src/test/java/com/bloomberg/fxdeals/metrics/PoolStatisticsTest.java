@@ -0,0 +1,80 @@
+package com.bloomberg.fxdeals.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PoolStatistics.
+ */
+class PoolStatisticsTest {
+
+    @Test
+    void testRead_MapsPoolAttributes() throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        server.registerMBean(new StandardMBean(new Pool(), PoolMBean.class),
+            new ObjectName("jboss.as:subsystem=datasources,data-source=FxDealsDS,statistics=pool"));
+
+        Map<String, Object> pool = PoolStatistics.read(server, "FxDealsDS");
+
+        assertEquals(true, pool.get("reachable"));
+        assertEquals(true, pool.get("statisticsEnabled"));
+        assertEquals(7, pool.get("inUse"));
+        assertEquals(3, pool.get("idle"));
+        assertEquals(10, pool.get("open"));
+        assertEquals(42L, pool.get("maxWaitMillis"));
+        assertFalse(pool.containsKey("timedOut"));
+    }
+
+    @Test
+    void testRead_UnknownDataSourceIsNotReachable() {
+        Map<String, Object> pool = PoolStatistics.read(MBeanServerFactory.newMBeanServer(), "MissingDS");
+
+        assertEquals(Map.of("reachable", false), pool);
+    }
+
+    public interface PoolMBean {
+        boolean isStatisticsEnabled();
+
+        int getInUseCount();
+
+        int getIdleCount();
+
+        int getActiveCount();
+
+        long getMaxWaitTime();
+    }
+
+    static final class Pool implements PoolMBean {
+        @Override
+        public boolean isStatisticsEnabled() {
+            return true;
+        }
+
+        @Override
+        public int getInUseCount() {
+            return 7;
+        }
+
+        @Override
+        public int getIdleCount() {
+            return 3;
+        }
+
+        @Override
+        public int getActiveCount() {
+            return 10;
+        }
+
+        @Override
+        public long getMaxWaitTime() {
+            return 42;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.bloomberg.fxdeals.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SlowQueryLog.
+ */
+class SlowQueryLogTest {
+
+    @Test
+    void testAdd_KeepsNewestFirstUpToCapacity() {
+        SlowQueryLog log = new SlowQueryLog(2);
+
+        log.add("findById", new Object[] {1L}, 1_000_000, 1);
+        log.add("findAll", new Object[] {0, 20}, 2_000_000, 20);
+        log.add("count", new Object[0], 3_000_000, 1);
+
+        List<Map<String, Object>> entries = log.entries();
+        assertEquals(2, entries.size());
+        assertEquals("count", entries.get(0).get("query"));
+        assertEquals("findAll", entries.get(1).get("query"));
+        assertEquals(2.0, entries.get(1).get("millis"));
+        assertEquals(20L, entries.get(1).get("rows"));
+    }
+
+    @Test
+    void testSetCapacity_DropsOldestEntries() {
+        SlowQueryLog log = new SlowQueryLog(3);
+        log.add("first", null, 1, 0);
+        log.add("second", null, 1, 0);
+        log.add("third", null, 1, 0);
+
+        log.setCapacity(1);
+
+        assertEquals(List.of("third"), log.entries().stream().map(entry -> entry.get("query")).toList());
+    }
+
+    @Test
+    void testShapes_DescribeTypeAndSizeWithoutValues() {
+        List<String> shapes = SlowQueryLog.shapes(new Object[] {
+            "DEAL-42", List.of("A", "B", "C"), Set.of(), 7L, LocalDateTime.now(), null
+        });
+
+        assertEquals(List.of("String(7)", "List<String>[3]", "Set[0]", "Long", "LocalDateTime", "null"), shapes);
+    }
+}
@@ -1,20 +1,38 @@
 package com.bloomberg.fxdeals.repository;
 
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.context.RequestContext;
 import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.exception.DeadlineExceededException;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.NoResultException;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -35,6 +53,18 @@ class FxDealRepositoryTest {
     @Mock
     private TypedQuery<Long> countQuery;
 
+    @Mock
+    private ReplicaRouter replicaRouter;
+
+    @Mock
+    private ShardedDealStore shards;
+
+    @Mock
+    private DealArchive archive;
+
+    @Mock
+    private JdbcDealWriter jdbcWriter;
+
     @InjectMocks
     private FxDealRepository repository;
 
@@ -64,6 +94,105 @@ class FxDealRepositoryTest {
         verify(entityManager, times(1)).flush();
     }
 
+    @Test
+    void testSave_AppliesRemainingDeadlineToTheInsert() {
+        SessionImplementor session = mock(SessionImplementor.class);
+        JdbcCoordinator coordinator = mock(JdbcCoordinator.class);
+        when(entityManager.unwrap(SessionImplementor.class)).thenReturn(session);
+        when(session.getJdbcCoordinator()).thenReturn(coordinator);
+        RequestContext.bind(RequestContext.withTimeout(TimeUnit.MILLISECONDS.toNanos(1500)));
+        try {
+            repository.save(fxDeal);
+
+            InOrder order = inOrder(coordinator, entityManager);
+            order.verify(coordinator).setTransactionTimeOut(3);
+            order.verify(entityManager).persist(fxDeal);
+        } finally {
+            RequestContext.clear();
+        }
+    }
+
+    @Test
+    void testSave_InsertBlockedOnALockStopsAtTheDeadline() {
+        SessionFactory database = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url",
+                         "jdbc:h2:mem:blocked" + System.nanoTime() + ";MODE=MySQL;LOCK_TIMEOUT=30000")
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.connection.pool_size", "2")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        try (database; Session holder = database.openSession(); Session blocked = database.openSession()) {
+            holder.beginTransaction();
+            holder.persist(new FxDeal("DEAL001", "USD", "EUR", LocalDateTime.now(), new BigDecimal("1000.50")));
+            holder.flush();
+
+            FxDealRepository onH2 = Repositories.onEntityManager(blocked);
+            blocked.beginTransaction();
+            RequestContext.bind(RequestContext.withTimeout(TimeUnit.MILLISECONDS.toNanos(500)));
+            long start = System.nanoTime();
+            try {
+                assertThrows(PersistenceException.class, () -> onH2.save(
+                    new FxDeal("DEAL001", "USD", "EUR", LocalDateTime.now(), new BigDecimal("1000.50"))));
+            } finally {
+                RequestContext.clear();
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertTrue(elapsedMillis < 5000, "insert waited " + elapsedMillis + " ms for the lock");
+            blocked.getTransaction().rollback();
+            holder.getTransaction().rollback();
+        }
+    }
+
+    @Test
+    void testSave_UniqueViolationIsDuplicate() {
+        doThrow(new PersistenceException("could not execute statement",
+                new SQLException("Unique index or primary key violation", "23505", 23505)))
+            .when(entityManager).flush();
+
+        DuplicateDealException exception = assertThrows(DuplicateDealException.class, () -> repository.save(fxDeal));
+        assertTrue(exception.getMessage().contains("DEAL001"));
+    }
+
+    @Test
+    void testSave_OtherFailureIsRethrown() {
+        PersistenceException failure = new PersistenceException("could not execute statement",
+            new SQLException("Value too long for column", "22001", 22001));
+        doThrow(failure).when(entityManager).flush();
+
+        assertSame(failure, assertThrows(PersistenceException.class, () -> repository.save(fxDeal)));
+    }
+
+    @Test
+    void testSave_JdbcWriterEnabledSkipsPersist() {
+        when(jdbcWriter.isEnabled()).thenReturn(true);
+
+        repository.save(fxDeal);
+
+        verify(jdbcWriter).insert(fxDeal);
+        verify(entityManager, never()).persist(any());
+        verify(entityManager, never()).flush();
+    }
+
+    @Test
+    void testSave_JdbcUniqueViolationIsDuplicate() {
+        when(jdbcWriter.isEnabled()).thenReturn(true);
+        when(jdbcWriter.insert(fxDeal)).thenThrow(new PersistenceException("JDBC insert of 1 deals failed",
+            new SQLException("Duplicate entry 'DEAL001'", "23000", 1062)));
+
+        assertThrows(DuplicateDealException.class, () -> repository.save(fxDeal));
+    }
+
+    @Test
+    void testIsUniqueViolation_MySqlDuplicateEntry() {
+        assertTrue(FxDealRepository.isUniqueViolation(
+            new PersistenceException(new SQLException("Duplicate entry 'DEAL001'", "23000", 1062))));
+        assertFalse(FxDealRepository.isUniqueViolation(
+            new PersistenceException(new SQLException("Column cannot be null", "23000", 1048))));
+    }
+
     @Test
     void testFindById_Found() {
         when(entityManager.find(FxDeal.class, 1L)).thenReturn(fxDeal);
@@ -85,6 +214,32 @@ class FxDealRepositoryTest {
         verify(entityManager, times(1)).find(FxDeal.class, 1L);
     }
 
+    @Test
+    void testFindById_AppliesRemainingDeadlineAsQueryTimeout() {
+        RequestContext.bind(RequestContext.withTimeout(TimeUnit.MILLISECONDS.toNanos(1500)));
+        try {
+            when(entityManager.find(eq(FxDeal.class), eq(1L), anyMap())).thenReturn(fxDeal);
+
+            Optional<FxDeal> result = repository.findById(1L);
+
+            assertTrue(result.isPresent());
+            verify(entityManager).find(FxDeal.class, 1L, Map.of("jakarta.persistence.query.timeout", 2000L));
+        } finally {
+            RequestContext.clear();
+        }
+    }
+
+    @Test
+    void testExistsByDealUniqueId_DeadlineExceeded() {
+        RequestContext.bind(RequestContext.withTimeout(-1));
+        try {
+            assertThrows(DeadlineExceededException.class, () -> repository.existsByDealUniqueId("DEAL001"));
+            verifyNoInteractions(entityManager);
+        } finally {
+            RequestContext.clear();
+        }
+    }
+
     @Test
     void testFindByDealUniqueId_Found() {
         when(entityManager.createQuery(anyString(), eq(FxDeal.class))).thenReturn(dealQuery);
@@ -151,6 +306,66 @@ class FxDealRepositoryTest {
         verify(dealQuery, times(1)).setMaxResults(10);
     }
 
+    @Test
+    void testSaveAllFlushesOnce() {
+        FxDeal second = new FxDeal("DEAL002", "GBP", "USD", LocalDateTime.now(), new BigDecimal("20.00"));
+
+        List<FxDeal> result = repository.saveAll(List.of(fxDeal, second));
+
+        assertEquals(2, result.size());
+        verify(entityManager).persist(fxDeal);
+        verify(entityManager).persist(second);
+        verify(entityManager, times(1)).flush();
+    }
+
+    @Test
+    void testSaveAll_JdbcWriterEnabledInsertsInOneCall() {
+        FxDeal second = new FxDeal("DEAL002", "GBP", "USD", LocalDateTime.now(), new BigDecimal("20.00"));
+        List<FxDeal> deals = List.of(fxDeal, second);
+        when(jdbcWriter.isEnabled()).thenReturn(true);
+
+        assertSame(deals, repository.saveAll(deals));
+
+        verify(jdbcWriter).insertAll(deals);
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindExistingDealUniqueIds() {
+        TypedQuery<String> idQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(String.class))).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of("DEAL001"));
+
+        Set<String> existing = repository.findExistingDealUniqueIds(List.of("DEAL001", "DEAL002"));
+
+        assertEquals(Set.of("DEAL001"), existing);
+        verify(idQuery).setParameter("dealUniqueIds", List.of("DEAL001", "DEAL002"));
+    }
+
+    @Test
+    void testFindExistingDealUniqueIds_EmptyInputSkipsQuery() {
+        assertTrue(repository.findExistingDealUniqueIds(List.of()).isEmpty());
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void testFindByIdRange() {
+        when(entityManager.createQuery(anyString(), eq(FxDeal.class))).thenReturn(dealQuery);
+        when(dealQuery.setParameter(anyString(), any())).thenReturn(dealQuery);
+        when(dealQuery.setMaxResults(anyInt())).thenReturn(dealQuery);
+        when(dealQuery.getResultList()).thenReturn(List.of(fxDeal));
+
+        List<FxDeal> results = repository.findByIdRange(0L, 10L, 500);
+
+        assertEquals(1, results.size());
+        verify(entityManager).createQuery(
+            "SELECT f FROM FxDeal f WHERE f.id > :afterId AND f.id < :beforeId ORDER BY f.id", FxDeal.class);
+        verify(dealQuery).setParameter("afterId", 0L);
+        verify(dealQuery).setParameter("beforeId", 10L);
+        verify(dealQuery).setMaxResults(500);
+    }
+
     @Test
     void testCount() {
         when(entityManager.createQuery(anyString(), eq(Long.class))).thenReturn(countQuery);
@@ -161,4 +376,56 @@ class FxDealRepositoryTest {
         assertEquals(5L, count);
         verify(entityManager, times(1)).createQuery(anyString(), eq(Long.class));
     }
+
+    @Test
+    void testShardedStorageBypassesEntityManager() {
+        when(shards.isEnabled()).thenReturn(true);
+        when(shards.findByDealUniqueId("DEAL001")).thenReturn(Optional.of(fxDeal));
+        when(shards.count()).thenReturn(7L);
+
+        assertEquals(Optional.of(fxDeal), repository.findByDealUniqueId("DEAL001"));
+        assertEquals(7L, repository.count());
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void testLookupsFallBackToArchive() {
+        when(entityManager.find(FxDeal.class, 1L)).thenReturn(null);
+        when(entityManager.createQuery(anyString(), eq(FxDeal.class))).thenReturn(dealQuery);
+        when(dealQuery.setParameter(anyString(), any())).thenReturn(dealQuery);
+        when(dealQuery.getSingleResult()).thenThrow(new NoResultException());
+        when(archive.isEnabled()).thenReturn(true);
+        when(archive.findById(1L)).thenReturn(Optional.of(fxDeal));
+        when(archive.findByDealUniqueId("DEAL001")).thenReturn(Optional.of(fxDeal));
+
+        assertEquals(Optional.of(fxDeal), repository.findById(1L));
+        assertEquals(Optional.of(fxDeal), repository.findByDealUniqueId("DEAL001"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testArchivedDealsCountAsExisting() {
+        TypedQuery<String> idQuery = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(String.class))).thenReturn(idQuery);
+        when(idQuery.setParameter(anyString(), any())).thenReturn(idQuery);
+        when(idQuery.getResultList()).thenReturn(List.of("DEAL001"));
+        when(archive.isEnabled()).thenReturn(true);
+        when(archive.findExistingDealUniqueIds(anyCollection())).thenReturn(Set.of("OLD001"));
+
+        Set<String> existing = repository.findExistingDealUniqueIds(List.of("DEAL001", "OLD001", "NEW001"));
+
+        assertEquals(Set.of("DEAL001", "OLD001"), existing);
+    }
+
+    @Test
+    void testDeleteByIds() {
+        Query delete = mock(Query.class);
+        when(entityManager.createQuery("DELETE FROM FxDeal f WHERE f.id IN :ids")).thenReturn(delete);
+        when(delete.setParameter(anyString(), any())).thenReturn(delete);
+        when(delete.executeUpdate()).thenReturn(2);
+
+        assertEquals(2, repository.deleteByIds(List.of(1L, 2L)));
+        assertEquals(0, repository.deleteByIds(List.of()));
+        verify(delete).setParameter("ids", List.of(1L, 2L));
+    }
 }
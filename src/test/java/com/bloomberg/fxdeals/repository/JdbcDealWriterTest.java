@@ -0,0 +1,147 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import jakarta.persistence.PersistenceException;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JdbcDealWriter.
+ */
+class JdbcDealWriterTest {
+
+    private static final LocalDateTime DEAL_TIME = LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123_456_000);
+
+    private SessionFactory database;
+    private JdbcDataSource dataSource;
+    private JdbcDealWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        String url = "jdbc:h2:mem:jdbc-writer" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        database = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url", url)
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        dataSource.setUser("sa");
+        writer = new JdbcDealWriter();
+        writer.start(dataSource, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.close();
+    }
+
+    @Test
+    void testInsert_RowMatchesJpaPersist() throws SQLException {
+        database.inTransaction(session -> session.persist(deal("JPA001")));
+
+        FxDeal written = writer.insert(deal("JDBC001"));
+
+        Map<String, Object> viaJpa = row("JPA001");
+        Map<String, Object> viaJdbc = row("JDBC001");
+        assertEquals(written.getId(), viaJdbc.get("id"));
+        assertEquals(viaJpa.keySet(), viaJdbc.keySet());
+        for (String column : List.of("from_currency_iso", "to_currency_iso", "deal_timestamp", "deal_amount")) {
+            assertEquals(viaJpa.get(column), viaJdbc.get(column), column);
+        }
+        assertNotNull(viaJpa.get("created_at"));
+        assertEquals(written.getCreatedAt(), viaJdbc.get("created_at"));
+        assertEquals(written.getCreatedAt(), viaJdbc.get("updated_at"));
+    }
+
+    @Test
+    void testInsertAll_AssignsGeneratedIdsInOrder() throws SQLException {
+        List<FxDeal> deals = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            deals.add(deal(String.format("DEAL%03d", i)));
+        }
+
+        writer.insertAll(deals);
+
+        for (FxDeal deal : deals) {
+            assertEquals(deal.getId(), row(deal.getDealUniqueId()).get("id"));
+        }
+        assertEquals(11, deals.stream().map(FxDeal::getId).distinct().count());
+        assertEquals(deals.get(0).getCreatedAt(), deals.get(10).getUpdatedAt());
+    }
+
+    @Test
+    void testInsert_UniqueViolationCarriesSqlException() {
+        writer.insert(deal("DEAL001"));
+
+        PersistenceException failure = assertThrows(PersistenceException.class, () -> writer.insert(deal("DEAL001")));
+
+        assertTrue(FxDealRepository.isUniqueViolation(failure));
+    }
+
+    @Test
+    void testStatementSizes_FullStatementsThenPowersOfTwo() {
+        assertEquals(List.of(), JdbcDealWriter.statementSizes(0, 64));
+        assertEquals(List.of(1), JdbcDealWriter.statementSizes(1, 64));
+        assertEquals(List.of(64, 64, 8, 2, 1), JdbcDealWriter.statementSizes(139, 64));
+        assertEquals(List.of(50, 32, 16, 1), JdbcDealWriter.statementSizes(99, 50));
+    }
+
+    @Test
+    void testRepositorySave_GoesThroughWriterWhenEnabled() throws SQLException {
+        FxDealRepository repository = Repositories.onEntityManager(database.createEntityManager());
+        repository.jdbcWriter = writer;
+
+        FxDeal saved = repository.save(deal("DEAL001"));
+
+        assertNotNull(saved.getId());
+        assertEquals(saved.getId(), row("DEAL001").get("id"));
+        assertThrows(DuplicateDealException.class,
+                     () -> repository.save(deal("DEAL001")));
+    }
+
+    private static FxDeal deal(String dealUniqueId) {
+        return new FxDeal(dealUniqueId, "USD", "EUR", DEAL_TIME, new BigDecimal("1000.50"));
+    }
+
+    private Map<String, Object> row(String dealUniqueId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                 "SELECT * FROM fx_deals WHERE deal_unique_id = ?")) {
+            statement.setString(1, dealUniqueId);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                assertTrue(resultSet.next(), dealUniqueId);
+                Map<String, Object> row = new LinkedHashMap<>();
+                for (int i = 1; i <= resultSet.getMetaData().getColumnCount(); i++) {
+                    String column = resultSet.getMetaData().getColumnLabel(i).toLowerCase();
+                    Object value = resultSet.getObject(i);
+                    row.put(column, value instanceof Timestamp
+                        ? ((Timestamp) value).toLocalDateTime() : value);
+                }
+                return row;
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.bloomberg.fxdeals.repository;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReplicaConnectionProvider.
+ */
+class ReplicaConnectionProviderTest {
+
+    private final ReplicaConnectionProvider provider = new ReplicaConnectionProvider();
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(ReplicaRouter.ENABLED_PROPERTY);
+        System.clearProperty(ReplicaConnectionProvider.DATASOURCE_PROPERTY);
+    }
+
+    @Test
+    void testConfigure_WithoutReplicaRoutingUsesThePrimaryDatasource() throws Exception {
+        JdbcDataSource primary = new JdbcDataSource();
+        primary.setURL("jdbc:h2:mem:replica-provider" + System.nanoTime());
+        primary.setUser("sa");
+
+        provider.configure(settings(primary));
+
+        assertSame(primary, provider.unwrap(DataSource.class));
+        try (Connection connection = provider.getConnection()) {
+            assertTrue(connection.getMetaData().getURL().startsWith("jdbc:h2:mem:replica-provider"));
+        }
+    }
+
+    @Test
+    void testConfigure_WithReplicaRoutingRequiresTheReplicaDatasource() {
+        System.setProperty(ReplicaRouter.ENABLED_PROPERTY, "true");
+        System.setProperty(ReplicaConnectionProvider.DATASOURCE_PROPERTY, "java:jboss/datasources/Missing");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                                                   () -> provider.configure(settings(new JdbcDataSource())));
+
+        assertEquals("Replica datasource not found: java:jboss/datasources/Missing", error.getMessage());
+    }
+
+    private static Map<String, Object> settings(DataSource primary) {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("hibernate.connection.datasource", primary);
+        return settings;
+    }
+}
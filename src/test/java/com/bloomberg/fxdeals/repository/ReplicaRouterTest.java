@@ -0,0 +1,267 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.entity.ReplicaHeartbeat;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReplicaRouter, with two H2 databases standing in for the primary and
+ * the replica.
+ */
+class ReplicaRouterTest {
+
+    private SessionFactory primary;
+    private SessionFactory replica;
+    private EntityManager replicaEntityManager;
+    private FxDealRepository repository;
+    private ReplicationHeartbeat heartbeat;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        replicaEntityManager = replica.createEntityManager();
+
+        repository = new FxDealRepository();
+        repository.entityManager = primary.createEntityManager();
+        repository.replicaEntityManager = replicaEntityManager;
+        repository.shards = new ShardedDealStore();
+        repository.archive = new DealArchive();
+        repository.jdbcWriter = new JdbcDealWriter();
+
+        heartbeat = new LocalHeartbeat();
+        heartbeat.entityManager = primary.createEntityManager();
+        heartbeat.replicaEntityManager = replicaEntityManager;
+
+        router = newRouter(true);
+        repository.replicaRouter = router;
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContext.clear();
+        primary.close();
+        replica.close();
+    }
+
+    @Test
+    void testReadsGoToReplicaWhenCaughtUp() throws Exception {
+        insert(primary, "DEAL001");
+        insert(replica, "DEAL001");
+        insert(replica, "REPLICA-ONLY");
+        router.probe();
+
+        assertTrue(router.read(() -> repository.findByDealUniqueId("REPLICA-ONLY")).isPresent());
+        assertEquals(2L, router.read(repository::count));
+        assertEquals(1L, repository.count());
+        assertEquals(2, router.getReplicaReads());
+    }
+
+    @Test
+    void testLaggingReplicaIsBypassed() throws Exception {
+        insert(primary, "DEAL001");
+        insert(replica, "DEAL001");
+        long start = System.nanoTime();
+        router.recordProbe(start, 1, 1);
+        insert(primary, "DEAL002");
+        router.recordProbe(start + TimeUnit.SECONDS.toNanos(1), 2, 1);
+
+        assertEquals(0, router.getLagMillis());
+        assertEquals(1L, router.read(repository::count));
+
+        router.recordProbe(start + TimeUnit.SECONDS.toNanos(3), 2, 1);
+
+        assertEquals(2000, router.getLagMillis());
+        assertEquals(2L, router.read(repository::count));
+        assertEquals(1, router.getPrimaryReads());
+    }
+
+    @Test
+    void testUnavailableReplicaFallsBackToPrimary() throws Exception {
+        insert(primary, "DEAL001");
+        router.probe();
+        dropTables(replica);
+
+        assertTrue(router.read(() -> repository.findByDealUniqueId("DEAL001")).isPresent());
+        assertEquals(1, router.getFallbacks());
+        assertFalse(router.isReplicaAvailable());
+
+        router.probe();
+        assertFalse(router.isReplicaAvailable());
+        assertTrue(router.read(() -> repository.findByDealUniqueId("DEAL001")).isPresent());
+        assertEquals(1, router.getPrimaryReads());
+    }
+
+    @Test
+    void testFallbackCanBeDisabled() {
+        router = newRouter(false);
+        repository.replicaRouter = router;
+        router.probe();
+        dropTables(replica);
+
+        assertThrows(PersistenceException.class, () -> router.read(repository::count));
+    }
+
+    @Test
+    void testClientReadsItsOwnWritesFromPrimary() throws Exception {
+        insert(replica, "DEAL001");
+        long created = insert(primary, "DEAL001");
+        router.probe();
+        replicateHeartbeat();
+        long newest = insert(primary, "DEAL002");
+
+        RequestContext.bind(RequestContext.forClient("writer"));
+        router.onDealCreated(new DealCreatedEvent(response(newest, "DEAL002")));
+
+        assertTrue(router.read(() -> repository.findById(newest)).isPresent());
+
+        RequestContext.bind(RequestContext.forClient("other"));
+        assertFalse(router.read(() -> repository.findById(newest)).isPresent());
+        assertTrue(router.read(() -> repository.findById(created)).isPresent());
+
+        // the replica has applied a heartbeat, but one written before the deal committed
+        router.probe();
+        RequestContext.bind(RequestContext.forClient("writer"));
+        assertTrue(router.read(() -> repository.findById(newest)).isPresent());
+        assertEquals(2, router.getReplicaReads());
+
+        insert(replica, "DEAL002");
+        replicateHeartbeat();
+        router.probe();
+        assertTrue(router.read(() -> repository.findById(newest)).isPresent());
+        assertEquals(3, router.getReplicaReads());
+    }
+
+    @Test
+    void testHigherIdOnReplicaDoesNotCountAsCaughtUp() throws Exception {
+        router.probe();
+        replicateHeartbeat();
+        router.probe();
+        long written = insert(primary, "DEAL001");
+        RequestContext.bind(RequestContext.forClient("writer"));
+        router.onDealCreated(new DealCreatedEvent(response(written, "DEAL001")));
+
+        // an IDENTITY id committed out of order: the replica holds a higher id than the
+        // client's deal without holding the deal itself
+        insert(replica, "OTHER-1");
+        insert(replica, "OTHER-2");
+        router.probe();
+
+        assertTrue(router.read(() -> repository.findById(written)).isPresent());
+        assertEquals(0, router.getReplicaReads());
+    }
+
+    @Test
+    void testDisabledRouterUsesPrimary() throws Exception {
+        insert(replica, "REPLICA-ONLY");
+        System.setProperty(ReplicaRouter.ENABLED_PROPERTY, "false");
+        try {
+            router = new ReplicaRouter();
+            router.config = new FxDealsConfig();
+            router.heartbeat = heartbeat;
+            router.init();
+        } finally {
+            System.clearProperty(ReplicaRouter.ENABLED_PROPERTY);
+        }
+        repository.replicaRouter = router;
+
+        assertEquals(0L, router.read(repository::count));
+        assertFalse(router.isEnabled());
+    }
+
+    private ReplicaRouter newRouter(boolean fallback) {
+        System.setProperty(ReplicaRouter.ENABLED_PROPERTY, "true");
+        System.setProperty(ReplicaRouter.FALLBACK_PROPERTY, Boolean.toString(fallback));
+        System.setProperty(ReplicaRouter.MAX_LAG_PROPERTY, "1000");
+        try {
+            ReplicaRouter newRouter = new ReplicaRouter();
+            newRouter.config = new FxDealsConfig();
+            newRouter.heartbeat = heartbeat;
+            newRouter.init();
+            return newRouter;
+        } finally {
+            System.clearProperty(ReplicaRouter.ENABLED_PROPERTY);
+            System.clearProperty(ReplicaRouter.FALLBACK_PROPERTY);
+            System.clearProperty(ReplicaRouter.MAX_LAG_PROPERTY);
+        }
+    }
+
+    private static SessionFactory database(String name) {
+        return new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .addAnnotatedClass(ReplicaHeartbeat.class)
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:" + name + System.nanoTime())
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+    }
+
+    private static long insert(SessionFactory database, String uniqueId) {
+        FxDeal deal = new FxDeal(uniqueId, "USD", "EUR", LocalDateTime.now(), new BigDecimal("1000.50"));
+        database.inTransaction(session -> session.persist(deal));
+        return deal.getId();
+    }
+
+    private static void dropTables(SessionFactory database) {
+        database.inTransaction(session -> {
+            session.createNativeMutationQuery("DROP TABLE fx_deals").executeUpdate();
+            session.createNativeMutationQuery("DROP TABLE fxdeals_replica_heartbeat").executeUpdate();
+        });
+    }
+
+    /**
+     * Copies the primary's heartbeat row to the replica, as replication would.
+     */
+    private void replicateHeartbeat() {
+        long sequence = primary.fromTransaction(session -> session.createQuery(
+            "SELECT h.sequence FROM ReplicaHeartbeat h", Long.class).getSingleResult());
+        replica.inTransaction(session -> session.merge(new ReplicaHeartbeat(ReplicationHeartbeat.ROW_ID, sequence)));
+    }
+
+    private static FxDealResponse response(long id, String uniqueId) {
+        LocalDateTime now = LocalDateTime.now();
+        return new FxDealResponse(id, uniqueId, "USD", "EUR", now, new BigDecimal("1000.50"), now);
+    }
+
+    /**
+     * Commits the heartbeat in a resource-local transaction, in place of the container's
+     * REQUIRES_NEW.
+     */
+    private static final class LocalHeartbeat extends ReplicationHeartbeat {
+
+        @Override
+        public long advance() {
+            entityManager.getTransaction().begin();
+            try {
+                long sequence = super.advance();
+                entityManager.getTransaction().commit();
+                return sequence;
+            } finally {
+                if (entityManager.getTransaction().isActive()) {
+                    entityManager.getTransaction().rollback();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.bloomberg.fxdeals.repository;
+
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.persistence.EntityManager;
+
+/**
+ * FxDealRepository instances wired by hand for tests outside this package.
+ */
+public final class Repositories {
+
+    private Repositories() {
+    }
+
+    /**
+     * A repository that reads and writes through the entity manager, with replica routing,
+     * sharding, the archive and the JDBC writer left disabled.
+     */
+    public static FxDealRepository onEntityManager(EntityManager entityManager) {
+        FxDealRepository repository = new FxDealRepository();
+        repository.entityManager = entityManager;
+        repository.replicaEntityManager = entityManager;
+        repository.replicaRouter = new ReplicaRouter();
+        repository.shards = new ShardedDealStore();
+        repository.archive = new DealArchive();
+        repository.jdbcWriter = new JdbcDealWriter();
+        return repository;
+    }
+
+    /**
+     * A repository that reads from the replica entity manager inside
+     * {@link ReplicaRouter#read} and from the primary otherwise. The replica counts as
+     * caught up, so every routed read goes to it.
+     */
+    public static FxDealRepository replicated(EntityManager primary, EntityManager replica) {
+        FxDealRepository repository = onEntityManager(primary);
+        repository.replicaEntityManager = replica;
+        System.setProperty(ReplicaRouter.ENABLED_PROPERTY, "true");
+        try {
+            ReplicaRouter router = new ReplicaRouter();
+            router.config = new FxDealsConfig();
+            router.heartbeat = new ReplicationHeartbeat();
+            router.init();
+            router.recordProbe(System.nanoTime(), 0, 0);
+            repository.replicaRouter = router;
+        } finally {
+            System.clearProperty(ReplicaRouter.ENABLED_PROPERTY);
+        }
+        return repository;
+    }
+
+    public static ReplicaRouter replicaRouter(FxDealRepository repository) {
+        return repository.replicaRouter;
+    }
+}
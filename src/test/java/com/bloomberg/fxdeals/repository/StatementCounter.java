@@ -0,0 +1,58 @@
+package com.bloomberg.fxdeals.repository;
+
+import org.hibernate.cfg.Configuration;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records every SQL statement Hibernate prepares, for tests that hold an operation to a
+ * budget of database round trips.
+ *
+ * Installed as the session factory's statement inspector, so it sees the statements of
+ * every session, queries, entity loads and inserts alike, but not schema export or JDBC
+ * that bypasses Hibernate, such as {@link com.bloomberg.fxdeals.shard.ShardedDealStore}.
+ * A JDBC batch is prepared once and counts as one statement.
+ */
+public final class StatementCounter implements StatementInspector {
+
+    private final List<String> statements = new ArrayList<>();
+
+    /**
+     * Installs this counter on the configuration before its session factory is built.
+     */
+    public Configuration install(Configuration configuration) {
+        return configuration.setStatementInspector(this);
+    }
+
+    @Override
+    public synchronized String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    public synchronized int count() {
+        return statements.size();
+    }
+
+    public synchronized List<String> statements() {
+        return List.copyOf(statements);
+    }
+
+    public synchronized void reset() {
+        statements.clear();
+    }
+
+    /**
+     * The statements recorded so far, one per line, for assertion messages.
+     */
+    public synchronized String describe() {
+        StringBuilder out = new StringBuilder();
+        out.append(statements.size()).append(" statement(s)");
+        for (String sql : statements) {
+            out.append(System.lineSeparator()).append("  ").append(sql);
+        }
+        return out.toString();
+    }
+}
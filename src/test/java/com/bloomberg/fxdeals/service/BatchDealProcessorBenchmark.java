@@ -0,0 +1,77 @@
+package com.bloomberg.fxdeals.service;
+
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Measures the validation and mapping stages of BatchDealProcessor over batches of
+ * 100,000 requests at parallelism 1, 2, 4 ... up to the core count, with persistence
+ * stubbed out. Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class BatchDealProcessorBenchmark {
+
+    private static final int BATCH = 100_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void benchmarkParallelism() {
+        List<FxDealRequest> requests = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            requests.add(BatchDealProcessorTest.request("DEAL" + i, "USD", i % 100 == 0 ? "USD" : "EUR"));
+        }
+        FxDealService dealService = mock(FxDealService.class);
+        when(dealService.createMapped(anyList())).thenAnswer(invocation -> {
+            List<FxDeal> deals = invocation.getArgument(0);
+            return deals.stream().map(deal -> DealOutcome.created(null)).collect(Collectors.toList());
+        });
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> levels = new ArrayList<>();
+        for (int parallelism = 1; parallelism < cores; parallelism *= 2) {
+            levels.add(parallelism);
+        }
+        levels.add(cores);
+        double single = 0;
+        try (ValidatorFactory validation = Validation.buildDefaultValidatorFactory()) {
+            for (int parallelism : levels) {
+                BatchDealProcessor processor = new BatchDealProcessor();
+                processor.dealService = dealService;
+                processor.mapper = new FxDealMapper();
+                processor.validator = validation.getValidator();
+                processor.start(parallelism, 1000, BATCH);
+                try {
+                    processor.process(requests);
+                    long start = System.nanoTime();
+                    for (int round = 0; round < ROUNDS; round++) {
+                        List<DealOutcome> outcomes = processor.process(requests);
+                        assertEquals(DealOutcome.Status.INVALID, outcomes.get(0).getStatus());
+                        assertEquals(DealOutcome.Status.CREATED, outcomes.get(1).getStatus());
+                    }
+                    double perSecond = (double) BATCH * ROUNDS / ((System.nanoTime() - start) / 1e9);
+                    if (parallelism == 1) {
+                        single = perSecond;
+                    }
+                    System.out.printf("Parallelism %d of %d cores: %,.0f requests/s (%.2fx)%n",
+                                      parallelism, cores, perSecond, perSecond / single);
+                } finally {
+                    processor.shutdown();
+                }
+            }
+        }
+    }
+}
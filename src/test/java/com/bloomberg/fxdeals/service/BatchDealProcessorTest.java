@@ -0,0 +1,168 @@
+package com.bloomberg.fxdeals.service;
+
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.exception.ValidationException;
+import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BatchDealProcessor.
+ */
+class BatchDealProcessorTest {
+
+    private ValidatorFactory validation;
+    private FxDealService dealService;
+    private BatchDealProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        validation = Validation.buildDefaultValidatorFactory();
+        dealService = mock(FxDealService.class);
+        processor = new BatchDealProcessor();
+        processor.dealService = dealService;
+        processor.mapper = new FxDealMapper();
+        processor.validator = validation.getValidator();
+        processor.start(4, 3, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.shutdown();
+        validation.close();
+    }
+
+    @Test
+    void testProcess_OutcomePerRequestInOrderAcrossChunks() {
+        Set<String> stored = Set.of("DEAL005");
+        when(dealService.createMapped(anyList())).thenAnswer(invocation -> {
+            List<FxDeal> deals = invocation.getArgument(0);
+            return deals.stream()
+                .map(deal -> stored.contains(deal.getDealUniqueId())
+                    ? DealOutcome.duplicate(deal.getDealUniqueId())
+                    : DealOutcome.created(response(deal.getDealUniqueId())))
+                .collect(Collectors.toList());
+        });
+
+        List<DealOutcome> outcomes = processor.process(List.of(
+            request("DEAL001", "USD", "EUR"),
+            request("DEAL002", "USD", "USD"),
+            request("DEAL003", "GBP", "EUR"),
+            request("DEAL001", "JPY", "EUR"),
+            request("DEAL005", "USD", "CHF"),
+            request("DEAL006", "usd", "EUR"),
+            request("DEAL003", "GBP", "EUR")));
+
+        assertEquals(7, outcomes.size());
+        assertEquals(DealOutcome.Status.CREATED, outcomes.get(0).getStatus());
+        assertEquals("DEAL001", outcomes.get(0).getDeal().getDealUniqueId());
+        assertEquals(DealOutcome.Status.INVALID, outcomes.get(1).getStatus());
+        assertEquals(DealRequestRules.SAME_CURRENCY_MESSAGE, outcomes.get(1).getMessage());
+        assertEquals(DealOutcome.Status.CREATED, outcomes.get(2).getStatus());
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(3).getStatus());
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(4).getStatus());
+        assertEquals(DealOutcome.Status.INVALID, outcomes.get(5).getStatus());
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(6).getStatus());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<FxDeal>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(dealService, times(2)).createMapped(chunks.capture());
+        assertEquals(List.of("DEAL001", "DEAL003"), uniqueIds(chunks.getAllValues().get(0)));
+        assertEquals(List.of("DEAL005"), uniqueIds(chunks.getAllValues().get(1)));
+    }
+
+    @Test
+    void testProcess_RepeatedIdIsCreatedAtFirstPosition() {
+        when(dealService.createMapped(anyList())).thenAnswer(invocation -> {
+            List<FxDeal> deals = invocation.getArgument(0);
+            return deals.stream()
+                .map(deal -> DealOutcome.created(response(deal.getDealUniqueId())))
+                .collect(Collectors.toList());
+        });
+        List<FxDealRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            requests.add(request("DEAL" + (i % 2), "USD", "EUR"));
+        }
+
+        List<DealOutcome> outcomes = processor.process(requests);
+
+        assertEquals(DealOutcome.Status.CREATED, outcomes.get(0).getStatus());
+        assertEquals(DealOutcome.Status.CREATED, outcomes.get(1).getStatus());
+        for (int i = 2; i < 10; i++) {
+            assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(i).getStatus(), "position " + i);
+        }
+    }
+
+    @Test
+    void testProcess_FailedChunkRetriedIndividually() {
+        when(dealService.createMapped(anyList())).thenThrow(new IllegalStateException("unique key violation"));
+        when(dealService.createDeal(any())).thenAnswer(invocation -> {
+            FxDealRequest request = invocation.getArgument(0);
+            if (request.getDealUniqueId().equals("DEAL002")) {
+                throw new DuplicateDealException("DEAL002");
+            }
+            return response(request.getDealUniqueId());
+        });
+
+        List<DealOutcome> outcomes = processor.process(List.of(
+            request("DEAL001", "USD", "EUR"),
+            request("DEAL002", "USD", "EUR")));
+
+        assertEquals(DealOutcome.Status.CREATED, outcomes.get(0).getStatus());
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(1).getStatus());
+        verify(dealService, times(2)).createDeal(any());
+    }
+
+    @Test
+    void testProcess_AllInvalidSkipsPersistence() {
+        List<DealOutcome> outcomes = processor.process(Collections.singletonList(null));
+
+        assertEquals(DealOutcome.Status.INVALID, outcomes.get(0).getStatus());
+        verifyNoInteractions(dealService);
+    }
+
+    @Test
+    void testProcess_RejectsEmptyAndOversizedBatches() {
+        assertThrows(ValidationException.class, () -> processor.process(List.of()));
+        List<FxDealRequest> tooMany = Collections.nCopies(11, request("DEAL001", "USD", "EUR"));
+        ValidationException exception = assertThrows(ValidationException.class, () -> processor.process(tooMany));
+        assertEquals("Batch must not contain more than 10 deals", exception.getMessage());
+        verifyNoInteractions(dealService);
+    }
+
+    static FxDealRequest request(String dealUniqueId, String from, String to) {
+        return new FxDealRequest(dealUniqueId, from, to, LocalDateTime.of(2024, 1, 15, 10, 30),
+                                 new BigDecimal("1000.50"));
+    }
+
+    private static FxDealResponse response(String dealUniqueId) {
+        FxDealResponse response = new FxDealResponse();
+        response.setDealUniqueId(dealUniqueId);
+        return response;
+    }
+
+    private static List<String> uniqueIds(List<FxDeal> deals) {
+        return deals.stream().map(FxDeal::getDealUniqueId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,229 @@
+package com.bloomberg.fxdeals.service;
+
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.cache.LatestDealsCache;
+import com.bloomberg.fxdeals.dedup.NearDuplicateIndex;
+import com.bloomberg.fxdeals.dto.DealOutcome;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import com.bloomberg.fxdeals.repository.Repositories;
+import com.bloomberg.fxdeals.repository.StatementCounter;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import com.bloomberg.fxdeals.stream.ChangeFeed;
+import jakarta.enterprise.event.Event;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Holds each FxDealService operation to an exact number of SQL statements against an
+ * in-memory H2 database in MySQL mode. A change that adds a round trip to one of these
+ * paths fails here; if the extra statement is intended, raise the budget in the same
+ * change.
+ */
+@ExtendWith(MockitoExtension.class)
+class FxDealServiceStatementBudgetTest {
+
+    private static final int STORED = 30;
+
+    @Mock
+    private LatestDealsCache latestDeals;
+
+    @Mock
+    private NearDuplicateIndex nearDuplicates;
+
+    @Mock
+    private ChangeFeed changeFeed;
+
+    @Mock
+    private Event<DealCreatedEvent> dealCreated;
+
+    private final StatementCounter statements = new StatementCounter();
+    private SessionFactory database;
+    private ValidatorFactory validation;
+    private EntityManager entityManager;
+    private FxDealService service;
+    private long storedId;
+
+    @BeforeEach
+    void setUp() {
+        database = statements.install(new Configuration())
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url",
+                         "jdbc:h2:mem:budget" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1")
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        database.inTransaction(session -> {
+            for (int i = 0; i < STORED; i++) {
+                session.persist(deal("STORED-" + i, i));
+            }
+        });
+        storedId = database.fromTransaction(session -> session.createQuery(
+            "SELECT f.id FROM FxDeal f WHERE f.dealUniqueId = 'STORED-0'", Long.class).getSingleResult());
+        validation = Validation.buildDefaultValidatorFactory();
+        entityManager = database.createEntityManager();
+
+        service = new FxDealService();
+        service.repository = Repositories.onEntityManager(entityManager);
+        service.mapper = new FxDealMapper();
+        service.validator = validation.getValidator();
+        service.latestDeals = latestDeals;
+        service.dealCreated = dealCreated;
+        service.changeFeed = changeFeed;
+        service.replicaRouter = new ReplicaRouter();
+        service.archive = new DealArchive();
+        service.nearDuplicates = nearDuplicates;
+        service.shards = new ShardedDealStore();
+        statements.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        entityManager.close();
+        validation.close();
+        database.close();
+    }
+
+    @Test
+    void testCreateDeal_OneInsert() {
+        FxDealResponse response = inTransaction(() -> service.createDeal(request("NEW-1")));
+
+        assertNotNull(response.getId());
+        assertBudget(1);
+        assertTrue(statements.statements().get(0).toLowerCase().startsWith("insert"), statements.describe());
+    }
+
+    @Test
+    void testCreateDeal_DuplicateIsDetectedByTheInsert() {
+        assertThrows(DuplicateDealException.class, () -> inTransaction(() -> service.createDeal(request("STORED-0"))));
+
+        assertBudget(1);
+    }
+
+    @Test
+    void testCreateDeal_NearDuplicateMatchChecksForResend() {
+        when(nearDuplicates.findMatch(any(FxDealRequest.class))).thenReturn(OptionalLong.of(storedId));
+
+        assertThrows(DuplicateDealException.class, () -> inTransaction(() -> service.createDeal(request("STORED-0"))));
+
+        assertBudget(1);
+    }
+
+    @Test
+    void testCreateDeals_OneExistenceQueryAndOneInsertPerDeal() {
+        List<FxDealRequest> requests = List.of(request("NEW-1"), request("NEW-2"), request("STORED-1"));
+
+        List<DealOutcome> outcomes = inTransaction(() -> service.createDeals(requests));
+
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(2).getStatus());
+        assertBudget(3);
+    }
+
+    @Test
+    void testGetDealById_OneSelect() {
+        assertEquals("STORED-0", inTransaction(() -> service.getDealById(storedId)).getDealUniqueId());
+
+        assertBudget(1);
+    }
+
+    @Test
+    void testGetDealByUniqueId_OneSelect() {
+        assertEquals(Long.valueOf(storedId), inTransaction(() -> service.getDealByUniqueId("STORED-0")).getId());
+
+        assertBudget(1);
+    }
+
+    @Test
+    void testGetDeals_OneSelectPerPage() {
+        assertEquals(10, inTransaction(() -> service.getDeals(10, 10)).size());
+
+        assertBudget(1);
+    }
+
+    @Test
+    void testListing_CachedCountAddsNoStatement() {
+        when(latestDeals.totalCount()).thenReturn(OptionalLong.of(STORED));
+
+        inTransaction(() -> service.getDeals(10, 10));
+        assertEquals(STORED, inTransaction(service::getTotalCount).intValue());
+
+        assertBudget(1);
+    }
+
+    @Test
+    void testListing_UncachedCountAddsOneStatement() {
+        inTransaction(() -> service.getDeals(10, 10));
+        assertEquals(STORED, inTransaction(service::getTotalCount).intValue());
+
+        assertBudget(2);
+    }
+
+    @Test
+    void testListing_CachedFirstPageAndCountRunNoStatement() {
+        when(latestDeals.firstPage(0, 10)).thenReturn(Optional.of(List.of()));
+        when(latestDeals.totalCount()).thenReturn(OptionalLong.of(STORED));
+
+        inTransaction(() -> service.getDeals(0, 10));
+        inTransaction(service::getTotalCount);
+
+        assertBudget(0);
+    }
+
+    private void assertBudget(int expected) {
+        assertEquals(expected, statements.count(), statements::describe);
+    }
+
+    /**
+     * Runs the call in a transaction that is committed on success and rolled back on a
+     * failure, like the container's around a @Transactional method.
+     */
+    private <T> T inTransaction(Supplier<T> call) {
+        entityManager.getTransaction().begin();
+        try {
+            T result = call.get();
+            entityManager.getTransaction().commit();
+            return result;
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.clear();
+        }
+    }
+
+    private static FxDealRequest request(String dealUniqueId) {
+        return new FxDealRequest(dealUniqueId, "USD", "EUR", LocalDateTime.now().minusDays(1),
+                                 new BigDecimal("1000.50"));
+    }
+
+    private static FxDeal deal(String dealUniqueId, int i) {
+        return new FxDeal(dealUniqueId, "USD", "EUR", LocalDateTime.now().minusDays(1).minusMinutes(i),
+                          new BigDecimal("1000.50"));
+    }
+}
@@ -1,32 +1,56 @@
 package com.bloomberg.fxdeals.service;
 
+import com.bloomberg.fxdeals.archive.DealArchive;
+import com.bloomberg.fxdeals.cache.LatestDealsCache;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.context.RequestTiming;
+import com.bloomberg.fxdeals.dedup.NearDuplicateIndex;
+import com.bloomberg.fxdeals.dto.DealOutcome;
 import com.bloomberg.fxdeals.dto.FxDealRequest;
 import com.bloomberg.fxdeals.dto.FxDealResponse;
 import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
 import com.bloomberg.fxdeals.exception.DealNotFoundException;
 import com.bloomberg.fxdeals.exception.DuplicateDealException;
+import com.bloomberg.fxdeals.exception.IdCursorUnsupportedException;
+import com.bloomberg.fxdeals.exception.NearDuplicateDealException;
 import com.bloomberg.fxdeals.exception.ValidationException;
+import com.bloomberg.fxdeals.export.ColumnarSnapshotReader;
 import com.bloomberg.fxdeals.mapper.FxDealMapper;
+import com.bloomberg.fxdeals.metrics.Metrics;
 import com.bloomberg.fxdeals.repository.FxDealRepository;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import com.bloomberg.fxdeals.stream.ChangeFeed;
+import jakarta.enterprise.event.Event;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 import jakarta.validation.ValidatorFactory;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -41,6 +65,27 @@ class FxDealServiceTest {
     @Mock
     private FxDealMapper mapper;
 
+    @Mock
+    private LatestDealsCache latestDeals;
+
+    @Mock
+    private Event<DealCreatedEvent> dealCreated;
+
+    @Mock
+    private ChangeFeed changeFeed;
+
+    @Mock
+    private ReplicaRouter replicaRouter;
+
+    @Mock
+    private DealArchive archive;
+
+    @Mock
+    private NearDuplicateIndex nearDuplicates;
+
+    @Mock
+    private ShardedDealStore shards;
+
     @InjectMocks
     private FxDealService service;
 
@@ -85,7 +130,6 @@ class FxDealServiceTest {
 
     @Test
     void testCreateDeal_Success() {
-        when(repository.existsByDealUniqueId(anyString())).thenReturn(false);
         when(mapper.toEntity(any(FxDealRequest.class))).thenReturn(fxDeal);
         when(repository.save(any(FxDeal.class))).thenReturn(fxDeal);
         when(mapper.toResponse(any(FxDeal.class))).thenReturn(response);
@@ -94,19 +138,130 @@ class FxDealServiceTest {
 
         assertNotNull(result);
         assertEquals("DEAL001", result.getDealUniqueId());
-        verify(repository, times(1)).existsByDealUniqueId("DEAL001");
+        verify(repository, never()).existsByDealUniqueId(anyString());
         verify(repository, times(1)).save(any(FxDeal.class));
+        verify(dealCreated, times(1)).fire(any(DealCreatedEvent.class));
+        InOrder inOrder = inOrder(changeFeed, repository);
+        inOrder.verify(changeFeed).beginWrite();
+        inOrder.verify(repository).save(any(FxDeal.class));
+    }
+
+    @Test
+    void testCreateDeal_RecordsStageTimingsAndOutcome() {
+        when(mapper.toEntity(any(FxDealRequest.class))).thenReturn(fxDeal);
+        when(repository.save(any(FxDeal.class))).thenReturn(fxDeal);
+        when(mapper.toResponse(any(FxDeal.class))).thenReturn(response);
+        long validated = Metrics.STAGE_VALIDATE.getCount();
+        long saved = Metrics.STAGE_SAVE.getCount();
+        long mapped = Metrics.STAGE_MAP.getCount();
+        long created = Metrics.DEALS_CREATED.get();
+
+        service.createDeal(validRequest);
+
+        assertEquals(validated + 1, Metrics.STAGE_VALIDATE.getCount());
+        assertEquals(saved + 1, Metrics.STAGE_SAVE.getCount());
+        assertEquals(mapped + 1, Metrics.STAGE_MAP.getCount());
+        assertEquals(created + 1, Metrics.DEALS_CREATED.get());
+    }
+
+    @Test
+    void testCreateDeal_WarmUpIsNotCountedAsOutcome() {
+        when(mapper.toEntity(any(FxDealRequest.class))).thenReturn(fxDeal);
+        when(repository.save(any(FxDeal.class))).thenReturn(fxDeal);
+        when(mapper.toResponse(any(FxDeal.class))).thenReturn(response);
+        long saved = Metrics.STAGE_SAVE.getCount();
+        long mapped = Metrics.STAGE_MAP.getCount();
+        long created = Metrics.DEALS_CREATED.get();
+
+        RequestContext.bind(RequestContext.forWarmUp());
+        try {
+            service.createDeal(validRequest);
+        } finally {
+            RequestContext.clear();
+        }
+
+        assertEquals(saved, Metrics.STAGE_SAVE.getCount());
+        assertEquals(mapped, Metrics.STAGE_MAP.getCount());
+        assertEquals(created, Metrics.DEALS_CREATED.get());
+        verify(dealCreated).fire(any(DealCreatedEvent.class));
+    }
+
+    @Test
+    void testCreateDeal_RecordsPhasesInRequestTiming() {
+        when(mapper.toEntity(any(FxDealRequest.class))).thenReturn(fxDeal);
+        when(repository.save(any(FxDeal.class))).thenReturn(fxDeal);
+        when(mapper.toResponse(any(FxDeal.class))).thenReturn(response);
+        RequestTiming timing = new RequestTiming(System.nanoTime());
+        RequestTiming.setEnabled(true);
+        RequestContext.bind(RequestContext.forClient("client-1").withTiming(timing));
+        try {
+            service.createDeal(validRequest);
+        } finally {
+            RequestContext.clear();
+            RequestTiming.setEnabled(false);
+        }
+
+        String serverTiming = timing.toServerTiming(timing.elapsedNanos());
+        assertTrue(serverTiming.startsWith("validate;dur="), serverTiming);
+        assertTrue(serverTiming.contains(", dedup;dur="), serverTiming);
+        assertTrue(serverTiming.contains(", db-write;dur="), serverTiming);
+        assertFalse(serverTiming.contains("db-read"), serverTiming);
     }
 
     @Test
     void testCreateDeal_DuplicateDeal() {
-        when(repository.existsByDealUniqueId(anyString())).thenReturn(true);
+        when(mapper.toEntity(any(FxDealRequest.class))).thenReturn(fxDeal);
+        when(repository.save(any(FxDeal.class))).thenThrow(new DuplicateDealException("DEAL001"));
+        long duplicates = Metrics.DEALS_DUPLICATE.get();
+
+        assertThrows(DuplicateDealException.class, () -> service.createDeal(validRequest));
+        assertEquals(duplicates + 1, Metrics.DEALS_DUPLICATE.get());
+        verify(repository, never()).existsByDealUniqueId(anyString());
+        verify(dealCreated, never()).fire(any(DealCreatedEvent.class));
+    }
+
+    @Test
+    void testCreateDeal_ArchivedDealIsDuplicate() {
+        when(archive.isEnabled()).thenReturn(true);
+        when(archive.existsByDealUniqueId("DEAL001")).thenReturn(true);
+
+        assertThrows(DuplicateDealException.class, () -> service.createDeal(validRequest));
+        verify(repository, never()).save(any(FxDeal.class));
+    }
+
+    @Test
+    void testCreateDeal_ResendOfStoredDealIsDuplicate() {
+        when(nearDuplicates.findMatch(validRequest)).thenReturn(OptionalLong.of(1L));
+        when(repository.existsByDealUniqueId("DEAL001")).thenReturn(true);
 
         assertThrows(DuplicateDealException.class, () -> service.createDeal(validRequest));
-        verify(repository, times(1)).existsByDealUniqueId("DEAL001");
         verify(repository, never()).save(any(FxDeal.class));
     }
 
+    @Test
+    void testCreateDeal_NearDuplicateRejected() {
+        when(repository.existsByDealUniqueId(anyString())).thenReturn(false);
+        when(nearDuplicates.findMatch(validRequest)).thenReturn(OptionalLong.of(7L));
+        when(nearDuplicates.isRejecting()).thenReturn(true);
+
+        NearDuplicateDealException exception =
+            assertThrows(NearDuplicateDealException.class, () -> service.createDeal(validRequest));
+        assertEquals(7L, exception.getMatchingDealId());
+        verify(repository, never()).save(any(FxDeal.class));
+    }
+
+    @Test
+    void testCreateDeal_NearDuplicateFlaggedIsCreated() {
+        when(repository.existsByDealUniqueId(anyString())).thenReturn(false);
+        when(nearDuplicates.findMatch(validRequest)).thenReturn(OptionalLong.of(7L));
+        when(mapper.toEntity(any(FxDealRequest.class))).thenReturn(fxDeal);
+        when(repository.save(any(FxDeal.class))).thenReturn(fxDeal);
+        when(mapper.toResponse(any(FxDeal.class))).thenReturn(response);
+
+        assertSame(response, service.createDeal(validRequest));
+        verify(repository).save(fxDeal);
+    }
+
     @Test
     void testCreateDeal_ValidationError_MissingDealId() {
         FxDealRequest invalidRequest = new FxDealRequest(
@@ -229,6 +384,35 @@ class FxDealServiceTest {
         verify(repository, times(1)).findAll(0, 10);
     }
 
+    @Test
+    void testGetDeals_SharedPageCannotBeModified() {
+        when(repository.findAll(0, 10)).thenReturn(Arrays.asList(fxDeal));
+        when(mapper.toResponse(any(FxDeal.class))).thenReturn(response);
+
+        List<FxDealResponse> results = service.getDeals(0, 10);
+
+        assertThrows(UnsupportedOperationException.class, () -> results.add(response));
+        assertThrows(UnsupportedOperationException.class, results::clear);
+    }
+
+    @Test
+    void testGetDeals_ServedFromLatestDealsCache() {
+        when(latestDeals.firstPage(0, 100)).thenReturn(Optional.of(List.of(response)));
+
+        List<FxDealResponse> results = service.getDeals(0, 100);
+
+        assertEquals(1, results.size());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testGetTotalCount_ServedFromLatestDealsCache() {
+        when(latestDeals.totalCount()).thenReturn(OptionalLong.of(7L));
+
+        assertEquals(7L, service.getTotalCount());
+        verifyNoInteractions(repository);
+    }
+
     @Test
     void testGetTotalCount() {
         when(repository.count()).thenReturn(5L);
@@ -238,4 +422,138 @@ class FxDealServiceTest {
         assertEquals(5L, count);
         verify(repository, times(1)).count();
     }
+
+    @Test
+    void testGetChangesSince_StopsAtVisibleBound() {
+        when(changeFeed.visibleBound()).thenReturn(8L);
+        when(repository.findByIdRange(5L, 8L, 100)).thenReturn(List.of(fxDeal));
+        when(mapper.toResponse(fxDeal)).thenReturn(response);
+
+        List<FxDealResponse> results = service.getChangesSince(5L, 100);
+
+        assertEquals(1, results.size());
+        verify(changeFeed).refreshIfStale();
+        verify(repository).findByIdRange(5L, 8L, 100);
+    }
+
+    @Test
+    void testGetChangesSince_NothingVisibleSkipsQuery() {
+        when(changeFeed.visibleBound()).thenReturn(6L);
+
+        assertTrue(service.getChangesSince(5L, 100).isEmpty());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void testCreateDeals_OutcomePerRequestInOrder() {
+        FxDealRequest invalid = new FxDealRequest("DEAL002", "USD", "USD", LocalDateTime.now(), new BigDecimal("10.00"));
+        FxDealRequest existing = new FxDealRequest("DEAL003", "USD", "EUR", LocalDateTime.now(), new BigDecimal("10.00"));
+        FxDealRequest repeated = new FxDealRequest("DEAL001", "GBP", "EUR", LocalDateTime.now(), new BigDecimal("10.00"));
+        when(repository.findExistingDealUniqueIds(any())).thenReturn(Set.of("DEAL003"));
+        when(mapper.toEntity(validRequest)).thenReturn(fxDeal);
+        when(repository.saveAll(List.of(fxDeal))).thenReturn(List.of(fxDeal));
+        when(mapper.toResponse(fxDeal)).thenReturn(response);
+
+        List<DealOutcome> outcomes = service.createDeals(List.of(validRequest, invalid, existing, repeated));
+
+        assertEquals(DealOutcome.Status.CREATED, outcomes.get(0).getStatus());
+        assertSame(response, outcomes.get(0).getDeal());
+        assertEquals(DealOutcome.Status.INVALID, outcomes.get(1).getStatus());
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(2).getStatus());
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(3).getStatus());
+        verify(repository).findExistingDealUniqueIds(Set.of("DEAL001", "DEAL003"));
+        verify(changeFeed).beginWrite();
+        verify(dealCreated, times(1)).fire(any(DealCreatedEvent.class));
+    }
+
+    @Test
+    void testCreateDeals_AllDuplicatesSkipsSave() {
+        when(repository.findExistingDealUniqueIds(any())).thenReturn(Set.of("DEAL001"));
+
+        List<DealOutcome> outcomes = service.createDeals(List.of(validRequest));
+
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(0).getStatus());
+        verify(repository, never()).saveAll(any());
+        verifyNoInteractions(dealCreated);
+    }
+
+    @Test
+    void testCreateMapped_SkipsStoredDealsAndKeepsOrder() {
+        FxDeal stored = new FxDeal();
+        stored.setDealUniqueId("DEAL003");
+        when(repository.findExistingDealUniqueIds(any())).thenReturn(Set.of("DEAL003"));
+        when(repository.saveAll(List.of(fxDeal))).thenReturn(List.of(fxDeal));
+        when(mapper.toResponse(fxDeal)).thenReturn(response);
+
+        List<DealOutcome> outcomes = service.createMapped(List.of(stored, fxDeal));
+
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(0).getStatus());
+        assertEquals(DealOutcome.Status.CREATED, outcomes.get(1).getStatus());
+        assertSame(response, outcomes.get(1).getDeal());
+        verify(changeFeed).beginWrite();
+        verify(dealCreated, times(1)).fire(any(DealCreatedEvent.class));
+    }
+
+    @Test
+    void testCreateDeals_NearDuplicateRejectedAsDuplicateOutcome() {
+        when(nearDuplicates.findMatch(validRequest)).thenReturn(OptionalLong.of(7L));
+        when(nearDuplicates.isRejecting()).thenReturn(true);
+
+        List<DealOutcome> outcomes = service.createDeals(List.of(validRequest));
+
+        assertEquals(DealOutcome.Status.DUPLICATE, outcomes.get(0).getStatus());
+        assertTrue(outcomes.get(0).getMessage().contains("ID 7"));
+        verify(repository, never()).saveAll(any());
+    }
+
+    @Test
+    void testSnapshotWatermark_IsBelowFirstUncommittedId() {
+        when(changeFeed.visibleBound()).thenReturn(8L);
+
+        assertEquals(7L, service.snapshotWatermark());
+    }
+
+    @Test
+    void testIdCursors_RefusedWithShardedStorage() {
+        when(shards.isEnabled()).thenReturn(true);
+
+        assertThrows(IdCursorUnsupportedException.class, () -> service.getChangesSince(5L, 100));
+        assertThrows(IdCursorUnsupportedException.class, () -> service.snapshotWatermark());
+        verifyNoInteractions(changeFeed, repository);
+    }
+
+    @Test
+    void testExportSnapshot_WritesDatabaseThenArchivedDealsUpToWatermark() throws Exception {
+        FxDeal archived = deal(2L, "DEAL-A");
+        FxDeal stored = deal(6L, "DEAL-B");
+        doAnswer(invocation -> {
+            invocation.<Consumer<FxDeal>>getArgument(2).accept(archived);
+            return null;
+        }).when(archive).scan(eq(1L), eq(9L), any());
+        when(repository.findByIdRange(1L, 10L, 5000)).thenReturn(List.of(stored));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(2, service.exportSnapshot(1L, 9L, out));
+
+        try (ColumnarSnapshotReader reader = new ColumnarSnapshotReader(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals(1L, reader.getSinceId());
+            assertEquals(9L, reader.getWatermark());
+            assertEquals("DEAL-B", reader.next().getDealUniqueId());
+            assertEquals("DEAL-A", reader.next().getDealUniqueId());
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void testExportSnapshot_NothingAfterWatermarkSkipsQuery() throws Exception {
+        service.exportSnapshot(9L, 9L, new ByteArrayOutputStream());
+
+        verify(repository, never()).findByIdRange(anyLong(), anyLong(), anyInt());
+    }
+
+    private static FxDeal deal(long id, String dealUniqueId) {
+        FxDeal deal = new FxDeal(dealUniqueId, "USD", "EUR", LocalDateTime.of(2024, 3, 1, 12, 0), new BigDecimal("10.00"));
+        deal.setId(id);
+        return deal;
+    }
 }
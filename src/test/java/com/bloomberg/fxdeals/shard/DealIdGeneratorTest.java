@@ -0,0 +1,93 @@
+package com.bloomberg.fxdeals.shard;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DealIdGenerator.
+ */
+class DealIdGeneratorTest {
+
+    private static final long NOW = DealIdGenerator.EPOCH_MILLIS + 1_000_000L;
+
+    @Test
+    void testIdEncodesShardNodeAndTime() {
+        long id = new DealIdGenerator(5).nextId(37, NOW);
+
+        assertTrue(id > 0);
+        assertEquals(37, DealIdGenerator.shardOf(id));
+        assertEquals(5, DealIdGenerator.nodeOf(id));
+        assertEquals(NOW, DealIdGenerator.timestampOf(id));
+    }
+
+    @Test
+    void testIdsIncreaseWithinAndAcrossMilliseconds() {
+        DealIdGenerator generator = new DealIdGenerator(0);
+
+        long first = generator.nextId(0, NOW);
+        long second = generator.nextId(0, NOW);
+        long third = generator.nextId(0, NOW + 1);
+
+        assertTrue(first < second && second < third);
+    }
+
+    @Test
+    void testClockGoingBackwardsDoesNotRepeatIds() {
+        DealIdGenerator generator = new DealIdGenerator(0);
+
+        long before = generator.nextId(1, NOW);
+        long after = generator.nextId(1, NOW - 5000);
+
+        assertTrue(after > before);
+        assertEquals(NOW, DealIdGenerator.timestampOf(after));
+    }
+
+    @Test
+    void testExhaustedSequenceBorrowsNextMillisecond() {
+        DealIdGenerator generator = new DealIdGenerator(0);
+
+        long last = 0;
+        for (int i = 0; i < 4097; i++) {
+            long id = generator.nextId(0, NOW);
+            assertTrue(id > last);
+            last = id;
+        }
+
+        assertEquals(NOW + 1, DealIdGenerator.timestampOf(last));
+    }
+
+    @Test
+    void testNodesNeverCollide() throws Exception {
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (int node = 0; node < 4; node++) {
+                DealIdGenerator generator = new DealIdGenerator(node);
+                pool.execute(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        ids.add(generator.nextId(i % 3));
+                    }
+                });
+            }
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        }
+
+        assertEquals(80_000, ids.size());
+    }
+
+    @Test
+    void testRejectsOutOfRangeNodeAndShard() {
+        assertThrows(IllegalArgumentException.class, () -> new DealIdGenerator(DealIdGenerator.MAX_NODES));
+        assertThrows(IllegalArgumentException.class,
+            () -> new DealIdGenerator(0).nextId(DealIdGenerator.MAX_SHARDS));
+    }
+}
@@ -0,0 +1,58 @@
+package com.bloomberg.fxdeals.shard;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JumpHash.
+ */
+class JumpHashTest {
+
+    private static final int KEYS = 100_000;
+
+    @Test
+    void testSingleShardTakesEverything() {
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, JumpHash.shardFor("DEAL" + i, 1));
+        }
+    }
+
+    @Test
+    void testShardsAreBalanced() {
+        int shards = 8;
+        int[] counts = new int[shards];
+        for (int i = 0; i < KEYS; i++) {
+            counts[JumpHash.shardFor("DEAL" + i, shards)]++;
+        }
+        for (int count : counts) {
+            assertTrue(Math.abs(count - KEYS / shards) < KEYS / shards / 10, "shard holds " + count);
+        }
+    }
+
+    @Test
+    void testAddingShardOnlyMovesKeysToNewShard() {
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "DEAL" + i;
+            int before = JumpHash.shardFor(key, 4);
+            int after = JumpHash.shardFor(key, 5);
+            if (before != after) {
+                assertEquals(4, after, key);
+                moved++;
+            }
+        }
+        assertTrue(Math.abs(moved - KEYS / 5) < KEYS / 50, "moved " + moved);
+    }
+
+    @Test
+    void testHashIsStable() {
+        assertEquals(JumpHash.hash("DEAL001"), JumpHash.hash("DEAL001"));
+        assertNotEquals(JumpHash.hash("DEAL001"), JumpHash.hash("DEAL002"));
+    }
+
+    @Test
+    void testRejectsNonPositiveBucketCount() {
+        assertThrows(IllegalArgumentException.class, () -> JumpHash.bucket(42L, 0));
+    }
+}
@@ -0,0 +1,146 @@
+package com.bloomberg.fxdeals.shard;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ShardRebalancer, with one in-memory H2 database per shard.
+ */
+class ShardRebalancerTest {
+
+    private final List<String> urls = new ArrayList<>();
+    private final List<Connection> connections = new ArrayList<>();
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        executor = Executors.newCachedThreadPool();
+        for (int i = 0; i < 4; i++) {
+            String url = "jdbc:h2:mem:rebalance" + i + "-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+            urls.add(url);
+            connections.add(DriverManager.getConnection(url, "sa", ""));
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        executor.shutdownNow();
+        for (Connection connection : connections) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+    }
+
+    @Test
+    void testAddingShardMovesOnlyDealsThatBelongThere() throws SQLException {
+        List<FxDeal> deals = ShardedDealStoreTest.deals(500);
+        store(3, 0).saveAll(deals);
+        long expectedMoves = deals.stream()
+            .filter(deal -> JumpHash.shardFor(deal.getDealUniqueId(), 4) == 3)
+            .count();
+
+        long moved = new ShardRebalancer(connections, 64).rebalance(4);
+
+        assertEquals(expectedMoves, moved);
+        for (FxDeal deal : deals) {
+            int shard = JumpHash.shardFor(deal.getDealUniqueId(), 4);
+            assertEquals(1, rows(shard, deal.getId()), deal.getDealUniqueId());
+        }
+        assertEquals(500, total());
+
+        ShardedDealStore grown = store(4, 0);
+        for (FxDeal deal : deals) {
+            assertEquals(deal.getId(), grown.findByDealUniqueId(deal.getDealUniqueId()).orElseThrow().getId());
+            assertTrue(grown.findById(deal.getId()).isPresent());
+        }
+        assertEquals(500, grown.count());
+    }
+
+    @Test
+    void testSplittingSingleTableAndRerunningIsIdempotent() throws SQLException {
+        List<FxDeal> deals = ShardedDealStoreTest.deals(200);
+        store(1, 0).saveAll(deals);
+
+        ShardRebalancer rebalancer = new ShardRebalancer(connections, 50);
+        long moved = rebalancer.rebalance(4);
+
+        assertTrue(moved > 100, "moved " + moved);
+        assertEquals(0, rebalancer.rebalance(4));
+        assertEquals(200, total());
+    }
+
+    @Test
+    void testInterruptedCopyIsCompletedOnRerun() throws SQLException {
+        List<FxDeal> deals = ShardedDealStoreTest.deals(100);
+        store(3, 0).saveAll(deals);
+        FxDeal moving = deals.stream()
+            .filter(deal -> JumpHash.shardFor(deal.getDealUniqueId(), 4) == 3)
+            .findFirst().orElseThrow();
+        // a previous run copied this deal but stopped before deleting the source row
+        try (Statement statement = connections.get(3).createStatement()) {
+            statement.execute(ShardedDealStore.CREATE_TABLE_SQL);
+        }
+        try (var insert = connections.get(3).prepareStatement(ShardedDealStore.INSERT_SQL)) {
+            ShardedDealStore.bindInsert(insert, moving);
+            insert.executeUpdate();
+        }
+
+        new ShardRebalancer(connections, 16).rebalance(4);
+
+        assertEquals(100, total());
+        assertEquals(1, rows(3, moving.getId()));
+    }
+
+    @Test
+    void testRejectsShardCountAboveConnections() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardRebalancer(connections, 10).rebalance(5));
+    }
+
+    private ShardedDealStore store(int shardCount, int previousCount) {
+        List<DataSource> dataSources = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            dataSources.add(new ShardedDealStoreTest.CountingDataSource(urls.get(i)));
+        }
+        ShardedDealStore store = new ShardedDealStore();
+        store.start(dataSources, 0, previousCount, true, executor);
+        return store;
+    }
+
+    private long rows(int shard, long id) throws SQLException {
+        return queryLong(shard, "SELECT COUNT(*) FROM fx_deals WHERE id = " + id);
+    }
+
+    private long total() throws SQLException {
+        long total = 0;
+        for (int shard = 0; shard < connections.size(); shard++) {
+            total += queryLong(shard, "SELECT COUNT(*) FROM fx_deals");
+        }
+        return total;
+    }
+
+    private long queryLong(int shard, String sql) throws SQLException {
+        try (Statement statement = connections.get(shard).createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            long value = resultSet.getLong(1);
+            connections.get(shard).commit();
+            return value;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.bloomberg.fxdeals.shard;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import jakarta.persistence.PersistenceException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ShardedDealStore, with one in-memory H2 database per shard.
+ */
+class ShardedDealStoreTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 15, 10, 0);
+
+    private final List<CountingDataSource> dataSources = new ArrayList<>();
+    private ExecutorService executor;
+    private ShardedDealStore store;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+        store = newStore(3, 0);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        executor.shutdownNow();
+        for (CountingDataSource dataSource : dataSources) {
+            try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+                statement.execute("SHUTDOWN");
+            }
+        }
+    }
+
+    @Test
+    void testDealsAreStoredOnTheirHashShard() throws SQLException {
+        List<FxDeal> deals = deals(60);
+        store.saveAll(deals);
+
+        for (FxDeal deal : deals) {
+            int shard = JumpHash.shardFor(deal.getDealUniqueId(), 3);
+            assertEquals(shard, DealIdGenerator.shardOf(deal.getId()));
+            assertEquals(1, rowsOn(shard, deal.getDealUniqueId()));
+        }
+        for (int shard = 0; shard < 3; shard++) {
+            assertTrue(countOn(shard) > 0, "shard " + shard + " is empty");
+        }
+    }
+
+    @Test
+    void testPointLookupsTouchOneShard() {
+        List<FxDeal> deals = deals(30);
+        store.saveAll(deals);
+        FxDeal target = deals.get(7);
+        resetConnectionCounts();
+
+        assertEquals(target.getId(), store.findByDealUniqueId(target.getDealUniqueId()).orElseThrow().getId());
+        assertEquals(target.getDealUniqueId(), store.findById(target.getId()).orElseThrow().getDealUniqueId());
+        assertTrue(store.existsByDealUniqueId(target.getDealUniqueId()));
+
+        int shard = JumpHash.shardFor(target.getDealUniqueId(), 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i == shard ? 3 : 0, dataSources.get(i).connections.get(), "shard " + i);
+        }
+    }
+
+    @Test
+    void testFindByIdFallsBackToOtherShards() throws SQLException {
+        FxDeal deal = deals(1).get(0);
+        store.save(deal);
+        int home = DealIdGenerator.shardOf(deal.getId());
+        int other = (home + 1) % 3;
+        moveRow(deal.getId(), home, other);
+
+        assertTrue(store.findById(deal.getId()).isPresent());
+        assertFalse(store.findById(deal.getId() + 1).isPresent());
+    }
+
+    @Test
+    void testListingMergesShardsNewestFirst() {
+        List<FxDeal> deals = deals(50);
+        // repeat timestamps so ordering also depends on the id tie-break
+        for (int i = 0; i < deals.size(); i++) {
+            deals.get(i).setDealTimestamp(BASE.plusMinutes(i / 3));
+        }
+        store.saveAll(deals);
+        List<Long> expected = deals.stream()
+            .sorted(Comparator.comparing(FxDeal::getDealTimestamp).thenComparing(FxDeal::getId).reversed())
+            .map(FxDeal::getId)
+            .collect(Collectors.toList());
+
+        assertEquals(expected, ids(store.findAll()));
+        assertEquals(expected.subList(0, 10), ids(store.findAll(0, 10)));
+        assertEquals(expected.subList(20, 35), ids(store.findAll(20, 15)));
+        assertEquals(expected.subList(45, 50), ids(store.findAll(45, 20)));
+        assertEquals(50L, store.count());
+    }
+
+    @Test
+    void testIdRangeMergesInIdOrder() {
+        List<FxDeal> deals = deals(40);
+        store.saveAll(deals);
+        List<Long> sorted = deals.stream().map(FxDeal::getId).sorted().collect(Collectors.toList());
+
+        List<FxDeal> page = store.findByIdRange(sorted.get(4), Long.MAX_VALUE, 10);
+
+        assertEquals(sorted.subList(5, 15), ids(page));
+        assertEquals(sorted.get(39), store.maxId());
+    }
+
+    @Test
+    void testFindExistingDealUniqueIds() {
+        store.saveAll(deals(20));
+
+        Set<String> existing = store.findExistingDealUniqueIds(List.of("DEAL3", "DEAL17", "MISSING1", "MISSING2"));
+
+        assertEquals(Set.of("DEAL3", "DEAL17"), existing);
+    }
+
+    @Test
+    void testDeleteByIdsSplitsIntoBatches() throws SQLException {
+        List<FxDeal> deals = deals(2 * ShardedDealStore.DELETE_BATCH_SIZE + 10);
+        store.saveAll(deals);
+        List<Long> ids = new ArrayList<>(ids(deals));
+        ids.add(Long.MAX_VALUE);
+
+        assertEquals(deals.size(), store.deleteByIds(ids));
+
+        for (int shard = 0; shard < 3; shard++) {
+            assertEquals(0, countOn(shard));
+        }
+        assertEquals(0, store.deleteByIds(List.of()));
+    }
+
+    @Test
+    void testDeleteSqlHasOnePlaceholderPerId() {
+        assertEquals("DELETE FROM fx_deals WHERE id IN (?, ?, ?)", ShardedDealStore.deleteSql(3));
+    }
+
+    @Test
+    void testDuplicateUniqueIdIsRejectedByShard() {
+        store.save(deals(1).get(0));
+
+        assertThrows(PersistenceException.class, () -> store.save(deals(1).get(0)));
+    }
+
+    @Test
+    void testLookupsConsultPreviousLayoutDuringRebalance() {
+        newStore(3, 0);
+        ShardedDealStore twoShards = new ShardedDealStore();
+        twoShards.start(new ArrayList<>(dataSources.subList(3, 5)), 0, 0, false, executor);
+        List<FxDeal> deals = deals(60);
+        twoShards.saveAll(deals);
+
+        ShardedDealStore grown = new ShardedDealStore();
+        grown.start(new ArrayList<>(dataSources.subList(3, 6)), 0, 2, true, executor);
+        ShardedDealStore grownWithoutHint = new ShardedDealStore();
+        grownWithoutHint.start(new ArrayList<>(dataSources.subList(3, 6)), 0, 0, false, executor);
+
+        FxDeal moving = deals.stream()
+            .filter(deal -> JumpHash.shardFor(deal.getDealUniqueId(), 3) == 2)
+            .findFirst().orElseThrow();
+        assertTrue(grown.findByDealUniqueId(moving.getDealUniqueId()).isPresent());
+        assertTrue(grown.findExistingDealUniqueIds(List.of(moving.getDealUniqueId())).contains(moving.getDealUniqueId()));
+        assertFalse(grownWithoutHint.existsByDealUniqueId(moving.getDealUniqueId()));
+    }
+
+    private ShardedDealStore newStore(int shardCount, int nodeId) {
+        List<DataSource> shards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            CountingDataSource dataSource = new CountingDataSource(
+                "jdbc:h2:mem:shard" + dataSources.size() + "-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+            dataSources.add(dataSource);
+            shards.add(dataSource);
+        }
+        ShardedDealStore newStore = new ShardedDealStore();
+        newStore.start(shards, nodeId, 0, true, executor);
+        return newStore;
+    }
+
+    static List<FxDeal> deals(int count) {
+        List<FxDeal> deals = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            deals.add(new FxDeal("DEAL" + i, "USD", "EUR", BASE.plusSeconds(i), new BigDecimal("1000.50")));
+        }
+        return deals;
+    }
+
+    private static List<Long> ids(List<FxDeal> deals) {
+        return deals.stream().map(FxDeal::getId).collect(Collectors.toList());
+    }
+
+    private void resetConnectionCounts() {
+        dataSources.forEach(dataSource -> dataSource.connections.set(0));
+    }
+
+    private long rowsOn(int shard, String dealUniqueId) throws SQLException {
+        return queryLong(shard, "SELECT COUNT(*) FROM fx_deals WHERE deal_unique_id = '" + dealUniqueId + "'");
+    }
+
+    private long countOn(int shard) throws SQLException {
+        return queryLong(shard, "SELECT COUNT(*) FROM fx_deals");
+    }
+
+    private long queryLong(int shard, String sql) throws SQLException {
+        try (Connection connection = dataSources.get(shard).getConnection();
+             Statement statement = connection.createStatement();
+             var resultSet = statement.executeQuery(sql)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private void moveRow(long id, int from, int to) throws SQLException {
+        FxDeal deal = store.findById(id).orElseThrow();
+        try (Connection target = dataSources.get(to).getConnection();
+             var insert = target.prepareStatement(ShardedDealStore.INSERT_SQL)) {
+            ShardedDealStore.bindInsert(insert, deal);
+            insert.executeUpdate();
+        }
+        try (Connection source = dataSources.get(from).getConnection();
+             Statement statement = source.createStatement()) {
+            statement.executeUpdate("DELETE FROM fx_deals WHERE id = " + id);
+        }
+    }
+
+    /**
+     * H2 database by URL, counting the connections handed out.
+     */
+    static final class CountingDataSource implements DataSource {
+        final AtomicInteger connections = new AtomicInteger();
+        private final String url;
+
+        CountingDataSource(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connections.incrementAndGet();
+            return DriverManager.getConnection(url, "sa", "");
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return getConnection();
+        }
+
+        @Override
+        public PrintWriter getLogWriter() {
+            return null;
+        }
+
+        @Override
+        public void setLogWriter(PrintWriter out) {
+        }
+
+        @Override
+        public void setLoginTimeout(int seconds) {
+        }
+
+        @Override
+        public int getLoginTimeout() {
+            return 0;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+
+        @Override
+        public <T> T unwrap(Class<T> type) throws SQLException {
+            throw new SQLException("Not a wrapper");
+        }
+
+        @Override
+        public boolean isWrapperFor(Class<?> type) {
+            return false;
+        }
+    }
+}
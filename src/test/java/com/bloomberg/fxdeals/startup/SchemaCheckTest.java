@@ -0,0 +1,54 @@
+package com.bloomberg.fxdeals.startup;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SchemaCheck.
+ */
+class SchemaCheckTest {
+
+    private JdbcDataSource dataSource;
+    private final SchemaCheck check = new SchemaCheck();
+    private final SchemaMigrator migrator = new SchemaMigrator();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:schema-check" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setUser("sa");
+        check.config = new FxDealsConfig();
+    }
+
+    @Test
+    void testCheck_PassesOnMigratedSchema() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            migrator.migrate(connection);
+        }
+
+        assertDoesNotThrow(() -> check.check(dataSource, migrator));
+    }
+
+    @Test
+    void testCheck_FailsStartupOnUnmigratedSchema() {
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                                                   () -> check.check(dataSource, migrator));
+
+        assertTrue(error.getMessage().startsWith("Schema does not match migrations up to V2"), error.getMessage());
+        assertTrue(error.getMessage().endsWith("Run SchemaMigrator before starting the server."));
+    }
+
+    @Test
+    void testStartup_InUpdateModeSkipsTheCheck() {
+        // no datasource is bound; the default mode must not look one up
+        assertNull(System.getProperty(SchemaCheck.MODE_PROPERTY));
+        assertDoesNotThrow(() -> check.onStartup(new Object()));
+    }
+}
@@ -0,0 +1,170 @@
+package com.bloomberg.fxdeals.startup;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import com.bloomberg.fxdeals.entity.ReplicaHeartbeat;
+import org.h2.jdbcx.JdbcDataSource;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SchemaMigrator.
+ */
+class SchemaMigratorTest {
+
+    private static final String V1_SQL = "CREATE TABLE a (id INT);\n";
+    private static final String V2_SQL = "-- second table\nCREATE TABLE b (\n    id INT\n);\nINSERT INTO b VALUES (1);\n";
+
+    private String url;
+    private Connection connection;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        url = "jdbc:h2:mem:schema" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(url);
+        dataSource.setUser("sa");
+        connection = dataSource.getConnection();
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void testBundledMigrations_ProduceTheSchemaHibernateMaps() throws SQLException {
+        SchemaMigrator migrator = new SchemaMigrator();
+
+        assertEquals(2, migrator.migrate(connection));
+
+        // hbm2ddl validate fails the build of the session factory on a missing or mistyped column
+        SessionFactory database = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .addAnnotatedClass(ReplicaHeartbeat.class)
+            .setProperty("hibernate.connection.url", url)
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", "validate")
+            .setProperty("jakarta.persistence.validation.mode", "none")
+            .buildSessionFactory();
+        database.close();
+        assertEquals(List.of(), migrator.validate(connection));
+    }
+
+    @Test
+    void testMigrate_AppliesPendingScriptsInOrderOnce() throws SQLException {
+        SchemaMigrator first = migrator(migration("V1__create_a.sql", V1_SQL));
+        assertEquals(1, first.migrate(connection));
+
+        SchemaMigrator second = migrator(migration("V1__create_a.sql", V1_SQL), migration("V2__create_b.sql", V2_SQL));
+        assertEquals(1, second.migrate(connection));
+        assertEquals(0, second.migrate(connection));
+
+        assertEquals(List.of("1 create a V1__create_a.sql", "2 create b V2__create_b.sql"), history());
+        assertEquals(1, count("b"));
+        assertEquals(2, second.latestVersion());
+    }
+
+    @Test
+    void testValidate_ReportsMissingHistory() throws SQLException {
+        List<String> problems = new SchemaMigrator().validate(connection);
+
+        assertEquals(1, problems.size());
+        assertTrue(problems.get(0).startsWith(SchemaMigrator.HISTORY_TABLE + " cannot be read"), problems.get(0));
+    }
+
+    @Test
+    void testValidate_ReportsUnappliedScripts() throws SQLException {
+        migrator(migration("V1__create_a.sql", V1_SQL)).migrate(connection);
+
+        SchemaMigrator newer = migrator(migration("V1__create_a.sql", V1_SQL), migration("V2__create_b.sql", V2_SQL));
+
+        assertEquals(List.of("V2__create_b.sql has not been applied"), newer.validate(connection));
+    }
+
+    @Test
+    void testValidate_IgnoresVersionsFromALaterRelease() throws SQLException {
+        migrator(migration("V1__create_a.sql", V1_SQL), migration("V2__create_b.sql", V2_SQL)).migrate(connection);
+
+        assertEquals(List.of(), migrator(migration("V1__create_a.sql", V1_SQL)).validate(connection));
+    }
+
+    @Test
+    void testChangedScript_IsReportedAndNotMigrated() throws SQLException {
+        migrator(migration("V1__create_a.sql", V1_SQL)).migrate(connection);
+        SchemaMigrator changed = migrator(migration("V1__create_a.sql", "CREATE TABLE a (id BIGINT);\n"),
+                                          migration("V2__create_b.sql", V2_SQL));
+
+        assertEquals(List.of("V1__create_a.sql has changed since it was applied",
+                             "V2__create_b.sql has not been applied"), changed.validate(connection));
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> changed.migrate(connection));
+        assertEquals("V1__create_a.sql has changed since it was applied", error.getMessage());
+        assertEquals(List.of("1 create a V1__create_a.sql"), history());
+    }
+
+    @Test
+    void testFailedScript_IsNotRecorded() throws SQLException {
+        SchemaMigrator migrator = migrator(migration("V1__create_a.sql", V1_SQL),
+                                           migration("V2__broken.sql", "INSERT INTO missing VALUES (1);\n"));
+
+        SQLException error = assertThrows(SQLException.class, () -> migrator.migrate(connection));
+
+        assertTrue(error.getMessage().startsWith("Migration V2__broken.sql failed"), error.getMessage());
+        assertEquals(List.of("1 create a V1__create_a.sql"), history());
+        assertTrue(connection.getAutoCommit());
+    }
+
+    @Test
+    void testMigrationsOutOfOrder_AreRejected() {
+        assertThrows(IllegalStateException.class,
+            () -> migrator(migration("V2__create_b.sql", V2_SQL), migration("V1__create_a.sql", V1_SQL)));
+        assertThrows(IllegalStateException.class, () -> migration("create_a.sql", V1_SQL));
+    }
+
+    @Test
+    void testStatements_SplitAtLineEndingSemicolonsWithoutComments() {
+        assertEquals(List.of("CREATE TABLE b (\nid INT\n)", "INSERT INTO b VALUES (1)"),
+                     SchemaMigrator.statements(V2_SQL));
+        assertEquals(List.of("SELECT 1"), SchemaMigrator.statements("SELECT 1\n-- no semicolon\n"));
+    }
+
+    private static SchemaMigrator migrator(SchemaMigrator.Migration... migrations) {
+        return new SchemaMigrator(List.of(migrations));
+    }
+
+    private static SchemaMigrator.Migration migration(String script, String sql) {
+        return SchemaMigrator.Migration.of(script, sql);
+    }
+
+    private List<String> history() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                 "SELECT version, description, script FROM " + SchemaMigrator.HISTORY_TABLE + " ORDER BY version")) {
+            while (result.next()) {
+                rows.add(result.getInt(1) + " " + result.getString(2) + " " + result.getString(3));
+            }
+        }
+        return rows;
+    }
+
+    private long count(String table) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.bloomberg.fxdeals.startup;
+
+import com.bloomberg.fxdeals.entity.FxDeal;
+import org.hibernate.HibernateException;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SchemaModeContributor, registered through META-INF/services as it is in
+ * the deployment.
+ */
+class SchemaModeContributorTest {
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty(SchemaCheck.MODE_PROPERTY);
+    }
+
+    @Test
+    void testOwningUnit_ValidateModeChecksTheMissingTable() {
+        System.setProperty(SchemaCheck.MODE_PROPERTY, "validate");
+
+        HibernateException error = assertThrows(HibernateException.class,
+                                                () -> database("create", true).close());
+
+        assertTrue(error.getMessage().contains("fx_deals"), error.getMessage());
+    }
+
+    @Test
+    void testOwningUnit_DefaultsToUpdate() {
+        SessionFactory database = database("validate", true);
+        try {
+            long count = database.fromSession(session ->
+                session.createQuery("SELECT COUNT(f) FROM FxDeal f", Long.class).getSingleResult());
+            assertEquals(0L, count);
+        } finally {
+            database.close();
+        }
+    }
+
+    @Test
+    void testOtherUnits_KeepTheirSetting() {
+        System.setProperty(SchemaCheck.MODE_PROPERTY, "validate");
+
+        assertDoesNotThrow(() -> database("create-drop", false).close());
+    }
+
+    @Test
+    void testUnknownModeFailsTheUnit() {
+        System.setProperty(SchemaCheck.MODE_PROPERTY, "create");
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                                                   () -> database("update", true).close());
+
+        assertEquals(SchemaCheck.MODE_PROPERTY + " must be update or validate, got create", error.getMessage());
+    }
+
+    private static SessionFactory database(String hbm2ddl, boolean owner) {
+        Configuration configuration = new Configuration()
+            .addAnnotatedClass(FxDeal.class)
+            .setProperty("hibernate.connection.url", "jdbc:h2:mem:schema-mode" + System.nanoTime() + ";MODE=MySQL")
+            .setProperty("hibernate.connection.username", "sa")
+            .setProperty("hibernate.connection.password", "")
+            .setProperty("hibernate.hbm2ddl.auto", hbm2ddl)
+            .setProperty("jakarta.persistence.validation.mode", "none");
+        if (owner) {
+            configuration.setProperty(SchemaModeContributor.UNIT_PROPERTY, "true");
+        }
+        return configuration.buildSessionFactory();
+    }
+}
@@ -0,0 +1,171 @@
+package com.bloomberg.fxdeals.startup;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.context.RequestContext;
+import com.bloomberg.fxdeals.dto.FxDealRequest;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.service.FxDealService;
+import com.bloomberg.fxdeals.shard.ShardedDealStore;
+import jakarta.transaction.UserTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for StartupWarmUp.
+ */
+@ExtendWith(MockitoExtension.class)
+class StartupWarmUpTest {
+
+    @Mock
+    private FxDealsConfig config;
+
+    @Mock
+    private FxDealService service;
+
+    @Mock
+    private ShardedDealStore shards;
+
+    @Mock
+    private UserTransaction transaction;
+
+    private StartupWarmUp warmUp;
+
+    @BeforeEach
+    void setUp() {
+        warmUp = new StartupWarmUp();
+        warmUp.config = config;
+        warmUp.service = service;
+        warmUp.shards = shards;
+        warmUp.transaction = transaction;
+    }
+
+    @Test
+    void testRun_CreatesInRolledBackTransactionsAndReadsPages() throws Exception {
+        configure(true, 4, 30000);
+        when(service.createDeal(any())).thenAnswer(invocation -> response(invocation.getArgument(0)));
+        when(service.getDeals(anyInt(), anyInt())).thenReturn(List.of());
+
+        assertFalse(warmUp.isReady());
+        assertEquals(4, warmUp.run());
+
+        assertTrue(warmUp.isReady());
+        InOrder order = inOrder(transaction, service);
+        for (int i = 0; i < 4; i++) {
+            order.verify(transaction).begin();
+            order.verify(service).createDeal(any());
+            order.verify(transaction).rollback();
+        }
+        verify(transaction, never()).commit();
+        verify(service, times(2)).getDeals(0, StartupWarmUp.PAGE_SIZE);
+        verify(service).getDeals(2 * StartupWarmUp.PAGE_SIZE, StartupWarmUp.PAGE_SIZE);
+        verify(service).getDeals(4 * StartupWarmUp.PAGE_SIZE, StartupWarmUp.PAGE_SIZE);
+    }
+
+    @Test
+    void testRun_RequestsAreValidAndDistinct() throws Exception {
+        configure(true, 2, 30000);
+        when(service.createDeal(any())).thenAnswer(invocation -> response(invocation.getArgument(0)));
+
+        warmUp.run();
+
+        ArgumentCaptor<FxDealRequest> requests = ArgumentCaptor.forClass(FxDealRequest.class);
+        verify(service, times(2)).createDeal(requests.capture());
+        FxDealRequest first = requests.getAllValues().get(0);
+        FxDealRequest second = requests.getAllValues().get(1);
+        assertNotEquals(first.getDealUniqueId(), second.getDealUniqueId());
+        assertNotEquals(first.getDealAmount(), second.getDealAmount());
+        assertTrue(first.getDealTimestamp().isBefore(LocalDateTime.now()));
+        assertTrue(first.getFromCurrencyIso().matches("[A-Z]{3}"));
+    }
+
+    @Test
+    void testRun_CallsRunAsWarmUpAndRestoreContext() throws Exception {
+        configure(true, 2, 30000);
+        when(service.createDeal(any())).thenAnswer(invocation -> {
+            assertTrue(RequestContext.isWarmUp());
+            return response(invocation.getArgument(0));
+        });
+        RequestContext caller = RequestContext.forClient("caller");
+        RequestContext.bind(caller);
+        try {
+            warmUp.run();
+
+            assertSame(caller, RequestContext.current());
+            assertFalse(RequestContext.isWarmUp());
+        } finally {
+            RequestContext.clear();
+        }
+        verify(service, times(2)).createDeal(any());
+    }
+
+    @Test
+    void testRun_FailureEndsWarmUpAndStillReportsReady() throws Exception {
+        configure(true, 100, 30000);
+        when(service.createDeal(any())).thenThrow(new IllegalStateException("database down"));
+
+        assertEquals(0, warmUp.run());
+
+        assertTrue(warmUp.isReady());
+        verify(transaction).rollback();
+        verify(service, times(1)).createDeal(any());
+    }
+
+    @Test
+    void testRun_StopsAtTimeLimit() {
+        configure(true, Integer.MAX_VALUE, 0);
+
+        assertEquals(0, warmUp.run());
+        assertTrue(warmUp.isReady());
+    }
+
+    @Test
+    void testRun_SkipsCreatesWithShardedStorage() throws Exception {
+        configure(true, 3, 30000);
+        when(shards.isEnabled()).thenReturn(true);
+
+        assertEquals(3, warmUp.run());
+
+        verifyNoInteractions(transaction);
+        verify(service, never()).createDeal(any());
+        verify(service, times(3)).getDeals(anyInt(), eq(StartupWarmUp.PAGE_SIZE));
+    }
+
+    @Test
+    void testStartup_DisabledIsReadyAtOnce() {
+        configure(false, 200, 10000);
+
+        warmUp.onStartup(new Object());
+
+        assertTrue(warmUp.isReady());
+        verifyNoInteractions(service);
+    }
+
+    private void configure(boolean enabled, int iterations, long maxMillis) {
+        when(config.getBoolean(eq(StartupWarmUp.ENABLED_PROPERTY), anyBoolean())).thenReturn(enabled);
+        when(config.getInt(eq(StartupWarmUp.ITERATIONS_PROPERTY), anyInt())).thenReturn(iterations);
+        when(config.getLong(eq(StartupWarmUp.MAX_MS_PROPERTY), anyLong())).thenReturn(maxMillis);
+        warmUp.init();
+    }
+
+    private static FxDealResponse response(FxDealRequest request) {
+        return new FxDealResponse(1L, request.getDealUniqueId(), request.getFromCurrencyIso(),
+                                  request.getToCurrencyIso(), request.getDealTimestamp(),
+                                  request.getDealAmount(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,191 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.config.FxDealsConfig;
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.event.DealCreatedEvent;
+import com.bloomberg.fxdeals.repository.FxDealRepository;
+import com.bloomberg.fxdeals.repository.ReplicaRouter;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ChangeFeed.
+ */
+@ExtendWith(MockitoExtension.class)
+class ChangeFeedTest {
+
+    @Mock
+    private TransactionSynchronizationRegistry transactions;
+
+    @Mock
+    private FxDealRepository repository;
+
+    private ChangeFeed changeFeed;
+
+    @BeforeEach
+    void setUp() {
+        changeFeed = newChangeFeed("500");
+        changeFeed.advance(10L);
+    }
+
+    @Test
+    void testBoundIsHighestKnownIdWithoutOpenWrites() {
+        assertEquals(11L, changeFeed.visibleBound());
+
+        saved(12L);
+
+        assertEquals(13L, changeFeed.visibleBound());
+    }
+
+    @Test
+    void testOpenWriteHoldsBackLaterCommits() {
+        Synchronization first = beginWrite();
+        saved(11L);
+        Synchronization second = beginWrite();
+        saved(12L);
+
+        // 12 may commit before 11; neither is handed out while the first write is open
+        assertEquals(11L, changeFeed.visibleBound());
+
+        second.afterCompletion(Status.STATUS_COMMITTED);
+        assertEquals(11L, changeFeed.visibleBound());
+
+        first.afterCompletion(Status.STATUS_COMMITTED);
+        assertEquals(13L, changeFeed.visibleBound());
+    }
+
+    @Test
+    void testRolledBackWriteReleasesBound() {
+        Synchronization write = beginWrite();
+        saved(11L);
+        assertEquals(11L, changeFeed.visibleBound());
+
+        write.afterCompletion(Status.STATUS_ROLLEDBACK);
+
+        assertEquals(12L, changeFeed.visibleBound());
+    }
+
+    @Test
+    void testWaitersAreSignalledWhenNewIdsBecomeVisible() {
+        CompletableFuture<Boolean> caughtUp = changeFeed.awaitChange(10L);
+        CompletableFuture<Boolean> ahead = changeFeed.awaitChange(20L);
+
+        Synchronization write = beginWrite();
+        saved(11L);
+        assertFalse(caughtUp.isDone());
+
+        write.afterCompletion(Status.STATUS_COMMITTED);
+
+        assertTrue(caughtUp.join());
+        assertFalse(ahead.isDone());
+        assertEquals(1, changeFeed.getWaiterCount());
+
+        ahead.cancel(false);
+        assertEquals(0, changeFeed.getWaiterCount());
+    }
+
+    @Test
+    void testNoTransactionIsNotTracked() {
+        when(transactions.getTransactionStatus()).thenReturn(Status.STATUS_NO_TRANSACTION);
+
+        changeFeed.beginWrite();
+
+        verify(transactions, never()).registerInterposedSynchronization(any());
+        assertEquals(11L, changeFeed.visibleBound());
+    }
+
+    @Test
+    void testFirstRefreshPublishesPrimaryMaxId() {
+        when(repository.maxId()).thenReturn(15L);
+
+        changeFeed.refreshIfStale();
+        changeFeed.refreshIfStale();
+
+        assertEquals(16L, changeFeed.visibleBound());
+        verify(repository, times(1)).maxId();
+    }
+
+    @Test
+    void testLaterRefreshesPublishThePreviousRead() {
+        changeFeed = newChangeFeed("0");
+        when(repository.maxId()).thenReturn(15L, 20L, 20L);
+
+        changeFeed.refreshIfStale();
+        changeFeed.refreshIfStale();
+        // 20 was only just read: a create on another instance below it may still be open
+        assertEquals(16L, changeFeed.visibleBound());
+
+        changeFeed.refreshIfStale();
+        assertEquals(21L, changeFeed.visibleBound());
+    }
+
+    @Test
+    void testRefreshWakesWaitersForDealsCreatedElsewhere() {
+        CompletableFuture<Boolean> waiting = changeFeed.awaitChange(10L);
+        when(repository.maxId()).thenReturn(12L);
+
+        changeFeed.refreshIfStale();
+
+        assertTrue(waiting.join());
+        assertEquals(0, changeFeed.getWaiterCount());
+    }
+
+    @Test
+    void testRefreshedIdsWaitForLocalOpenWrite() {
+        changeFeed = newChangeFeed("0");
+        changeFeed.advance(10L);
+        Synchronization write = beginWrite();
+        when(repository.maxId()).thenReturn(14L);
+
+        changeFeed.refreshIfStale();
+        changeFeed.refreshIfStale();
+        assertEquals(11L, changeFeed.visibleBound());
+
+        write.afterCompletion(Status.STATUS_COMMITTED);
+        assertEquals(15L, changeFeed.visibleBound());
+    }
+
+    private ChangeFeed newChangeFeed(String refreshIntervalMillis) {
+        System.setProperty(ChangeFeed.REFRESH_INTERVAL_PROPERTY, refreshIntervalMillis);
+        try {
+            ChangeFeed feed = new ChangeFeed();
+            feed.config = new FxDealsConfig();
+            feed.repository = repository;
+            feed.replicaRouter = new ReplicaRouter();
+            feed.transactions = transactions;
+            feed.init();
+            return feed;
+        } finally {
+            System.clearProperty(ChangeFeed.REFRESH_INTERVAL_PROPERTY);
+        }
+    }
+
+    private Synchronization beginWrite() {
+        reset(transactions);
+        when(transactions.getTransactionStatus()).thenReturn(Status.STATUS_ACTIVE);
+        changeFeed.beginWrite();
+        ArgumentCaptor<Synchronization> captor = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactions).registerInterposedSynchronization(captor.capture());
+        return captor.getValue();
+    }
+
+    private void saved(long id) {
+        LocalDateTime now = LocalDateTime.now();
+        changeFeed.onDealSaved(new DealCreatedEvent(
+            new FxDealResponse(id, "DEAL" + id, "USD", "EUR", now, BigDecimal.ONE, now)));
+    }
+}
@@ -0,0 +1,205 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import com.bloomberg.fxdeals.exception.SubscriberLimitException;
+import com.bloomberg.fxdeals.exception.ValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DealBroadcaster.
+ */
+class DealBroadcasterTest {
+
+    private DealBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        if (broadcaster != null) {
+            broadcaster.shutdown();
+        }
+    }
+
+    @Test
+    void testSubscriberReceivesOnlyDealsPublishedAfterSubscribing() {
+        start(16, DealBroadcaster.LagPolicy.RESYNC, 10);
+        broadcaster.publish(deal(1, "USD", "EUR"));
+        awaitTrue(() -> broadcaster.getPublishedCount() == 1);
+
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(sink, null);
+        broadcaster.publish(deal(2, "USD", "EUR"));
+
+        awaitTrue(() -> sink.dealIds.size() == 1);
+        assertEquals(List.of(2L), sink.dealIds);
+        assertEquals(List.of(1L), sink.sequences);
+    }
+
+    @Test
+    void testCurrencyPairFilter() {
+        start(16, DealBroadcaster.LagPolicy.RESYNC, 10);
+        RecordingSink sink = new RecordingSink();
+        broadcaster.subscribe(sink, DealBroadcaster.parseCurrencyPairs("USD/EUR, gbpjpy"));
+
+        broadcaster.publish(deal(1, "USD", "EUR"));
+        broadcaster.publish(deal(2, "EUR", "USD"));
+        broadcaster.publish(deal(3, "GBP", "JPY"));
+        broadcaster.publish(deal(4, "USD", "EUR"));
+
+        awaitTrue(() -> sink.dealIds.size() == 3);
+        assertEquals(List.of(1L, 3L, 4L), sink.dealIds);
+    }
+
+    @Test
+    void testLaggingSubscriberIsResynced() {
+        start(4, DealBroadcaster.LagPolicy.RESYNC, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(release);
+        RecordingSink fast = new RecordingSink();
+        broadcaster.subscribe(slow, null);
+        broadcaster.subscribe(fast, null);
+
+        broadcaster.publish(deal(1, "USD", "EUR"));
+        awaitTrue(() -> slow.blocked);
+        for (long id = 2; id <= 10; id++) {
+            broadcaster.publish(deal(id, "USD", "EUR"));
+            int delivered = (int) id;
+            awaitTrue(() -> fast.dealIds.size() == delivered);
+        }
+        release.countDown();
+
+        awaitTrue(() -> !slow.resyncs.isEmpty());
+        assertEquals(1L, slow.resyncs.get(0)[0]);
+        assertEquals(10L, slow.resyncs.get(0)[1]);
+
+        broadcaster.publish(deal(11, "USD", "EUR"));
+        awaitTrue(() -> slow.dealIds.size() == 2);
+        assertEquals(List.of(1L, 11L), slow.dealIds);
+        assertEquals(1, broadcaster.getResyncCount());
+        assertEquals(2, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void testLaggingSubscriberIsDroppedUnderDropPolicy() {
+        start(4, DealBroadcaster.LagPolicy.DROP, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSink slow = new RecordingSink(release);
+        broadcaster.subscribe(slow, null);
+
+        broadcaster.publish(deal(1, "USD", "EUR"));
+        awaitTrue(() -> slow.blocked);
+        for (long id = 2; id <= 10; id++) {
+            broadcaster.publish(deal(id, "USD", "EUR"));
+        }
+        awaitTrue(() -> broadcaster.getPublishedCount() == 10);
+        release.countDown();
+
+        awaitTrue(() -> slow.closed);
+        assertEquals(0, broadcaster.getSubscriberCount());
+        assertEquals(1, broadcaster.getDisconnectCount());
+        assertTrue(slow.resyncs.isEmpty());
+    }
+
+    @Test
+    void testClosedSinkIsRemoved() {
+        start(16, DealBroadcaster.LagPolicy.RESYNC, 10);
+        RecordingSink sink = new RecordingSink();
+        sink.accept = false;
+        broadcaster.subscribe(sink, null);
+
+        broadcaster.publish(deal(1, "USD", "EUR"));
+
+        awaitTrue(() -> sink.closed);
+        assertEquals(0, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void testSubscriberLimit() {
+        start(16, DealBroadcaster.LagPolicy.RESYNC, 1);
+        broadcaster.subscribe(new RecordingSink(), null);
+
+        assertThrows(SubscriberLimitException.class, () -> broadcaster.subscribe(new RecordingSink(), null));
+        assertEquals(1, broadcaster.getSubscriberCount());
+    }
+
+    @Test
+    void testParseCurrencyPairs() {
+        assertNull(DealBroadcaster.parseCurrencyPairs(null));
+        assertNull(DealBroadcaster.parseCurrencyPairs(" "));
+        assertEquals(Set.of("USDEUR", "GBPJPY"), DealBroadcaster.parseCurrencyPairs("USD/EUR,gbpjpy"));
+        assertThrows(ValidationException.class, () -> DealBroadcaster.parseCurrencyPairs("USD/EU"));
+    }
+
+    private void start(int bufferSize, DealBroadcaster.LagPolicy policy, int maxSubscribers) {
+        broadcaster = new DealBroadcaster();
+        broadcaster.start(bufferSize, policy, maxSubscribers, Executors.newCachedThreadPool());
+    }
+
+    private static FxDealResponse deal(long id, String from, String to) {
+        LocalDateTime now = LocalDateTime.now();
+        return new FxDealResponse(id, "DEAL" + id, from, to, now, new BigDecimal("1000.50"), now);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5 seconds");
+            Thread.onSpinWait();
+        }
+    }
+
+    private static final class RecordingSink implements DealSink {
+        final List<Long> sequences = new CopyOnWriteArrayList<>();
+        final List<Long> dealIds = new CopyOnWriteArrayList<>();
+        final List<long[]> resyncs = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+        volatile boolean blocked;
+        volatile boolean closed;
+        volatile boolean accept = true;
+
+        RecordingSink() {
+            this(new CountDownLatch(0));
+        }
+
+        RecordingSink(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public boolean send(long sequence, FxDealResponse deal) {
+            blocked = true;
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            sequences.add(sequence);
+            dealIds.add(deal.getId());
+            return accept;
+        }
+
+        @Override
+        public boolean resync(long missedFrom, long resumeAt) {
+            resyncs.add(new long[] {missedFrom, resumeAt});
+            return accept;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.bloomberg.fxdeals.stream;
+
+import com.bloomberg.fxdeals.dto.FxDealResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares publish throughput with no subscribers against 1000 slow subscribers.
+ * Run with -Pbenchmark.
+ */
+@Tag("benchmark")
+class StreamFanOutBenchmark {
+
+    private static final int DEALS = 200_000;
+    private static final int SLOW_SUBSCRIBERS = 1000;
+
+    @Test
+    void benchmarkPublishWithSlowSubscribers() {
+        double baseline = publishRate(0);
+        double withSubscribers = publishRate(SLOW_SUBSCRIBERS);
+
+        System.out.printf("Deal stream: %.0f deals/s with no subscribers, %.0f deals/s with %d slow subscribers%n",
+                          baseline, withSubscribers, SLOW_SUBSCRIBERS);
+        assertTrue(withSubscribers > baseline / 10,
+                   "slow subscribers cut publish throughput from " + baseline + " to " + withSubscribers);
+    }
+
+    private static double publishRate(int subscribers) {
+        DealBroadcaster broadcaster = new DealBroadcaster();
+        broadcaster.start(4096, DealBroadcaster.LagPolicy.RESYNC, SLOW_SUBSCRIBERS,
+                          Executors.newCachedThreadPool());
+        try {
+            for (int i = 0; i < subscribers; i++) {
+                broadcaster.subscribe(new SlowSink(), null);
+            }
+            LocalDateTime now = LocalDateTime.now();
+            FxDealResponse deal = new FxDealResponse(1L, "DEAL1", "USD", "EUR", now, BigDecimal.ONE, now);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < DEALS; i++) {
+                broadcaster.publish(deal);
+            }
+            while (broadcaster.getPublishedCount() < DEALS) {
+                Thread.onSpinWait();
+            }
+            return DEALS / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            broadcaster.shutdown();
+        }
+    }
+
+    private static final class SlowSink implements DealSink {
+        @Override
+        public boolean send(long sequence, FxDealResponse deal) {
+            LockSupport.parkNanos(1_000_000L);
+            return true;
+        }
+
+        @Override
+        public boolean resync(long missedFrom, long resumeAt) {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}